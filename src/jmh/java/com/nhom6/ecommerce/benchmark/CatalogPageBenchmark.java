@@ -0,0 +1,117 @@
+package com.nhom6.ecommerce.benchmark;
+
+import com.nhom6.ecommerce.benchmark.support.CatalogSeed;
+import com.nhom6.ecommerce.benchmark.support.EmbeddedShop;
+import com.nhom6.ecommerce.dto.ProductCardView;
+import com.nhom6.ecommerce.dto.ProductPageDTO;
+import com.nhom6.ecommerce.service.ProductCatalogService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BENCHMARK DANH SÁCH SẢN PHẨM trên catalog lớn (mặc định 1 triệu sản phẩm, H2).
+ * - shopFirstPage / shopDeepPage / adminDeepPage: phân trang keyset qua ProductCatalogService (trang đầu và
+ *   trang ở giữa catalog phải tốn gần như nhau)
+ * - shopDeepPageOffset: cùng projection nhưng LIMIT/OFFSET -> mốc so sánh, chi phí tăng theo vị trí trang
+ * Cách cũ (findAll() toàn bộ entity) không đưa vào: ở 1 triệu dòng 1 lần gọi đã mất hàng chục giây / hết heap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CatalogPageBenchmark {
+
+    private static final String OFFSET_QUERY = "SELECT new com.nhom6.ecommerce.dto.ProductCardView("
+            + "p.id, p.sku, p.name, p.thumbnail, p.salePrice, p.stockQuantity, b.name, p.createdAt) "
+            + "FROM Product p LEFT JOIN p.brand b WHERE p.isActive = true AND p.stockQuantity > 0 "
+            + "ORDER BY p.createdAt DESC, p.id DESC";
+
+    @Param({"1000000"})
+    public int catalogSize;
+
+    @Param({"24"})
+    public int pageSize;
+
+    private ConfigurableApplicationContext ctx;
+    private ProductCatalogService catalog;
+    private EntityManagerFactory entityManagerFactory;
+    private String shopMiddleCursor;
+    private String adminMiddleCursor;
+    private int shopMiddleOffset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ctx = EmbeddedShop.start(false, Map.of(
+                "app.loyalty.poll-interval-ms", "3600000",
+                "app.hot-stock.flush-interval-ms", "3600000",
+                "app.voucher-index.refresh-interval-ms", "3600000"));
+        CatalogSeed seed = CatalogSeed.seed(ctx, 0, 0);
+        seed.seedBulkProducts(ctx, catalogSize);
+
+        JdbcTemplate jdbc = ctx.getBean(JdbcTemplate.class);
+        jdbc.execute("ANALYZE");
+        Integer visible = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE is_active = true AND stock_quantity > 0", Integer.class);
+        shopMiddleOffset = visible / 2;
+        shopMiddleCursor = cursorAt("WHERE is_active = true AND stock_quantity > 0 ", shopMiddleOffset);
+        adminMiddleCursor = cursorAt("", catalogSize / 2);
+
+        catalog = ctx.getBean(ProductCatalogService.class);
+        entityManagerFactory = ctx.getBean(EntityManagerFactory.class);
+    }
+
+    private String cursorAt(String where, int offset) {
+        return ctx.getBean(JdbcTemplate.class).queryForObject(
+                "SELECT created_at, id FROM products " + where + "ORDER BY created_at DESC, id DESC LIMIT 1 OFFSET ?",
+                (rs, i) -> {
+                    ProductCardView row = new ProductCardView();
+                    row.setId(rs.getString("id"));
+                    row.setCreatedAt(new Date(rs.getTimestamp("created_at").getTime()));
+                    return ProductCatalogService.cursorAfter(row);
+                },
+                offset);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ctx.close();
+    }
+
+    @Benchmark
+    public ProductPageDTO shopFirstPage() {
+        return catalog.shopPage(null, pageSize);
+    }
+
+    @Benchmark
+    public ProductPageDTO shopDeepPage() {
+        return catalog.shopPage(shopMiddleCursor, pageSize);
+    }
+
+    @Benchmark
+    public ProductPageDTO adminDeepPage() {
+        return catalog.adminPage(adminMiddleCursor, pageSize);
+    }
+
+    @Benchmark
+    public List<ProductCardView> shopDeepPageOffset() {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            return em.createQuery(OFFSET_QUERY, ProductCardView.class)
+                    .setFirstResult(shopMiddleOffset)
+                    .setMaxResults(pageSize + 1)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.nhom6.ecommerce.benchmark;
+
+import com.nhom6.ecommerce.service.InputValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Kiểm tra đầu vào của 1 request hợp lệ (đơn hàng + đăng ký + trả hàng + tên voucher):
+ * - legacy: Pattern.matches / String.matches như trước (biên dịch regex mỗi lần gọi)
+ * - validator: InputValidator (Pattern biên dịch sẵn + duyệt chuỗi thủ công)
+ * Số byte cấp phát mỗi request: xem gc.alloc.rate.norm (profiler gc bật sẵn trong profile benchmark).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InputValidationBenchmark {
+
+    private final InputValidator validator = new InputValidator();
+
+    private String recipientName;
+    private String phone;
+    private String address;
+    private String email;
+    private String bankNumber;
+    private String bankHolder;
+    private String voucherName;
+
+    @Setup
+    public void setUp() {
+        recipientName = "Nguyễn Thị Minh Khai";
+        phone = "0912345678";
+        address = "Số 12 ngõ 34 Nguyễn Trãi, Thanh Xuân, Hà Nội";
+        email = "minhkhai.nguyen@example.com";
+        bankNumber = "19035512345678";
+        bankHolder = "NGUYEN THI MINH KHAI";
+        voucherName = "Giảm giá cuối tuần tháng 10";
+    }
+
+    @Benchmark
+    public boolean legacy() {
+        return Pattern.matches("^[\\p{L} ]{2,50}$", recipientName)
+                & Pattern.matches("^0\\d{9}$", phone)
+                & !address.matches(".*[<>].*")
+                & Pattern.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$", email)
+                & Pattern.matches("^[0-9]{6,20}$", bankNumber)
+                & Pattern.matches("^[A-Z\\s]{3,50}$", bankHolder)
+                & !Pattern.matches("^[0-9]+$", voucherName)
+                & !voucherName.matches(".*[<>/'\"{}].*")
+                & voucherName.codePoints().noneMatch(c -> (c >= 0x1F600 && c <= 0x1F64F)
+                        || (c >= 0x1F300 && c <= 0x1F5FF) || (c >= 0x1F680 && c <= 0x1F6FF));
+    }
+
+    @Benchmark
+    public boolean validator() {
+        return validator.isPersonName(recipientName, 2, 50)
+                & validator.isMobilePhone(phone)
+                & !validator.containsAngleBrackets(address)
+                & validator.isEmail(email)
+                & validator.isDigits(bankNumber, 6, 20)
+                & validator.isBankHolderName(bankHolder)
+                & !validator.isDigits(voucherName, 1, Integer.MAX_VALUE)
+                & !validator.containsMarkupChars(voucherName)
+                & !validator.containsEmoji(voucherName);
+    }
+}
@@ -0,0 +1,118 @@
+package com.nhom6.ecommerce.benchmark;
+
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SO SÁNH 2 FILE KẾT QUẢ JMH (JSON) GIỮA 2 COMMIT
+ * Khóa so sánh: tên benchmark + tham số (@Param). Báo "CHẬM HƠN" khi kết quả xấu đi quá ngưỡng %
+ * và khoảng chênh lớn hơn tổng sai số (scoreError) của 2 lần đo; kèm số byte cấp phát mỗi thao tác nếu có (-prof gc).
+ * Thoát với mã 1 nếu có benchmark chậm hơn -> dùng được làm bước kiểm tra trong CI.
+ *   mvn -Pbenchmark verify -DskipTests -Djmh.result=benchmarks/<commit>.json
+ *   mvn -Pbenchmark test-compile exec:exec@compare-jmh -Djmh.baseline=benchmarks/<commit cũ>.json [-Djmh.threshold=10]
+ */
+public class JmhResultCompare {
+
+    // JMH 1.37 ghi "gc.alloc.rate.norm", các bản cũ có tiền tố "·"
+    private static final String[] ALLOC_METRICS = {"gc.alloc.rate.norm", "·gc.alloc.rate.norm"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Cách dùng: JmhResultCompare <baseline.json> <current.json> [ngưỡng %, mặc định 10]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, Map<String, Object>> baseline = load(new File(args[0]));
+        Map<String, Map<String, Object>> current = load(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s %12s%n", "Benchmark", "Trước", "Sau", "Thay đổi", "Cấp phát");
+        for (Map.Entry<String, Map<String, Object>> e : current.entrySet()) {
+            Map<String, Object> now = e.getValue();
+            Map<String, Object> before = baseline.get(e.getKey());
+            Map<String, Object> metric = metric(now);
+            if (before == null) {
+                System.out.printf("%-90s %14s %14s %9s%n", e.getKey(), "-", format(metric), "MỚI");
+                continue;
+            }
+            Map<String, Object> oldMetric = metric(before);
+            double oldScore = number(oldMetric.get("score"));
+            double newScore = number(metric.get("score"));
+            double change = oldScore == 0 ? 0 : (newScore - oldScore) / oldScore * 100;
+            // Throughput: càng cao càng tốt; AverageTime / SampleTime / SingleShot: càng thấp càng tốt
+            double worse = "thrpt".equals(now.get("mode")) ? -change : change;
+            double noise = number(oldMetric.get("scoreError")) + number(metric.get("scoreError"));
+            boolean regression = worse > threshold && Math.abs(newScore - oldScore) > noise;
+            if (regression) regressions++;
+
+            System.out.printf("%-90s %14s %14s %+8.1f%% %12s%s%n", e.getKey(), format(oldMetric), format(metric), change,
+                    allocChange(before, now), regression ? "  <-- CHẬM HƠN" : "");
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) System.out.printf("%-90s (không còn trong lần chạy mới)%n", key);
+        }
+
+        System.out.println(regressions == 0
+                ? "Không có benchmark nào chậm hơn quá " + threshold + "%"
+                : regressions + " benchmark chậm hơn quá " + threshold + "%");
+        if (regressions > 0) System.exit(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Map<String, Object>> load(File file) throws Exception {
+        List<Map<String, Object>> runs = new ObjectMapper().readValue(file, List.class);
+        Map<String, Map<String, Object>> byKey = new TreeMap<>();
+        for (Map<String, Object> run : runs) {
+            StringBuilder key = new StringBuilder(String.valueOf(run.get("benchmark")).replace("com.nhom6.ecommerce.benchmark.", ""));
+            Map<String, Object> params = (Map<String, Object>) run.get("params");
+            if (params != null) {
+                key.append(' ').append(new TreeMap<>(params));
+            }
+            byKey.put(key.toString(), run);
+        }
+        return byKey;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> metric(Map<String, Object> run) {
+        return (Map<String, Object>) run.get("primaryMetric");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String allocChange(Map<String, Object> before, Map<String, Object> now) {
+        Map<String, Object> oldSecondary = (Map<String, Object>) before.getOrDefault("secondaryMetrics", new LinkedHashMap<>());
+        Map<String, Object> newSecondary = (Map<String, Object>) now.getOrDefault("secondaryMetrics", new LinkedHashMap<>());
+        Map<String, Object> oldAlloc = alloc(oldSecondary);
+        Map<String, Object> newAlloc = alloc(newSecondary);
+        if (oldAlloc == null || newAlloc == null) return "-";
+        return String.format("%.0f->%.0fB", number(oldAlloc.get("score")), number(newAlloc.get("score")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> alloc(Map<String, Object> secondary) {
+        for (String name : ALLOC_METRICS) {
+            if (secondary.get(name) != null) return (Map<String, Object>) secondary.get(name);
+        }
+        return null;
+    }
+
+    private static String format(Map<String, Object> metric) {
+        return String.format("%.3f %s", number(metric.get("score")), metric.get("scoreUnit"));
+    }
+
+    // JMH ghi "NaN" dạng chuỗi khi không tính được sai số
+    private static double number(Object value) {
+        double d;
+        try {
+            d = value instanceof Number n ? n.doubleValue() : Double.parseDouble(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+        return Double.isNaN(d) ? 0 : d;
+    }
+}
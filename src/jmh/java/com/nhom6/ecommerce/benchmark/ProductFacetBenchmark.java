@@ -0,0 +1,95 @@
+package com.nhom6.ecommerce.benchmark;
+
+import com.nhom6.ecommerce.benchmark.support.CatalogSeed;
+import com.nhom6.ecommerce.benchmark.support.EmbeddedShop;
+import com.nhom6.ecommerce.dto.ProductFacetResultDTO;
+import com.nhom6.ecommerce.service.ProductFacetIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BENCHMARK BỘ LỌC SẢN PHẨM trên catalog lớn (mặc định 1 triệu sản phẩm, mỗi sản phẩm 1-2 danh mục).
+ * - noFilter / brandAndCategory / allGroups: ProductFacetIndex, 1 lần gọi = trang kết quả + số đếm mọi nhóm
+ * - sqlFacetCounts: mốc so sánh, cùng bộ lọc allGroups nhưng đếm bằng JOIN + GROUP BY trên H2
+ *   (chỉ thương hiệu & danh mục, chưa kể khoảng giá / còn hàng)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ProductFacetBenchmark {
+
+    private static final String SQL_BRAND_COUNTS = "SELECT p.brand_id, COUNT(DISTINCT p.id) FROM products p "
+            + "JOIN product_categories pc ON pc.product_id = p.id "
+            + "WHERE p.is_active = true AND p.stock_quantity > 0 AND pc.category_id IN (?, ?) "
+            + "AND p.sale_price >= 1000000 AND p.sale_price < 5000000 GROUP BY p.brand_id";
+    private static final String SQL_CATEGORY_COUNTS = "SELECT pc.category_id, COUNT(*) FROM products p "
+            + "JOIN product_categories pc ON pc.product_id = p.id "
+            + "WHERE p.is_active = true AND p.stock_quantity > 0 AND p.brand_id IN (?, ?) "
+            + "AND p.sale_price >= 1000000 AND p.sale_price < 5000000 GROUP BY pc.category_id";
+
+    @Param({"1000000"})
+    public int catalogSize;
+
+    @Param({"24"})
+    public int limit;
+
+    private ConfigurableApplicationContext ctx;
+    private ProductFacetIndex facets;
+    private JdbcTemplate jdbc;
+    private List<String> brands;
+    private List<Long> categories;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ctx = EmbeddedShop.start(false, Map.of(
+                "app.loyalty.poll-interval-ms", "3600000",
+                "app.hot-stock.flush-interval-ms", "3600000",
+                "app.voucher-index.refresh-interval-ms", "3600000"));
+        CatalogSeed seed = CatalogSeed.seed(ctx, 0, 0);
+        seed.seedBulkProducts(ctx, catalogSize);
+        brands = List.of(seed.brandIds.get(0), seed.brandIds.get(1));
+        categories = List.of(seed.categoryIds.get(0), seed.categoryIds.get(3));
+
+        jdbc = ctx.getBean(JdbcTemplate.class);
+        jdbc.execute("ANALYZE");
+
+        // Lúc app khởi động chưa có dữ liệu -> dựng bitmap sau khi nạp
+        facets = ctx.getBean(ProductFacetIndex.class);
+        facets.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ctx.close();
+    }
+
+    @Benchmark
+    public ProductFacetResultDTO noFilter() {
+        return facets.filter(null, null, null, false, limit);
+    }
+
+    @Benchmark
+    public ProductFacetResultDTO brandAndCategory() {
+        return facets.filter(brands, categories, null, false, limit);
+    }
+
+    @Benchmark
+    public ProductFacetResultDTO allGroups() {
+        return facets.filter(brands, categories, List.of("1tr-5tr"), true, limit);
+    }
+
+    @Benchmark
+    public void sqlFacetCounts(Blackhole bh) {
+        bh.consume(jdbc.queryForList(SQL_BRAND_COUNTS, categories.get(0), categories.get(1)));
+        bh.consume(jdbc.queryForList(SQL_CATEGORY_COUNTS, brands.get(0), brands.get(1)));
+    }
+}
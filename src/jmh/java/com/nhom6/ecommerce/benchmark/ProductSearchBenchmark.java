@@ -0,0 +1,71 @@
+package com.nhom6.ecommerce.benchmark;
+
+import com.nhom6.ecommerce.benchmark.support.CatalogSeed;
+import com.nhom6.ecommerce.benchmark.support.EmbeddedShop;
+import com.nhom6.ecommerce.dto.ProductSearchResultDTO;
+import com.nhom6.ecommerce.service.ProductSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BENCHMARK TÌM KIẾM SẢN PHẨM trên chỉ mục trong bộ nhớ (mặc định 1 triệu sản phẩm).
+ * SampleTime -> đọc thẳng p99 trong kết quả JMH (mục tiêu < 10 ms).
+ * - broadQuery: 2 từ rất phổ biến (~1/20 catalog khớp) -> phải chấm điểm cả chục nghìn sản phẩm
+ * - narrowQuery: nhiều từ, giao danh sách ngắn nhất trước
+ * - rareQuery: 1 từ hiếm (số thứ tự trong tên)
+ * Truy vấn gõ không dấu, dữ liệu có dấu.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ProductSearchBenchmark {
+
+    @Param({"1000000"})
+    public int catalogSize;
+
+    @Param({"20"})
+    public int limit;
+
+    private ConfigurableApplicationContext ctx;
+    private ProductSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ctx = EmbeddedShop.start(false, Map.of(
+                "app.loyalty.poll-interval-ms", "3600000",
+                "app.hot-stock.flush-interval-ms", "3600000",
+                "app.voucher-index.refresh-interval-ms", "3600000"));
+        CatalogSeed seed = CatalogSeed.seed(ctx, 0, 0);
+        seed.seedBulkProducts(ctx, catalogSize);
+
+        // Lúc app khởi động chưa có dữ liệu -> dựng chỉ mục sau khi nạp
+        index = ctx.getBean(ProductSearchIndex.class);
+        index.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ctx.close();
+    }
+
+    @Benchmark
+    public ProductSearchResultDTO broadQuery() {
+        return index.search("dien thoai", limit);
+    }
+
+    @Benchmark
+    public ProductSearchResultDTO narrowQuery() {
+        return index.search("dien thoai samsung chinh hang", limit);
+    }
+
+    @Benchmark
+    public ProductSearchResultDTO rareQuery() {
+        return index.search("424242", limit);
+    }
+}
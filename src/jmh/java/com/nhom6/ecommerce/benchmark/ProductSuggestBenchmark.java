@@ -0,0 +1,59 @@
+package com.nhom6.ecommerce.benchmark;
+
+import com.nhom6.ecommerce.benchmark.support.CatalogSeed;
+import com.nhom6.ecommerce.benchmark.support.EmbeddedShop;
+import com.nhom6.ecommerce.dto.ProductSuggestionDTO;
+import com.nhom6.ecommerce.service.ProductSuggestIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BENCHMARK GỢI Ý KHI GÕ trên cây gợi ý trong bộ nhớ (mặc định 1 triệu sản phẩm).
+ * SampleTime -> đọc thẳng p99 trong kết quả JMH (mục tiêu: vài ms cho mỗi phím gõ).
+ * Các tiền tố giống người dùng gõ dần: 1 ký tự (nhánh lớn nhất), cụm nhiều từ, giữa tên, SKU.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ProductSuggestBenchmark {
+
+    @Param({"1000000"})
+    public int catalogSize;
+
+    @Param({"d", "dien thoai sa", "chinh h", "bulk 0004"})
+    public String prefix;
+
+    private ConfigurableApplicationContext ctx;
+    private ProductSuggestIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ctx = EmbeddedShop.start(false, Map.of(
+                "app.loyalty.poll-interval-ms", "3600000",
+                "app.hot-stock.flush-interval-ms", "3600000",
+                "app.voucher-index.refresh-interval-ms", "3600000"));
+        CatalogSeed seed = CatalogSeed.seed(ctx, 0, 0);
+        seed.seedBulkProducts(ctx, catalogSize);
+
+        // Lúc app khởi động chưa có dữ liệu -> dựng cây sau khi nạp
+        index = ctx.getBean(ProductSuggestIndex.class);
+        index.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ctx.close();
+    }
+
+    @Benchmark
+    public List<ProductSuggestionDTO> suggest() {
+        return index.suggest(prefix, 8);
+    }
+}
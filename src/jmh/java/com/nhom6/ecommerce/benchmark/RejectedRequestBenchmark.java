@@ -0,0 +1,54 @@
+package com.nhom6.ecommerce.benchmark;
+
+import com.nhom6.ecommerce.exception.DomainException;
+import com.nhom6.ecommerce.exception.ValidationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí của 1 request bị từ chối: ném lỗi ở sâu trong call stack rồi bắt lại ở tầng controller.
+ * - legacyRuntimeException: cách cũ, RuntimeException có chụp stack trace
+ * - domainException: ValidationException không stack trace (writableStackTrace = false)
+ * Độ sâu stack giả lập khung của Spring MVC + filter + service (thường 100-200 khung).
+ * Chạy với -prof gc để xem số byte cấp phát cho mỗi lần từ chối.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RejectedRequestBenchmark {
+
+    @Param({"20", "100", "200"})
+    public int stackDepth;
+
+    @Benchmark
+    public String legacyRuntimeException() {
+        try {
+            return descendLegacy(stackDepth);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public String domainException() {
+        try {
+            return descendDomain(stackDepth);
+        } catch (DomainException e) {
+            return e.getCode();
+        }
+    }
+
+    private String descendLegacy(int depth) {
+        if (depth == 0) throw new RuntimeException("3E.1: Mã giảm giá không tồn tại.");
+        return descendLegacy(depth - 1);
+    }
+
+    private String descendDomain(int depth) {
+        if (depth == 0) throw new ValidationException("ORDER.3E.1", "3E.1: Mã giảm giá không tồn tại.");
+        return descendDomain(depth - 1);
+    }
+}
@@ -0,0 +1,228 @@
+package com.nhom6.ecommerce.benchmark;
+
+import com.nhom6.ecommerce.benchmark.support.CatalogSeed;
+import com.nhom6.ecommerce.benchmark.support.EmbeddedShop;
+import com.nhom6.ecommerce.benchmark.support.InMemoryShop;
+import com.nhom6.ecommerce.dto.CartItemDTO;
+import com.nhom6.ecommerce.dto.OrderRequestDTO;
+import com.nhom6.ecommerce.dto.ProductRequestDTO;
+import com.nhom6.ecommerce.dto.VoucherRequestDTO;
+import com.nhom6.ecommerce.entity.Order;
+import com.nhom6.ecommerce.entity.OrderItem;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.entity.User;
+import com.nhom6.ecommerce.entity.Voucher;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import com.nhom6.ecommerce.repository.VoucherRepository;
+import com.nhom6.ecommerce.service.OrderService;
+import com.nhom6.ecommerce.service.ProductService;
+import com.nhom6.ecommerce.service.UserService;
+import com.nhom6.ecommerce.service.VoucherService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BENCHMARK TẦNG SERVICE: các hàm nghiệp vụ chính chạy qua bean thật (proxy transaction, StageMetrics, cache).
+ * - store=memory: repository trong bộ nhớ -> chỉ đo logic Java (validate, tính tiền, voucher...)
+ * - store=h2: app thật trên DB nhúng -> tính cả Hibernate, JDBC, flush/commit
+ * Chênh lệch giữa 2 chế độ là phần thời gian nằm ở tầng dữ liệu.
+ * Voucher/sản phẩm tạo ra trong mỗi vòng đo được xóa sau vòng đó -> dữ liệu không phình ra, các lần đo so sánh được.
+ * Kết quả JSON (target/jmh-result.json) so với lần chạy trước bằng JmhResultCompare.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceLayerBenchmark {
+
+    @Param({"memory", "h2"})
+    public String store;
+
+    // Số dòng trong giỏ: cả giỏ được giữ hàng bằng 1 batch UPDATE nên thời gian createOrder phải gần như không đổi
+    // khi giỏ lớn lên (chỉ chạy 1 cỡ giỏ: -p cartItems=5)
+    @Param({"1", "5", "10", "50"})
+    public int cartItems;
+
+    @Param({"1000"})
+    public int catalogSize;
+
+    private ConfigurableApplicationContext ctx;
+    private CatalogSeed seed;
+    private OrderService orderService;
+    private VoucherService voucherService;
+    private ProductService productService;
+    private UserService userService;
+    private TransactionTemplate tx;
+    private MethodHandle calculateVoucherDiscount;
+
+    private final List<Long> createdVoucherIds = new ArrayList<>();
+    private final List<String> createdProductIds = new ArrayList<>();
+    private List<String> voucherScope;
+    private List<OrderItem> scopedCart;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ctx = "h2".equals(store)
+                // Tắt các tác vụ nền (tích điểm, ghi dồn sổ kho, nạp lại chỉ mục voucher) để không chen vào phép đo
+                ? EmbeddedShop.start(false, Map.of(
+                        "app.loyalty.poll-interval-ms", "3600000",
+                        "app.hot-stock.flush-interval-ms", "3600000",
+                        "app.voucher-index.refresh-interval-ms", "3600000"))
+                : InMemoryShop.start();
+        seed = CatalogSeed.seed(ctx, catalogSize, 100);
+
+        orderService = ctx.getBean(OrderService.class);
+        voucherService = ctx.getBean(VoucherService.class);
+        productService = ctx.getBean(ProductService.class);
+        userService = ctx.getBean(UserService.class);
+        tx = new TransactionTemplate(ctx.getBean(PlatformTransactionManager.class));
+
+        // Hàm private: gọi thẳng trên đối tượng thật (không qua proxy transaction), transaction do benchmark mở
+        Method m = OrderService.class.getDeclaredMethod("calculateVoucherDiscount",
+                String.class, User.class, BigDecimal.class, List.class);
+        m.setAccessible(true);
+        calculateVoucherDiscount = MethodHandles.lookup().unreflect(m)
+                .bindTo(AopTestUtils.getUltimateTargetObject(orderService));
+
+        voucherScope = new ArrayList<>();
+        for (int i = 0; i < CatalogSeed.SCOPED_PRODUCTS; i++) voucherScope.add(seed.products.get(i).getId());
+
+        // Giỏ hàng xấu nhất cho voucher theo sản phẩm: chỉ sản phẩm cuối giỏ nằm trong phạm vi
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < cartItems - 1; i++) ids.add(seed.products.get(catalogSize - 1 - i).getId());
+        ids.add(seed.products.get(0).getId());
+        scopedCart = new ArrayList<>();
+        for (Product p : ctx.getBean(ProductRepository.class).findAllWithCategoriesByIdIn(ids)) {
+            OrderItem item = new OrderItem();
+            item.setProduct(p);
+            item.setQuantity(1);
+            item.setPriceAtPurchase(p.getSalePrice());
+            scopedCart.add(item);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void cleanUp() {
+        if (!createdVoucherIds.isEmpty()) {
+            ctx.getBean(VoucherRepository.class).deleteAllById(createdVoucherIds);
+            createdVoucherIds.clear();
+        }
+        if (!createdProductIds.isEmpty()) {
+            ctx.getBean(ProductRepository.class).deleteAllById(createdProductIds);
+            createdProductIds.clear();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ctx.close();
+    }
+
+    @Benchmark
+    public Order createOrder() {
+        return orderService.createOrder(orderRequest(null));
+    }
+
+    @Benchmark
+    public Order createOrderWithVoucher() {
+        return orderService.createOrder(orderRequest(CatalogSeed.GLOBAL_VOUCHER));
+    }
+
+    @Benchmark
+    public BigDecimal calculateVoucherDiscount() {
+        User user = seed.users.get((int) (counter++ % seed.users.size()));
+        return tx.execute(status -> {
+            try {
+                return (BigDecimal) calculateVoucherDiscount.invoke(CatalogSeed.SCOPED_VOUCHER, user, BigDecimal.valueOf(5_000_000), scopedCart);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Benchmark
+    public Voucher createVoucherWith200Products() {
+        VoucherRequestDTO req = new VoucherRequestDTO();
+        req.setCode("BENCHV" + (counter++));
+        req.setName("Giảm giá sản phẩm chọn lọc");
+        req.setDiscountType(Voucher.DiscountType.FIXED_AMOUNT);
+        req.setDiscountValue(BigDecimal.valueOf(10000));
+        req.setMinOrderValue(BigDecimal.valueOf(100000));
+        req.setStartAt(LocalDateTime.now());
+        req.setEndAt(LocalDateTime.now().plusDays(30));
+        req.setUsageLimit(1000);
+        req.setScope(Voucher.ScopeType.PRODUCT);
+        req.setScopeIds(voucherScope);
+        Voucher voucher = voucherService.createVoucher(req);
+        createdVoucherIds.add(voucher.getId());
+        return voucher;
+    }
+
+    @Benchmark
+    public Product createProduct() {
+        long n = counter++;
+        ProductRequestDTO req = new ProductRequestDTO();
+        req.setSku("BENCH-SKU-" + n);
+        req.setName("Tai nghe không dây chống ồn " + n);
+        req.setBrandId(seed.brandIds.get((int) (n % seed.brandIds.size())));
+        req.setCategoryIds(List.of(seed.categoryIds.get(0), seed.categoryIds.get(3)));
+        req.setTags(List.of("tai nghe", "bluetooth"));
+        req.setUnit("Cái");
+        req.setCurrency("VND");
+        req.setVatRate(10);
+        req.setImportPrice(BigDecimal.valueOf(800_000));
+        req.setSalePrice(BigDecimal.valueOf(1_000_000));
+        req.setOriginalPrice(BigDecimal.valueOf(1_200_000));
+        req.setStockQuantity(100);
+        Product product = productService.createProduct(req);
+        createdProductIds.add(product.getId());
+        return product;
+    }
+
+    @Benchmark
+    public void accumulatePoints() {
+        User user = seed.users.get((int) (counter++ % seed.users.size()));
+        userService.accumulatePoints(user.getUserId(), BigDecimal.valueOf(250_000));
+    }
+
+    // Mỗi đơn lấy 1 khách & 1 cửa sổ sản phẩm khác nhau (không lặp lại đúng 1 giỏ -> không chỉ đo cache)
+    private OrderRequestDTO orderRequest(String voucherCode) {
+        long n = counter++;
+        User user = seed.users.get((int) (n % seed.users.size()));
+        OrderRequestDTO req = new OrderRequestDTO();
+        req.setUserId(user.getUserId());
+        req.setRecipientName(user.getFullName());
+        req.setPhone(user.getPhone());
+        req.setAddress(user.getAddress());
+        req.setPaymentMethod(Order.PaymentMethod.BANKING); // Giỏ nhiều món có thể vượt hạn mức COD 20 triệu
+        req.setVoucherCode(voucherCode);
+
+        List<CartItemDTO> items = new ArrayList<>(cartItems);
+        for (int i = 0; i < cartItems; i++) {
+            Product p = seed.products.get((int) ((n * cartItems + i) % seed.products.size()));
+            CartItemDTO item = new CartItemDTO();
+            item.setProductId(p.getId());
+            item.setQuantity(1);
+            item.setClientPrice(p.getSalePrice());
+            items.add(item);
+        }
+        req.setItems(items);
+        return req;
+    }
+}
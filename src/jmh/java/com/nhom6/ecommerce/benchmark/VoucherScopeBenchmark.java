@@ -0,0 +1,111 @@
+package com.nhom6.ecommerce.benchmark;
+
+import com.nhom6.ecommerce.entity.Category;
+import com.nhom6.ecommerce.entity.OrderItem;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.entity.Voucher;
+import com.nhom6.ecommerce.service.CompiledVoucher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh kiểm tra phạm vi voucher: cách cũ (List.contains, String.valueOf id danh mục)
+ * với CompiledVoucher (HashSet / mảng long đã sắp xếp).
+ * Trường hợp xấu nhất: không sản phẩm nào khớp nên phải duyệt hết giỏ hàng.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VoucherScopeBenchmark {
+
+    @Param({"PRODUCT", "CATEGORY"})
+    public String scope;
+
+    @Param({"20", "200"})
+    public int scopeSize;
+
+    @Param({"10"})
+    public int cartItems;
+
+    @Param({"5"})
+    public int categoriesPerProduct;
+
+    private Voucher voucher;
+    private CompiledVoucher compiled;
+    private List<OrderItem> items;
+
+    @Setup
+    public void setUp() {
+        voucher = new Voucher();
+        voucher.setId(1L);
+        voucher.setCode("BENCH");
+        voucher.setScope(Voucher.ScopeType.valueOf(scope));
+
+        List<String> scopeIds = new ArrayList<>();
+        for (int i = 0; i < scopeSize; i++) {
+            scopeIds.add(voucher.getScope() == Voucher.ScopeType.PRODUCT ? "SP" + (100000 + i) : String.valueOf(10000 + i));
+        }
+        voucher.setScopeIds(scopeIds);
+        compiled = CompiledVoucher.compile(voucher);
+
+        items = new ArrayList<>();
+        for (int i = 0; i < cartItems; i++) {
+            Product product = new Product();
+            product.setId("OTHER" + i);
+            Set<Category> categories = new HashSet<>();
+            for (int c = 0; c < categoriesPerProduct; c++) {
+                Category category = new Category();
+                category.setId((long) (i * categoriesPerProduct + c));
+                categories.add(category);
+            }
+            product.setCategories(categories);
+
+            OrderItem item = new OrderItem();
+            item.setProduct(product);
+            items.add(item);
+        }
+    }
+
+    @Benchmark
+    public boolean legacyScopeCheck() {
+        return legacyCheckVoucherScope(voucher, items);
+    }
+
+    @Benchmark
+    public boolean compiledScopeCheck() {
+        return compiled.appliesTo(items);
+    }
+
+    @Benchmark
+    public boolean compileAndCheck() {
+        return CompiledVoucher.compile(voucher).appliesTo(items);
+    }
+
+    // Bản sao logic checkVoucherScope cũ của OrderService (trước khi biên dịch điều kiện voucher)
+    private static boolean legacyCheckVoucherScope(Voucher voucher, List<OrderItem> items) {
+        if (voucher.getScope() == Voucher.ScopeType.GLOBAL) return true;
+
+        List<String> allowedIds = voucher.getScopeIds();
+        for (OrderItem item : items) {
+            if (voucher.getScope() == Voucher.ScopeType.PRODUCT) {
+                if (allowedIds.contains(item.getProduct().getId())) return true;
+            }
+            if (voucher.getScope() == Voucher.ScopeType.CATEGORY) {
+                Product product = item.getProduct();
+                if (product.getCategories() == null) continue;
+                for (Category cat : product.getCategories()) {
+                    if (allowedIds.contains(String.valueOf(cat.getId()))) return true;
+                }
+            }
+        }
+        return false;
+    }
+}
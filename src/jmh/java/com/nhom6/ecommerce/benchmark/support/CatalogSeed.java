@@ -0,0 +1,261 @@
+package com.nhom6.ecommerce.benchmark.support;
+
+import com.nhom6.ecommerce.entity.*;
+import com.nhom6.ecommerce.repository.*;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * DỮ LIỆU MẪU cho benchmark & load test: thương hiệu, danh mục, sản phẩm, khách hàng, voucher.
+ * Ghi qua repository của context nên dùng được cho cả InMemoryShop lẫn EmbeddedShop (H2).
+ * Dữ liệu sinh tất định (không random) -> 2 lần chạy trên 2 commit so sánh được với nhau.
+ */
+public final class CatalogSeed {
+
+    public static final String PASSWORD = "Bench@123";
+    // Voucher toàn sàn giảm 10%, không giới hạn lượt
+    public static final String GLOBAL_VOUCHER = "BENCHALL";
+    // Voucher giảm 20.000đ cho 200 sản phẩm đầu tiên
+    public static final String SCOPED_VOUCHER = "BENCH200";
+    public static final int SCOPED_PRODUCTS = 200;
+
+    private static final String[] BRANDS = {"Samsung", "Apple", "Xiaomi", "Sony", "Asus", "Dell", "Panasonic", "Sunhouse"};
+    private static final String[] CATEGORIES = {"Điện thoại", "Máy tính bảng", "Laptop", "Tai nghe", "Đồng hồ thông minh",
+            "Máy ảnh", "Phụ kiện", "Loa", "Tivi", "Tủ lạnh", "Máy giặt", "Điều hòa", "Nồi cơm điện", "Quạt điện",
+            "Máy lọc nước", "Bàn phím", "Chuột", "Màn hình", "Ổ cứng", "Sạc dự phòng"};
+    private static final String[] ADJECTIVES = {"cao cấp", "chính hãng", "thế hệ mới", "bản quốc tế", "siêu mỏng", "chống nước"};
+    private static final String[] SURNAMES = {"Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Vũ", "Đặng", "Bùi"};
+    private static final String[] GIVEN_NAMES = {"An", "Bình", "Chi", "Dũng", "Giang", "Hà", "Khánh", "Linh", "Minh", "Nam"};
+
+    public final List<String> brandIds = new ArrayList<>();
+    public final List<Long> categoryIds = new ArrayList<>();
+    public final List<Product> products = new ArrayList<>();
+    public final List<User> users = new ArrayList<>();
+    // Cặp {userId, productId} đã mua trong đơn hoàn tất -> được phép đánh giá
+    public final List<String[]> reviewable = new ArrayList<>();
+
+    private CatalogSeed() {
+    }
+
+    public static CatalogSeed seed(ApplicationContext ctx, int productCount, int userCount) {
+        CatalogSeed seed = new CatalogSeed();
+        List<Brand> brands = seed.seedBrands(ctx);
+        List<Category> categories = ctx.getBean(CategoryRepository.class).saveAll(buildCategories());
+        for (Category c : categories) seed.categoryIds.add(c.getId());
+
+        ProductRepository productRepository = ctx.getBean(ProductRepository.class);
+        List<Product> batch = new ArrayList<>(1000);
+        for (int i = 0; i < productCount; i++) {
+            batch.add(buildProduct(i, brands, categories));
+            if (batch.size() == 1000 || i == productCount - 1) {
+                seed.products.addAll(productRepository.saveAll(batch));
+                batch.clear();
+            }
+        }
+
+        List<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) users.add(buildUser(i));
+        seed.users.addAll(ctx.getBean(UserRepository.class).saveAll(users));
+
+        VoucherRepository voucherRepository = ctx.getBean(VoucherRepository.class);
+        voucherRepository.save(buildVoucher(GLOBAL_VOUCHER, Voucher.DiscountType.PERCENTAGE, BigDecimal.TEN,
+                Voucher.ScopeType.GLOBAL, null));
+        List<String> scoped = new ArrayList<>();
+        for (int i = 0; i < Math.min(SCOPED_PRODUCTS, seed.products.size()); i++) scoped.add(seed.products.get(i).getId());
+        voucherRepository.save(buildVoucher(SCOPED_VOUCHER, Voucher.DiscountType.FIXED_AMOUNT, BigDecimal.valueOf(20000),
+                Voucher.ScopeType.PRODUCT, scoped));
+        return seed;
+    }
+
+    /**
+     * Mỗi khách có 1 đơn đã hoàn tất gồm itemsPerOrder sản phẩm (để test luồng đánh giá sản phẩm)
+     */
+    public void seedCompletedOrders(ApplicationContext ctx, int itemsPerOrder) {
+        OrderRepository orderRepository = ctx.getBean(OrderRepository.class);
+        List<Order> batch = new ArrayList<>(500);
+        for (int u = 0; u < users.size(); u++) {
+            User user = users.get(u);
+            Order order = new Order();
+            order.setUser(user);
+            order.setRecipientName(user.getFullName());
+            order.setPhone(user.getPhone());
+            order.setAddress(user.getAddress());
+            order.setPaymentMethod(Order.PaymentMethod.BANKING);
+            order.setStatus(Order.OrderStatus.COMPLETED);
+            order.setDeliveryDate(LocalDateTime.now().minusDays(2));
+
+            List<OrderItem> items = new ArrayList<>(itemsPerOrder);
+            BigDecimal total = BigDecimal.ZERO;
+            for (int k = 0; k < itemsPerOrder; k++) {
+                Product product = products.get((u * itemsPerOrder + k) % products.size());
+                OrderItem item = new OrderItem();
+                item.setOrder(order);
+                item.setProduct(product);
+                item.setQuantity(1);
+                item.setPriceAtPurchase(product.getSalePrice());
+                items.add(item);
+                total = total.add(product.getSalePrice());
+                reviewable.add(new String[]{user.getUserId(), product.getId()});
+            }
+            order.setItems(items);
+            order.setTotalAmount(total);
+            batch.add(order);
+            if (batch.size() == 500 || u == users.size() - 1) {
+                orderRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Nạp nhanh count sản phẩm (hàng triệu dòng) thẳng vào bảng products bằng JDBC batch, chỉ các cột chính
+     * + 2 danh mục như buildProduct (không tags, ảnh phụ) và không giữ lại trong danh sách products
+     * -> dùng cho benchmark danh sách/phân trang/bộ lọc.
+     * Id tất định, cứ 2 sản phẩm chung 1 created_at; 1/10 hết hàng, 1/50 ngừng kinh doanh.
+     */
+    public void seedBulkProducts(ApplicationContext ctx, int count) {
+        JdbcTemplate jdbc = ctx.getBean(JdbcTemplate.class);
+        long base = LocalDateTime.of(2024, 1, 1, 0, 0).atZone(ZoneOffset.UTC).toInstant().toEpochMilli();
+        String sql = "INSERT INTO products (id, sku, name, model_code, brand_id, unit, currency, sale_price, "
+                + "stock_quantity, min_stock_alert, thumbnail, view_count, sold_count, review_count, rating_avg, "
+                + "created_at, is_active) VALUES (?, ?, ?, ?, ?, 'Cái', 'VND', ?, ?, 0, ?, ?, ?, 0, 0, ?, ?)";
+        String categorySql = "INSERT INTO product_categories (product_id, category_id) VALUES (?, ?)";
+        List<Object[]> batch = new ArrayList<>(5000);
+        List<Object[]> categoryBatch = new ArrayList<>(10000);
+        for (int i = 0; i < count; i++) {
+            String brandId = brandIds.get(i % brandIds.size());
+            String productId = UUID.nameUUIDFromBytes(("bulk-" + i).getBytes()).toString();
+            Long main = categoryIds.get(i % categoryIds.size());
+            Long secondary = categoryIds.get((i * 7 + 3) % categoryIds.size());
+            categoryBatch.add(new Object[]{productId, main});
+            if (!secondary.equals(main)) categoryBatch.add(new Object[]{productId, secondary});
+            batch.add(new Object[]{
+                    productId,
+                    String.format("BULK-%08d", i),
+                    CATEGORIES[i % CATEGORIES.length] + " " + BRANDS[i % BRANDS.length] + " " + ADJECTIVES[i % ADJECTIVES.length] + " " + (i + 1),
+                    String.format("B%07d", i),
+                    brandId,
+                    BigDecimal.valueOf(50_000L + (i * 7919L % 400) * 10_000L),
+                    i % 10 == 0 ? 0 : 1_000,
+                    "/images/products/" + (i % 50) + ".jpg",
+                    (int) (i * 97L % 50000),
+                    (int) (i * 31L % 5000),
+                    new Timestamp(base + (i / 2) * 1000L),
+                    i % 50 != 7
+            });
+            if (batch.size() == 5000 || i == count - 1) {
+                jdbc.batchUpdate(sql, batch);
+                jdbc.batchUpdate(categorySql, categoryBatch);
+                batch.clear();
+                categoryBatch.clear();
+            }
+        }
+    }
+
+    /**
+     * Brand dùng id String + IDENTITY: Hibernate không tự sinh được id này (MySQL/H2 chỉ tự tăng cột số),
+     * nên trên DB thật bảng brands được tạo & nạp bằng SQL, còn repository trong bộ nhớ nhận id có sẵn.
+     */
+    private List<Brand> seedBrands(ApplicationContext ctx) {
+        List<Brand> brands = new ArrayList<>();
+        for (int i = 0; i < BRANDS.length; i++) {
+            Brand brand = new Brand();
+            brand.setId(String.valueOf(i + 1));
+            brand.setName(BRANDS[i]);
+            brands.add(brand);
+            brandIds.add(brand.getId());
+        }
+
+        JdbcTemplate jdbc = ctx.getBeanProvider(JdbcTemplate.class).getIfAvailable();
+        if (jdbc == null) {
+            ctx.getBean(BrandRepository.class).saveAll(brands);
+            return brands;
+        }
+        jdbc.execute("CREATE TABLE IF NOT EXISTS brands (id VARCHAR(255) NOT NULL PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL UNIQUE, description VARCHAR(255))");
+        for (Brand brand : brands) {
+            jdbc.update("INSERT INTO brands (id, name) VALUES (?, ?)", brand.getId(), brand.getName());
+        }
+        return brands;
+    }
+
+    private static List<Category> buildCategories() {
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            Category category = new Category();
+            category.setName(CATEGORIES[i]);
+            category.setCode("CAT" + (i + 1));
+            categories.add(category);
+        }
+        return categories;
+    }
+
+    private static Product buildProduct(int i, List<Brand> brands, List<Category> categories) {
+        Category main = categories.get(i % categories.size());
+        Set<Category> productCategories = new HashSet<>();
+        productCategories.add(main);
+        productCategories.add(categories.get((i * 7 + 3) % categories.size()));
+        Brand brand = brands.get(i % brands.size());
+
+        Product product = new Product();
+        product.setSku(String.format("SKU-%07d", i));
+        product.setModelCode(String.format("M%05d", i));
+        product.setName(main.getName() + " " + brand.getName() + " " + ADJECTIVES[i % ADJECTIVES.length] + " " + (i + 1));
+        product.setBrand(brand);
+        product.setCategories(productCategories);
+        product.setUnit("Cái");
+        product.setCurrency("VND");
+        product.setVatRate(10);
+        BigDecimal salePrice = BigDecimal.valueOf(50_000L + (i * 7919L % 400) * 10_000L);
+        product.setSalePrice(salePrice);
+        product.setImportPrice(salePrice.multiply(BigDecimal.valueOf(8)).divide(BigDecimal.TEN));
+        product.setOriginalPrice(salePrice.add(BigDecimal.valueOf(100_000)));
+        product.setStockQuantity(1_000_000);
+        product.setThumbnail("/images/products/" + (i % 50) + ".jpg");
+        product.setShortDesc(main.getName() + " " + brand.getName() + ", bảo hành 12 tháng, giao nhanh toàn quốc.");
+        product.setDescription("Sản phẩm " + product.getName() + " chính hãng " + brand.getName() + ". Đổi trả trong 15 ngày.");
+        product.setTags(new ArrayList<>(List.of(main.getName().toLowerCase(), brand.getName().toLowerCase())));
+        product.setSoldCount((int) (i * 31L % 5000));
+        product.setViewCount((int) (i * 97L % 50000));
+        return product;
+    }
+
+    private static User buildUser(int i) {
+        User user = new User();
+        user.setEmail("khach" + i + "@shop.vn");
+        user.setPassword(PASSWORD);
+        user.setFullName(SURNAMES[i % SURNAMES.length] + " " + GIVEN_NAMES[(i / SURNAMES.length) % GIVEN_NAMES.length]);
+        user.setPhone(String.format("09%08d", i));
+        user.setAddress((i % 200 + 1) + " Nguyễn Trãi, Thanh Xuân, Hà Nội");
+        user.setRole(User.Role.CUSTOMER);
+        user.setCreatedAt(LocalDateTime.now());
+        return user;
+    }
+
+    private static Voucher buildVoucher(String code, Voucher.DiscountType type, BigDecimal value,
+                                        Voucher.ScopeType scope, List<String> scopeIds) {
+        Voucher voucher = new Voucher();
+        voucher.setCode(code);
+        voucher.setName("Voucher benchmark " + code);
+        voucher.setDiscountType(type);
+        voucher.setDiscountValue(value);
+        voucher.setMinOrderValue(BigDecimal.ZERO);
+        voucher.setStartAt(LocalDateTime.now().minusDays(1));
+        voucher.setEndAt(LocalDateTime.now().plusYears(1));
+        voucher.setUsageLimit(0); // 0 = không giới hạn
+        voucher.setUsageLimitPerUser(null);
+        voucher.setScope(scope);
+        voucher.setScopeIds(scopeIds);
+        return voucher;
+    }
+}
@@ -0,0 +1,48 @@
+package com.nhom6.ecommerce.benchmark.support;
+
+import com.nhom6.ecommerce.EcommerceApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * CHẠY APP THẬT TRÊN DB NHÚNG (H2, chế độ tương thích MySQL): không cần MySQL hay dịch vụ ngoài.
+ * Schema do Hibernate tạo mới mỗi lần chạy (create-drop), mỗi lần start là 1 DB riêng trong bộ nhớ.
+ * Dùng cho benchmark tầng service (không bật web) và load test HTTP (bật web trên cổng chỉ định).
+ */
+public final class EmbeddedShop {
+
+    private EmbeddedShop() {
+    }
+
+    public static ConfigurableApplicationContext start(boolean web, Map<String, Object> overrides) {
+        Map<String, Object> props = new HashMap<>();
+        props.put("spring.datasource.url", "jdbc:h2:mem:shop-" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=KEY,VALUE,USER;DB_CLOSE_DELAY=-1");
+        props.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        props.put("spring.datasource.username", "sa");
+        props.put("spring.datasource.password", "");
+        props.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        props.put("spring.jpa.show-sql", "false");
+        props.put("spring.jpa.properties.hibernate.format_sql", "false");
+        props.put("spring.main.banner-mode", "off");
+        props.put("logging.level.root", "WARN");
+        // Không đọc/ghi file chỉ mục tìm kiếm của môi trường dev (DB nhúng mỗi lần 1 khác)
+        props.put("app.search.index-file", "");
+        // Không cần actuator qua HTTP, tránh đụng cổng 8081 của app dev đang chạy
+        props.put("management.server.port", "-1");
+        props.putAll(overrides);
+
+        // Truyền dạng tham số dòng lệnh: ưu tiên hơn application.properties (properties() chỉ là giá trị mặc định)
+        String[] args = props.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(EcommerceApplication.class)
+                .web(web ? WebApplicationType.SERVLET : WebApplicationType.NONE)
+                .run(args);
+    }
+}
@@ -0,0 +1,216 @@
+package com.nhom6.ecommerce.benchmark.support;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Id;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * REPOSITORY GIẢ TRONG BỘ NHỚ cho benchmark tầng service: đo riêng chi phí logic nghiệp vụ, không tính DB.
+ * - save / saveAll / findById / existsById / findAllById / findAll / count / delete... chạy trên 1 map theo id
+ *   (id chuẩn hóa về String: findById(1L) tìm thấy entity có id "1")
+ * - Id null khi save: Long -> tăng dần, String -> UUID (giống @GeneratedValue)
+ * - Query riêng đăng ký bằng on(tên hàm, xử lý), tra cứu theo cột unique bằng unique(tên hàm, cột)
+ * - Hàm chưa đăng ký trả giá trị "rỗng" theo kiểu trả về (false, 0, Optional.empty, List rỗng, null)
+ */
+public final class InMemoryRepository<T> implements InvocationHandler {
+
+    private final Map<String, T> rows = new ConcurrentHashMap<>();
+    private final Field idField;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Function<Object[], Object>> queries = new HashMap<>();
+    private final List<Map<Object, T>> uniqueIndexes = new ArrayList<>();
+    private final List<Function<T, ?>> uniqueKeys = new ArrayList<>();
+    private boolean discardWrites;
+
+    private InMemoryRepository(Class<T> entityType) {
+        this.idField = findIdField(entityType);
+        this.idField.setAccessible(true);
+    }
+
+    public static <T> InMemoryRepository<T> of(Class<T> entityType) {
+        return new InMemoryRepository<>(entityType);
+    }
+
+    /**
+     * Đăng ký query riêng của repository (theo tên hàm)
+     */
+    public InMemoryRepository<T> on(String method, Function<Object[], Object> handler) {
+        queries.put(method, handler);
+        return this;
+    }
+
+    /**
+     * Tra cứu theo cột unique qua 1 map phụ: hàm trả boolean -> existsBy, trả Optional -> findBy
+     */
+    public InMemoryRepository<T> unique(String method, Function<T, ?> key) {
+        Map<Object, T> index = new ConcurrentHashMap<>();
+        uniqueIndexes.add(index);
+        uniqueKeys.add(key);
+        queries.put(method, args -> args[0] == null ? null : index.get(args[0]));
+        return this;
+    }
+
+    /**
+     * Chỉ cấp id, không giữ lại entity (đơn hàng, outbox...): benchmark chạy hàng triệu lần không làm đầy heap
+     */
+    public InMemoryRepository<T> discardWrites() {
+        this.discardWrites = true;
+        return this;
+    }
+
+    public <R> R proxy(Class<R> repositoryType) {
+        return repositoryType.cast(Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType}, this));
+    }
+
+    public Collection<T> rows() {
+        return rows.values();
+    }
+
+    public T get(Object id) {
+        return id == null ? null : rows.get(String.valueOf(id));
+    }
+
+    public List<T> getAll(Iterable<?> ids) {
+        List<T> result = new ArrayList<>();
+        for (Object id : ids) {
+            T row = get(id);
+            if (row != null) result.add(row);
+        }
+        return result;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        Object[] a = args != null ? args : new Object[0];
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == a[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "InMemoryRepository" + rows.keySet();
+            };
+        }
+
+        Function<Object[], Object> query = queries.get(method.getName());
+        if (query != null) return adapt(query.apply(a), method.getReturnType());
+
+        switch (method.getName()) {
+            case "save", "saveAndFlush":
+                return save(cast(a[0]));
+            case "saveAll", "saveAllAndFlush": {
+                List<T> saved = new ArrayList<>();
+                for (Object entity : (Iterable<?>) a[0]) saved.add(save(cast(entity)));
+                return saved;
+            }
+            case "findById":
+                return Optional.ofNullable(get(a[0]));
+            case "getReferenceById", "getById":
+                return get(a[0]);
+            case "existsById":
+                return get(a[0]) != null;
+            case "findAllById":
+                return getAll((Iterable<?>) a[0]);
+            case "findAll":
+                if (a.length == 0) return new ArrayList<>(rows.values());
+                break;
+            case "count":
+                return (long) rows.size();
+            case "deleteById":
+                remove(get(a[0]));
+                return null;
+            case "delete":
+                remove(cast(a[0]));
+                return null;
+            case "deleteAllById":
+                for (Object id : (Iterable<?>) a[0]) remove(get(id));
+                return null;
+            case "deleteAll", "deleteAllInBatch":
+                if (a.length == 0) {
+                    rows.clear();
+                    uniqueIndexes.forEach(Map::clear);
+                } else {
+                    for (Object entity : (Iterable<?>) a[0]) remove(cast(entity));
+                }
+                return null;
+            default:
+                break;
+        }
+        return adapt(null, method.getReturnType());
+    }
+
+    private T save(T entity) {
+        try {
+            Object id = idField.get(entity);
+            if (id == null) {
+                if (idField.getType() == Long.class) id = sequence.incrementAndGet();
+                else if (idField.getType() == String.class) id = UUID.randomUUID().toString();
+                idField.set(entity, id);
+            }
+            if (discardWrites) return entity;
+
+            rows.put(String.valueOf(id), entity);
+            for (int i = 0; i < uniqueIndexes.size(); i++) {
+                Object key = uniqueKeys.get(i).apply(entity);
+                if (key != null) uniqueIndexes.get(i).put(key, entity);
+            }
+            return entity;
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void remove(T entity) {
+        if (entity == null) return;
+        try {
+            rows.remove(String.valueOf(idField.get(entity)));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        for (int i = 0; i < uniqueIndexes.size(); i++) {
+            Object key = uniqueKeys.get(i).apply(entity);
+            if (key != null) uniqueIndexes.get(i).remove(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T cast(Object entity) {
+        return (T) entity;
+    }
+
+    // Kết quả query -> kiểu trả về của hàm repository (entity -> Optional / boolean)
+    private static Object adapt(Object value, Class<?> returnType) {
+        if (returnType == Optional.class) return value instanceof Optional<?> ? value : Optional.ofNullable(value);
+        if (returnType == boolean.class || returnType == Boolean.class) return value instanceof Boolean ? value : value != null;
+        if (value != null) return value;
+
+        if (returnType == int.class || returnType == Integer.class) return 0;
+        if (returnType == long.class || returnType == Long.class) return 0L;
+        if (returnType == List.class || returnType == Collection.class || returnType == Iterable.class) return List.of();
+        if (returnType == Set.class) return Set.of();
+        if (returnType == Map.class) return Map.of();
+        return null;
+    }
+
+    private static Field findIdField(Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                if (f.isAnnotationPresent(Id.class) || f.isAnnotationPresent(EmbeddedId.class)) return f;
+            }
+        }
+        throw new IllegalArgumentException("Entity không có @Id: " + type.getName());
+    }
+}
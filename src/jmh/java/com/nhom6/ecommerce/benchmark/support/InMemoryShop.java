@@ -0,0 +1,88 @@
+package com.nhom6.ecommerce.benchmark.support;
+
+import com.nhom6.ecommerce.entity.*;
+import com.nhom6.ecommerce.repository.*;
+import com.nhom6.ecommerce.service.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.TemplateEngine;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * CONTEXT SPRING TỐI THIỂU VỚI REPOSITORY TRONG BỘ NHỚ
+ * Các service thật (OrderService, VoucherService, ProductService, UserService...) được wiring như trong app,
+ * chỉ thay repository bằng InMemoryRepository và transaction bằng NoOpTransactionManager.
+ * Đơn hàng, outbox, Idempotency-Key chỉ được cấp id, không giữ lại (không làm đầy heap khi benchmark).
+ */
+public final class InMemoryShop {
+
+    private InMemoryShop() {
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TransactionConfig {
+    }
+
+    public static AnnotationConfigApplicationContext start() {
+        AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+        ctx.register(TransactionConfig.class);
+        ctx.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        ctx.registerBean(PlatformTransactionManager.class, NoOpTransactionManager::new);
+        // Chỉ để wiring CatalogReadModel: benchmark không render trang
+        ctx.registerBean(ITemplateEngine.class, TemplateEngine::new);
+
+        InMemoryRepository<Product> products = InMemoryRepository.of(Product.class)
+                .unique("existsBySku", Product::getSku);
+        products.on("findAllWithCategoriesByIdIn", a -> products.getAll((Collection<?>) a[0]));
+
+        InMemoryRepository<Voucher> vouchers = InMemoryRepository.of(Voucher.class)
+                .unique("existsByCode", Voucher::getCode)
+                .unique("findByCode", Voucher::getCode)
+                .unique("findWithScopeIdsByCode", Voucher::getCode)
+                .on("incrementUsage", a -> 1);
+        vouchers.on("findActiveWithScopeIds", a -> vouchers.rows().stream()
+                .filter(v -> v.isActive() && v.getEndAt().isAfter((LocalDateTime) a[0]))
+                .toList());
+
+        register(ctx, ProductRepository.class, products);
+        register(ctx, VoucherRepository.class, vouchers);
+        register(ctx, UserRepository.class, InMemoryRepository.of(User.class)
+                .unique("existsByEmail", User::getEmail)
+                .unique("findByEmail", User::getEmail));
+        register(ctx, BrandRepository.class, InMemoryRepository.of(Brand.class));
+        register(ctx, CategoryRepository.class, InMemoryRepository.of(Category.class));
+        register(ctx, SupplierRepository.class, InMemoryRepository.of(Supplier.class));
+        register(ctx, HotProductRepository.class, InMemoryRepository.of(HotProduct.class));
+        register(ctx, HotStockSaleRepository.class, InMemoryRepository.of(HotStockSale.class).discardWrites());
+        register(ctx, OrderRepository.class, InMemoryRepository.of(Order.class).discardWrites());
+        register(ctx, OrderEventRepository.class, InMemoryRepository.of(OrderEvent.class).discardWrites());
+        register(ctx, IdempotencyKeyRepository.class, InMemoryRepository.of(IdempotencyKey.class).discardWrites());
+        register(ctx, VoucherUsageShardRepository.class, InMemoryRepository.of(VoucherUsageShard.class)
+                .on("incrementUsage", a -> 1));
+        register(ctx, VoucherUserUsageRepository.class, InMemoryRepository.of(VoucherUserUsage.class)
+                .on("recordUse", a -> 1));
+        register(ctx, UserOrderStatsRepository.class, InMemoryRepository.of(UserOrderStats.class)
+                .on("incrementOrderCount", a -> 1)
+                .on("addOrderCount", a -> 1));
+
+        ctx.register(InputValidator.class, StageMetrics.class, VoucherRuleCache.class, VoucherLookupCache.class,
+                VoucherUsageService.class, ActiveVoucherIndex.class, HotStockLedger.class,
+                ProductCatalogService.class, CatalogReadModel.class, ProductSearchIndex.class, ProductFacetIndex.class,
+                ProductSuggestIndex.class,
+                OrderService.class, VoucherService.class, ProductService.class, UserService.class);
+        ctx.refresh();
+        return ctx;
+    }
+
+    private static <R> void register(AnnotationConfigApplicationContext ctx, Class<R> type, InMemoryRepository<?> repository) {
+        ctx.registerBean(type, () -> repository.proxy(type));
+    }
+}
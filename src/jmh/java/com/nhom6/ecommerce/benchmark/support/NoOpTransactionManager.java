@@ -0,0 +1,30 @@
+package com.nhom6.ecommerce.benchmark.support;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * Transaction "rỗng" cho chế độ repository trong bộ nhớ: không có DB nhưng vẫn bật
+ * TransactionSynchronization, nên các callback afterCommit / afterCompletion (StageMetrics, cache, sổ kho hot)
+ * chạy giống như thật.
+ */
+public final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+    @Override
+    protected Object doGetTransaction() {
+        return new Object();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+    }
+}
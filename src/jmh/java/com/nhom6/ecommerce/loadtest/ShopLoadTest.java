@@ -0,0 +1,346 @@
+package com.nhom6.ecommerce.loadtest;
+
+import com.nhom6.ecommerce.benchmark.support.CatalogSeed;
+import com.nhom6.ecommerce.benchmark.support.EmbeddedShop;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.entity.User;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * LOAD TEST HTTP ĐẦU-CUỐI CHẠY TRÊN 1 MÁY: trang chủ "/", đăng nhập, đặt hàng, đánh giá sản phẩm.
+ * - Khởi động app thật trên H2 (EmbeddedShop, cổng ngẫu nhiên), nạp dữ liệu mẫu tất định (CatalogSeed):
+ *   sản phẩm, khách hàng, voucher, đơn đã hoàn tất (để đánh giá được)
+ * - Mô hình MỞ: request được phát theo lịch cố định (rate req/s), không chờ request trước xong.
+ *   Độ trễ tính từ thời điểm LẼ RA phải gửi -> server chậm thì độ trễ tăng thật (không bị coordinated omission)
+ * - Kết quả: thông lượng, tỉ lệ lỗi theo mã lỗi ("code" trong body, hoặc HTTP_xxx / TIMEOUT / IO_ERROR),
+ *   phân vị độ trễ HdrHistogram -> ghi ra file text không chứa thời gian chạy, diff được giữa 2 bản release.
+ * - Chạy cùng mix lần lượt với platform thread và virtual thread (spring.threads.virtual.enabled),
+ *   mỗi chế độ 1 app + 1 DB mới, báo cáo 2 chế độ đặt cạnh nhau. JDK dưới 21 thì bỏ qua chế độ virtual.
+ * Chạy: mvn -Pbenchmark test-compile exec:exec@loadtest [-Dloadtest.rate=300 -Dloadtest.duration=120
+ *       -Dloadtest.thread-modes=platform]
+ */
+public class ShopLoadTest {
+
+    private static final Pattern ERROR_CODE = Pattern.compile("\"code\"\\s*:\\s*\"([^\"]+)\"");
+    private static final long HIGHEST_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    // Cấu hình (System property, mặc định giống profile benchmark trong pom.xml)
+    private final int rate = Integer.getInteger("loadtest.rate", 200);
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmup", 15);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration", 60);
+    private final String mix = System.getProperty("loadtest.mix", "home:60,login:15,checkout:20,review:5");
+    private final int productCount = Integer.getInteger("loadtest.products", 5000);
+    private final int userCount = Integer.getInteger("loadtest.users", 2000);
+    private final int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 2000);
+    private final String threadModes = System.getProperty("loadtest.thread-modes", "platform,virtual");
+    private final Path report = Path.of(System.getProperty("loadtest.report", "target/loadtest/report.txt"));
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private String baseUrl;
+    private CatalogSeed seed;
+
+    public static void main(String[] args) throws Exception {
+        new ShopLoadTest().run();
+    }
+
+    private void run() throws Exception {
+        StringBuilder text = new StringBuilder();
+        List<String> summaries = new ArrayList<>();
+        for (String mode : threadModes.split(",")) {
+            String section = runMode(mode.trim());
+            text.append(section).append('\n');
+            int details = section.indexOf("\n\n== ");
+            summaries.add(details < 0 ? section : section.substring(0, details + 1));
+        }
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        Files.writeString(report, text, StandardCharsets.UTF_8);
+        System.out.println();
+        summaries.forEach(System.out::println);
+        System.out.println("Báo cáo đầy đủ: " + report.toAbsolutePath());
+    }
+
+    /**
+     * 1 lần chạy đủ mix với 1 chế độ thread: app mới trên DB mới -> 2 chế độ bắt đầu từ cùng dữ liệu
+     */
+    private String runMode(String mode) throws Exception {
+        boolean virtual = switch (mode) {
+            case "platform" -> false;
+            case "virtual" -> true;
+            default -> throw new IllegalArgumentException("Chế độ thread không hỗ trợ: " + mode);
+        };
+        if (virtual && Runtime.version().feature() < 21) {
+            System.out.println("Bỏ qua chế độ virtual: cần JDK 21+, đang chạy JDK " + Runtime.version().feature());
+            return String.format("# threads=virtual: bỏ qua (cần JDK 21+)%n");
+        }
+
+        ConfigurableApplicationContext ctx = EmbeddedShop.start(true,
+                Map.of("server.port", "0", "spring.threads.virtual.enabled", String.valueOf(virtual)));
+        try {
+            baseUrl = "http://localhost:" + ctx.getEnvironment().getProperty("local.server.port");
+            seed = CatalogSeed.seed(ctx, productCount, userCount);
+            // 10 sản phẩm/đơn -> users * 10 cặp (khách, sản phẩm) được đánh giá, đủ cho cả lần chạy dài
+            seed.seedCompletedOrders(ctx, 10);
+            sequence.set(0);
+
+            List<Scenario> scenarios = parseMix();
+            Scenario[] schedule = buildSchedule(scenarios);
+            System.out.printf("Load test %s (%s thread): %d req/s, khởi động %ds, đo %ds, mix %s%n",
+                    baseUrl, mode, rate, warmupSeconds, durationSeconds, mix);
+
+            drive(schedule);
+            return render(mode, scenarios);
+        } finally {
+            ctx.close();
+        }
+    }
+
+    /**
+     * Bộ phát tải: request thứ i được lên lịch tại t0 + i / rate.
+     * Giai đoạn khởi động chạy cùng lịch nhưng không ghi số liệu; khi vượt quá maxInFlight request đang chờ
+     * thì bỏ request và tính lỗi CLIENT_OVERLOAD (máy phát tải không theo kịp, không phải lỗi server).
+     */
+    private void drive(Scenario[] schedule) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long t0 = System.nanoTime();
+        long measureFrom = t0 + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        for (long i = 0; ; i++) {
+            long intended = t0 + i * interval;
+            if (intended >= end) break;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            Scenario scenario = schedule[(int) (i % schedule.length)];
+            Stats stats = intended >= measureFrom ? scenario.stats : null;
+            if (!inFlight.tryAcquire()) {
+                if (stats != null) stats.error("CLIENT_OVERLOAD");
+                continue;
+            }
+            http.sendAsync(scenario.request.get(), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((res, ex) -> {
+                        long latency = System.nanoTime() - intended;
+                        inFlight.release();
+                        if (stats == null) return;
+                        stats.latency.recordValue(Math.min(latency, HIGHEST_LATENCY_NANOS));
+                        if (ex != null) stats.error(errorCode(ex));
+                        else if (res.statusCode() >= 400) stats.error(errorCode(res));
+                        else stats.success.increment();
+                    });
+        }
+        // Chờ các request còn dở (tối đa bằng timeout của 1 request)
+        if (inFlight.tryAcquire(maxInFlight, REQUEST_TIMEOUT.toSeconds() + 1, TimeUnit.SECONDS)) {
+            inFlight.release(maxInFlight);
+        }
+    }
+
+    // ==================== KỊCH BẢN ====================
+
+    private List<Scenario> parseMix() {
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split(":");
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight <= 0) continue;
+            Supplier<HttpRequest> request = switch (kv[0].trim()) {
+                case "home" -> this::home;
+                case "login" -> this::login;
+                case "checkout" -> this::checkout;
+                case "review" -> this::review;
+                default -> throw new IllegalArgumentException("Kịch bản không hỗ trợ: " + kv[0]);
+            };
+            scenarios.add(new Scenario(kv[0].trim(), weight, request, new Stats()));
+        }
+        return scenarios;
+    }
+
+    /**
+     * Lịch phát theo trọng số kiểu "smooth weighted round robin": tất định và trộn đều
+     * (home:60,checkout:20 -> 3 home xen 1 checkout, không phải 60 home liền rồi 20 checkout)
+     */
+    private static Scenario[] buildSchedule(List<Scenario> scenarios) {
+        int total = scenarios.stream().mapToInt(Scenario::weight).sum();
+        int[] current = new int[scenarios.size()];
+        Scenario[] schedule = new Scenario[total];
+        for (int slot = 0; slot < total; slot++) {
+            int best = 0;
+            for (int s = 0; s < scenarios.size(); s++) {
+                current[s] += scenarios.get(s).weight();
+                if (current[s] > current[best]) best = s;
+            }
+            current[best] -= total;
+            schedule[slot] = scenarios.get(best);
+        }
+        return schedule;
+    }
+
+    private HttpRequest home() {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/")).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    private HttpRequest login() {
+        User user = seed.users.get((int) (sequence.getAndIncrement() % seed.users.size()));
+        return post("/api/users/login", Map.of("email", user.getEmail(), "password", CatalogSeed.PASSWORD), null);
+    }
+
+    /**
+     * Giỏ 1-3 sản phẩm, giá hiển thị đúng giá bán, chuyển khoản; 1/4 số đơn dùng voucher toàn sàn.
+     * Mỗi đơn 1 Idempotency-Key mới (không đo đường trả lại kết quả cũ).
+     */
+    private HttpRequest checkout() {
+        long n = sequence.getAndIncrement();
+        User user = seed.users.get((int) (n % seed.users.size()));
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int k = 0; k <= n % 3; k++) {
+            Product product = seed.products.get((int) ((n * 7 + k * 131) % seed.products.size()));
+            items.add(Map.of("productId", product.getId(), "quantity", 1, "clientPrice", product.getSalePrice()));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("userId", user.getUserId());
+        body.put("recipientName", user.getFullName());
+        body.put("phone", user.getPhone());
+        body.put("address", user.getAddress());
+        body.put("paymentMethod", "BANKING");
+        if (n % 4 == 0) body.put("voucherCode", CatalogSeed.GLOBAL_VOUCHER);
+        body.put("items", items);
+        return post("/api/orders/checkout", body, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Lần lượt từng cặp (khách, sản phẩm) đã mua; hết cặp thì quay vòng -> các lần sau báo REVIEW.ALREADY_REVIEWED
+     */
+    private HttpRequest review() {
+        String[] pair = seed.reviewable.get((int) (sequence.getAndIncrement() % seed.reviewable.size()));
+        return post("/api/reviews", Map.of("userId", pair[0], "productId", pair[1], "rating", 5,
+                "content", "Hàng đúng mô tả, giao nhanh, đóng gói cẩn thận."), null);
+    }
+
+    private HttpRequest post(String path, Map<String, Object> body, String idempotencyKey) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)));
+        if (idempotencyKey != null) builder.header("Idempotency-Key", idempotencyKey);
+        return builder.build();
+    }
+
+    // ==================== SỐ LIỆU & BÁO CÁO ====================
+
+    private static String errorCode(HttpResponse<String> res) {
+        Matcher m = ERROR_CODE.matcher(res.body() == null ? "" : res.body());
+        return m.find() ? m.group(1) : "HTTP_" + res.statusCode();
+    }
+
+    private static String errorCode(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause instanceof HttpTimeoutException ? "TIMEOUT" : "IO_ERROR";
+    }
+
+    /**
+     * Báo cáo dạng text cố định thứ tự, không có ngày giờ -> diff trực tiếp giữa 2 lần chạy
+     */
+    private String render(String mode, List<Scenario> scenarios) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("# threads=%s, rate=%d req/s, warmup=%ds, duration=%ds, mix=%s, products=%d, users=%d%n%n",
+                mode, rate, warmupSeconds, durationSeconds, mix, productCount, userCount));
+        sb.append(String.format("%-10s %9s %9s %8s %9s %9s %9s %9s %9s%n",
+                "scenario", "requests", "req/s", "errors", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)"));
+
+        Histogram all = new Histogram(HIGHEST_LATENCY_NANOS, 3);
+        Map<String, Long> allErrors = new TreeMap<>();
+        long allRequests = 0;
+        for (Scenario s : scenarios) {
+            long requests = s.stats.requests();
+            allRequests += requests;
+            all.add(s.stats.latency);
+            s.stats.errors.forEach((code, count) -> allErrors.merge(code, count.sum(), Long::sum));
+            row(sb, s.name(), requests, s.stats.errorCount(), s.stats.latency);
+        }
+        row(sb, "TOTAL", allRequests, allErrors.values().stream().mapToLong(Long::longValue).sum(), all);
+
+        sb.append(String.format("%n%-10s %-32s %9s %8s%n", "scenario", "error code", "count", "rate"));
+        for (Scenario s : scenarios) {
+            long requests = s.stats.requests();
+            new TreeMap<>(s.stats.errors).forEach((code, count) -> sb.append(String.format("%-10s %-32s %9d %7.2f%%%n",
+                    s.name(), code, count.sum(), 100.0 * count.sum() / Math.max(requests, 1))));
+        }
+
+        for (Scenario s : scenarios) {
+            sb.append("\n== ").append(s.name()).append(" (ms) ==\n");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            s.stats.latency.outputPercentileDistribution(new PrintStream(out, true, StandardCharsets.UTF_8), 5, 1_000_000.0);
+            sb.append(out.toString(StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    private void row(StringBuilder sb, String name, long requests, long errors, Histogram h) {
+        sb.append(String.format("%-10s %9d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, requests, requests / (double) durationSeconds, 100.0 * errors / Math.max(requests, 1),
+                ms(h, 50), ms(h, 90), ms(h, 99), ms(h, 99.9), h.getMaxValue() / 1e6));
+    }
+
+    private static double ms(Histogram h, double percentile) {
+        return h.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    private record Scenario(String name, int weight, Supplier<HttpRequest> request, Stats stats) {
+    }
+
+    private static final class Stats {
+        final Histogram latency = new ConcurrentHistogram(HIGHEST_LATENCY_NANOS, 3);
+        final LongAdder success = new LongAdder();
+        final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        void error(String code) {
+            errors.computeIfAbsent(code, k -> new LongAdder()).increment();
+        }
+
+        long errorCount() {
+            return errors.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        long requests() {
+            return success.sum() + errorCount();
+        }
+    }
+}
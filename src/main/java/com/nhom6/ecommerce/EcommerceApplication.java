@@ -2,8 +2,10 @@ package com.nhom6.ecommerce;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // Các tác vụ nền: ghi dồn sổ kho hot...
 public class EcommerceApplication {
 
 	public static void main(String[] args) {
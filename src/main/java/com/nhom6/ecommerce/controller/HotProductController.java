@@ -0,0 +1,39 @@
+package com.nhom6.ecommerce.controller;
+
+import com.nhom6.ecommerce.service.HotStockLedger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// API quản trị: bật/tắt chế độ hot (Flash Sale) cho sản phẩm
+@RestController
+@RequestMapping("/api/admin/hot-products")
+public class HotProductController {
+
+    @Autowired
+    private HotStockLedger hotStockLedger;
+
+    @GetMapping
+    public ResponseEntity<?> listHotProducts() {
+        Map<String, Integer> stock = new LinkedHashMap<>();
+        for (String productId : hotStockLedger.hotProductIds()) {
+            stock.put(productId, hotStockLedger.availableStock(productId, 0));
+        }
+        return ResponseEntity.ok(stock);
+    }
+
+    @PostMapping("/{productId}")
+    public ResponseEntity<?> enable(@PathVariable String productId, @RequestParam(defaultValue = "8") int stripes) {
+        hotStockLedger.enable(productId, stripes);
+        return ResponseEntity.ok("Đã bật chế độ hot cho sản phẩm " + productId + " (" + stripes + " stripe)");
+    }
+
+    @DeleteMapping("/{productId}")
+    public ResponseEntity<?> disable(@PathVariable String productId) {
+        hotStockLedger.disable(productId);
+        return ResponseEntity.ok("Đã tắt chế độ hot cho sản phẩm " + productId);
+    }
+}
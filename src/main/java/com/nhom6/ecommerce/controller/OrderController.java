@@ -1,25 +1,53 @@
 package com.nhom6.ecommerce.controller;
 
 import com.nhom6.ecommerce.dto.OrderRequestDTO;
-import com.nhom6.ecommerce.service.OrderService;
+import com.nhom6.ecommerce.service.CheckoutIdempotencyService;
+import com.nhom6.ecommerce.service.OrderImportService;
+import com.nhom6.ecommerce.service.OrderQuoteService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    @Autowired
+    private CheckoutIdempotencyService checkoutIdempotencyService;
+
+    @Autowired
+    private OrderQuoteService orderQuoteService;
+
     @Autowired
-    private OrderService orderService;
+    private OrderImportService orderImportService;
 
+    // Header Idempotency-Key (tùy chọn): client gửi lại cùng key khi retry sẽ nhận lại đúng đơn đã tạo
     @PostMapping("/checkout")
-    public ResponseEntity<?> createOrder(@Valid @RequestBody OrderRequestDTO req) {
-        try {
-            return ResponseEntity.ok(orderService.createOrder(req));
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        }
+    public ResponseEntity<?> createOrder(@Valid @RequestBody OrderRequestDTO req,
+                                         @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(checkoutIdempotencyService.checkout(req, idempotencyKey));
+    }
+
+    // Báo giá (tạm tính, giảm giá, tổng tiền) cho giỏ hàng, không tạo đơn & không trừ kho
+    @PostMapping("/quote")
+    public ResponseEntity<?> quote(@RequestBody OrderRequestDTO req) {
+        return ResponseEntity.ok(orderQuoteService.quote(req));
+    }
+
+    // Nhập đơn hàng loạt từ sàn / đối tác B2B: body là NDJSON hoặc CSV (mỗi dòng 1 đơn), trả về kết quả từng dòng
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<?> importOrders(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                          InputStream body) throws IOException {
+        // So khớp theo kiểu media (không phân biệt hoa thường, bỏ qua charset)
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(TEXT_CSV);
+        return ResponseEntity.ok(orderImportService.importOrders(body, csv));
     }
 }
\ No newline at end of file
@@ -1,12 +1,17 @@
 package com.nhom6.ecommerce.controller;
 
 import com.nhom6.ecommerce.dto.ProductRequestDTO;
+import com.nhom6.ecommerce.service.ProductFacetIndex;
+import com.nhom6.ecommerce.service.ProductSearchIndex;
 import com.nhom6.ecommerce.service.ProductService;
+import com.nhom6.ecommerce.service.ProductSuggestIndex;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
@@ -14,12 +19,42 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
     @PostMapping
     public ResponseEntity<?> createProduct(@Valid @RequestBody ProductRequestDTO req) {
-        try {
-            return ResponseEntity.ok(productService.createProduct(req));
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        }
+        return ResponseEntity.ok(productService.createProduct(req));
+    }
+
+    // Tìm kiếm toàn văn (không phân biệt dấu): ?q=dien thoai samsung&limit=20
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam(defaultValue = "") String q,
+                                    @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productSearchIndex.search(q, limit));
+    }
+
+    // Gợi ý khi gõ ở ô tìm kiếm (tên, SKU, mã model, thương hiệu): ?q=sam&limit=8
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam(defaultValue = "") String q,
+                                     @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(productSuggestIndex.suggest(q, limit));
+    }
+
+    // Lọc sản phẩm + số đếm từng nhóm: ?brand=1&brand=2&category=3&price=1tr-5tr&inStock=true&limit=24
+    // (cùng nhóm: hoặc; khác nhóm: và)
+    @GetMapping("/facets")
+    public ResponseEntity<?> facets(@RequestParam(required = false) List<String> brand,
+                                    @RequestParam(required = false) List<Long> category,
+                                    @RequestParam(required = false) List<String> price,
+                                    @RequestParam(defaultValue = "false") boolean inStock,
+                                    @RequestParam(defaultValue = "24") int limit) {
+        return ResponseEntity.ok(productFacetIndex.filter(brand, category, price, inStock, limit));
     }
 }
\ No newline at end of file
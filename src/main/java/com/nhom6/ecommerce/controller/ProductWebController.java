@@ -1,10 +1,11 @@
 package com.nhom6.ecommerce.controller;
 
+import com.nhom6.ecommerce.dto.ProductPageDTO;
 import com.nhom6.ecommerce.dto.ProductRequestDTO;
+import com.nhom6.ecommerce.service.ProductCatalogService;
 import com.nhom6.ecommerce.service.ProductService;
 import com.nhom6.ecommerce.repository.BrandRepository;
 import com.nhom6.ecommerce.repository.CategoryRepository;
-import com.nhom6.ecommerce.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -14,16 +15,20 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/admin/products")
 public class ProductWebController {
 
-    @Autowired private ProductRepository productRepository;
+    @Autowired private ProductCatalogService productCatalogService;
     @Autowired private ProductService productService;
     @Autowired private BrandRepository brandRepository;
     @Autowired private CategoryRepository categoryRepository;
 
-    // 1. Trang danh sách sản phẩm
+    // 1. Trang danh sách sản phẩm (phân trang keyset, mới nhất trước, gồm cả sản phẩm hết hàng)
     @GetMapping
-    public String listProducts(Model model) {
-        // Lấy tất cả sản phẩm đẩy ra giao diện
-        model.addAttribute("products", productRepository.findAll());
+    public String listProducts(@RequestParam(required = false) String after,
+                               @RequestParam(defaultValue = "" + ProductCatalogService.ADMIN_PAGE_SIZE) int size,
+                               Model model) {
+        ProductPageDTO page = productCatalogService.adminPage(after, size);
+        model.addAttribute("products", page.getItems());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("firstPage", after == null);
         return "product-list"; // Trả về file product-list.html
     }
 
@@ -16,10 +16,6 @@ public class ReturnController {
 
     @PostMapping
     public ResponseEntity<?> createReturnRequest(@Valid @RequestBody ReturnRequestDTO req) {
-        try {
-            return ResponseEntity.ok(returnService.createReturnRequest(req));
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        }
+        return ResponseEntity.ok(returnService.createReturnRequest(req));
     }
 }
\ No newline at end of file
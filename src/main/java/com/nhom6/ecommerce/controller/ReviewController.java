@@ -2,6 +2,7 @@ package com.nhom6.ecommerce.controller;
 
 import com.nhom6.ecommerce.dto.ReviewRequestDTO;
 import com.nhom6.ecommerce.entity.Order;
+import com.nhom6.ecommerce.exception.NotFoundException;
 import com.nhom6.ecommerce.repository.OrderRepository;
 import com.nhom6.ecommerce.service.ReviewService;
 import jakarta.validation.Valid;
@@ -19,11 +20,7 @@ public class ReviewController {
     // 1. API Tạo đánh giá
     @PostMapping("/reviews")
     public ResponseEntity<?> createReview(@Valid @RequestBody ReviewRequestDTO req) {
-        try {
-            return ResponseEntity.ok(reviewService.createReview(req));
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        }
+        return ResponseEntity.ok(reviewService.createReview(req));
     }
 
     // 2. API TOOL (Chỉ dùng để Test): Chuyển trạng thái đơn hàng
@@ -31,7 +28,7 @@ public class ReviewController {
     @PutMapping("/orders/{orderId}/status")
     public ResponseEntity<?> updateOrderStatus(@PathVariable Long orderId, @RequestParam Order.OrderStatus status) {
         Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Đơn hàng không tồn tại"));
+                .orElseThrow(() -> new NotFoundException("REVIEW.ORDER_NOT_FOUND", "Đơn hàng không tồn tại"));
         order.setStatus(status);
         orderRepository.save(order);
         return ResponseEntity.ok("Đã cập nhật trạng thái đơn hàng thành: " + status);
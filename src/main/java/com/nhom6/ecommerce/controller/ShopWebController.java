@@ -2,6 +2,8 @@ package com.nhom6.ecommerce.controller;
 
 import com.nhom6.ecommerce.repository.ProductRepository;
 import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.service.CatalogReadModel;
+import com.nhom6.ecommerce.service.ProductCatalogService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -16,12 +18,19 @@ public class ShopWebController {
     @Autowired
     private ProductRepository productRepository;
 
-    // 1. Trang chủ (Shop): Hiển thị lưới sản phẩm
+    @Autowired
+    private CatalogReadModel catalogReadModel;
+
+    // 1. Trang chủ (Shop): Hiển thị lưới sản phẩm còn hàng và đang kinh doanh, từng trang (keyset)
+    // ?after=<con trỏ> lấy từ nút "Xem thêm" của trang trước. Lưới lấy từ cache (đã render sẵn HTML)
     @GetMapping("/")
-    public String showShopPage(Model model) {
-        // Lấy danh sách sản phẩm còn hàng và đang kinh doanh
-        // (Ở đây tạm lấy tất cả, thực tế nên filter thêm isActive = true)
-        model.addAttribute("products", productRepository.findAll());
+    public String showShopPage(@RequestParam(required = false) String after,
+                               @RequestParam(defaultValue = "" + ProductCatalogService.SHOP_PAGE_SIZE) int size,
+                               Model model) {
+        CatalogReadModel.RenderedPage page = catalogReadModel.shopPage(after, size);
+        model.addAttribute("gridHtml", page.gridHtml());
+        model.addAttribute("nextCursor", page.page().getNextCursor());
+        model.addAttribute("firstPage", after == null);
         return "shop"; // Trả về shop.html
     }
 
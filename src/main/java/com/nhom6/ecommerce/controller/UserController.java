@@ -19,46 +19,30 @@ public class UserController {
 
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody UserRegistrationDTO registrationDTO) {
-        try {
-            // Sửa đổi: Hứng kết quả trả về từ Service
-            User newUser = userService.registerUser(registrationDTO);
+        // Sửa đổi: Hứng kết quả trả về từ Service
+        User newUser = userService.registerUser(registrationDTO);
 
-            // Trả về toàn bộ thông tin User vừa tạo (Password đã bị @JsonIgnore ẩn đi)
-            return ResponseEntity.ok(newUser);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        }
+        // Trả về toàn bộ thông tin User vừa tạo (Password đã bị @JsonIgnore ẩn đi)
+        return ResponseEntity.ok(newUser);
     }
 
     // THÊM HÀM NÀY:
     @PostMapping("/login")
     public ResponseEntity<?> loginUser(@Valid @RequestBody UserLoginDTO loginDTO) {
-        try {
-            User user = userService.login(loginDTO);
-            return ResponseEntity.ok(user);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        }
+        User user = userService.login(loginDTO);
+        return ResponseEntity.ok(user);
     }
 
     // 1. API Lấy thông tin chi tiết (để hiển thị lên form)
     @GetMapping("/{id}")
     public ResponseEntity<?> getUserDetail(@PathVariable String id) {
-        try {
-            return ResponseEntity.ok(userService.getUserById(id));
-        } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
-        }
+        return ResponseEntity.ok(userService.getUserById(id));
     }
 
     // 2. API Cập nhật thông tin
     @PutMapping("/profile")
     public ResponseEntity<?> updateProfile(@RequestBody UserProfileDTO profileDTO) {
-        try {
-            User updatedUser = userService.updateProfile(profileDTO);
-            return ResponseEntity.ok(updatedUser);
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        }
+        User updatedUser = userService.updateProfile(profileDTO);
+        return ResponseEntity.ok(updatedUser);
     }
 }
\ No newline at end of file
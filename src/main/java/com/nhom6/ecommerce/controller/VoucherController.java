@@ -1,6 +1,8 @@
 package com.nhom6.ecommerce.controller;
 
+import com.nhom6.ecommerce.dto.OrderRequestDTO;
 import com.nhom6.ecommerce.dto.VoucherRequestDTO;
+import com.nhom6.ecommerce.service.OrderService;
 import com.nhom6.ecommerce.service.VoucherService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,12 +16,17 @@ public class VoucherController {
     @Autowired
     private VoucherService voucherService;
 
+    @Autowired
+    private OrderService orderService;
+
     @PostMapping
     public ResponseEntity<?> createVoucher(@Valid @RequestBody VoucherRequestDTO req) {
-        try {
-            return ResponseEntity.ok(voucherService.createVoucher(req));
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        }
+        return ResponseEntity.ok(voucherService.createVoucher(req));
+    }
+
+    // Voucher tốt nhất cho giỏ hàng (body giống /api/orders/checkout, chỉ cần userId & items)
+    @PostMapping("/best")
+    public ResponseEntity<?> bestVouchers(@RequestBody OrderRequestDTO req) {
+        return ResponseEntity.ok(orderService.suggestVouchers(req));
     }
 }
\ No newline at end of file
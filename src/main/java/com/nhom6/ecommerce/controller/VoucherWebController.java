@@ -4,22 +4,28 @@ import com.nhom6.ecommerce.dto.VoucherRequestDTO;
 import com.nhom6.ecommerce.entity.Voucher;
 import com.nhom6.ecommerce.repository.VoucherRepository;
 import com.nhom6.ecommerce.service.VoucherService;
+import com.nhom6.ecommerce.service.VoucherUsageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Controller
 @RequestMapping("/admin/vouchers")
 public class VoucherWebController {
 
     @Autowired private VoucherRepository voucherRepository;
     @Autowired private VoucherService voucherService;
+    @Autowired private VoucherUsageService voucherUsageService;
 
     // 1. Danh sách Voucher
     @GetMapping
     public String listVouchers(Model model) {
-        model.addAttribute("vouchers", voucherRepository.findAll());
+        List<Voucher> vouchers = voucherRepository.findAll();
+        model.addAttribute("vouchers", vouchers);
+        model.addAttribute("usedCounts", voucherUsageService.usedCounts(vouchers));
         return "voucher-list"; // voucher-list.html
     }
 
@@ -10,6 +10,7 @@ public class CartItemDTO {
     @NotNull(message = "ID sản phẩm không được để trống")
     private String productId;
 
+    @NotNull(message = "Số lượng mua tối thiểu là 1")
     @Min(value = 1, message = "Số lượng mua tối thiểu là 1")
     private Integer quantity;
 
@@ -0,0 +1,16 @@
+package com.nhom6.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 1 giá trị của 1 nhóm lọc (thương hiệu / danh mục / khoảng giá) kèm số sản phẩm khớp nếu chọn thêm giá trị này
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetCountDTO {
+    private String value;
+    private String label;
+    private int count;
+    private boolean selected;
+}
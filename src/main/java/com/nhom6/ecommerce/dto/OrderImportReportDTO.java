@@ -0,0 +1,14 @@
+package com.nhom6.ecommerce.dto;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+// Báo cáo nhập đơn hàng loạt: tổng hợp & kết quả từng dòng
+@Data
+public class OrderImportReportDTO {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<OrderImportResultDTO> results = new ArrayList<>();
+}
@@ -0,0 +1,22 @@
+package com.nhom6.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Kết quả nhập 1 dòng (1 đơn hàng) trong file nhập hàng loạt
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderImportResultDTO {
+    // Số dòng trong file (bắt đầu từ 1)
+    private int line;
+    private boolean success;
+
+    // Id đơn đã tạo (null nếu lỗi)
+    private Long orderId;
+
+    // Mã lỗi & thông báo (null nếu thành công)
+    private String code;
+    private String message;
+}
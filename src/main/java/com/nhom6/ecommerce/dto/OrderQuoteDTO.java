@@ -0,0 +1,18 @@
+package com.nhom6.ecommerce.dto;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+// Kết quả báo giá đơn hàng (chưa tạo đơn)
+@Data
+public class OrderQuoteDTO {
+    private BigDecimal subTotal;
+    private BigDecimal discountAmount;
+    private BigDecimal finalTotal;
+
+    // Mã voucher đã chuẩn hóa (null nếu không dùng voucher)
+    private String voucherCode;
+
+    // Đơn có được thanh toán COD không (giới hạn 20 triệu)
+    private boolean codAvailable;
+}
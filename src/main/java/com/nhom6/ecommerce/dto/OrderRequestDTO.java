@@ -1,6 +1,7 @@
 package com.nhom6.ecommerce.dto;
 
 import com.nhom6.ecommerce.entity.Order;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 import java.util.List;
@@ -36,5 +37,6 @@ public class OrderRequestDTO {
     @NotNull(message = "2E.1: Giỏ hàng trống.")
     @Size(min = 1, message = "2E.1: Giỏ hàng trống.")
     @Size(max = 50, message = "Danh sách sản phẩm không được vượt quá 50 loại.")
-    private List<CartItemDTO> items;
+    @Valid // Kiểm tra cả từng dòng (số lượng, giá client gửi)
+    private List<@NotNull(message = "2E.1: Giỏ hàng có dòng trống.") CartItemDTO> items;
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.nhom6.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+// 1 ô sản phẩm trên lưới shop / bảng admin: chỉ các cột được hiển thị (không nạp danh mục, ảnh phụ, tags...)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCardView {
+    private String id;
+    private String sku;
+    private String name;
+    private String thumbnail;
+    private BigDecimal salePrice;
+    private Integer stockQuantity;
+    private String brandName;
+
+    // Khóa phân trang (cùng với id)
+    private Date createdAt;
+}
@@ -0,0 +1,21 @@
+package com.nhom6.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Kết quả /api/products/facets: sản phẩm khớp bộ lọc (mới nhất trước) + số đếm của từng nhóm lọc
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetResultDTO {
+    private int total;
+    private List<ProductCardView> items;
+    private List<FacetCountDTO> brands;
+    private List<FacetCountDTO> categories;
+    private List<FacetCountDTO> priceBands;
+    // Số sản phẩm còn hàng trong các bộ lọc còn lại
+    private int inStockCount;
+}
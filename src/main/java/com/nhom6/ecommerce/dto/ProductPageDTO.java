@@ -0,0 +1,16 @@
+package com.nhom6.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// 1 trang sản phẩm + con trỏ sang trang sau (null nếu là trang cuối)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPageDTO {
+    private List<ProductCardView> items;
+    private String nextCursor;
+}
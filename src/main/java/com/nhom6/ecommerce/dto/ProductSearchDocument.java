@@ -0,0 +1,33 @@
+package com.nhom6.ecommerce.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+// Dữ liệu 1 sản phẩm đưa vào các chỉ mục trong bộ nhớ: tìm kiếm (ProductSearchIndex), bộ lọc (ProductFacetIndex)
+// & gợi ý khi gõ (ProductSuggestIndex)
+@Data
+public class ProductSearchDocument {
+    private String id;
+    private String sku;
+    private String name;
+    private String brandName;
+    private String shortDesc;
+    private String description;
+    private List<String> tags;
+    private String thumbnail;
+    private BigDecimal salePrice;
+    private Date createdAt;
+
+    // Chỉ dùng cho bộ lọc
+    private String brandId;
+    private List<Long> categoryIds;
+    private Integer stockQuantity;
+
+    // Chỉ dùng cho gợi ý
+    private String modelCode;
+    private Integer soldCount;
+    private Integer viewCount;
+}
@@ -0,0 +1,23 @@
+package com.nhom6.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// 1 kết quả tìm kiếm (đọc thẳng từ chỉ mục, không query DB)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchHitDTO {
+    private String id;
+    private String sku;
+    private String name;
+    private String brandName;
+    private String thumbnail;
+    private BigDecimal salePrice;
+
+    // Điểm BM25 (càng cao càng liên quan)
+    private float score;
+}
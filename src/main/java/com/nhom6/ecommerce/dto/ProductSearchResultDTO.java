@@ -0,0 +1,17 @@
+package com.nhom6.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Kết quả /api/products/search: tổng số sản phẩm khớp + top kết quả theo điểm
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResultDTO {
+    private String query;
+    private int total;
+    private List<ProductSearchHitDTO> items;
+}
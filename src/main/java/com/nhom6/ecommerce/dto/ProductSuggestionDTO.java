@@ -0,0 +1,16 @@
+package com.nhom6.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 1 gợi ý khi gõ ở ô tìm kiếm: sản phẩm (mở trang mua) hoặc thương hiệu (điền vào ô tìm kiếm)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestionDTO {
+    private String text;
+    private String type; // PRODUCT / BRAND
+    private String productId;
+    private String sku;
+}
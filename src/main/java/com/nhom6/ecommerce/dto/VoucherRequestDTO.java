@@ -59,6 +59,11 @@ public class VoucherRequestDTO {
     @Max(value = 100, message = "Giới hạn người dùng tối đa là 100.")
     private Integer usageLimitPerUser;
 
+    // Số shard đếm lượt dùng (để trống = 1). Dùng cho mã có lưu lượng cao
+    @Min(value = 1, message = "Số shard phải từ 1 đến 64.")
+    @Max(value = 64, message = "Số shard phải từ 1 đến 64.")
+    private Integer shardCount;
+
     // 9. Phạm vi
     @NotNull(message = "9E.1: Vui lòng chọn phạm vi áp dụng.")
     private Voucher.ScopeType scope;
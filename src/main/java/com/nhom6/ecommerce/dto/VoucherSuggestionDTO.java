@@ -0,0 +1,19 @@
+package com.nhom6.ecommerce.dto;
+
+import com.nhom6.ecommerce.entity.Voucher;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+// 1 voucher áp dụng được cho giỏ hàng, kèm số tiền được giảm
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoucherSuggestionDTO {
+    private String code;
+    private String name;
+    private Voucher.DiscountType discountType;
+    private BigDecimal discountAmount;
+    private BigDecimal finalTotal;
+}
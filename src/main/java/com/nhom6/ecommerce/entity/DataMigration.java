@@ -0,0 +1,19 @@
+package com.nhom6.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Các migration dữ liệu đã chạy xong (mỗi migration chỉ chạy 1 lần dù khởi động lại hay nhiều server)
+@Entity
+@Table(name = "data_migrations")
+@Data
+public class DataMigration {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(name = "applied_at", nullable = false)
+    private LocalDateTime appliedAt = LocalDateTime.now();
+}
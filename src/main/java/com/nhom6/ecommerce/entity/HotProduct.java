@@ -0,0 +1,29 @@
+package com.nhom6.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Sản phẩm bật chế độ "hot" (Flash Sale): tồn kho được chia thành nhiều stripe trong bộ nhớ
+// của đúng 1 server (server đang giữ lease)
+@Entity
+@Table(name = "hot_products")
+@Data
+public class HotProduct {
+
+    @Id
+    @Column(name = "product_id")
+    private String productId;
+
+    // Số stripe (bộ đếm con) chia tồn kho
+    @Column(name = "stripe_count", nullable = false)
+    private Integer stripeCount;
+
+    // Server đang giữ sổ kho của sản phẩm (null = đã nhả lease khi tắt app an toàn)
+    @Column(name = "owner_id")
+    private String ownerId;
+
+    // Hạn lease: server giữ sổ kho gia hạn ở mỗi lần flush, quá hạn thì server khác được nhận lại
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+}
@@ -0,0 +1,23 @@
+package com.nhom6.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Nhật ký bán của sổ kho hot: mỗi lượt giữ hàng ghi 1 dòng trong transaction checkout (INSERT, không khóa dòng products).
+// Lần flush cộng dồn các dòng xuống products.stock_quantity rồi xóa đúng các dòng đó -> sau sự cố đối soát chính xác.
+@Entity
+@Table(name = "hot_stock_sales", indexes = @Index(name = "idx_hot_stock_sales_product", columnList = "product_id"))
+@Data
+public class HotStockSale {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hot_stock_sale_seq")
+    @SequenceGenerator(name = "hot_stock_sale_seq", sequenceName = "hot_stock_sale_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private String productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+}
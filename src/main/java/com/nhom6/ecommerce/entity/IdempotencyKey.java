@@ -0,0 +1,49 @@
+package com.nhom6.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.springframework.data.domain.Persistable;
+import java.time.LocalDateTime;
+
+// Lưu Idempotency-Key của request checkout -> đơn hàng đã tạo (client gửi lại thì trả đơn cũ)
+@Entity
+@Table(name = "idempotency_keys")
+@Data
+public class IdempotencyKey implements Persistable<String> {
+
+    // userId + ":" + giá trị header Idempotency-Key
+    @Id
+    @Column(name = "idem_key", length = 150)
+    private String key;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    // SHA-256 nội dung request: cùng key nhưng khác giỏ hàng / địa chỉ -> từ chối thay vì trả đơn cũ
+    // (null với các key lưu trước khi có cột này)
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Luôn INSERT (không merge) để key trùng gây lỗi khóa chính thay vì ghi đè đơn cũ
+    @Transient
+    private boolean fresh = true;
+
+    @Override
+    public String getId() {
+        return key;
+    }
+
+    @Override
+    public boolean isNew() {
+        return fresh;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        fresh = false;
+    }
+}
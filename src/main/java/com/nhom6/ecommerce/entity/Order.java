@@ -15,8 +15,10 @@ import java.util.List;
 @AllArgsConstructor
 public class Order {
 
+    // Id lấy trước theo lô 50 từ sequence (MySQL: bảng order_seq) để Hibernate gom INSERT theo lô
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    @SequenceGenerator(name = "order_seq", sequenceName = "order_seq", allocationSize = 50)
     private Long id;
 
     // Người đặt hàng (Liên kết với bảng User) [cite: 63]
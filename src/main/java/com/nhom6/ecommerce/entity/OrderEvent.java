@@ -0,0 +1,51 @@
+package com.nhom6.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Outbox sự kiện đơn hàng: ghi trong transaction checkout, xử lý bất đồng bộ (tích điểm...)
+@Entity
+@Table(name = "order_events", indexes = @Index(name = "idx_order_events_pending", columnList = "processed_at, id"))
+@Data
+public class OrderEvent {
+
+    // Sequence (pooled) thay vì IDENTITY: lấy trước id nên các INSERT outbox của 1 lô đơn được gom batch
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_event_seq")
+    @SequenceGenerator(name = "order_event_seq", sequenceName = "order_event_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EventType type;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    // Tổng tiền cuối cùng của đơn (dùng để tính điểm)
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // null = chưa xử lý
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    public enum EventType { ORDER_PLACED }
+
+    public static OrderEvent orderPlaced(Order order) {
+        OrderEvent event = new OrderEvent();
+        event.setType(EventType.ORDER_PLACED);
+        event.setOrderId(order.getId());
+        event.setUserId(order.getUser().getUserId());
+        event.setAmount(order.getTotalAmount());
+        return event;
+    }
+}
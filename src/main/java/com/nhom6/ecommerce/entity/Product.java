@@ -11,7 +11,12 @@ import java.util.Set;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+// Index phục vụ phân trang keyset (ProductRepository.findShopCards / findAdminCards).
+// Không đưa stock_quantity vào index: cột này bị UPDATE ở mỗi lần checkout.
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_shop_page", columnList = "is_active, created_at, id"),
+        @Index(name = "idx_products_created", columnList = "created_at, id")
+})
 @Data // Lombok sẽ tự sinh ra getter/setter cho TẤT CẢ các trường dưới đây
 @NoArgsConstructor
 @AllArgsConstructor
@@ -134,4 +139,9 @@ public class Product {
 
     @Column(name = "is_active")
     private boolean isActive = true;
+
+    // Đang bật sổ kho hot (HotStockLedger): câu giữ hàng trên DB bỏ qua sản phẩm này.
+    // Chỉ ghi bằng ProductRepository.markHotStock, không ghi khi lưu entity (tránh ghi đè giá trị cũ)
+    @Column(name = "is_hot_stock", insertable = false, updatable = false, columnDefinition = "boolean default false not null")
+    private boolean hotStock;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.nhom6.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Tổng số đơn hàng của mỗi user (dùng kiểm tra voucher NEW_USER), cập nhật trong transaction checkout
+@Entity
+@Table(name = "user_order_stats")
+@Data
+public class UserOrderStats {
+
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+}
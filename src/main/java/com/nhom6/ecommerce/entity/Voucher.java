@@ -12,7 +12,8 @@ import java.util.List;
 public class Voucher {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "voucher_seq")
+    @SequenceGenerator(name = "voucher_seq", sequenceName = "voucher_seq", allocationSize = 50)
     private Long id;
 
     // 1. Mã Voucher
@@ -78,6 +79,10 @@ public class Voucher {
     @Column(name = "used_count")
     private Integer usedCount = 0;
 
+    // 15. Số shard đếm lượt dùng (> 1: lượt dùng đếm ở bảng voucher_usage_shards thay cho used_count)
+    @Column(name = "shard_count")
+    private Integer shardCount = 1;
+
     // Enums
     public enum DiscountType { PERCENTAGE, FIXED_AMOUNT, SHIPPING }
     public enum ScopeType { GLOBAL, CATEGORY, PRODUCT }
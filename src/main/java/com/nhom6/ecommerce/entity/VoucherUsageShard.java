@@ -0,0 +1,40 @@
+package com.nhom6.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+// Bộ đếm lượt dùng chia nhỏ (shard) cho voucher lưu lượng cao.
+// Tổng capacity các shard = usageLimit nên giới hạn vẫn được đảm bảo chính xác.
+@Entity
+@Table(name = "voucher_usage_shards")
+@IdClass(VoucherUsageShard.Key.class)
+@Data
+public class VoucherUsageShard {
+
+    @Id
+    @Column(name = "voucher_id")
+    private Long voucherId;
+
+    @Id
+    @Column(name = "shard_no")
+    private Integer shardNo;
+
+    // Số lượt tối đa của shard này
+    @Column(nullable = false)
+    private Integer capacity;
+
+    @Column(name = "used_count", nullable = false)
+    private Integer usedCount = 0;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long voucherId;
+        private Integer shardNo;
+    }
+}
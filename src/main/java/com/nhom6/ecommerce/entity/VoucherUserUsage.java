@@ -0,0 +1,35 @@
+package com.nhom6.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+// Số lần mỗi user đã dùng 1 voucher, cập nhật trong transaction checkout (thay cho COUNT trên bảng orders)
+@Entity
+@Table(name = "voucher_user_usage")
+@IdClass(VoucherUserUsage.Key.class)
+@Data
+public class VoucherUserUsage {
+
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    @Id
+    @Column(name = "voucher_id")
+    private Long voucherId;
+
+    @Column(nullable = false)
+    private Integer uses = 0;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String userId;
+        private Long voucherId;
+    }
+}
@@ -0,0 +1,16 @@
+package com.nhom6.ecommerce.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Xung đột với trạng thái hiện tại: dữ liệu đã tồn tại, đang được thay đổi... (409)
+public class ConflictException extends DomainException {
+
+    public ConflictException(String code, String message) {
+        super(code, message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.CONFLICT;
+    }
+}
@@ -0,0 +1,24 @@
+package com.nhom6.ecommerce.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Lỗi nghiệp vụ có mã lỗi (vd: "ORDER.3E.1"), được GlobalExceptionHandler trả về dạng {code, message}.
+ * Không ghi stack trace: lỗi nghiệp vụ là kết quả bình thường (giỏ hàng sai, mã hết lượt...), không phải bug,
+ * nên không tốn chi phí chụp stack mỗi lần từ chối request.
+ */
+public abstract class DomainException extends RuntimeException {
+
+    private final String code;
+
+    protected DomainException(String code, String message) {
+        super(message, null, false, false);
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public abstract HttpStatus getStatus();
+}
@@ -1,16 +1,23 @@
 package com.nhom6.ecommerce.exception;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
     // Xử lý lỗi validate @Valid (Ereg1, Erg5...)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, String>> handleValidationExceptions(MethodArgumentNotValidException ex) {
@@ -21,4 +28,32 @@ public class GlobalExceptionHandler {
         });
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
+
+    // Lỗi nghiệp vụ từ các service: trả về {code, message} với HTTP status theo loại lỗi (400/404/409/429).
+    // Dữ liệu sai do client được chặn bằng ValidationException tại chỗ kiểm tra; lỗi khác là lỗi hệ thống -> Spring trả 500
+    @ExceptionHandler(DomainException.class)
+    public ResponseEntity<Map<String, String>> handleDomainException(DomainException ex) {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("code", ex.getCode());
+        body.put("message", ex.getMessage());
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(ex.getStatus());
+        if (ex instanceof TooManyRequestsException busy) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(busy.getRetryAfterSeconds()));
+        }
+        return response.body(body);
+    }
+
+    // Vi phạm ràng buộc DB (trùng khóa, thiếu khóa ngoại...) do ghi đồng thời lọt qua bước kiểm tra trước
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, String>> handleDataIntegrityViolation(DataIntegrityViolationException ex) {
+        log.warn("Vi phạm ràng buộc dữ liệu: {}", ex.getMostSpecificCause().getMessage());
+        return errorBody(HttpStatus.CONFLICT, "DATA.CONFLICT", "Dữ liệu bị trùng hoặc đã thay đổi, vui lòng thử lại.");
+    }
+
+    private ResponseEntity<Map<String, String>> errorBody(HttpStatus status, String code, String message) {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("code", code);
+        body.put("message", message);
+        return ResponseEntity.status(status).body(body);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.nhom6.ecommerce.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Không tìm thấy tài nguyên được yêu cầu (404)
+public class NotFoundException extends DomainException {
+
+    public NotFoundException(String code, String message) {
+        super(code, message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.NOT_FOUND;
+    }
+}
@@ -0,0 +1,23 @@
+package com.nhom6.ecommerce.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Hệ thống đang quá tải, client nên thử lại sau retryAfterSeconds giây (429 + header Retry-After)
+public class TooManyRequestsException extends DomainException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String code, String message, long retryAfterSeconds) {
+        super(code, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.TOO_MANY_REQUESTS;
+    }
+}
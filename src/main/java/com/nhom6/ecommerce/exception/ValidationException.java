@@ -0,0 +1,16 @@
+package com.nhom6.ecommerce.exception;
+
+import org.springframework.http.HttpStatus;
+
+// Dữ liệu không hợp lệ hoặc vi phạm quy tắc nghiệp vụ (400)
+public class ValidationException extends DomainException {
+
+    public ValidationException(String code, String message) {
+        super(code, message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.BAD_REQUEST;
+    }
+}
@@ -0,0 +1,9 @@
+package com.nhom6.ecommerce.repository;
+
+import com.nhom6.ecommerce.entity.DataMigration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DataMigrationRepository extends JpaRepository<DataMigration, String> {
+}
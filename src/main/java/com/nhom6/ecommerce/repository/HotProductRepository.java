@@ -0,0 +1,36 @@
+package com.nhom6.ecommerce.repository;
+
+import com.nhom6.ecommerce.entity.HotProduct;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface HotProductRepository extends JpaRepository<HotProduct, String> {
+
+    // Nhận lease nếu đã được nhả hoặc hết hạn trước mốc expiredBefore. Trả về 1 nếu nhận được
+    @Modifying
+    @Query("UPDATE HotProduct h SET h.ownerId = :ownerId, h.leaseUntil = :leaseUntil " +
+            "WHERE h.productId = :productId AND (h.leaseUntil IS NULL OR h.leaseUntil < :expiredBefore)")
+    int acquireLease(@Param("productId") String productId, @Param("ownerId") String ownerId,
+                     @Param("leaseUntil") LocalDateTime leaseUntil, @Param("expiredBefore") LocalDateTime expiredBefore);
+
+    // Gia hạn lease của server đang giữ. Trả về 0 nếu lease đã thuộc về server khác
+    @Modifying
+    @Query("UPDATE HotProduct h SET h.leaseUntil = :leaseUntil WHERE h.productId = :productId AND h.ownerId = :ownerId")
+    int renewLease(@Param("productId") String productId, @Param("ownerId") String ownerId,
+                   @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Nhả lease khi tắt app an toàn: server khởi động sau nhận lại ngay, không phải chờ hết hạn
+    @Modifying
+    @Query("UPDATE HotProduct h SET h.ownerId = NULL, h.leaseUntil = NULL WHERE h.productId = :productId AND h.ownerId = :ownerId")
+    int releaseLease(@Param("productId") String productId, @Param("ownerId") String ownerId);
+
+    @Modifying
+    @Query("DELETE FROM HotProduct h WHERE h.productId = :productId AND h.ownerId = :ownerId")
+    int deleteOwned(@Param("productId") String productId, @Param("ownerId") String ownerId);
+}
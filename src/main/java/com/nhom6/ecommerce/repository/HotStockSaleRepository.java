@@ -0,0 +1,23 @@
+package com.nhom6.ecommerce.repository;
+
+import com.nhom6.ecommerce.entity.HotStockSale;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface HotStockSaleRepository extends JpaRepository<HotStockSale, Long> {
+
+    // Các lượt bán đã commit nhưng chưa ghi xuống bảng products
+    List<HotStockSale> findByProductId(String productId);
+
+    // Trả về số dòng thực sự bị xóa: ít hơn số id truyền vào = server khác đã ghi các dòng này trước
+    @Modifying
+    @Query("DELETE FROM HotStockSale s WHERE s.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,35 @@
+package com.nhom6.ecommerce.repository;
+
+import com.nhom6.ecommerce.entity.OrderEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OrderEventRepository extends JpaRepository<OrderEvent, Long> {
+
+    // Lấy 1 lô sự kiện chưa xử lý và khóa lại; lock.timeout = -2 -> SKIP LOCKED
+    // (nhiều server cùng chạy consumer sẽ không lấy trùng sự kiện của nhau)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<OrderEvent> findByProcessedAtIsNullOrderByIdAsc(Pageable pageable);
+
+    // Sự kiện chờ lâu nhất (đo độ trễ của consumer)
+    Optional<OrderEvent> findFirstByProcessedAtIsNullOrderByIdAsc();
+
+    long countByProcessedAtIsNull();
+
+    // Id các sự kiện đã xử lý trước mốc thời gian (dọn outbox theo lô, đi theo index processed_at)
+    @Query("SELECT e.id FROM OrderEvent e WHERE e.processedAt < :before ORDER BY e.processedAt, e.id")
+    List<Long> findIdsProcessedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+}
@@ -23,10 +23,6 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     Optional<Order> findCompletedOrderWithProduct(@Param("userId") String userId,
                                                   @Param("productId") String productId);
 
-    // Đếm số đơn hàng của user đã dùng voucherCode này
-    @Query("SELECT COUNT(o) FROM Order o WHERE o.user.userId = :userId AND o.voucherCode = :code")
-    long countVoucherUsageByUser(@Param("userId") String userId, @Param("code") String code);
-
     @Query("SELECT o FROM Order o JOIN o.items i WHERE o.user.userId = :userId AND i.product.id = :productId")
     List<Order> findAllOrdersByProduct(@Param("userId") String userId, @Param("productId") String productId);
 
@@ -1,8 +1,72 @@
 package com.nhom6.ecommerce.repository;
+import com.nhom6.ecommerce.dto.ProductCardView;
 import com.nhom6.ecommerce.entity.Product;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface ProductRepository extends JpaRepository<Product, String> {
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface ProductRepository extends JpaRepository<Product, String>, ProductRepositoryCustom {
     boolean existsBySku(String sku); // Kiểm tra trùng SKU [cite: 834]
     boolean existsByBrandIdAndModelCode(String brandId, String modelCode);
+
+    // Nạp toàn bộ sản phẩm trong giỏ bằng 1 query, kèm luôn danh mục (dùng khi check phạm vi voucher)
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.categories WHERE p.id IN :ids")
+    List<Product> findAllWithCategoriesByIdIn(@Param("ids") Collection<String> ids);
+
+    // Ghi phần tồn kho đã bán qua sổ kho hot (HotStockLedger) xuống DB. delta âm = trả lại hàng
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :delta WHERE p.id = :productId")
+    int applyStockDelta(@Param("productId") String productId, @Param("delta") int delta);
+
+    // Bật / tắt cờ sổ kho hot: khi bật, reserveStockBatch không trừ tồn kho sản phẩm này trên DB
+    // (kể cả từ server khác) -> chỉ server giữ lease trong bảng hot_products bán được
+    @Modifying
+    @Query(value = "UPDATE products SET is_hot_stock = :hot WHERE id = :productId", nativeQuery = true)
+    int markHotStock(@Param("productId") String productId, @Param("hot") boolean hot);
+
+    // Đọc tồn kho và khóa dòng (SELECT ... FOR UPDATE) khi chuyển sản phẩm sang sổ kho hot
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = :productId")
+    Optional<Product> findByIdForUpdate(@Param("productId") String productId);
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.isActive = true")
+    long countActive();
+
+    // Tồn kho hiện tại của nhiều sản phẩm: mỗi dòng [id, stockQuantity] (bộ lọc "còn hàng" nạp lại sau checkout)
+    @Query("SELECT p.id, p.stockQuantity FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findStockByIdIn(@Param("ids") Collection<String> ids);
+
+    // ===== PHÂN TRANG KEYSET (lưới shop & bảng admin) =====
+    // Sắp xếp mới nhất trước theo (createdAt, id); trang sau đọc tiếp "sau" dòng cuối của trang trước
+    // bằng điều kiện so sánh khóa thay vì OFFSET -> trang thứ 1 hay thứ 10.000 đều chỉ đọc đúng 1 trang trên index.
+    // Chỉ lấy các cột hiển thị (ProductCardView), không nạp entity Product.
+    String CARD_SELECT = "SELECT new com.nhom6.ecommerce.dto.ProductCardView(" +
+            "p.id, p.sku, p.name, p.thumbnail, p.salePrice, p.stockQuantity, b.name, p.createdAt) " +
+            "FROM Product p LEFT JOIN p.brand b ";
+    String AFTER_CURSOR = "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) ";
+    String NEWEST_FIRST = "ORDER BY p.createdAt DESC, p.id DESC";
+    String SHOP_FILTER = "p.isActive = true AND p.stockQuantity > 0 ";
+
+    // Shop: chỉ sản phẩm đang kinh doanh & còn hàng (index idx_products_shop_page)
+    @Query(CARD_SELECT + "WHERE " + SHOP_FILTER + NEWEST_FIRST)
+    List<ProductCardView> findShopCards(Limit limit);
+
+    @Query(CARD_SELECT + "WHERE " + SHOP_FILTER + "AND " + AFTER_CURSOR + NEWEST_FIRST)
+    List<ProductCardView> findShopCardsAfter(@Param("createdAt") Date createdAt, @Param("id") String id, Limit limit);
+
+    // Admin: tất cả sản phẩm, kể cả hết hàng / ngừng kinh doanh (index idx_products_created)
+    @Query(CARD_SELECT + NEWEST_FIRST)
+    List<ProductCardView> findAdminCards(Limit limit);
+
+    @Query(CARD_SELECT + "WHERE " + AFTER_CURSOR + NEWEST_FIRST)
+    List<ProductCardView> findAdminCardsAfter(@Param("createdAt") Date createdAt, @Param("id") String id, Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.nhom6.ecommerce.repository;
+
+import com.nhom6.ecommerce.dto.ProductSearchDocument;
+
+import java.util.Date;
+import java.util.List;
+import java.util.SortedMap;
+
+// Các thao tác cần JDBC trực tiếp: giữ hàng theo batch, đọc hàng loạt để dựng chỉ mục
+// (Spring Data tự ghép vào ProductRepository)
+public interface ProductRepositoryCustom {
+
+    /**
+     * Giữ hàng cho nhiều sản phẩm trong 1 lần gửi batch.
+     * Các dòng được UPDATE theo thứ tự khóa của map (productId tăng dần) để 2 giỏ hàng đồng thời
+     * luôn khóa các dòng products theo cùng 1 thứ tự -> không bị deadlock.
+     *
+     * @param quantities productId -> tổng số lượng cần trừ
+     * @return danh sách productId không đủ hàng (rỗng nếu giữ hàng thành công toàn bộ)
+     */
+    List<String> reserveStockBatch(SortedMap<String, Integer> quantities);
+
+    /**
+     * Đọc sản phẩm đang kinh doanh để dựng chỉ mục tìm kiếm / bộ lọc, theo thứ tự (createdAt, id) tăng dần,
+     * bắt đầu ngay sau khóa (afterCreatedAt, afterId). Mỗi lần tối đa limit dòng, kèm tags & danh mục
+     * (3 query, không N+1).
+     */
+    List<ProductSearchDocument> findSearchDocuments(Date afterCreatedAt, String afterId, int limit);
+
+    /**
+     * Như findSearchDocuments nhưng chỉ đọc các cột bộ lọc cần (thẻ sản phẩm, thương hiệu, tồn kho, danh mục):
+     * shortDesc, description và tags để trống (2 query).
+     */
+    List<ProductSearchDocument> findFacetDocuments(Date afterCreatedAt, String afterId, int limit);
+
+    /**
+     * Như findSearchDocuments nhưng chỉ đọc các cột gợi ý cần (tên, SKU, model, thương hiệu, lượt bán/xem):
+     * không mô tả, tags, danh mục (1 query).
+     */
+    List<ProductSearchDocument> findSuggestDocuments(Date afterCreatedAt, String afterId, int limit);
+}
@@ -0,0 +1,159 @@
+package com.nhom6.ecommerce.repository;
+
+import com.nhom6.ecommerce.dto.ProductSearchDocument;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    // Trừ tồn kho bằng UPDATE có điều kiện (không đọc - sửa - ghi trong Java): chỉ trừ khi còn đủ hàng và đang kinh doanh.
+    // Sản phẩm hot bị loại ngay trong câu UPDATE (điều kiện trên chính dòng bị khóa): server không giữ sổ kho
+    // không thể trừ tồn kho mà sổ kho đã nạp vào bộ nhớ
+    private static final String RESERVE_STOCK_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ? " +
+            "WHERE id = ? AND is_active = true AND is_hot_stock = false AND stock_quantity >= ?";
+
+    private static final String SEARCH_DOCUMENTS_SQL = documentsSql(
+            "p.id, p.sku, p.name, p.short_desc, p.description, p.thumbnail, p.sale_price, p.created_at, " +
+            "p.brand_id, p.stock_quantity, p.model_code, p.sold_count, p.view_count, b.name AS brand_name");
+
+    // Bộ lọc chỉ cần thẻ sản phẩm + thương hiệu, tồn kho, danh mục: không đọc mô tả (cột TEXT) & tags
+    private static final String FACET_DOCUMENTS_SQL = documentsSql(
+            "p.id, p.sku, p.name, p.thumbnail, p.sale_price, p.created_at, p.brand_id, p.stock_quantity, " +
+            "b.name AS brand_name");
+
+    // Gợi ý chỉ cần tên, mã, thương hiệu & độ phổ biến: 1 query, không bảng phụ
+    private static final String SUGGEST_DOCUMENTS_SQL = documentsSql(
+            "p.id, p.sku, p.name, p.model_code, p.sold_count, p.view_count, p.created_at, p.brand_id, " +
+            "b.name AS brand_name");
+
+    private static String documentsSql(String columns) {
+        return "SELECT " + columns + " FROM products p LEFT JOIN brands b ON b.id = p.brand_id " +
+                "WHERE p.is_active = true AND (p.created_at > ? OR (p.created_at = ? AND p.id > ?)) " +
+                "ORDER BY p.created_at, p.id LIMIT ?";
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<String> reserveStockBatch(SortedMap<String, Integer> quantities) {
+        List<String> productIds = new ArrayList<>(quantities.size());
+        List<Object[]> args = new ArrayList<>(quantities.size());
+        for (Map.Entry<String, Integer> e : quantities.entrySet()) {
+            productIds.add(e.getKey());
+            args.add(new Object[]{e.getValue(), e.getKey(), e.getValue()});
+        }
+
+        // JdbcTemplate dùng chung connection của transaction JPA đang chạy
+        int[] updated = jdbcTemplate.batchUpdate(RESERVE_STOCK_SQL, args);
+
+        List<String> failed = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) failed.add(productIds.get(i));
+        }
+        return failed;
+    }
+
+    @Override
+    public List<ProductSearchDocument> findSearchDocuments(Date afterCreatedAt, String afterId, int limit) {
+        Timestamp after = new Timestamp(afterCreatedAt.getTime());
+        Map<String, ProductSearchDocument> docs = new LinkedHashMap<>();
+        jdbcTemplate.query(SEARCH_DOCUMENTS_SQL, rs -> {
+            ProductSearchDocument doc = new ProductSearchDocument();
+            doc.setId(rs.getString("id"));
+            doc.setSku(rs.getString("sku"));
+            doc.setName(rs.getString("name"));
+            doc.setShortDesc(rs.getString("short_desc"));
+            doc.setDescription(rs.getString("description"));
+            doc.setThumbnail(rs.getString("thumbnail"));
+            doc.setSalePrice(rs.getBigDecimal("sale_price"));
+            doc.setCreatedAt(new Date(rs.getTimestamp("created_at").getTime()));
+            doc.setBrandName(rs.getString("brand_name"));
+            doc.setBrandId(rs.getString("brand_id"));
+            doc.setStockQuantity(rs.getInt("stock_quantity"));
+            doc.setModelCode(rs.getString("model_code"));
+            doc.setSoldCount(rs.getInt("sold_count"));
+            doc.setViewCount(rs.getInt("view_count"));
+            doc.setTags(new ArrayList<>());
+            doc.setCategoryIds(new ArrayList<>());
+            docs.put(doc.getId(), doc);
+        }, after, after, afterId, limit);
+        if (docs.isEmpty()) return List.of();
+
+        // Bảng phụ của @ElementCollection Product.tags
+        String in = String.join(",", Collections.nCopies(docs.size(), "?"));
+        jdbcTemplate.query("SELECT product_id, tags FROM product_tags WHERE product_id IN (" + in + ")",
+                rs -> {
+                    ProductSearchDocument doc = docs.get(rs.getString("product_id"));
+                    if (doc != null && rs.getString("tags") != null) doc.getTags().add(rs.getString("tags"));
+                },
+                docs.keySet().toArray());
+        loadCategoryIds(docs);
+        return new ArrayList<>(docs.values());
+    }
+
+    @Override
+    public List<ProductSearchDocument> findFacetDocuments(Date afterCreatedAt, String afterId, int limit) {
+        Timestamp after = new Timestamp(afterCreatedAt.getTime());
+        Map<String, ProductSearchDocument> docs = new LinkedHashMap<>();
+        jdbcTemplate.query(FACET_DOCUMENTS_SQL, rs -> {
+            ProductSearchDocument doc = new ProductSearchDocument();
+            doc.setId(rs.getString("id"));
+            doc.setSku(rs.getString("sku"));
+            doc.setName(rs.getString("name"));
+            doc.setThumbnail(rs.getString("thumbnail"));
+            doc.setSalePrice(rs.getBigDecimal("sale_price"));
+            doc.setCreatedAt(new Date(rs.getTimestamp("created_at").getTime()));
+            doc.setBrandName(rs.getString("brand_name"));
+            doc.setBrandId(rs.getString("brand_id"));
+            doc.setStockQuantity(rs.getInt("stock_quantity"));
+            doc.setCategoryIds(new ArrayList<>());
+            docs.put(doc.getId(), doc);
+        }, after, after, afterId, limit);
+        if (docs.isEmpty()) return List.of();
+
+        loadCategoryIds(docs);
+        return new ArrayList<>(docs.values());
+    }
+
+    @Override
+    public List<ProductSearchDocument> findSuggestDocuments(Date afterCreatedAt, String afterId, int limit) {
+        Timestamp after = new Timestamp(afterCreatedAt.getTime());
+        return jdbcTemplate.query(SUGGEST_DOCUMENTS_SQL, (rs, rowNum) -> {
+            ProductSearchDocument doc = new ProductSearchDocument();
+            doc.setId(rs.getString("id"));
+            doc.setSku(rs.getString("sku"));
+            doc.setName(rs.getString("name"));
+            doc.setModelCode(rs.getString("model_code"));
+            doc.setSoldCount(rs.getInt("sold_count"));
+            doc.setViewCount(rs.getInt("view_count"));
+            doc.setCreatedAt(new Date(rs.getTimestamp("created_at").getTime()));
+            doc.setBrandId(rs.getString("brand_id"));
+            doc.setBrandName(rs.getString("brand_name"));
+            return doc;
+        }, after, after, afterId, limit);
+    }
+
+    // Bảng nối Product.categories
+    private void loadCategoryIds(Map<String, ProductSearchDocument> docs) {
+        String in = String.join(",", Collections.nCopies(docs.size(), "?"));
+        jdbcTemplate.query("SELECT product_id, category_id FROM product_categories WHERE product_id IN (" + in + ")",
+                rs -> {
+                    ProductSearchDocument doc = docs.get(rs.getString("product_id"));
+                    if (doc != null) doc.getCategoryIds().add(rs.getLong("category_id"));
+                },
+                docs.keySet().toArray());
+    }
+}
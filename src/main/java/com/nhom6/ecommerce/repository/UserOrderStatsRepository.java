@@ -0,0 +1,34 @@
+package com.nhom6.ecommerce.repository;
+
+import com.nhom6.ecommerce.entity.UserOrderStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UserOrderStatsRepository extends JpaRepository<UserOrderStats, String> {
+
+    @Query("SELECT s.orderCount FROM UserOrderStats s WHERE s.userId = :userId")
+    Optional<Long> findOrderCount(@Param("userId") String userId);
+
+    // Cộng 1 đơn hàng cho user (tạo dòng nếu chưa có)
+    @Modifying
+    @Query(value = "INSERT INTO user_order_stats (user_id, order_count) VALUES (:userId, 1) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + 1", nativeQuery = true)
+    int incrementOrderCount(@Param("userId") String userId);
+
+    @Modifying
+    @Query(value = "INSERT INTO user_order_stats (user_id, order_count) VALUES (:userId, :count) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + :count", nativeQuery = true)
+    int addOrderCount(@Param("userId") String userId, @Param("count") int count);
+
+    // Nạp dữ liệu ban đầu từ lịch sử đơn hàng
+    @Modifying
+    @Query(value = "INSERT INTO user_order_stats (user_id, order_count) " +
+            "SELECT o.user_id, COUNT(*) FROM orders o GROUP BY o.user_id", nativeQuery = true)
+    int backfillFromOrders();
+}
@@ -1,9 +1,15 @@
 package com.nhom6.ecommerce.repository;
 
 import com.nhom6.ecommerce.entity.Voucher;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +19,19 @@ public interface VoucherRepository extends JpaRepository<Voucher, Long> {
 
     // Tìm voucher theo mã code để áp dụng khi checkout
     Optional<Voucher> findByCode(String code);
+
+    // Nạp kèm danh sách phạm vi (scopeIds) để dùng được ngoài transaction (cache)
+    @EntityGraph(attributePaths = "scopeIds")
+    Optional<Voucher> findWithScopeIdsByCode(String code);
+
+    // Voucher đang bật & chưa hết hạn (nạp chỉ mục voucher trong bộ nhớ)
+    @EntityGraph(attributePaths = "scopeIds")
+    @Query("SELECT v FROM Voucher v WHERE v.isActive = true AND v.endAt > :now")
+    List<Voucher> findActiveWithScopeIds(@Param("now") LocalDateTime now);
+
+    // Tăng lượt dùng nguyên tử: chỉ thành công khi còn lượt (usageLimit <= 0 = không giới hạn)
+    @Modifying
+    @Query("UPDATE Voucher v SET v.usedCount = v.usedCount + 1 WHERE v.id = :id " +
+            "AND (v.usageLimit IS NULL OR v.usageLimit <= 0 OR v.usedCount < v.usageLimit)")
+    int incrementUsage(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.nhom6.ecommerce.repository;
+
+import com.nhom6.ecommerce.entity.VoucherUsageShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface VoucherUsageShardRepository extends JpaRepository<VoucherUsageShard, VoucherUsageShard.Key> {
+
+    // Tăng lượt dùng trên 1 shard, chỉ thành công khi shard còn lượt
+    @Modifying
+    @Query("UPDATE VoucherUsageShard s SET s.usedCount = s.usedCount + 1 " +
+            "WHERE s.voucherId = :voucherId AND s.shardNo = :shardNo AND s.usedCount < s.capacity")
+    int incrementUsage(@Param("voucherId") Long voucherId, @Param("shardNo") int shardNo);
+
+    // Tổng lượt đã dùng theo từng voucher: [voucherId, SUM(usedCount)]
+    @Query("SELECT s.voucherId, SUM(s.usedCount) FROM VoucherUsageShard s " +
+            "WHERE s.voucherId IN :voucherIds GROUP BY s.voucherId")
+    List<Object[]> sumUsedCountByVoucherIds(@Param("voucherIds") Collection<Long> voucherIds);
+}
@@ -0,0 +1,33 @@
+package com.nhom6.ecommerce.repository;
+
+import com.nhom6.ecommerce.entity.VoucherUserUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface VoucherUserUsageRepository extends JpaRepository<VoucherUserUsage, VoucherUserUsage.Key> {
+
+    @Query("SELECT u.uses FROM VoucherUserUsage u WHERE u.userId = :userId AND u.voucherId = :voucherId")
+    Optional<Integer> findUses(@Param("userId") String userId, @Param("voucherId") Long voucherId);
+
+    List<VoucherUserUsage> findByUserId(String userId);
+
+    // Cộng 1 lượt dùng (tạo dòng nếu chưa có). Khóa dòng (user, voucher) tới hết transaction
+    @Modifying
+    @Query(value = "INSERT INTO voucher_user_usage (user_id, voucher_id, uses) VALUES (:userId, :voucherId, 1) " +
+            "ON DUPLICATE KEY UPDATE uses = uses + 1", nativeQuery = true)
+    int recordUse(@Param("userId") String userId, @Param("voucherId") Long voucherId);
+
+    // Nạp dữ liệu ban đầu từ lịch sử đơn hàng
+    @Modifying
+    @Query(value = "INSERT INTO voucher_user_usage (user_id, voucher_id, uses) " +
+            "SELECT o.user_id, v.id, COUNT(*) FROM orders o JOIN vouchers v ON v.code = TRIM(o.voucher_code) " +
+            "GROUP BY o.user_id, v.id", nativeQuery = true)
+    int backfillFromOrders();
+}
@@ -0,0 +1,107 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.dto.VoucherSuggestionDTO;
+import com.nhom6.ecommerce.entity.OrderItem;
+import com.nhom6.ecommerce.entity.Voucher;
+import com.nhom6.ecommerce.repository.VoucherRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * CHỈ MỤC VOUCHER ĐANG HOẠT ĐỘNG (trong bộ nhớ)
+ * Danh sách voucher còn hạn được nạp lại định kỳ (và ngay khi admin lưu voucher), đã biên dịch sẵn điều kiện.
+ * Dùng để tìm voucher tốt nhất cho 1 giỏ hàng: đánh giá song song, không ghi gì xuống DB.
+ */
+@Service
+public class ActiveVoucherIndex {
+
+    @Autowired private VoucherRepository voucherRepository;
+    @Autowired private VoucherUsageService voucherUsageService;
+    @Autowired private VoucherRuleCache voucherRuleCache;
+
+    // Từ số voucher này trở lên mới đánh giá song song (ít voucher thì chạy tuần tự nhanh hơn)
+    @Value("${app.voucher-index.parallel-threshold:256}")
+    private int parallelThreshold;
+
+    private record Entry(Voucher voucher, CompiledVoucher rule, int usedCount) {}
+
+    private volatile List<Entry> entries = List.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.voucher-index.refresh-interval-ms:5000}")
+    public void refresh() {
+        List<Voucher> vouchers = voucherRepository.findActiveWithScopeIds(LocalDateTime.now());
+        Map<Long, Integer> usedCounts = voucherUsageService.usedCounts(vouchers);
+
+        List<Entry> fresh = new ArrayList<>(vouchers.size());
+        for (Voucher v : vouchers) {
+            fresh.add(new Entry(v, voucherRuleCache.get(v), usedCounts.getOrDefault(v.getId(), 0)));
+        }
+        entries = List.copyOf(fresh);
+    }
+
+    /**
+     * Nạp lại chỉ mục sau khi transaction hiện tại commit (voucher vừa được lưu)
+     */
+    public void refreshAfterCommit() {
+        TransactionHooks.afterCommit(this::refresh);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Các voucher user dùng được cho giỏ hàng, xếp theo số tiền giảm giảm dần.
+     * Cùng điều kiện với OrderService.calculateVoucherDiscount (lượt dùng tính theo số liệu lúc nạp chỉ mục).
+     */
+    public List<VoucherSuggestionDTO> bestFor(String userId, BigDecimal subTotal, List<OrderItem> items) {
+        List<Entry> snapshot = entries;
+        if (snapshot.isEmpty()) return List.of();
+
+        // Số liệu của user: tra 1 lần, dùng chung cho mọi voucher
+        Map<Long, Integer> userUses = voucherUsageService.usesByUser(userId);
+        long orderCount = voucherUsageService.orderCount(userId);
+        LocalDateTime now = LocalDateTime.now();
+
+        Stream<Entry> stream = snapshot.size() >= parallelThreshold ? snapshot.parallelStream() : snapshot.stream();
+        return stream
+                .map(e -> evaluate(e, subTotal, items, userUses, orderCount, now))
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(VoucherSuggestionDTO::getDiscountAmount).reversed()
+                        .thenComparing(VoucherSuggestionDTO::getCode))
+                .toList();
+    }
+
+    private VoucherSuggestionDTO evaluate(Entry e, BigDecimal subTotal, List<OrderItem> items,
+                                          Map<Long, Integer> userUses, long orderCount, LocalDateTime now) {
+        Voucher v = e.voucher();
+        CompiledVoucher rule = e.rule();
+
+        if (!rule.isWithinTime(now)) return null;
+        if (v.getUsageLimit() != null && v.getUsageLimit() > 0 && e.usedCount() >= v.getUsageLimit()) return null;
+        if (!rule.meetsMinOrder(subTotal)) return null;
+        if (v.getUsageLimitPerUser() != null && userUses.getOrDefault(v.getId(), 0) >= v.getUsageLimitPerUser()) return null;
+        if (!rule.appliesTo(items)) return null;
+        if (rule.requiresOrderCount() && !rule.isAudienceAllowed(orderCount)) return null;
+
+        // Tổng tiền không âm -> số tiền thực giảm tối đa bằng tạm tính
+        BigDecimal discount = rule.discountFor(subTotal).min(subTotal);
+        if (discount.signum() <= 0) return null;
+
+        return new VoucherSuggestionDTO(v.getCode(), v.getName(), v.getDiscountType(), discount, subTotal.subtract(discount));
+    }
+}
@@ -0,0 +1,194 @@
+package com.nhom6.ecommerce.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nhom6.ecommerce.dto.ProductCardView;
+import com.nhom6.ecommerce.dto.ProductPageDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * READ MODEL LƯỚI SẢN PHẨM TRANG CHỦ (giống nhau cho mọi khách chưa đăng nhập)
+ * Mỗi trang (con trỏ, số dòng) được cache cùng HTML đã render của lưới (fragments/product-grid).
+ * - Stale-while-revalidate: trang bị đánh dấu cũ vẫn được trả ngay từ bộ nhớ, tác vụ nền nạp lại
+ *   (gom các thay đổi trong 1 chu kỳ -> checkout liên tục cũng chỉ nạp lại mỗi trang 1 lần/chu kỳ)
+ * - Đánh dấu cũ khi: tạo sản phẩm mới (mọi trang, vì sản phẩm mới đứng đầu), checkout trừ tồn kho
+ *   (chỉ các trang đang chứa sản phẩm đó), hoặc trang đã nạp quá fresh-ms
+ * - Quá max-age-ms thì bỏ hẳn, request sau nạp lại đồng bộ
+ * Metric: cache.gets{cache=catalog.page} (tỉ lệ hit), catalog.cache.staleness (dữ liệu cũ bao lâu
+ * khi được trả cho khách), catalog.cache.stale.pages (số trang đang chờ nạp lại).
+ */
+@Service
+public class CatalogReadModel {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogReadModel.class);
+
+    @Autowired private ProductCatalogService productCatalogService;
+    @Autowired private ITemplateEngine templateEngine;
+
+    // Trang đã render sẵn: dữ liệu (để lấy con trỏ trang sau) + HTML lưới
+    public record RenderedPage(ProductPageDTO page, String gridHtml) {}
+
+    private record PageKey(String cursor, int size) {}
+
+    private static final class Entry {
+        final RenderedPage rendered;
+        final Set<String> productIds;
+        final long loadedAt;
+        // Thời điểm bị đánh dấu cũ (0 = còn mới)
+        final AtomicLong staleSince = new AtomicLong();
+
+        Entry(RenderedPage rendered, Set<String> productIds, long loadedAt) {
+            this.rendered = rendered;
+            this.productIds = productIds;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final AsyncCache<PageKey, Entry> pages;
+    private final Set<PageKey> pendingRevalidation = ConcurrentHashMap.newKeySet();
+    private final long freshMillis;
+    private final Timer staleness;
+
+    public CatalogReadModel(MeterRegistry meterRegistry,
+                            @Value("${app.catalog-cache.size:1000}") long size,
+                            @Value("${app.catalog-cache.fresh-ms:30000}") long freshMillis,
+                            @Value("${app.catalog-cache.max-age-ms:300000}") long maxAgeMillis) {
+        this.freshMillis = freshMillis;
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(Duration.ofMillis(maxAgeMillis))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages.synchronous(), "catalog.page");
+        this.staleness = Timer.builder("catalog.cache.staleness")
+                .description("Dữ liệu cũ bao lâu (tính từ lúc bị đánh dấu cũ) khi được trả cho khách")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("catalog.cache.stale.pages", pendingRevalidation, Set::size).register(meterRegistry);
+    }
+
+    public RenderedPage shopPage(String cursor, int size) {
+        // Khóa theo đúng trang sẽ trả về: con trỏ sai định dạng / size vượt giới hạn dùng chung entry với trang hợp lệ,
+        // URL sửa tay không tạo thêm entry trong cache
+        PageKey key = new PageKey(ProductCatalogService.canonicalCursor(cursor), ProductCatalogService.clampPageSize(size));
+        CompletableFuture<Entry> cached = pages.getIfPresent(key);
+        if (cached != null) {
+            Entry entry = await(cached);
+            long now = System.currentTimeMillis();
+            if (now - entry.loadedAt > freshMillis) markStale(key, entry, entry.loadedAt + freshMillis);
+            long staleSince = entry.staleSince.get();
+            if (staleSince != 0) staleness.record(Math.max(now - staleSince, 0), TimeUnit.MILLISECONDS);
+            return entry.rendered;
+        }
+
+        // Chưa có trong cache: request đầu tiên tự nạp, các request cùng trang chờ chung kết quả
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> first = pages.asMap().putIfAbsent(key, mine);
+        if (first != null) return await(first).rendered;
+        try {
+            Entry entry = load(key);
+            mine.complete(entry);
+            return entry.rendered;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e); // Cache tự bỏ entry lỗi
+            throw e;
+        }
+    }
+
+    /**
+     * Sản phẩm mới được lưu: đứng đầu danh sách nên mọi trang đều lệch -> đánh dấu cũ tất cả (sau commit)
+     */
+    public void productCreated() {
+        TransactionHooks.afterCommit(() -> forEachCached((key, entry) -> markStale(key, entry, System.currentTimeMillis())));
+    }
+
+    /**
+     * Checkout vừa trừ tồn kho (có thể hết hàng -> phải rời lưới): chỉ đánh dấu cũ các trang chứa các sản phẩm này
+     */
+    public void stockChanged(Collection<String> productIds) {
+        Set<String> changed = Set.copyOf(productIds);
+        TransactionHooks.afterCommit(() -> forEachCached((key, entry) -> {
+            for (String id : changed) {
+                if (entry.productIds.contains(id)) {
+                    markStale(key, entry, System.currentTimeMillis());
+                    return;
+                }
+            }
+        }));
+    }
+
+    /**
+     * Nạp lại các trang đã bị đánh dấu cũ. Trong lúc nạp, khách vẫn nhận bản cũ.
+     * Nạp lỗi thì giữ bản cũ và thử lại ở chu kỳ sau.
+     */
+    @Scheduled(fixedDelayString = "${app.catalog-cache.revalidate-interval-ms:500}")
+    public void revalidate() {
+        for (PageKey key : Set.copyOf(pendingRevalidation)) {
+            pendingRevalidation.remove(key);
+            if (pages.getIfPresent(key) == null) continue; // Đã bị bỏ khỏi cache, request sau tự nạp
+            try {
+                pages.put(key, CompletableFuture.completedFuture(load(key)));
+            } catch (RuntimeException e) {
+                pendingRevalidation.add(key); // Chu kỳ sau thử lại
+                log.warn("CATALOG CACHE [{}]: nạp lại thất bại, vẫn dùng bản cũ: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private Entry load(PageKey key) {
+        long loadedAt = System.currentTimeMillis();
+        ProductPageDTO page = productCatalogService.shopPage(key.cursor().isEmpty() ? null : key.cursor(), key.size());
+
+        Context context = new Context();
+        context.setVariable("products", page.getItems());
+        String html = templateEngine.process("fragments/product-grid", Set.of("grid"), context);
+
+        Set<String> ids = new HashSet<>();
+        for (ProductCardView card : page.getItems()) ids.add(card.getId());
+        return new Entry(new RenderedPage(page, html), ids, loadedAt);
+    }
+
+    private void markStale(PageKey key, Entry entry, long since) {
+        if (entry.staleSince.compareAndSet(0, since)) pendingRevalidation.add(key);
+    }
+
+    private void forEachCached(BiConsumer<PageKey, Entry> action) {
+        for (Map.Entry<PageKey, CompletableFuture<Entry>> e : pages.asMap().entrySet()) {
+            CompletableFuture<Entry> future = e.getValue();
+            // Trang đang nạp lần đầu: bỏ qua (nếu đọc trước thay đổi thì cũng chỉ cũ tối đa fresh-ms)
+            if (future.isDone() && !future.isCompletedExceptionally()) action.accept(e.getKey(), future.join());
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.dto.CartItemDTO;
+import com.nhom6.ecommerce.exception.TooManyRequestsException;
+import com.nhom6.ecommerce.exception.ValidationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * KIỂM SOÁT LƯU LƯỢNG CHECKOUT SẢN PHẨM HOT (FLASH SALE)
+ * Mỗi sản phẩm hot có 1 "cổng": tối đa N checkout chạy đồng thời, tối đa M request xếp hàng chờ.
+ * Tổng số request chờ ở mọi cổng cũng bị giới hạn (thấp hơn hẳn số thread servlet), nhiều sản phẩm hot cùng lúc
+ * không chiếm hết thread của các request khác.
+ * - Hàng chờ đầy hoặc chờ quá lâu -> từ chối ngay (429 + Retry-After), không giữ thread servlet & connection DB
+ * - Sổ kho đã hết hàng -> từ chối ngay, không cần xếp hàng
+ * Đơn không có sản phẩm hot đi thẳng, không qua cổng. Sản phẩm thôi ở chế độ hot thì cổng & số liệu của nó bị xóa.
+ */
+@Service
+public class CheckoutAdmissionControl {
+
+    private final HotStockLedger hotStockLedger;
+    private final MeterRegistry meterRegistry;
+    private final int concurrencyPerProduct;
+    private final int maxQueue;
+    private final int maxTotalQueue;
+    private final long maxWaitMs;
+    private final long retryAfterSeconds;
+
+    private final Map<String, Gate> gates = new ConcurrentHashMap<>();
+    private final AtomicInteger totalWaiting = new AtomicInteger();
+
+    public CheckoutAdmissionControl(HotStockLedger hotStockLedger, MeterRegistry meterRegistry,
+                                    @Value("${app.checkout-admission.concurrency-per-product:16}") int concurrencyPerProduct,
+                                    @Value("${app.checkout-admission.max-queue:50}") int maxQueue,
+                                    @Value("${app.checkout-admission.max-total-queue:100}") int maxTotalQueue,
+                                    @Value("${app.checkout-admission.max-wait-ms:2000}") long maxWaitMs,
+                                    @Value("${app.checkout-admission.retry-after-seconds:2}") long retryAfterSeconds) {
+        this.hotStockLedger = hotStockLedger;
+        this.meterRegistry = meterRegistry;
+        this.concurrencyPerProduct = concurrencyPerProduct;
+        this.maxQueue = maxQueue;
+        this.maxTotalQueue = maxTotalQueue;
+        this.maxWaitMs = maxWaitMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        Gauge.builder("checkout.admission.queue.total", totalWaiting, AtomicInteger::get)
+                .description("Tổng số checkout đang xếp hàng chờ ở mọi cổng sản phẩm hot")
+                .register(meterRegistry);
+        hotStockLedger.onHotModeEnded(this::removeGate);
+    }
+
+    /**
+     * Chạy checkout sau khi được vào cổng của mọi sản phẩm hot trong giỏ
+     */
+    public <T> T admit(List<CartItemDTO> items, Supplier<T> checkout) {
+        // TreeSet: vào cổng theo thứ tự productId cố định, 2 giỏ cùng chứa 2 sản phẩm hot không chờ chéo nhau
+        TreeSet<String> hotIds = new TreeSet<>();
+        if (items != null) {
+            for (CartItemDTO item : items) {
+                if (item.getProductId() != null && hotStockLedger.isHot(item.getProductId())) hotIds.add(item.getProductId());
+            }
+        }
+        if (hotIds.isEmpty()) return checkout.get();
+
+        List<Gate> entered = new ArrayList<>(hotIds.size());
+        try {
+            for (String productId : hotIds) {
+                Gate gate = gates.computeIfAbsent(productId, Gate::new);
+                gate.enter();
+                entered.add(gate);
+            }
+            return checkout.get();
+        } finally {
+            for (Gate gate : entered) gate.leave();
+        }
+    }
+
+    private void removeGate(String productId) {
+        Gate gate = gates.remove(productId);
+        // Request đang ở trong cổng vẫn giữ tham chiếu tới gate cũ và ra khỏi cổng bình thường
+        if (gate != null) gate.removeMeters();
+    }
+
+    private final class Gate {
+
+        private final String productId;
+        private final Semaphore permits = new Semaphore(concurrencyPerProduct, true);
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final List<Meter> meters = new ArrayList<>();
+        private final Timer waitTimer;
+        private final Counter rejectedQueueFull;
+        private final Counter rejectedTimeout;
+        private final Counter rejectedSoldOut;
+
+        Gate(String productId) {
+            this.productId = productId;
+            meters.add(Gauge.builder("checkout.admission.queue", waiting, AtomicInteger::get)
+                    .description("Số checkout đang xếp hàng chờ vào cổng sản phẩm hot")
+                    .tag("product", productId)
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("checkout.admission.active", permits, p -> concurrencyPerProduct - p.availablePermits())
+                    .description("Số checkout đang chạy trong cổng sản phẩm hot")
+                    .tag("product", productId)
+                    .register(meterRegistry));
+            this.waitTimer = Timer.builder("checkout.admission.wait")
+                    .description("Thời gian chờ vào cổng sản phẩm hot")
+                    .tag("product", productId)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+            meters.add(waitTimer);
+            this.rejectedQueueFull = rejectedCounter("queue_full");
+            this.rejectedTimeout = rejectedCounter("timeout");
+            this.rejectedSoldOut = rejectedCounter("sold_out");
+        }
+
+        private Counter rejectedCounter(String reason) {
+            Counter counter = Counter.builder("checkout.admission.rejected")
+                    .description("Số checkout bị từ chối tại cổng sản phẩm hot")
+                    .tag("product", productId)
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+            meters.add(counter);
+            return counter;
+        }
+
+        void removeMeters() {
+            for (Meter meter : meters) meterRegistry.remove(meter);
+        }
+
+        void enter() {
+            if (hotStockLedger.availableStock(productId, 1) == 0) {
+                rejectedSoldOut.increment();
+                throw new ValidationException("ORDER.2E.2", "2E.2: Sản phẩm đã hết hàng.");
+            }
+            // Chỉ vào thẳng khi không ai đang chờ (giữ thứ tự đến trước - vào trước)
+            if (waiting.get() == 0 && permits.tryAcquire()) {
+                waitTimer.record(0, TimeUnit.NANOSECONDS);
+                return;
+            }
+
+            if (waiting.incrementAndGet() > maxQueue) {
+                waiting.decrementAndGet();
+                rejectedQueueFull.increment();
+                throw busy();
+            }
+            if (totalWaiting.incrementAndGet() > maxTotalQueue) {
+                totalWaiting.decrementAndGet();
+                waiting.decrementAndGet();
+                rejectedQueueFull.increment();
+                throw busy();
+            }
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            } finally {
+                totalWaiting.decrementAndGet();
+                waiting.decrementAndGet();
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (!acquired) {
+                rejectedTimeout.increment();
+                throw busy();
+            }
+        }
+
+        void leave() {
+            permits.release();
+        }
+
+        private TooManyRequestsException busy() {
+            return new TooManyRequestsException("CHECKOUT.BUSY",
+                    "Hệ thống đang quá tải do nhiều người mua cùng lúc, vui lòng thử lại sau " + retryAfterSeconds + " giây.",
+                    retryAfterSeconds);
+        }
+    }
+}
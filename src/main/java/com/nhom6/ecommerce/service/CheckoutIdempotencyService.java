@@ -0,0 +1,178 @@
+package com.nhom6.ecommerce.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nhom6.ecommerce.dto.CartItemDTO;
+import com.nhom6.ecommerce.dto.OrderRequestDTO;
+import com.nhom6.ecommerce.entity.IdempotencyKey;
+import com.nhom6.ecommerce.entity.Order;
+import com.nhom6.ecommerce.exception.ConflictException;
+import com.nhom6.ecommerce.exception.ValidationException;
+import com.nhom6.ecommerce.repository.IdempotencyKeyRepository;
+import com.nhom6.ecommerce.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * CHECKOUT CÓ IDEMPOTENCY-KEY
+ * Client (mobile) gửi lại request khi timeout -> trả về đúng đơn hàng đã tạo, không chạy lại createOrder.
+ * - Cache trong bộ nhớ (giới hạn số lượng, hết hạn theo thời gian), phía sau là bảng idempotency_keys
+ * - Các request trùng key đến cùng lúc sẽ chờ kết quả của request đầu tiên
+ * - Key đi kèm mã băm nội dung request: dùng lại key cho request khác -> 409, không trả nhầm đơn cũ
+ */
+@Service
+public class CheckoutIdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    @Autowired private OrderService orderService;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private IdempotencyKeyRepository idempotencyKeyRepository;
+    @Autowired private CheckoutAdmissionControl admissionControl;
+
+    private final Duration ttl;
+    private final Cache<String, Attempt> completed;
+    private final ConcurrentMap<String, Attempt> inFlight = new ConcurrentHashMap<>();
+
+    // Lượt checkout theo key, kèm mã băm của request đã tạo ra nó
+    private record Attempt(String requestHash, CompletableFuture<Order> order) {
+    }
+
+    public CheckoutIdempotencyService(@Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                                      @Value("${app.idempotency.cache-size:10000}") long cacheSize) {
+        this.ttl = Duration.ofHours(ttlHours);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Order checkout(OrderRequestDTO req, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return admissionControl.admit(req.getItems(), () -> orderService.createOrder(req));
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ValidationException("CHECKOUT.IDEMPOTENCY_KEY_TOO_LONG", "Idempotency-Key không được vượt quá " + MAX_KEY_LENGTH + " ký tự.");
+        }
+
+        // Key gắn với user để 2 tài khoản không đụng key của nhau
+        String key = req.getUserId() + ":" + idempotencyKey.trim();
+        String requestHash = fingerprint(req);
+
+        Attempt cached = completed.getIfPresent(key);
+        if (cached != null) {
+            requireSameRequest(cached.requestHash(), requestHash);
+            return cached.order().join();
+        }
+
+        Attempt mine = new Attempt(requestHash, new CompletableFuture<>());
+        Attempt first = inFlight.putIfAbsent(key, mine);
+        if (first != null) {
+            requireSameRequest(first.requestHash(), requestHash);
+            return await(first.order()); // Request trùng đang chạy -> chờ kết quả
+        }
+
+        try {
+            Order order = findStoredOrder(key, requestHash).orElseGet(() -> createOnce(req, key, requestHash));
+            mine.order().complete(order);
+            completed.put(key, mine);
+            return order;
+        } catch (RuntimeException e) {
+            mine.order().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Mã băm SHA-256 các trường quyết định đơn hàng (giá so sánh theo giá trị: 10000 = 10000.00)
+     */
+    private static String fingerprint(OrderRequestDTO req) {
+        StringBuilder sb = new StringBuilder()
+                .append(req.getUserId()).append('\n')
+                .append(req.getRecipientName()).append('\n')
+                .append(req.getPhone()).append('\n')
+                .append(req.getAddress()).append('\n')
+                .append(req.getPaymentMethod()).append('\n')
+                .append(req.getVoucherCode()).append('\n');
+        if (req.getItems() != null) {
+            for (CartItemDTO item : req.getItems()) {
+                if (item == null) continue;
+                BigDecimal price = item.getClientPrice();
+                sb.append(item.getProductId()).append(':').append(item.getQuantity()).append(':')
+                        .append(price != null ? price.stripTrailingZeros().toPlainString() : null).append('\n');
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JVM không hỗ trợ SHA-256", e);
+        }
+    }
+
+    /**
+     * Dọn các key quá hạn trong DB (cache tự hết hạn)
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:3600000}")
+    public void purgeExpiredKeys() {
+        idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+    }
+
+    private Order createOnce(OrderRequestDTO req, String key, String requestHash) {
+        IdempotencyKey idempotencyKey = new IdempotencyKey();
+        idempotencyKey.setKey(key);
+        idempotencyKey.setRequestHash(requestHash);
+        try {
+            return admissionControl.admit(req.getItems(), () -> orderService.createOrder(req, idempotencyKey));
+        } catch (DataIntegrityViolationException e) {
+            // Server khác vừa commit đơn với cùng key -> đơn của mình đã rollback, trả về đơn đã có
+            return findStoredOrder(key, requestHash).orElseThrow(() -> e);
+        }
+    }
+
+    private Optional<Order> findStoredOrder(String key, String requestHash) {
+        return idempotencyKeyRepository.findById(key)
+                .filter(k -> k.getCreatedAt().isAfter(LocalDateTime.now().minus(ttl)))
+                .map(k -> {
+                    // Key lưu trước khi có mã băm: không đối chiếu được, giữ hành vi cũ
+                    if (k.getRequestHash() != null) requireSameRequest(k.getRequestHash(), requestHash);
+                    return k.getOrderId();
+                })
+                .flatMap(orderRepository::findById);
+    }
+
+    private static void requireSameRequest(String storedHash, String requestHash) {
+        if (!Objects.equals(storedHash, requestHash)) {
+            throw new ConflictException("CHECKOUT.IDEMPOTENCY_KEY_REUSED",
+                    "Idempotency-Key đã được dùng cho một đơn hàng khác, vui lòng tạo key mới.");
+        }
+    }
+
+    private Order await(CompletableFuture<Order> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+}
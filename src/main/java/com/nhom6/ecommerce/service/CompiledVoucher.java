@@ -0,0 +1,144 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.entity.Category;
+import com.nhom6.ecommerce.entity.OrderItem;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.entity.Voucher;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * Điều kiện áp dụng của 1 voucher, "biên dịch" sẵn từ entity Voucher (bất biến, dùng chung giữa các luồng).
+ * - Phạm vi PRODUCT: HashSet id sản phẩm; CATEGORY: mảng long đã sắp xếp (không đổi Long -> String mỗi lần kiểm tra)
+ * - Khung thời gian & điều kiện đối tượng tính sẵn
+ * Không chứa usedCount: lượt dùng luôn đọc/ghi trực tiếp qua VoucherUsageService.
+ */
+public final class CompiledVoucher {
+
+    private static final LongPredicate ANY_USER = orderCount -> true;
+    private static final LongPredicate NEW_USER_ONLY = orderCount -> orderCount == 0;
+
+    private final Long id;
+    private final String code;
+    private final LocalDateTime startAt;
+    private final LocalDateTime endAt;
+    private final BigDecimal minOrderValue;
+    private final Voucher.DiscountType discountType;
+    private final BigDecimal discountValue;
+    private final Voucher.ScopeType scope;
+    private final Set<String> productIds;
+    private final long[] categoryIds;
+    private final boolean requiresOrderCount;
+    private final LongPredicate audience;
+
+    private CompiledVoucher(Voucher v) {
+        this.id = v.getId();
+        this.code = v.getCode();
+        this.startAt = v.getStartAt();
+        this.endAt = v.getEndAt();
+        this.minOrderValue = v.getMinOrderValue();
+        this.discountType = v.getDiscountType();
+        this.discountValue = v.getDiscountValue();
+        this.scope = v.getScope();
+
+        List<String> scopeIds = v.getScopeIds() != null ? v.getScopeIds() : List.of();
+        this.productIds = scope == Voucher.ScopeType.PRODUCT ? Collections.unmodifiableSet(new HashSet<>(scopeIds)) : Set.of();
+        this.categoryIds = scope == Voucher.ScopeType.CATEGORY ? toSortedLongs(scopeIds) : new long[0];
+
+        this.requiresOrderCount = v.getAudienceType() == Voucher.AudienceType.NEW_USER;
+        this.audience = requiresOrderCount ? NEW_USER_ONLY : ANY_USER;
+    }
+
+    public static CompiledVoucher compile(Voucher voucher) {
+        return new CompiledVoucher(voucher);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public BigDecimal getMinOrderValue() {
+        return minOrderValue;
+    }
+
+    public boolean isWithinTime(LocalDateTime now) {
+        return !now.isBefore(startAt) && !now.isAfter(endAt);
+    }
+
+    public boolean meetsMinOrder(BigDecimal subTotal) {
+        return subTotal.compareTo(minOrderValue) >= 0;
+    }
+
+    /**
+     * Voucher có giới hạn đối tượng theo lịch sử mua hàng không (cần tra số đơn của user)
+     */
+    public boolean requiresOrderCount() {
+        return requiresOrderCount;
+    }
+
+    public boolean isAudienceAllowed(long userOrderCount) {
+        return audience.test(userOrderCount);
+    }
+
+    /**
+     * Có ít nhất 1 sản phẩm trong giỏ thuộc phạm vi áp dụng
+     */
+    public boolean appliesTo(List<OrderItem> items) {
+        if (scope == Voucher.ScopeType.GLOBAL) return true;
+
+        for (OrderItem item : items) {
+            Product product = item.getProduct();
+            if (scope == Voucher.ScopeType.PRODUCT) {
+                if (productIds.contains(product.getId())) return true;
+            } else if (scope == Voucher.ScopeType.CATEGORY) {
+                if (inAllowedCategories(product)) return true;
+            }
+        }
+        return false;
+    }
+
+    public BigDecimal discountFor(BigDecimal subTotal) {
+        if (discountType == Voucher.DiscountType.FIXED_AMOUNT) {
+            return discountValue;
+        } else if (discountType == Voucher.DiscountType.PERCENTAGE) {
+            return subTotal.multiply(discountValue).divide(BigDecimal.valueOf(100));
+        }
+        return BigDecimal.ZERO;
+    }
+
+    private boolean inAllowedCategories(Product product) {
+        if (product.getCategories() == null || categoryIds.length == 0) return false;
+        for (Category cat : product.getCategories()) {
+            if (cat.getId() != null && Arrays.binarySearch(categoryIds, cat.getId()) >= 0) return true;
+        }
+        return false;
+    }
+
+    // Id danh mục không phải số thì không thể khớp (giống String.valueOf(id) so với chuỗi) -> bỏ qua
+    private static long[] toSortedLongs(List<String> ids) {
+        long[] result = new long[ids.size()];
+        int n = 0;
+        for (String s : ids) {
+            try {
+                result[n] = Long.parseLong(s);
+                n++;
+            } catch (NumberFormatException e) {
+                // bỏ qua
+            }
+        }
+        long[] sorted = Arrays.copyOf(result, n);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
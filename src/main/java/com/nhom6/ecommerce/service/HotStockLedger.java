@@ -0,0 +1,372 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.entity.HotProduct;
+import com.nhom6.ecommerce.entity.HotStockSale;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.exception.ConflictException;
+import com.nhom6.ecommerce.exception.NotFoundException;
+import com.nhom6.ecommerce.exception.ValidationException;
+import com.nhom6.ecommerce.repository.HotProductRepository;
+import com.nhom6.ecommerce.repository.HotStockSaleRepository;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * SỔ KHO CHO SẢN PHẨM HOT (FLASH SALE)
+ * Khi bật chế độ hot, tồn kho của sản phẩm được giữ trong bộ nhớ (StripedStockCounter) thay vì
+ * UPDATE dòng products ở mỗi đơn hàng. Mỗi lượt bán ghi 1 dòng nhật ký (hot_stock_sales) trong transaction
+ * checkout; flush định kỳ cộng dồn nhật ký xuống products rồi xóa đúng các dòng đã cộng (write-behind).
+ * - Chỉ 1 server giữ sổ kho của 1 sản phẩm (lease trong bảng hot_products, gia hạn ở mỗi lần flush).
+ *   Cờ products.is_hot_stock chặn câu giữ hàng trên DB, nên server khác không thể trừ cùng dòng tồn kho.
+ * - Sau sự cố: nhật ký còn lại chính là phần đã bán chưa ghi xuống DB -> đối soát chính xác, không trừ 2 lần.
+ *   Server khác (hoặc chính server này khi khởi động lại) nhận lại lease khi hết hạn + takeover-grace-seconds.
+ */
+@Service
+public class HotStockLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockLedger.class);
+
+    @Autowired private HotProductRepository hotProductRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private HotStockSaleRepository saleRepository;
+
+    private final TransactionTemplate tx;
+
+    // Định danh server này trong cột hot_products.owner_id
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // Thời hạn lease; server giữ sổ kho ngừng bán nếu quá hạn mà chưa gia hạn được
+    @Value("${app.hot-stock.lease-seconds:10}")
+    private long leaseSeconds;
+
+    // Lease hết hạn thêm khoảng này mới được nhận lại: các checkout đang chạy trên server cũ kịp ghi xong nhật ký.
+    // Nên lớn hơn thời gian tối đa của 1 lượt checkout.
+    @Value("${app.hot-stock.takeover-grace-seconds:30}")
+    private long takeoverGraceSeconds;
+
+    // Thời gian tối đa chờ các đơn đã giữ hàng qua sổ kho kết thúc khi tắt chế độ hot
+    @Value("${app.hot-stock.switch-timeout-ms:5000}")
+    private long switchTimeoutMs;
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> hotModeEndedListeners = new CopyOnWriteArrayList<>();
+
+    public HotStockLedger(PlatformTransactionManager transactionManager) {
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isHot(String productId) {
+        return slots.containsKey(productId);
+    }
+
+    public Set<String> hotProductIds() {
+        return slots.keySet();
+    }
+
+    /**
+     * Đăng ký việc dọn dẹp khi 1 sản phẩm thôi ở chế độ hot trên server này (tắt hot hoặc mất lease)
+     */
+    public void onHotModeEnded(Consumer<String> listener) {
+        hotModeEndedListeners.add(listener);
+    }
+
+    /**
+     * Tồn kho thực tế của sản phẩm hot (bảng products có thể chưa cập nhật kịp)
+     */
+    public int availableStock(String productId, int fallback) {
+        Slot slot = slots.get(productId);
+        return slot != null ? slot.counter.available() : fallback;
+    }
+
+    /**
+     * Giữ hàng cho sản phẩm hot và ghi nhật ký bán trong cùng transaction checkout.
+     * Nếu transaction rollback thì nhật ký mất theo và hàng được trả lại bộ đếm.
+     */
+    public boolean tryReserve(String productId, int quantity) {
+        Slot slot = slots.get(productId);
+        if (slot == null || System.nanoTime() - slot.leaseDeadline > 0) {
+            throw new ConflictException("STOCK.HOT_MODE_SWITCHING", "Sản phẩm đang chuyển chế độ kho, vui lòng thử lại.");
+        }
+
+        // Đếm TRƯỚC khi giữ hàng: tắt chế độ hot đóng bộ đếm rồi chờ số này về 0
+        slot.open.incrementAndGet();
+        boolean reserved;
+        try {
+            reserved = slot.counter.tryReserve(quantity);
+        } catch (IllegalStateException e) {
+            slot.open.decrementAndGet();
+            throw new ConflictException("STOCK.HOT_MODE_SWITCHING", "Sản phẩm đang chuyển chế độ kho, vui lòng thử lại.");
+        }
+
+        if (!reserved || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            slot.open.decrementAndGet();
+        } else {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) slot.counter.release(quantity);
+                    slot.open.decrementAndGet();
+                }
+            });
+        }
+        if (!reserved) return false;
+
+        HotStockSale sale = new HotStockSale();
+        sale.setProductId(productId);
+        sale.setQuantity(quantity);
+        saleRepository.save(sale);
+        return true;
+    }
+
+    /**
+     * Bật chế độ hot: nhận lease, bật cờ chặn giữ hàng trên DB, khóa dòng sản phẩm và nạp tồn kho vào các stripe.
+     * Câu giữ hàng trên DB (mọi server) đã trừ trước đó giữ khóa dòng tới khi commit nên SELECT ... FOR UPDATE
+     * đọc được số liệu cuối cùng; câu chạy sau bị cờ chặn. Sổ kho chỉ được công bố sau khi transaction commit.
+     */
+    public void enable(String productId, int stripeCount) {
+        if (stripeCount < 1 || stripeCount > 64) {
+            throw new ValidationException("STOCK.INVALID_STRIPE_COUNT", "Số stripe phải từ 1 đến 64.");
+        }
+        if (isHot(productId)) {
+            throw new ConflictException("STOCK.ALREADY_HOT", "Sản phẩm đã ở chế độ hot.");
+        }
+
+        long leaseStart = System.nanoTime();
+        Integer stock;
+        try {
+            stock = tx.execute(status -> {
+                // Khóa theo thứ tự hot_products -> products như flush / nhận lease (không deadlock)
+                if (hotProductRepository.existsById(productId)) {
+                    throw new ConflictException("STOCK.ALREADY_HOT", "Sản phẩm đã ở chế độ hot (sổ kho nằm trên server khác).");
+                }
+                HotProduct hot = new HotProduct();
+                hot.setProductId(productId);
+                hot.setStripeCount(stripeCount);
+                hot.setOwnerId(nodeId);
+                hot.setLeaseUntil(LocalDateTime.now().plusSeconds(leaseSeconds));
+                hotProductRepository.saveAndFlush(hot);
+
+                Product product = productRepository.findByIdForUpdate(productId)
+                        .orElseThrow(() -> new NotFoundException("STOCK.PRODUCT_NOT_FOUND", "Sản phẩm không tồn tại (ID: " + productId + ")"));
+                productRepository.markHotStock(productId, true);
+                // Nhật ký còn sót của lần bật trước (đơn commit sau khi tắt) được ghi nốt trước khi nạp
+                return product.getStockQuantity() - applySales(productId);
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException("STOCK.ALREADY_HOT", "Sản phẩm đã ở chế độ hot.");
+        }
+
+        slots.put(productId, new Slot(new StripedStockCounter(stripeCount, stock), leaseStart + leaseNanos()));
+    }
+
+    /**
+     * Tắt chế độ hot: đóng sổ kho, chờ các đơn đã giữ hàng kết thúc, ghi nốt nhật ký xuống DB, bỏ cờ và nhả lease.
+     * Quá thời gian chờ: báo lỗi, sổ kho vẫn đóng (không bán thêm) và có thể gọi tắt lại.
+     */
+    public void disable(String productId) {
+        Slot slot = slots.get(productId);
+        if (slot == null) {
+            throw new ConflictException("STOCK.NOT_HOT", "Sản phẩm không ở chế độ hot trên server này.");
+        }
+        slot.counter.close();
+        awaitOpenReservations(slot);
+
+        try {
+            tx.executeWithoutResult(status -> {
+                if (hotProductRepository.deleteOwned(productId, nodeId) == 0) {
+                    throw new ConflictException("STOCK.NOT_HOT", "Sổ kho của sản phẩm đã chuyển sang server khác.");
+                }
+                applySales(productId);
+                productRepository.markHotStock(productId, false);
+            });
+        } catch (ConflictException e) {
+            endHotMode(productId, slot);
+            throw e;
+        }
+        endHotMode(productId, slot);
+    }
+
+    /**
+     * Ghi dồn (write-behind) nhật ký bán xuống bảng products, gia hạn lease
+     * và nhận lại sổ kho của các sản phẩm hot có lease đã hết hạn (server giữ trước đó đã dừng)
+     */
+    @Scheduled(fixedDelayString = "${app.hot-stock.flush-interval-ms:1000}")
+    public void flush() {
+        slots.forEach(this::flushOne);
+        takeOverExpiredLeases();
+    }
+
+    /**
+     * Khởi động: nhận lại các sản phẩm hot (đối soát nhật ký) TRƯỚC khi web server nhận request
+     */
+    @PostConstruct
+    public void loadOnStartup() {
+        takeOverExpiredLeases();
+    }
+
+    /**
+     * Tắt app an toàn: ghi hết nhật ký xuống DB và nhả lease để server khởi động sau nhận lại ngay
+     */
+    @PreDestroy
+    public void shutdown() {
+        slots.forEach((productId, slot) -> {
+            slot.counter.close();
+            try {
+                awaitOpenReservations(slot);
+                tx.executeWithoutResult(status -> {
+                    applySales(productId);
+                    hotProductRepository.releaseLease(productId, nodeId);
+                });
+            } catch (RuntimeException e) {
+                // Lease không được nhả: server sau nhận lại khi hết hạn, nhật ký vẫn còn để đối soát
+                log.error("HOT STOCK [{}]: không ghi được tồn kho khi tắt app", productId, e);
+            }
+        });
+        slots.clear();
+    }
+
+    private void flushOne(String productId, Slot slot) {
+        long renewStart = System.nanoTime();
+        try {
+            Boolean renewed = tx.execute(status -> {
+                if (hotProductRepository.renewLease(productId, nodeId, LocalDateTime.now().plusSeconds(leaseSeconds)) == 0) {
+                    return false;
+                }
+                applySales(productId);
+                return true;
+            });
+            if (Boolean.TRUE.equals(renewed)) {
+                slot.leaseDeadline = renewStart + leaseNanos();
+            } else {
+                // Server khác đã nhận lease (server này bị treo quá hạn): ngừng bán trên server này
+                slot.counter.close();
+                endHotMode(productId, slot);
+                log.warn("HOT STOCK [{}]: lease đã thuộc về server khác, ngừng giữ sổ kho", productId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("HOT STOCK [{}]: flush thất bại, sẽ thử lại: {}", productId, e.getMessage());
+        }
+    }
+
+    private void endHotMode(String productId, Slot slot) {
+        if (!slots.remove(productId, slot)) return;
+        for (Consumer<String> listener : hotModeEndedListeners) listener.accept(productId);
+    }
+
+    private void takeOverExpiredLeases() {
+        LocalDateTime expiredBefore = LocalDateTime.now().minusSeconds(takeoverGraceSeconds);
+        for (HotProduct hot : hotProductRepository.findAll()) {
+            if (slots.containsKey(hot.getProductId())) continue;
+            if (hot.getLeaseUntil() != null && !hot.getLeaseUntil().isBefore(expiredBefore)) continue;
+            try {
+                takeOver(hot);
+            } catch (RuntimeException e) {
+                log.error("HOT STOCK [{}]: không nhận lại được sổ kho", hot.getProductId(), e);
+            }
+        }
+    }
+
+    private void takeOver(HotProduct hot) {
+        String productId = hot.getProductId();
+        long leaseStart = System.nanoTime();
+        Integer stock = tx.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (hotProductRepository.acquireLease(productId, nodeId, now.plusSeconds(leaseSeconds),
+                    now.minusSeconds(takeoverGraceSeconds)) == 0) {
+                return null; // Server khác nhận trước
+            }
+            Product product = productRepository.findByIdForUpdate(productId).orElse(null);
+            if (product == null) return null;
+            // Đối soát: phần bán chưa ghi xuống DB của server trước nằm nguyên trong nhật ký
+            int unflushed = applySales(productId);
+            if (unflushed > 0) log.info("HOT STOCK [{}]: đối soát {} sản phẩm bán chưa ghi xuống DB", productId, unflushed);
+            return product.getStockQuantity() - unflushed;
+        });
+        if (stock != null) {
+            slots.put(productId, new Slot(new StripedStockCounter(hot.getStripeCount(), stock), leaseStart + leaseNanos()));
+        }
+    }
+
+    /**
+     * Cộng các dòng nhật ký đã commit xuống products.stock_quantity và xóa đúng các dòng đó (trong transaction
+     * của người gọi). Trả về số lượng đã ghi.
+     */
+    private int applySales(String productId) {
+        List<HotStockSale> sales = saleRepository.findByProductId(productId);
+        if (sales.isEmpty()) return 0;
+
+        int sold = 0;
+        List<Long> ids = new ArrayList<>(sales.size());
+        for (HotStockSale sale : sales) {
+            sold += sale.getQuantity();
+            ids.add(sale.getId());
+        }
+        // Có dòng không xóa được = server khác vừa ghi các dòng này -> rollback, không trừ 2 lần
+        if (saleRepository.deleteByIdIn(ids) != ids.size()) {
+            throw new OptimisticLockingFailureException("Nhật ký bán của sản phẩm " + productId + " đang được ghi ở nơi khác");
+        }
+        productRepository.applyStockDelta(productId, sold);
+        return sold;
+    }
+
+    private void awaitOpenReservations(Slot slot) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(switchTimeoutMs);
+        while (slot.open.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                throw new ConflictException("STOCK.HOT_MODE_SWITCHING", "Sản phẩm đang có đơn hàng xử lý, vui lòng thử lại.");
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConflictException("STOCK.HOT_MODE_SWITCHING", "Sản phẩm đang chuyển chế độ kho, vui lòng thử lại.");
+            }
+        }
+    }
+
+    private long leaseNanos() {
+        return TimeUnit.SECONDS.toNanos(leaseSeconds);
+    }
+
+    // Sổ kho của 1 sản phẩm trên server này
+    private static final class Slot {
+
+        final StripedStockCounter counter;
+
+        // Số transaction đã giữ hàng qua sổ kho nhưng chưa kết thúc
+        final AtomicInteger open = new AtomicInteger();
+
+        // Hạn lease theo đồng hồ System.nanoTime của server này (tính từ lúc BẮT ĐẦU gia hạn -> không muộn hơn DB)
+        volatile long leaseDeadline;
+
+        Slot(StripedStockCounter counter, long leaseDeadline) {
+            this.counter = counter;
+            this.leaseDeadline = leaseDeadline;
+        }
+    }
+}
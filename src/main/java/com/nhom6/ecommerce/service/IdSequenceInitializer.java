@@ -0,0 +1,55 @@
+package com.nhom6.ecommerce.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * CHUYỂN ID TỪ AUTO_INCREMENT SANG SEQUENCE (POOLED)
+ * MySQL không có sequence nên Hibernate dùng bảng 1 dòng (cột next_val) cho mỗi sequence,
+ * khởi tạo bằng 1 -> sẽ trùng id với dữ liệu cũ.
+ * Khi khởi động (sau khi Hibernate cập nhật schema, trước khi nhận request): đẩy next_val lên sau id lớn nhất.
+ * Chỉ tăng, không giảm -> chạy lại nhiều lần vẫn an toàn.
+ */
+@Component
+public class IdSequenceInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    // Phải trùng allocationSize trong @SequenceGenerator của entity
+    private static final int ALLOCATION_SIZE = 50;
+
+    // {sequence, bảng dữ liệu}
+    private static final String[][] SEQUENCES = {
+            {"order_seq", "orders"},
+            {"order_item_seq", "order_items"},
+            {"order_event_seq", "order_events"},
+            {"review_seq", "reviews"},
+            {"voucher_seq", "vouchers"},
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Nhận EntityManagerFactory để chắc chắn chạy sau khi Hibernate đã tạo bảng sequence
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequences() {
+        for (String[] s : SEQUENCES) {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + s[1], Long.class);
+            if (maxId == null) continue; // Bảng trống: giữ giá trị khởi tạo
+
+            // Optimizer pooled cấp các id (next_val - 49 .. next_val] -> next_val = maxId + 50 là id mới bắt đầu từ maxId + 1
+            long target = maxId + ALLOCATION_SIZE;
+            int updated = jdbcTemplate.update("UPDATE " + s[0] + " SET next_val = ? WHERE next_val < ?", target, target);
+            if (updated > 0) {
+                log.info("ID SEQUENCE: {} -> next_val = {} (id lớn nhất của {}: {})", s[0], target, s[1], maxId);
+            }
+        }
+    }
+}
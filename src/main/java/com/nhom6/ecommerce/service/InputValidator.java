@@ -0,0 +1,95 @@
+package com.nhom6.ecommerce.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+/**
+ * Kiểm tra dữ liệu đầu vào dùng chung cho các service.
+ * - Quy tắc đơn giản (chỉ gồm số, ký tự '<' '>', emoji...) duyệt chuỗi trực tiếp, không cấp phát
+ * - Quy tắc phức tạp dùng Pattern biên dịch sẵn 1 lần (thay cho Pattern.matches / String.matches mỗi request)
+ */
+@Component
+public class InputValidator {
+
+    // Email (đơn giản hóa)
+    private static final Pattern EMAIL = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$");
+
+    // Tên chủ tài khoản: chữ in hoa không dấu, 3-50 ký tự
+    private static final Pattern BANK_HOLDER = Pattern.compile("^[A-Z\\s]{3,50}$");
+
+    // Ký tự cấm trong tên voucher
+    private static final String MARKUP_CHARS = "<>/'\"{}";
+
+    public boolean isEmail(String value) {
+        return value != null && EMAIL.matcher(value).matches();
+    }
+
+    public boolean isBankHolderName(String value) {
+        return value != null && BANK_HOLDER.matcher(value).matches();
+    }
+
+    /**
+     * Họ tên: chỉ gồm chữ cái (mọi ngôn ngữ) và khoảng trắng, độ dài min-max ký tự
+     */
+    public boolean isPersonName(String value, int min, int max) {
+        if (value == null) return false;
+        int count = 0;
+        for (int i = 0; i < value.length(); ) {
+            int c = value.codePointAt(i);
+            if (c != ' ' && !Character.isLetter(c)) return false;
+            if (++count > max) return false;
+            i += Character.charCount(c);
+        }
+        return count >= min;
+    }
+
+    /**
+     * Số điện thoại di động: 10 số, bắt đầu bằng 0
+     */
+    public boolean isMobilePhone(String value) {
+        return value != null && value.length() == 10 && value.charAt(0) == '0' && isDigits(value, 10, 10);
+    }
+
+    /**
+     * Chuỗi chỉ gồm chữ số 0-9, độ dài min-max
+     */
+    public boolean isDigits(String value, int min, int max) {
+        if (value == null || value.length() < min || value.length() > max) return false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    public boolean containsAngleBrackets(String value) {
+        return value != null && (value.indexOf('<') >= 0 || value.indexOf('>') >= 0);
+    }
+
+    /**
+     * Có chứa 1 trong các ký tự < > / ' " { }
+     */
+    public boolean containsMarkupChars(String value) {
+        if (value == null) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (MARKUP_CHARS.indexOf(value.charAt(i)) >= 0) return true;
+        }
+        return false;
+    }
+
+    public boolean containsEmoji(String value) {
+        if (value == null) return false;
+        for (int i = 0; i < value.length(); i++) {
+            // Emoji đều nằm ngoài BMP -> chỉ cần xét cặp surrogate
+            if (!Character.isHighSurrogate(value.charAt(i))) continue;
+            int c = value.codePointAt(i);
+            if ((c >= 0x1F600 && c <= 0x1F64F) || // Emoticons
+                    (c >= 0x1F300 && c <= 0x1F5FF) || // Misc Symbols and Pictographs
+                    (c >= 0x1F680 && c <= 0x1F6FF)) { // Transport and Map
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,129 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.entity.OrderEvent;
+import com.nhom6.ecommerce.repository.OrderEventRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TÍCH ĐIỂM BẤT ĐỒNG BỘ
+ * Đọc outbox order_events theo lô, cộng dồn điểm theo từng user rồi ghi mỗi user 1 lần.
+ * Cập nhật user và đánh dấu sự kiện đã xử lý nằm trong cùng 1 transaction -> mỗi đơn chỉ được tích điểm 1 lần.
+ * Sự kiện đã xử lý được giữ lại một thời gian (tra soát) rồi xóa theo lô để bảng outbox không phình mãi.
+ */
+@Service
+public class LoyaltyPointsConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(LoyaltyPointsConsumer.class);
+
+    @Autowired private OrderEventRepository orderEventRepository;
+    @Autowired private UserService userService;
+
+    private final TransactionTemplate tx;
+
+    @Value("${app.loyalty.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.loyalty.retention-days:7}")
+    private int retentionDays;
+
+    // Số sự kiện đang chờ & tuổi (giây) của sự kiện chờ lâu nhất
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    public LoyaltyPointsConsumer(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.tx = new TransactionTemplate(transactionManager);
+        Gauge.builder("loyalty.outbox.pending", pendingEvents, AtomicLong::get)
+                .description("Số sự kiện đơn hàng chưa được tích điểm")
+                .register(meterRegistry);
+        Gauge.builder("loyalty.outbox.lag", lagSeconds, AtomicLong::get)
+                .description("Tuổi của sự kiện chưa xử lý lâu nhất")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.loyalty.poll-interval-ms:1000}")
+    public void poll() {
+        // Xử lý liên tục khi còn đầy lô, tránh tồn đọng sau giờ cao điểm
+        while (processBatch() == batchSize) {
+            // tiếp tục lô kế tiếp
+        }
+        refreshLagMetrics();
+    }
+
+    /**
+     * Xử lý 1 lô sự kiện, trả về số sự kiện đã xử lý
+     */
+    public int processBatch() {
+        Integer processed = tx.execute(status -> {
+            List<OrderEvent> events = orderEventRepository.findByProcessedAtIsNullOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (events.isEmpty()) return 0;
+
+            // Gộp điểm theo user (mỗi đơn vẫn làm tròn điểm riêng như khi tích điểm trực tiếp).
+            // TreeMap: ghi các dòng users theo thứ tự cố định, 2 consumer song song không bị deadlock
+            Map<String, Integer> pointsByUser = new TreeMap<>();
+            for (OrderEvent event : events) {
+                pointsByUser.merge(event.getUserId(), UserService.calculatePoints(event.getAmount()), Integer::sum);
+            }
+            pointsByUser.forEach((userId, points) -> {
+                try {
+                    userService.addPoints(userId, points);
+                } catch (NoSuchElementException e) {
+                    // User đã bị xóa: bỏ qua, không để 1 sự kiện làm kẹt cả hàng đợi
+                    log.warn("LOYALTY: bỏ qua {} điểm của user không tồn tại {}", points, userId);
+                }
+            });
+
+            LocalDateTime now = LocalDateTime.now();
+            for (OrderEvent event : events) event.setProcessedAt(now);
+            orderEventRepository.saveAll(events);
+            return events.size();
+        });
+        return processed != null ? processed : 0;
+    }
+
+    /**
+     * Xóa các sự kiện đã xử lý quá thời gian lưu, mỗi lô 1 transaction ngắn (không khóa bảng lâu)
+     */
+    @Scheduled(fixedDelayString = "${app.loyalty.purge-interval-ms:3600000}")
+    public int purgeProcessed() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = tx.execute(status -> {
+                List<Long> ids = orderEventRepository.findIdsProcessedBefore(before, PageRequest.of(0, batchSize));
+                if (!ids.isEmpty()) orderEventRepository.deleteAllByIdInBatch(ids);
+                return ids.size();
+            });
+            total += deleted;
+        } while (deleted == batchSize);
+
+        if (total > 0) log.info("LOYALTY: đã xóa {} sự kiện xử lý trước {}", total, before);
+        return total;
+    }
+
+    private void refreshLagMetrics() {
+        pendingEvents.set(orderEventRepository.countByProcessedAtIsNull());
+        lagSeconds.set(orderEventRepository.findFirstByProcessedAtIsNullOrderByIdAsc()
+                .map(e -> Duration.between(e.getCreatedAt(), LocalDateTime.now()).getSeconds())
+                .orElse(0L));
+    }
+}
@@ -0,0 +1,201 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.dto.CartItemDTO;
+import com.nhom6.ecommerce.dto.OrderImportReportDTO;
+import com.nhom6.ecommerce.dto.OrderImportResultDTO;
+import com.nhom6.ecommerce.dto.OrderRequestDTO;
+import com.nhom6.ecommerce.entity.Order;
+import com.nhom6.ecommerce.exception.DomainException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * NHẬP ĐƠN HÀNG HÀNG LOẠT (đơn từ sàn TMĐT / khách B2B)
+ * Đọc file theo dòng (không nạp cả file vào bộ nhớ), mỗi dòng 1 đơn:
+ * - NDJSON: mỗi dòng là 1 OrderRequestDTO dạng JSON
+ * - CSV: userId,recipientName,phone,address,paymentMethod,voucherCode,items
+ *   với items = productId:quantity:clientPrice, nhiều sản phẩm cách nhau bởi '|'
+ * Gom các dòng thành lô, mỗi lô 1 transaction (OrderService.importChunk).
+ * Đơn hết hàng / voucher hết lượt chỉ rollback về savepoint của đơn đó, lô vẫn tiếp tục.
+ * Lô lỗi ngoài dự kiến (sản phẩm hot, lỗi DB) -> rollback và chạy lại từng đơn qua createOrder.
+ */
+@Service
+public class OrderImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderImportService.class);
+
+    private static final String CSV_HEADER_PREFIX = "userId,";
+
+    @Autowired private OrderService orderService;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private Validator validator;
+
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+
+    public OrderImportService(PlatformTransactionManager transactionManager,
+                              @Value("${app.order-import.chunk-size:200}") int chunkSize) {
+        this.tx = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public OrderImportReportDTO importOrders(InputStream input, boolean csv) throws IOException {
+        OrderImportReportDTO report = new OrderImportReportDTO();
+        List<Integer> chunkLines = new ArrayList<>(chunkSize);
+        List<OrderRequestDTO> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                if (csv && line.startsWith(CSV_HEADER_PREFIX)) continue;
+
+                OrderRequestDTO req;
+                try {
+                    req = csv ? parseCsv(line) : objectMapper.readValue(line, OrderRequestDTO.class);
+                } catch (JacksonException | IllegalArgumentException e) {
+                    addResult(report, new OrderImportResultDTO(lineNo, false, null, "IMPORT.INVALID_FORMAT",
+                            "Dòng không đúng định dạng " + (csv ? "CSV" : "JSON") + "."));
+                    continue;
+                }
+                // Cùng các ràng buộc @Valid như /api/orders/checkout
+                Set<ConstraintViolation<OrderRequestDTO>> violations = validator.validate(req);
+                if (!violations.isEmpty()) {
+                    addResult(report, new OrderImportResultDTO(lineNo, false, null, "IMPORT.INVALID_REQUEST",
+                            violations.iterator().next().getMessage()));
+                    continue;
+                }
+
+                chunkLines.add(lineNo);
+                chunk.add(req);
+                if (chunk.size() == chunkSize) {
+                    processChunk(chunkLines, chunk, report);
+                    chunkLines.clear();
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) processChunk(chunkLines, chunk, report);
+
+        // Kết quả theo thứ tự dòng trong file (dòng lỗi định dạng được ghi ngay khi đọc)
+        report.getResults().sort((a, b) -> Integer.compare(a.getLine(), b.getLine()));
+        return report;
+    }
+
+    private void processChunk(List<Integer> lines, List<OrderRequestDTO> chunk, OrderImportReportDTO report) {
+        List<OrderImportResultDTO> results;
+        try {
+            results = tx.execute(status -> orderService.importChunk(chunk));
+        } catch (RuntimeException e) {
+            // Lỗi không gói được trong savepoint của 1 đơn: cả lô đã rollback -> tạo lại từng đơn trong transaction riêng
+            log.warn("ORDER IMPORT: lô dòng {}-{} lỗi khi ghi ({}), chạy lại từng đơn",
+                    lines.get(0), lines.get(lines.size() - 1), e.getMessage());
+            results = new ArrayList<>(chunk.size());
+            for (OrderRequestDTO req : chunk) results.add(createOne(req));
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            OrderImportResultDTO result = results.get(i);
+            result.setLine(lines.get(i));
+            addResult(report, result);
+        }
+    }
+
+    private OrderImportResultDTO createOne(OrderRequestDTO req) {
+        try {
+            Order order = orderService.createOrder(req);
+            return new OrderImportResultDTO(0, true, order.getId(), null, null);
+        } catch (DomainException e) {
+            return new OrderImportResultDTO(0, false, null, e.getCode(), e.getMessage());
+        } catch (RuntimeException e) {
+            return new OrderImportResultDTO(0, false, null, "IMPORT.FAILED", "Không tạo được đơn hàng: " + e.getMessage());
+        }
+    }
+
+    private void addResult(OrderImportReportDTO report, OrderImportResultDTO result) {
+        report.getResults().add(result);
+        report.setTotal(report.getTotal() + 1);
+        if (result.isSuccess()) report.setSucceeded(report.getSucceeded() + 1);
+        else report.setFailed(report.getFailed() + 1);
+    }
+
+    /**
+     * 1 dòng CSV -> OrderRequestDTO. Ô có dấu phẩy (địa chỉ) đặt trong ngoặc kép, "" là 1 dấu ngoặc kép.
+     */
+    private OrderRequestDTO parseCsv(String line) {
+        List<String> cols = splitCsv(line);
+        if (cols.size() != 7) throw new IllegalArgumentException("Cần 7 cột, có " + cols.size());
+
+        OrderRequestDTO req = new OrderRequestDTO();
+        req.setUserId(cols.get(0));
+        req.setRecipientName(cols.get(1));
+        req.setPhone(cols.get(2));
+        req.setAddress(cols.get(3));
+        req.setPaymentMethod(cols.get(4).isEmpty() ? null : Order.PaymentMethod.valueOf(cols.get(4).trim()));
+        req.setVoucherCode(cols.get(5).isEmpty() ? null : cols.get(5));
+
+        List<CartItemDTO> items = new ArrayList<>();
+        for (String part : cols.get(6).split("\\|")) {
+            if (part.isBlank()) continue;
+            String[] f = part.split(":");
+            if (f.length != 3) throw new IllegalArgumentException("Sản phẩm không đúng dạng productId:quantity:clientPrice");
+            CartItemDTO item = new CartItemDTO();
+            item.setProductId(f[0].trim());
+            item.setQuantity(Integer.valueOf(f[1].trim()));
+            item.setClientPrice(new BigDecimal(f[2].trim()));
+            items.add(item);
+        }
+        req.setItems(items);
+        return req;
+    }
+
+    private List<String> splitCsv(String line) {
+        List<String> cols = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cur.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cur.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cols.add(cur.toString());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Thiếu dấu ngoặc kép đóng");
+        cols.add(cur.toString());
+        return cols;
+    }
+}
@@ -0,0 +1,69 @@
+package com.nhom6.ecommerce.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nhom6.ecommerce.dto.CartItemDTO;
+import com.nhom6.ecommerce.dto.OrderQuoteDTO;
+import com.nhom6.ecommerce.dto.OrderRequestDTO;
+import com.nhom6.ecommerce.entity.Order;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BÁO GIÁ ĐƠN HÀNG CÓ CACHE
+ * checkout.html báo giá lại mỗi khi user sửa giỏ / nhập voucher -> cache ngắn theo (user, giỏ hàng, voucher, thanh toán)
+ * để các lần báo giá lặp lại không chạm DB. Chỉ cache báo giá thành công; lỗi luôn tính lại.
+ */
+@Service
+public class OrderQuoteService {
+
+    @Autowired private OrderService orderService;
+
+    private record CartLine(String productId, Integer quantity, BigDecimal clientPrice) {}
+
+    private record QuoteKey(String userId, String voucherCode, Order.PaymentMethod paymentMethod, List<CartLine> cart) {}
+
+    private final Cache<QuoteKey, OrderQuoteDTO> quotes;
+
+    public OrderQuoteService(MeterRegistry meterRegistry,
+                             @Value("${app.quote.cache-ttl-ms:3000}") long ttlMs,
+                             @Value("${app.quote.cache-size:10000}") long cacheSize) {
+        this.quotes = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, quotes, "order.quote");
+    }
+
+    public OrderQuoteDTO quote(OrderRequestDTO req) {
+        QuoteKey key = keyOf(req);
+        OrderQuoteDTO cached = quotes.getIfPresent(key);
+        if (cached != null) return cached;
+
+        OrderQuoteDTO quote = orderService.quoteOrder(req);
+        quotes.put(key, quote);
+        return quote;
+    }
+
+    private QuoteKey keyOf(OrderRequestDTO req) {
+        List<CartLine> cart = new ArrayList<>();
+        if (req.getItems() != null) {
+            for (CartItemDTO item : req.getItems()) {
+                // stripTrailingZeros: 100000 và 100000.00 là cùng 1 giá
+                BigDecimal price = item.getClientPrice() != null ? item.getClientPrice().stripTrailingZeros() : null;
+                cart.add(new CartLine(item.getProductId(), item.getQuantity(), price));
+            }
+        }
+        String voucherCode = req.getVoucherCode() != null ? req.getVoucherCode().trim() : "";
+        return new QuoteKey(req.getUserId(), voucherCode, req.getPaymentMethod(), List.copyOf(cart));
+    }
+}
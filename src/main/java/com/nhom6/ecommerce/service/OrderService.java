@@ -1,94 +1,322 @@
 package com.nhom6.ecommerce.service;
 
 import com.nhom6.ecommerce.dto.CartItemDTO;
+import com.nhom6.ecommerce.dto.OrderImportResultDTO;
+import com.nhom6.ecommerce.dto.OrderQuoteDTO;
 import com.nhom6.ecommerce.dto.OrderRequestDTO;
+import com.nhom6.ecommerce.dto.VoucherSuggestionDTO;
 import com.nhom6.ecommerce.entity.*;
+import com.nhom6.ecommerce.exception.ConflictException;
+import com.nhom6.ecommerce.exception.DomainException;
+import com.nhom6.ecommerce.exception.ValidationException;
 import com.nhom6.ecommerce.repository.*;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 @Service
 public class OrderService {
 
+    private static final BigDecimal COD_LIMIT = new BigDecimal("20000000");
+
     @Autowired private OrderRepository orderRepository;
     @Autowired private ProductRepository productRepository;
     @Autowired private UserRepository userRepository;
-    @Autowired private VoucherRepository voucherRepository;
-    @Autowired private UserService userService;
+    @Autowired private VoucherUsageService voucherUsageService;
+    @Autowired private VoucherRuleCache voucherRuleCache;
+    @Autowired private VoucherLookupCache voucherLookupCache;
+    @Autowired private ActiveVoucherIndex activeVoucherIndex;
+    @Autowired private HotStockLedger hotStockLedger;
+    @Autowired private IdempotencyKeyRepository idempotencyKeyRepository;
+    @Autowired private OrderEventRepository orderEventRepository;
+    @Autowired private InputValidator inputValidator;
+    @Autowired private StageMetrics stageMetrics;
+    @Autowired private CatalogReadModel catalogReadModel;
+    @Autowired private ProductFacetIndex productFacetIndex;
+    @Autowired private JdbcTemplate jdbcTemplate;
 
     /**
      * HÀM CHÍNH: TẠO ĐƠN HÀNG
      */
     @Transactional
     public Order createOrder(OrderRequestDTO req) {
+        return createOrder(req, null);
+    }
+
+    /**
+     * Tạo đơn hàng kèm Idempotency-Key (đã gắn mã băm request): key được lưu trong cùng transaction với đơn hàng,
+     * nên 2 request trùng key (kể cả trên 2 server) chỉ có 1 request commit được.
+     */
+    @Transactional
+    public Order createOrder(OrderRequestDTO req, IdempotencyKey idempotencyKey) {
+        return stageMetrics.record("checkout", clock -> placeOrder(req, idempotencyKey, clock));
+    }
+
+    private Order placeOrder(OrderRequestDTO req, IdempotencyKey idempotencyKey, StageMetrics.StageClock clock) {
         // 1. Validate Input
         validateRequestInputs(req);
+        clock.lap("validate_input");
 
         // 2. Validate User
         User user = validateAndGetUser(req.getUserId());
+        clock.lap("user_lookup");
 
         // 3. Xử lý Sản phẩm & Tính SubTotal
-        BigDecimal subTotal = BigDecimal.ZERO;
-        List<OrderItem> orderItems = new ArrayList<>();
         Order order = new Order();
 
-        for (CartItemDTO itemDTO : req.getItems()) {
-            Product product = validateAndGetProduct(itemDTO);
+        // Nạp toàn bộ sản phẩm trong giỏ bằng 1 query, sau đó validate trong bộ nhớ
+        Map<String, Product> products = loadCartProducts(req.getItems());
+        SortedMap<String, Integer> requestedQty = sumQuantityByProduct(req.getItems());
 
-            // Trừ tồn kho
-            product.setStockQuantity(product.getStockQuantity() - itemDTO.getQuantity());
-            productRepository.save(product);
-
-            // Tạo OrderItem
-            OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(order);
-            orderItem.setProduct(product);
-            orderItem.setQuantity(itemDTO.getQuantity());
-            orderItem.setPriceAtPurchase(product.getSalePrice());
-            orderItems.add(orderItem);
-
-            subTotal = subTotal.add(product.getSalePrice().multiply(BigDecimal.valueOf(itemDTO.getQuantity())));
-        }
+        List<OrderItem> orderItems = buildOrderItems(req.getItems(), products, requestedQty, order);
+        BigDecimal subTotal = calculateSubTotal(orderItems);
+        clock.lap("product_loop");
 
         // 4. Xử lý Voucher (Tách hàm riêng)
         BigDecimal discountAmount = calculateVoucherDiscount(req.getVoucherCode(), user, subTotal, orderItems);
+        clock.lap("voucher");
 
         // 5. Tính tổng cuối & Validate Thanh toán (Tách hàm riêng - ĐÚNG Ý BẠN MUỐN)
         BigDecimal finalTotal = calculateFinalTotal(subTotal, discountAmount);
 
         validatePaymentMethod(req.getPaymentMethod(), finalTotal);
+        clock.lap("payment");
+
+        // Trừ tồn kho sau khi đã validate xong (giữ khóa dòng products ngắn nhất có thể)
+        reserveStock(req.getItems(), products, requestedQty);
+        clock.lap("stock_reserve");
 
         // 6. Lưu đơn hàng
-        order.setUser(user);
-        order.setRecipientName(req.getRecipientName().trim());
-        order.setPhone(req.getPhone().trim());
-        order.setAddress(req.getAddress().trim());
-        order.setPaymentMethod(req.getPaymentMethod());
-        order.setTotalAmount(finalTotal);
-        order.setDiscountAmount(discountAmount);
-        order.setVoucherCode(req.getVoucherCode());
-        order.setItems(orderItems);
-        order.setStatus(Order.OrderStatus.PENDING);
+        fillOrder(order, req, user, orderItems, discountAmount, finalTotal);
 
         Order savedOrder = orderRepository.save(order);
+        voucherUsageService.recordOrder(user.getUserId());
+
+        if (idempotencyKey != null) {
+            idempotencyKey.setOrderId(savedOrder.getId());
+            idempotencyKeyRepository.save(idempotencyKey);
+        }
+        clock.lap("order_save");
 
-        // 7. Tích điểm
-        userService.accumulatePoints(user.getUserId(), finalTotal);
+        // 7. Tích điểm: chỉ ghi sự kiện vào outbox, LoyaltyPointsConsumer cộng điểm bất đồng bộ
+        // (không khóa dòng users trong transaction checkout)
+        orderEventRepository.save(OrderEvent.orderPlaced(savedOrder));
+        clock.lap("loyalty_event");
 
         return savedOrder;
     }
 
+    /**
+     * NHẬP ĐƠN THEO LÔ (OrderImportService gọi trong transaction của lô).
+     * Cùng các quy tắc như createOrder, nhưng user & sản phẩm của cả lô được nạp bằng 1 query mỗi loại,
+     * các đơn được lưu bằng 1 lần saveAll (INSERT theo lô nhờ id sequence).
+     * - Lỗi validate (chưa ghi gì): ghi vào kết quả của đơn đó, bỏ qua đơn
+     * - Lỗi ở bước ghi (voucher hết lượt, hàng bị đơn khác mua trước): rollback về savepoint của đơn đó,
+     *   ghi vào kết quả, các đơn khác trong lô vẫn tiếp tục
+     * - Đơn có sản phẩm hot / lỗi hệ thống: ném ra để rollback cả lô
+     * Trả về kết quả theo đúng thứ tự danh sách đầu vào (chưa có số dòng).
+     */
+    @Transactional
+    public List<OrderImportResultDTO> importChunk(List<OrderRequestDTO> requests) {
+        Set<String> userIds = new HashSet<>();
+        List<CartItemDTO> allItems = new ArrayList<>();
+        for (OrderRequestDTO req : requests) {
+            if (req.getUserId() != null) userIds.add(req.getUserId());
+            if (req.getItems() != null) allItems.addAll(req.getItems());
+        }
+        Map<String, User> users = new HashMap<>();
+        for (User u : userRepository.findAllById(userIds)) users.put(u.getUserId(), u);
+        Map<String, Product> products = loadCartProducts(allItems);
+
+        // Số lượng đã giữ trong lô (sản phẩm thường): tồn kho nạp đầu lô chưa trừ phần này
+        Map<String, Integer> reservedInChunk = new HashMap<>();
+        List<OrderImportResultDTO> results = new ArrayList<>(requests.size());
+        List<Order> orders = new ArrayList<>();
+        Map<String, Integer> ordersByUser = new TreeMap<>();
+
+        for (OrderRequestDTO req : requests) {
+            Order order = new Order();
+            SortedMap<String, Integer> requestedQty;
+            Voucher voucher;
+            BigDecimal discountAmount;
+            BigDecimal finalTotal;
+            User user;
+            List<OrderItem> orderItems;
+            try {
+                validateRequestInputs(req);
+                user = checkUser(users.get(req.getUserId()));
+
+                requestedQty = sumQuantityByProduct(req.getItems());
+                orderItems = buildOrderItems(req.getItems(), products, requestedQty, order);
+                checkChunkStock(requestedQty, products, reservedInChunk);
+                BigDecimal subTotal = calculateSubTotal(orderItems);
+
+                // Voucher dành cho khách mới cần số đơn chính xác: ghi trước số đơn của user đã có trong lô
+                if (req.getVoucherCode() != null && ordersByUser.containsKey(user.getUserId())) {
+                    voucherUsageService.recordOrders(user.getUserId(), ordersByUser.remove(user.getUserId()));
+                }
+
+                voucher = validateVoucher(req.getVoucherCode(), user, subTotal, orderItems);
+                discountAmount = voucher != null ? voucherRuleCache.get(voucher).discountFor(subTotal) : BigDecimal.ZERO;
+                finalTotal = calculateFinalTotal(subTotal, discountAmount);
+                validatePaymentMethod(req.getPaymentMethod(), finalTotal);
+            } catch (DomainException e) {
+                results.add(new OrderImportResultDTO(0, false, null, e.getCode(), e.getMessage()));
+                continue;
+            }
+
+            if (requestedQty.keySet().stream().anyMatch(hotStockLedger::isHot)) {
+                // Sổ kho hot chỉ trả hàng khi cả transaction rollback (không theo savepoint): lỗi -> rollback cả lô
+                redeemAndReserve(req, voucher, user, products, requestedQty);
+            } else {
+                // Voucher & trừ kho chỉ là các câu UPDATE / INSERT trực tiếp (đơn hàng được lưu cuối lô)
+                // nên chạy được trong savepoint: đơn lỗi chỉ rollback phần của mình
+                try {
+                    TransactionHooks.inSavepoint(jdbcTemplate, () -> redeemAndReserve(req, voucher, user, products, requestedQty));
+                } catch (DomainException e) {
+                    results.add(new OrderImportResultDTO(0, false, null, e.getCode(), e.getMessage()));
+                    continue;
+                }
+            }
+            requestedQty.forEach((id, qty) -> {
+                if (!hotStockLedger.isHot(id)) reservedInChunk.merge(id, qty, Integer::sum);
+            });
+
+            fillOrder(order, req, user, orderItems, discountAmount, finalTotal);
+            orders.add(order);
+            ordersByUser.merge(user.getUserId(), 1, Integer::sum);
+            results.add(new OrderImportResultDTO(0, true, null, null, null));
+        }
+
+        orderRepository.saveAll(orders);
+        ordersByUser.forEach(voucherUsageService::recordOrders);
+        List<OrderEvent> events = new ArrayList<>(orders.size());
+        for (Order order : orders) events.add(OrderEvent.orderPlaced(order));
+        orderEventRepository.saveAll(events);
+
+        // Gắn id đơn vào các dòng thành công (cùng thứ tự với orders)
+        int next = 0;
+        for (OrderImportResultDTO result : results) {
+            if (result.isSuccess()) result.setOrderId(orders.get(next++).getId());
+        }
+        return results;
+    }
+
+    private void redeemAndReserve(OrderRequestDTO req, Voucher voucher, User user, Map<String, Product> products,
+                                  SortedMap<String, Integer> requestedQty) {
+        if (voucher != null) redeemVoucher(voucher, user);
+        reserveStock(req.getItems(), products, requestedQty);
+    }
+
+    /**
+     * GỢI Ý VOUCHER: các voucher đang hoạt động dùng được cho giỏ hàng, xếp theo số tiền giảm.
+     * Chỉ đọc: không trừ kho, không tăng lượt dùng voucher.
+     */
+    @Transactional
+    public List<VoucherSuggestionDTO> suggestVouchers(OrderRequestDTO req) {
+        validateCart(req.getItems());
+        User user = validateAndGetUser(req.getUserId());
+
+        Map<String, Product> products = loadCartProducts(req.getItems());
+        SortedMap<String, Integer> requestedQty = sumQuantityByProduct(req.getItems());
+        List<OrderItem> orderItems = buildOrderItems(req.getItems(), products, requestedQty, null);
+
+        return activeVoucherIndex.bestFor(user.getUserId(), calculateSubTotal(orderItems), orderItems);
+    }
+
+    /**
+     * BÁO GIÁ ĐƠN HÀNG: chạy cùng các bước validate giỏ hàng, voucher, thanh toán như createOrder
+     * nhưng không ghi gì (không trừ kho, không tăng lượt dùng voucher, không tạo đơn).
+     * Chưa cần thông tin giao hàng; phương thức thanh toán chỉ kiểm tra nếu client gửi lên.
+     */
+    @Transactional
+    public OrderQuoteDTO quoteOrder(OrderRequestDTO req) {
+        validateCart(req.getItems());
+        User user = validateAndGetUser(req.getUserId());
+
+        Map<String, Product> products = loadCartProducts(req.getItems());
+        SortedMap<String, Integer> requestedQty = sumQuantityByProduct(req.getItems());
+        List<OrderItem> orderItems = buildOrderItems(req.getItems(), products, requestedQty, null);
+        BigDecimal subTotal = calculateSubTotal(orderItems);
+
+        Voucher voucher = validateVoucher(req.getVoucherCode(), user, subTotal, orderItems);
+        BigDecimal discountAmount = voucher != null ? voucherRuleCache.get(voucher).discountFor(subTotal) : BigDecimal.ZERO;
+        BigDecimal finalTotal = calculateFinalTotal(subTotal, discountAmount);
+
+        if (req.getPaymentMethod() != null) {
+            validatePaymentMethod(req.getPaymentMethod(), finalTotal);
+        }
+
+        OrderQuoteDTO quote = new OrderQuoteDTO();
+        quote.setSubTotal(subTotal);
+        quote.setDiscountAmount(discountAmount);
+        quote.setFinalTotal(finalTotal);
+        quote.setVoucherCode(voucher != null ? voucher.getCode() : null);
+        quote.setCodAvailable(finalTotal.compareTo(COD_LIMIT) <= 0);
+        return quote;
+    }
+
     // =========================================================================
     // CÁC HÀM PHỤ TRỢ (PRIVATE METHODS)
     // =========================================================================
 
+    private void validateCart(List<CartItemDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new ValidationException("ORDER.2E.1", "2E.1: Giỏ hàng trống.");
+        }
+        if (items.size() > 50) {
+            throw new ValidationException("ORDER.TOO_MANY_ITEMS", "Đơn hàng không được vượt quá 50 loại sản phẩm.");
+        }
+        // Không tin dữ liệu client: số lượng âm sẽ làm tồn kho TĂNG khi trừ kho
+        for (CartItemDTO item : items) {
+            if (item == null || item.getProductId() == null || item.getClientPrice() == null) {
+                throw new ValidationException("ORDER.INVALID_ITEM", "Sản phẩm trong giỏ thiếu ID hoặc giá đang hiển thị.");
+            }
+            if (item.getQuantity() == null || item.getQuantity() < 1) {
+                throw new ValidationException("ORDER.INVALID_QUANTITY", "Số lượng mua tối thiểu là 1.");
+            }
+        }
+    }
+
+    /**
+     * Validate từng dòng trong giỏ và tạo OrderItem tương ứng
+     */
+    private List<OrderItem> buildOrderItems(List<CartItemDTO> items, Map<String, Product> products,
+                                            Map<String, Integer> requestedQty, Order order) {
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (CartItemDTO itemDTO : items) {
+            Product product = validateAndGetProduct(itemDTO, products, requestedQty);
+
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrder(order);
+            orderItem.setProduct(product);
+            orderItem.setQuantity(itemDTO.getQuantity());
+            orderItem.setPriceAtPurchase(product.getSalePrice());
+            orderItems.add(orderItem);
+        }
+        return orderItems;
+    }
+
+    private BigDecimal calculateSubTotal(List<OrderItem> orderItems) {
+        BigDecimal subTotal = BigDecimal.ZERO;
+        for (OrderItem item : orderItems) {
+            subTotal = subTotal.add(item.getPriceAtPurchase().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        return subTotal;
+    }
+
     /**
      * Tính tổng tiền cuối cùng (Đảm bảo không âm)
      */
@@ -102,137 +330,238 @@ public class OrderService {
      */
     private void validatePaymentMethod(Order.PaymentMethod paymentMethod, BigDecimal finalTotal) {
         if (paymentMethod == null) {
-            throw new RuntimeException("4E.1: Vui lòng chọn phương thức thanh toán.");
+            throw new ValidationException("ORDER.4E.1", "4E.1: Vui lòng chọn phương thức thanh toán.");
         }
         // Giới hạn COD 20 triệu
-        if (paymentMethod == Order.PaymentMethod.COD && finalTotal.compareTo(new BigDecimal("20000000")) > 0) {
-            throw new RuntimeException("4E.2: Đơn hàng trên 20 triệu không hỗ trợ COD.");
+        if (paymentMethod == Order.PaymentMethod.COD && finalTotal.compareTo(COD_LIMIT) > 0) {
+            throw new ValidationException("ORDER.4E.2", "4E.2: Đơn hàng trên 20 triệu không hỗ trợ COD.");
         }
     }
 
+    /**
+     * Tính tiền giảm của voucher và ghi nhận lượt dùng (tổng & theo user)
+     */
     private BigDecimal calculateVoucherDiscount(String voucherCode, User user, BigDecimal subTotal, List<OrderItem> orderItems) {
-        if (voucherCode == null || voucherCode.trim().isEmpty()) {
+        Voucher voucher = validateVoucher(voucherCode, user, subTotal, orderItems);
+        if (voucher == null) {
             return BigDecimal.ZERO;
         }
+        BigDecimal discount = voucherRuleCache.get(voucher).discountFor(subTotal);
+        redeemVoucher(voucher, user);
+        return discount;
+    }
 
-        String code = voucherCode.trim();
-        Voucher voucher = voucherRepository.findByCode(code)
-                .orElseThrow(() -> new RuntimeException("3E.1: Mã giảm giá không đúng."));
-
-        LocalDateTime now = LocalDateTime.now();
-        if (now.isBefore(voucher.getStartAt()) || now.isAfter(voucher.getEndAt())) {
-            throw new RuntimeException("3E.2: Mã giảm giá chưa bắt đầu hoặc đã hết hạn.");
+    /**
+     * Ghi nhận lượt dùng voucher (tổng & theo user)
+     */
+    private void redeemVoucher(Voucher voucher, User user) {
+        // Tăng lượt dùng nguyên tử, nhiều đơn cùng lúc không thể vượt usageLimit
+        if (!voucherUsageService.redeem(voucher)) {
+            throw new ValidationException("ORDER.3E.3", "3E.3: Mã giảm giá đã hết lượt sử dụng.");
         }
-
-        if (voucher.getUsageLimit() > 0 && voucher.getUsedCount() >= voucher.getUsageLimit()) {
-            throw new RuntimeException("3E.3: Mã giảm giá đã hết lượt sử dụng.");
+        // Kiểm tra lại giới hạn theo user sau khi đã giữ khóa dòng (2 đơn song song của cùng 1 user)
+        int userUses = voucherUsageService.recordUserUse(user.getUserId(), voucher.getId());
+        if (voucher.getUsageLimitPerUser() != null && userUses > voucher.getUsageLimitPerUser()) {
+            throw new ValidationException("ORDER.VOUCHER_USER_LIMIT", "Bạn đã sử dụng mã này quá số lần quy định (" + voucher.getUsageLimitPerUser() + " lần).");
         }
+    }
 
-        if (subTotal.compareTo(voucher.getMinOrderValue()) < 0) {
-            throw new RuntimeException("3E.4: Đơn hàng chưa đạt giá trị tối thiểu " + voucher.getMinOrderValue() + "đ.");
+    /**
+     * Kiểm tra điều kiện áp dụng voucher (không ghi gì). Trả về null nếu không nhập mã.
+     */
+    private Voucher validateVoucher(String voucherCode, User user, BigDecimal subTotal, List<OrderItem> orderItems) {
+        if (voucherCode == null || voucherCode.trim().isEmpty()) {
+            return null;
         }
 
-        long userUsedCount = orderRepository.countVoucherUsageByUser(user.getUserId(), code);
-        if (voucher.getUsageLimitPerUser() != null && userUsedCount >= voucher.getUsageLimitPerUser()) {
-            throw new RuntimeException("Bạn đã sử dụng mã này quá số lần quy định (" + voucher.getUsageLimitPerUser() + " lần).");
-        }
+        String code = voucherCode.trim();
+        Voucher voucher = voucherLookupCache.findByCode(code)
+                .orElseThrow(() -> new ValidationException("ORDER.3E.1", "3E.1: Mã giảm giá không đúng."));
 
-        if (!checkVoucherScope(voucher, orderItems)) {
-            throw new RuntimeException("3E.5: Mã không áp dụng cho sản phẩm trong giỏ.");
-        }
+        // Điều kiện áp dụng đã biên dịch sẵn (set id phạm vi, khung thời gian, đối tượng)
+        CompiledVoucher rule = voucherRuleCache.get(voucher);
 
-        if (voucher.getAudienceType() == Voucher.AudienceType.NEW_USER) {
-            long totalOrders = orderRepository.countVoucherUsageByUser(user.getUserId(), null);
-            if (totalOrders > 0) throw new RuntimeException("Mã này chỉ dành cho khách hàng mới.");
+        if (!rule.isWithinTime(LocalDateTime.now())) {
+            throw new ValidationException("ORDER.3E.2", "3E.2: Mã giảm giá chưa bắt đầu hoặc đã hết hạn.");
         }
 
-        BigDecimal discount = BigDecimal.ZERO;
-        if (voucher.getDiscountType() == Voucher.DiscountType.FIXED_AMOUNT) {
-            discount = voucher.getDiscountValue();
-        } else if (voucher.getDiscountType() == Voucher.DiscountType.PERCENTAGE) {
-            discount = subTotal.multiply(voucher.getDiscountValue()).divide(BigDecimal.valueOf(100));
+        if (voucher.getUsageLimit() > 0 && voucher.getUsedCount() >= voucher.getUsageLimit()) {
+            throw new ValidationException("ORDER.3E.3", "3E.3: Mã giảm giá đã hết lượt sử dụng.");
         }
 
-        voucher.setUsedCount(voucher.getUsedCount() + 1);
-        voucherRepository.save(voucher);
-
-        return discount;
-    }
+        if (!rule.meetsMinOrder(subTotal)) {
+            throw new ValidationException("ORDER.3E.4", "3E.4: Đơn hàng chưa đạt giá trị tối thiểu " + voucher.getMinOrderValue() + "đ.");
+        }
 
-    private boolean checkVoucherScope(Voucher voucher, List<OrderItem> items) {
-        if (voucher.getScope() == Voucher.ScopeType.GLOBAL) return true;
+        long userUsedCount = voucherUsageService.usesByUser(user.getUserId(), voucher.getId());
+        if (voucher.getUsageLimitPerUser() != null && userUsedCount >= voucher.getUsageLimitPerUser()) {
+            throw new ValidationException("ORDER.VOUCHER_USER_LIMIT", "Bạn đã sử dụng mã này quá số lần quy định (" + voucher.getUsageLimitPerUser() + " lần).");
+        }
 
-        List<String> allowedIds = voucher.getScopeIds();
-        for (OrderItem item : items) {
-            if (voucher.getScope() == Voucher.ScopeType.PRODUCT) {
-                if (allowedIds.contains(item.getProduct().getId())) return true;
-            }
-            if (voucher.getScope() == Voucher.ScopeType.CATEGORY) {
-                if (isProductInAllowedCategories(item.getProduct(), allowedIds)) return true;
-            }
+        if (!rule.appliesTo(orderItems)) {
+            throw new ValidationException("ORDER.3E.5", "3E.5: Mã không áp dụng cho sản phẩm trong giỏ.");
         }
-        return false;
-    }
 
-    private boolean isProductInAllowedCategories(Product product, List<String> allowedCategoryIds) {
-        if (product.getCategories() == null) return false;
-        for (Category cat : product.getCategories()) {
-            if (allowedCategoryIds.contains(String.valueOf(cat.getId()))) return true;
+        if (rule.requiresOrderCount()) {
+            long totalOrders = voucherUsageService.orderCount(user.getUserId());
+            if (!rule.isAudienceAllowed(totalOrders)) throw new ValidationException("ORDER.VOUCHER_NEW_USER_ONLY", "Mã này chỉ dành cho khách hàng mới.");
         }
-        return false;
+
+        return voucher;
     }
 
     private void validateRequestInputs(OrderRequestDTO req) {
         if (req.getRecipientName() == null || req.getPhone() == null || req.getAddress() == null) {
-            throw new RuntimeException("1E.1: Vui lòng nhập đầy đủ thông tin giao hàng.");
+            throw new ValidationException("ORDER.1E.1", "1E.1: Vui lòng nhập đầy đủ thông tin giao hàng.");
         }
-        if (!Pattern.matches("^[\\p{L} ]{2,50}$", req.getRecipientName().trim())) {
-            throw new RuntimeException("1E.2: Họ tên người nhận không hợp lệ (2-50 ký tự, chỉ chứa chữ cái).");
+        if (!inputValidator.isPersonName(req.getRecipientName().trim(), 2, 50)) {
+            throw new ValidationException("ORDER.1E.2", "1E.2: Họ tên người nhận không hợp lệ (2-50 ký tự, chỉ chứa chữ cái).");
         }
-        if (!Pattern.matches("^0\\d{9}$", req.getPhone().trim())) {
-            throw new RuntimeException("1E.3: Số điện thoại không hợp lệ (Phải là 10 số, bắt đầu bằng 0).");
+        if (!inputValidator.isMobilePhone(req.getPhone().trim())) {
+            throw new ValidationException("ORDER.1E.3", "1E.3: Số điện thoại không hợp lệ (Phải là 10 số, bắt đầu bằng 0).");
         }
         String addr = req.getAddress().trim();
         if (addr.length() < 10 || addr.length() > 255) {
-            throw new RuntimeException("1E.4: Địa chỉ quá ngắn hoặc quá dài (10-255 ký tự).");
-        }
-        if (addr.matches(".*[<>].*")) {
-            throw new RuntimeException("Địa chỉ chứa ký tự không hợp lệ.");
-        }
-        if (req.getItems() == null || req.getItems().isEmpty()) {
-            throw new RuntimeException("2E.1: Giỏ hàng trống.");
+            throw new ValidationException("ORDER.1E.4", "1E.4: Địa chỉ quá ngắn hoặc quá dài (10-255 ký tự).");
         }
-        if (req.getItems().size() > 50) {
-            throw new RuntimeException("Đơn hàng không được vượt quá 50 loại sản phẩm.");
+        if (inputValidator.containsAngleBrackets(addr)) {
+            throw new ValidationException("ORDER.ADDRESS_INVALID_CHARS", "Địa chỉ chứa ký tự không hợp lệ.");
         }
+        validateCart(req.getItems());
     }
 
     private User validateAndGetUser(String userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Tài khoản không tồn tại."));
-        if (!user.isActive()) throw new RuntimeException("Tài khoản đang bị khóa.");
+        if (userId == null || userId.isBlank()) {
+            throw new ValidationException("ORDER.USER_REQUIRED", "Thiếu thông tin tài khoản đặt hàng.");
+        }
+        return checkUser(userRepository.findById(userId).orElse(null));
+    }
+
+    private User checkUser(User user) {
+        if (user == null) throw new ValidationException("ORDER.USER_NOT_FOUND", "Tài khoản không tồn tại.");
+        if (!user.isActive()) throw new ValidationException("ORDER.USER_LOCKED", "Tài khoản đang bị khóa.");
         if (user.getRole() != User.Role.CUSTOMER) {
-            throw new RuntimeException("Tài khoản quản trị không được phép đặt hàng.");
+            throw new ValidationException("ORDER.ADMIN_NOT_ALLOWED", "Tài khoản quản trị không được phép đặt hàng.");
         }
         return user;
     }
 
-    private Product validateAndGetProduct(CartItemDTO itemDTO) {
-        Product product = productRepository.findById(itemDTO.getProductId())
-                .orElseThrow(() -> new RuntimeException("Sản phẩm không tồn tại (ID: " + itemDTO.getProductId() + ")"));
+    /**
+     * Nạp các sản phẩm trong giỏ bằng 1 query (kèm danh mục), trả về map theo ID
+     */
+    private Map<String, Product> loadCartProducts(List<CartItemDTO> items) {
+        Set<String> ids = new HashSet<>();
+        for (CartItemDTO itemDTO : items) {
+            if (itemDTO != null && itemDTO.getProductId() != null) ids.add(itemDTO.getProductId());
+        }
+
+        Map<String, Product> products = new HashMap<>();
+        for (Product p : productRepository.findAllWithCategoriesByIdIn(ids)) products.put(p.getId(), p);
+        return products;
+    }
+
+    /**
+     * Cộng dồn số lượng theo sản phẩm (1 sản phẩm có thể xuất hiện ở nhiều dòng).
+     * TreeMap giữ productId tăng dần -> thứ tự khóa dòng cố định khi trừ kho.
+     */
+    private SortedMap<String, Integer> sumQuantityByProduct(List<CartItemDTO> items) {
+        SortedMap<String, Integer> qty = new TreeMap<>();
+        for (CartItemDTO itemDTO : items) qty.merge(itemDTO.getProductId(), itemDTO.getQuantity(), Integer::sum);
+        return qty;
+    }
+
+    private Product validateAndGetProduct(CartItemDTO itemDTO, Map<String, Product> products, Map<String, Integer> requestedQty) {
+        Product product = products.get(itemDTO.getProductId());
+        if (product == null) {
+            throw new ValidationException("ORDER.PRODUCT_NOT_FOUND", "Sản phẩm không tồn tại (ID: " + itemDTO.getProductId() + ")");
+        }
 
         if (!product.isActive()) {
-            throw new RuntimeException("2E.4: Sản phẩm " + product.getName() + " đã ngừng kinh doanh.");
+            throw new ValidationException("ORDER.2E.4", "2E.4: Sản phẩm " + product.getName() + " đã ngừng kinh doanh.");
         }
-        if (product.getStockQuantity() == 0) {
-            throw new RuntimeException("2E.2: Sản phẩm " + product.getName() + " đã hết hàng.");
+        // Sản phẩm hot: tồn kho thật nằm trong sổ kho bộ nhớ, bảng products cập nhật trễ
+        int stock = hotStockLedger.availableStock(product.getId(), product.getStockQuantity());
+        if (stock == 0) {
+            throw new ValidationException("ORDER.2E.2", "2E.2: Sản phẩm " + product.getName() + " đã hết hàng.");
         }
-        if (product.getStockQuantity() < itemDTO.getQuantity()) {
-            throw new RuntimeException("2E.3: Sản phẩm " + product.getName() + " chỉ còn " + product.getStockQuantity() + " sản phẩm.");
+        if (stock < requestedQty.get(product.getId())) {
+            throw new ValidationException("ORDER.2E.3", "2E.3: Sản phẩm " + product.getName() + " chỉ còn " + stock + " sản phẩm.");
         }
         if (product.getSalePrice().compareTo(itemDTO.getClientPrice()) != 0) {
-            throw new RuntimeException("2E.5: Giá sản phẩm " + product.getName() + " thay đổi, vui lòng tải lại trang.");
+            throw new ValidationException("ORDER.2E.5", "2E.5: Giá sản phẩm " + product.getName() + " thay đổi, vui lòng tải lại trang.");
         }
         return product;
     }
+
+    /**
+     * Nhập theo lô: tồn kho trong map sản phẩm là số liệu đầu lô, trừ thêm phần các đơn trước trong lô đã giữ
+     * (sản phẩm hot đọc thẳng sổ kho nên không cần)
+     */
+    private void checkChunkStock(Map<String, Integer> requestedQty, Map<String, Product> products, Map<String, Integer> reservedInChunk) {
+        for (Map.Entry<String, Integer> e : requestedQty.entrySet()) {
+            Integer reserved = reservedInChunk.get(e.getKey());
+            if (reserved == null) continue;
+            Product product = products.get(e.getKey());
+            int stock = product.getStockQuantity() - reserved;
+            if (stock < e.getValue()) {
+                throw new ValidationException("ORDER.2E.3", "2E.3: Sản phẩm " + product.getName() + " chỉ còn " + Math.max(stock, 0) + " sản phẩm.");
+            }
+        }
+    }
+
+    private void fillOrder(Order order, OrderRequestDTO req, User user, List<OrderItem> orderItems,
+                           BigDecimal discountAmount, BigDecimal finalTotal) {
+        order.setUser(user);
+        order.setRecipientName(req.getRecipientName().trim());
+        order.setPhone(req.getPhone().trim());
+        order.setAddress(req.getAddress().trim());
+        order.setPaymentMethod(req.getPaymentMethod());
+        order.setTotalAmount(finalTotal);
+        order.setDiscountAmount(discountAmount);
+        order.setVoucherCode(req.getVoucherCode());
+        order.setItems(orderItems);
+        order.setStatus(Order.OrderStatus.PENDING);
+    }
+
+    /**
+     * Giữ hàng cho cả giỏ trong 1 batch UPDATE có điều kiện (sản phẩm hot thì giữ qua HotStockLedger).
+     * Tồn kho có thể đã bị đơn khác trừ sau bước validate, nên điều kiện "còn đủ hàng" được kiểm tra lại
+     * ngay lúc trừ.
+     */
+    private void reserveStock(List<CartItemDTO> items, Map<String, Product> products, SortedMap<String, Integer> requestedQty) {
+        // Sản phẩm hot giữ hàng trong bộ nhớ, còn lại trừ thẳng trên DB
+        List<String> failedIds = new ArrayList<>();
+        SortedMap<String, Integer> dbQty = new TreeMap<>();
+        for (Map.Entry<String, Integer> e : requestedQty.entrySet()) {
+            String productId = e.getKey();
+            if (hotStockLedger.isHot(productId)) {
+                if (!hotStockLedger.tryReserve(productId, e.getValue())) failedIds.add(productId);
+            } else if (products.get(productId).isHotStock()) {
+                // Sổ kho nằm trên server khác (lease hot_products): DB không cho trừ trực tiếp
+                throw new ConflictException("STOCK.HOT_ON_OTHER_NODE", "Sản phẩm " + products.get(productId).getName()
+                        + " đang Flash Sale, vui lòng thử lại sau giây lát.");
+            } else {
+                dbQty.put(productId, e.getValue());
+            }
+        }
+        if (failedIds.isEmpty() && !dbQty.isEmpty()) {
+            failedIds = productRepository.reserveStockBatch(dbQty);
+        }
+        if (failedIds.isEmpty()) {
+            // Lưới trang chủ chỉ hiện sản phẩm còn hàng: báo cache nạp lại các trang chứa sản phẩm này (sau commit)
+            catalogReadModel.stockChanged(requestedQty.keySet());
+            // Bộ lọc "còn hàng" cũng đọc lại tồn kho các sản phẩm này
+            productFacetIndex.stockChanged(requestedQty.keySet());
+            return;
+        }
+
+        // Báo đúng dòng đầu tiên trong giỏ bị thiếu hàng
+        for (int i = 0; i < items.size(); i++) {
+            String productId = items.get(i).getProductId();
+            if (failedIds.contains(productId)) {
+                throw new ValidationException("ORDER.2E.3", "2E.3: Sản phẩm " + products.get(productId).getName() + " (dòng " + (i + 1)
+                        + ") không còn đủ " + requestedQty.get(productId) + " sản phẩm trong kho.");
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.dto.ProductCardView;
+import com.nhom6.ecommerce.dto.ProductPageDTO;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * DANH SÁCH SẢN PHẨM PHÂN TRANG KEYSET cho trang chủ (shop) và trang quản trị.
+ * Con trỏ trang sau = khóa sắp xếp của dòng cuối trang hiện tại, dạng "<createdAt millis>_<id>".
+ * Con trỏ sai định dạng (sửa tay trên URL...) được coi như không có -> quay về trang đầu.
+ */
+@Service
+public class ProductCatalogService {
+
+    public static final int SHOP_PAGE_SIZE = 24;
+    public static final int ADMIN_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired private ProductRepository productRepository;
+
+    private record Cursor(Date createdAt, String id) {}
+
+    public ProductPageDTO shopPage(String cursor, int size) {
+        int pageSize = clampPageSize(size);
+        Cursor after = decode(cursor);
+        // Đọc dư 1 dòng để biết còn trang sau hay không (không cần câu COUNT)
+        Limit limit = Limit.of(pageSize + 1);
+        List<ProductCardView> rows = after == null
+                ? productRepository.findShopCards(limit)
+                : productRepository.findShopCardsAfter(after.createdAt(), after.id(), limit);
+        return toPage(rows, pageSize);
+    }
+
+    public ProductPageDTO adminPage(String cursor, int size) {
+        int pageSize = clampPageSize(size);
+        Cursor after = decode(cursor);
+        Limit limit = Limit.of(pageSize + 1);
+        List<ProductCardView> rows = after == null
+                ? productRepository.findAdminCards(limit)
+                : productRepository.findAdminCardsAfter(after.createdAt(), after.id(), limit);
+        return toPage(rows, pageSize);
+    }
+
+    private static ProductPageDTO toPage(List<ProductCardView> rows, int pageSize) {
+        if (rows.size() <= pageSize) return new ProductPageDTO(rows, null);
+        List<ProductCardView> items = rows.subList(0, pageSize);
+        return new ProductPageDTO(items, cursorAfter(items.get(pageSize - 1)));
+    }
+
+    public static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Dạng chuẩn của con trỏ (khóa cache): "" nếu không có hoặc sai định dạng, vì khi đó trả về trang đầu
+     */
+    public static String canonicalCursor(String cursor) {
+        Cursor after = decode(cursor);
+        return after == null ? "" : after.createdAt().getTime() + "_" + after.id();
+    }
+
+    // Con trỏ trỏ tới trang bắt đầu ngay sau sản phẩm này
+    public static String cursorAfter(ProductCardView last) {
+        // Dòng cũ nạp bằng SQL tay có thể thiếu created_at: không tạo được khóa -> dừng ở trang này
+        if (last.getCreatedAt() == null) return null;
+        return last.getCreatedAt().getTime() + "_" + last.getId();
+    }
+
+    static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        int sep = cursor.indexOf('_');
+        if (sep <= 0 || sep == cursor.length() - 1) return null;
+        try {
+            return new Cursor(new Date(Long.parseLong(cursor.substring(0, sep))), cursor.substring(sep + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
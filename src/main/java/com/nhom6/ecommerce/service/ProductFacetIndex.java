@@ -0,0 +1,417 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.dto.FacetCountDTO;
+import com.nhom6.ecommerce.dto.ProductCardView;
+import com.nhom6.ecommerce.dto.ProductFacetResultDTO;
+import com.nhom6.ecommerce.dto.ProductSearchDocument;
+import com.nhom6.ecommerce.entity.Category;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.repository.CategoryRepository;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * BỘ LỌC SẢN PHẨM THEO THƯƠNG HIỆU / DANH MỤC / KHOẢNG GIÁ / CÒN HÀNG (bitmap trong bộ nhớ)
+ * - Mỗi sản phẩm đang kinh doanh có 1 số thứ tự (doc); mỗi giá trị lọc giữ 1 RoaringBitmap các doc thuộc giá trị đó
+ * - Trong 1 nhóm: OR các giá trị được chọn; giữa các nhóm: AND
+ * - Số đếm của 1 nhóm tính theo bộ lọc của các nhóm KHÁC (chọn Samsung vẫn thấy Apple còn bao nhiêu sản phẩm),
+ *   tất cả trong 1 lần gọi dưới cùng 1 read lock: chỉ là andCardinality trên bitmap, không JOIN / GROUP BY
+ * - Doc cấp theo (createdAt, id) tăng dần -> duyệt ngược bitmap kết quả = mới nhất trước, như lưới shop
+ * - Đồng bộ: sản phẩm mới / lưu lại cập nhật ngay sau commit; checkout trừ kho -> gom các sản phẩm lại,
+ *   tác vụ nền đọc tồn kho mới (sản phẩm hot lấy từ HotStockLedger) và cập nhật bitmap "còn hàng"
+ */
+@Service
+public class ProductFacetIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    private static final int LOAD_BATCH = 5000;
+
+    // Khoảng giá theo salePrice (VND): [from, to), null = không giới hạn
+    private record PriceBand(String key, String label, BigDecimal from, BigDecimal to) {
+        boolean contains(BigDecimal price) {
+            return (from == null || price.compareTo(from) >= 0) && (to == null || price.compareTo(to) < 0);
+        }
+    }
+
+    private static final List<PriceBand> PRICE_BANDS = List.of(
+            new PriceBand("duoi-1tr", "Dưới 1 triệu", null, BigDecimal.valueOf(1_000_000)),
+            new PriceBand("1tr-5tr", "1 - 5 triệu", BigDecimal.valueOf(1_000_000), BigDecimal.valueOf(5_000_000)),
+            new PriceBand("5tr-10tr", "5 - 10 triệu", BigDecimal.valueOf(5_000_000), BigDecimal.valueOf(10_000_000)),
+            new PriceBand("10tr-20tr", "10 - 20 triệu", BigDecimal.valueOf(10_000_000), BigDecimal.valueOf(20_000_000)),
+            new PriceBand("tren-20tr", "Trên 20 triệu", BigDecimal.valueOf(20_000_000), null));
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private HotStockLedger hotStockLedger;
+
+    private final int maxResults;
+
+    // ===== Trạng thái (đọc dưới read lock, sửa dưới write lock) =====
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> docOf = new HashMap<>();
+    private ProductCardView[] cards = new ProductCardView[1024];
+    // Giá trị lọc hiện tại của từng doc: để gỡ khỏi bitmap cũ khi sản phẩm được lưu lại
+    private String[] brandOf = new String[1024];
+    private long[][] categoriesOf = new long[1024][];
+    private String[] priceBandOf = new String[1024];
+    private int maxDoc;
+
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final RoaringBitmap inStock = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> byBrand = new HashMap<>();
+    private final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+    private final Map<String, RoaringBitmap> byPriceBand = new LinkedHashMap<>();
+    private final Map<String, String> brandNames = new HashMap<>();
+    private final Map<Long, String> categoryNames = new HashMap<>();
+
+    // Khóa (createdAt, id) lớn nhất đã nạp: mốc đọc lô tiếp theo khi dựng từ DB
+    private long watermarkCreatedAt;
+    private String watermarkId = "";
+
+    // Sản phẩm vừa bị trừ kho, chờ tác vụ nền đọc lại tồn kho
+    private final Set<String> pendingStock = ConcurrentHashMap.newKeySet();
+
+    public ProductFacetIndex(@Value("${app.facets.max-results:100}") int maxResults) {
+        this.maxResults = maxResults;
+        for (PriceBand band : PRICE_BANDS) byPriceBand.put(band.key(), new RoaringBitmap());
+    }
+
+    // ==================== LỌC ====================
+
+    /**
+     * @param brandIds    thương hiệu được chọn (rỗng / null = không lọc)
+     * @param categoryIds danh mục được chọn
+     * @param priceBands  khoảng giá được chọn (key của PRICE_BANDS)
+     * @param inStockOnly chỉ sản phẩm còn hàng
+     * @param limit       số sản phẩm trả về (mới nhất trước)
+     */
+    public ProductFacetResultDTO filter(Collection<String> brandIds, Collection<Long> categoryIds,
+                                        Collection<String> priceBands, boolean inStockOnly, int limit) {
+        int size = Math.max(0, Math.min(limit, maxResults));
+        lock.readLock().lock();
+        try {
+            // null = nhóm không được lọc
+            RoaringBitmap brandFilter = union(byBrand, brandIds);
+            RoaringBitmap categoryFilter = union(byCategory, categoryIds);
+            RoaringBitmap priceFilter = union(byPriceBand, priceBands);
+            RoaringBitmap stockFilter = inStockOnly ? inStock : null;
+
+            RoaringBitmap matched = intersect(brandFilter, categoryFilter, priceFilter, stockFilter);
+            List<ProductCardView> items = new ArrayList<>(Math.min(size, matched.getCardinality()));
+            IntIterator newestFirst = matched.getReverseIntIterator();
+            while (items.size() < size && newestFirst.hasNext()) items.add(cards[newestFirst.next()]);
+
+            List<FacetCountDTO> brands = counts(byBrand, brandIds,
+                    intersect(categoryFilter, priceFilter, stockFilter), brandNames::get);
+            List<FacetCountDTO> categories = counts(byCategory, categoryIds,
+                    intersect(brandFilter, priceFilter, stockFilter), categoryNames::get);
+            List<FacetCountDTO> prices = counts(byPriceBand, priceBands,
+                    intersect(brandFilter, categoryFilter, stockFilter), ProductFacetIndex::priceBandLabel);
+            int inStockCount = RoaringBitmap.andCardinality(inStock, intersect(brandFilter, categoryFilter, priceFilter));
+
+            // Thương hiệu / danh mục: nhiều nhất trước; khoảng giá giữ thứ tự tăng dần
+            Comparator<FacetCountDTO> byCount = Comparator.comparingInt(FacetCountDTO::getCount).reversed()
+                    .thenComparing(FacetCountDTO::getLabel, Comparator.nullsLast(Comparator.naturalOrder()));
+            brands.sort(byCount);
+            categories.sort(byCount);
+
+            return new ProductFacetResultDTO(matched.getCardinality(), items, brands, categories, prices, inStockCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // OR các bitmap của những giá trị được chọn (giá trị không tồn tại = không khớp sản phẩm nào)
+    private static <K> RoaringBitmap union(Map<K, RoaringBitmap> bitmaps, Collection<K> selected) {
+        if (selected == null || selected.isEmpty()) return null;
+        List<RoaringBitmap> parts = new ArrayList<>(selected.size());
+        for (K key : selected) {
+            RoaringBitmap bitmap = bitmaps.get(key);
+            if (bitmap != null) parts.add(bitmap);
+        }
+        return RoaringBitmap.or(parts.iterator());
+    }
+
+    // AND các bộ lọc khác null (không có bộ lọc nào = mọi sản phẩm)
+    private RoaringBitmap intersect(RoaringBitmap... filters) {
+        RoaringBitmap result = null;
+        for (RoaringBitmap filter : filters) {
+            if (filter == null) continue;
+            result = result == null ? filter.clone() : RoaringBitmap.and(result, filter);
+        }
+        return result != null ? result : all;
+    }
+
+    private static <K> List<FacetCountDTO> counts(Map<K, RoaringBitmap> bitmaps, Collection<K> selected,
+                                                  RoaringBitmap base, Function<K, String> label) {
+        List<FacetCountDTO> counts = new ArrayList<>();
+        for (Map.Entry<K, RoaringBitmap> e : bitmaps.entrySet()) {
+            int count = RoaringBitmap.andCardinality(e.getValue(), base);
+            boolean isSelected = selected != null && selected.contains(e.getKey());
+            if (count > 0 || isSelected) {
+                counts.add(new FacetCountDTO(String.valueOf(e.getKey()), label.apply(e.getKey()), count, isSelected));
+            }
+        }
+        return counts;
+    }
+
+    private static String priceBandLabel(String key) {
+        for (PriceBand band : PRICE_BANDS) {
+            if (band.key().equals(key)) return band.label();
+        }
+        return key;
+    }
+
+    // ==================== CẬP NHẬT ====================
+
+    /**
+     * Sản phẩm vừa được lưu: cập nhật bitmap sau khi transaction commit (rollback thì không đổi)
+     */
+    public void indexAfterCommit(Product product) {
+        ProductSearchDocument doc = ProductSearchIndex.toDocument(product);
+        Map<Long, String> names = new HashMap<>();
+        if (product.getCategories() != null) {
+            for (Category category : product.getCategories()) names.put(category.getId(), category.getName());
+        }
+        TransactionHooks.afterCommit(() -> index(doc, names));
+    }
+
+    public void index(ProductSearchDocument doc) {
+        index(doc, Map.of());
+    }
+
+    private void index(ProductSearchDocument doc, Map<Long, String> newCategoryNames) {
+        lock.writeLock().lock();
+        try {
+            categoryNames.putAll(newCategoryNames);
+            addDocument(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checkout vừa trừ tồn kho các sản phẩm này: sau commit đưa vào hàng chờ đọc lại tồn kho
+     */
+    public void stockChanged(Collection<String> productIds) {
+        Set<String> changed = Set.copyOf(productIds);
+        TransactionHooks.afterCommit(() -> pendingStock.addAll(changed));
+    }
+
+    /**
+     * Đọc tồn kho mới của các sản phẩm trong hàng chờ bằng 1 query (checkout liên tục cũng chỉ 1 query/chu kỳ).
+     * Lỗi thì giữ lại hàng chờ, thử lại chu kỳ sau.
+     */
+    @Scheduled(fixedDelayString = "${app.facets.stock-refresh-interval-ms:500}")
+    public void refreshStock() {
+        if (pendingStock.isEmpty()) return;
+        List<String> ids = new ArrayList<>(pendingStock);
+        pendingStock.removeAll(ids);
+        try {
+            List<Object[]> rows = productRepository.findStockByIdIn(ids);
+            lock.writeLock().lock();
+            try {
+                for (Object[] row : rows) {
+                    String productId = (String) row[0];
+                    int dbStock = row[1] != null ? ((Number) row[1]).intValue() : 0;
+                    updateStock(productId, hotStockLedger.availableStock(productId, dbStock));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            pendingStock.addAll(ids);
+            log.warn("FACET INDEX: không đọc được tồn kho mới, thử lại chu kỳ sau: {}", e.getMessage());
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addDocument(ProductSearchDocument doc) {
+        Integer existing = docOf.get(doc.getId());
+        int id;
+        if (existing != null) {
+            // Lưu lại: giữ nguyên doc, gỡ khỏi các bitmap cũ
+            id = existing;
+            unassign(id);
+        } else {
+            id = maxDoc++;
+            if (id == cards.length) grow(id * 2);
+            docOf.put(doc.getId(), id);
+            all.add(id);
+        }
+
+        String brandId = doc.getBrandId();
+        brandOf[id] = brandId;
+        if (brandId != null) {
+            byBrand.computeIfAbsent(brandId, k -> new RoaringBitmap()).add(id);
+            if (doc.getBrandName() != null) brandNames.put(brandId, doc.getBrandName());
+        }
+
+        List<Long> categoryIds = doc.getCategoryIds() != null ? doc.getCategoryIds() : List.of();
+        long[] categories = new long[categoryIds.size()];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = categoryIds.get(i);
+            byCategory.computeIfAbsent(categories[i], k -> new RoaringBitmap()).add(id);
+        }
+        categoriesOf[id] = categories;
+
+        String band = priceBandOf(doc.getSalePrice());
+        priceBandOf[id] = band;
+        if (band != null) byPriceBand.get(band).add(id);
+
+        int stock = doc.getStockQuantity() != null ? doc.getStockQuantity() : 0;
+        cards[id] = new ProductCardView(doc.getId(), doc.getSku(), doc.getName(), doc.getThumbnail(),
+                doc.getSalePrice(), stock, doc.getBrandName(), doc.getCreatedAt());
+        if (stock > 0) inStock.add(id); else inStock.remove(id);
+
+        long createdAt = doc.getCreatedAt() != null ? doc.getCreatedAt().getTime() : 0;
+        if (createdAt > watermarkCreatedAt || (createdAt == watermarkCreatedAt && doc.getId().compareTo(watermarkId) > 0)) {
+            watermarkCreatedAt = createdAt;
+            watermarkId = doc.getId();
+        }
+    }
+
+    private void unassign(int id) {
+        if (brandOf[id] != null) byBrand.get(brandOf[id]).remove(id);
+        for (long categoryId : categoriesOf[id]) byCategory.get(categoryId).remove(id);
+        if (priceBandOf[id] != null) byPriceBand.get(priceBandOf[id]).remove(id);
+    }
+
+    private void updateStock(String productId, int stock) {
+        Integer id = docOf.get(productId);
+        if (id == null) return;
+        ProductCardView old = cards[id];
+        cards[id] = new ProductCardView(old.getId(), old.getSku(), old.getName(), old.getThumbnail(),
+                old.getSalePrice(), stock, old.getBrandName(), old.getCreatedAt());
+        if (stock > 0) inStock.add(id); else inStock.remove(id);
+    }
+
+    private void grow(int capacity) {
+        cards = Arrays.copyOf(cards, capacity);
+        brandOf = Arrays.copyOf(brandOf, capacity);
+        categoriesOf = Arrays.copyOf(categoriesOf, capacity);
+        priceBandOf = Arrays.copyOf(priceBandOf, capacity);
+    }
+
+    private static String priceBandOf(BigDecimal price) {
+        if (price == null) return null;
+        for (PriceBand band : PRICE_BANDS) {
+            if (band.contains(price)) return band.key();
+        }
+        return null;
+    }
+
+    // ==================== KHỞI ĐỘNG ====================
+
+    /**
+     * Dựng toàn bộ bitmap từ DB khi app sẵn sàng (đọc theo lô keyset, mỗi lô giữ write lock 1 lần)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("FACET INDEX: không dựng được bộ lọc sản phẩm", e);
+        }
+    }
+
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (Category category : categoryRepository.findAll()) categoryNames.put(category.getId(), category.getName());
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        while (true) {
+            long afterCreatedAt;
+            String afterId;
+            lock.readLock().lock();
+            try {
+                afterCreatedAt = watermarkCreatedAt;
+                afterId = watermarkId;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            List<ProductSearchDocument> batch = productRepository.findFacetDocuments(new Date(afterCreatedAt), afterId, LOAD_BATCH);
+            if (batch.isEmpty()) break;
+            lock.writeLock().lock();
+            try {
+                for (ProductSearchDocument doc : batch) {
+                    // Sản phẩm hot: tồn kho thật nằm trong HotStockLedger
+                    doc.setStockQuantity(hotStockLedger.availableStock(doc.getId(),
+                            doc.getStockQuantity() != null ? doc.getStockQuantity() : 0));
+                    addDocument(doc);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (batch.size() < LOAD_BATCH) break;
+        }
+
+        // Bitmap chỉ được thêm dần: nén lại các container sau khi nạp xong
+        lock.writeLock().lock();
+        try {
+            all.runOptimize();
+            inStock.runOptimize();
+            byBrand.values().forEach(RoaringBitmap::runOptimize);
+            byCategory.values().forEach(RoaringBitmap::runOptimize);
+            byPriceBand.values().forEach(RoaringBitmap::runOptimize);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void clear() {
+        docOf.clear();
+        cards = new ProductCardView[1024];
+        brandOf = new String[1024];
+        categoriesOf = new long[1024][];
+        priceBandOf = new String[1024];
+        maxDoc = 0;
+        all.clear();
+        inStock.clear();
+        byBrand.clear();
+        byCategory.clear();
+        byPriceBand.values().forEach(RoaringBitmap::clear);
+        brandNames.clear();
+        categoryNames.clear();
+        watermarkCreatedAt = 0;
+        watermarkId = "";
+    }
+}
@@ -0,0 +1,636 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.dto.ProductSearchDocument;
+import com.nhom6.ecommerce.dto.ProductSearchHitDTO;
+import com.nhom6.ecommerce.dto.ProductSearchResultDTO;
+import com.nhom6.ecommerce.entity.Category;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * CHỈ MỤC TÌM KIẾM SẢN PHẨM TRONG BỘ NHỚ (inverted index, xếp hạng BM25)
+ * - Đánh chỉ mục name, tên thương hiệu, tags, shortDesc, description sau khi bỏ dấu tiếng Việt (VietnameseText):
+ *   "điện thoại" và "dien thoai" là cùng 1 từ
+ * - Xếp hạng BM25 với trọng số theo trường (khớp ở tên quan trọng hơn khớp ở mô tả);
+ *   truy vấn nhiều từ trả về sản phẩm chứa ĐỦ các từ (giao các danh sách, đi từ danh sách ngắn nhất)
+ * - Cập nhật tăng dần: sản phẩm mới / lưu lại được thêm ngay sau commit (bản cũ đánh dấu xóa,
+ *   dọn khi số bản xóa vượt 1/4)
+ * - Lưu ra file (app.search.index-file) định kỳ & khi tắt app; khởi động đọc file rồi chỉ nạp thêm
+ *   các sản phẩm tạo sau mốc trong file. File hỏng / lệch số lượng với DB -> dựng lại toàn bộ.
+ * Kết quả đọc thẳng từ chỉ mục (không query DB). Chỉ gồm sản phẩm đang kinh doanh.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final int FILE_MAGIC = 0x50534958; // "PSIX"
+    private static final int FILE_VERSION = 1;
+    private static final int LOAD_BATCH = 5000;
+
+    // BM25
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Trọng số trường: tần suất & độ dài tài liệu tính theo tổng có trọng số (BM25F đơn giản)
+    private static final int W_NAME = 3;
+    private static final int W_BRAND = 2;
+    private static final int W_TAGS = 2;
+    private static final int W_SHORT_DESC = 1;
+    private static final int W_DESCRIPTION = 1;
+
+    @Autowired private ProductRepository productRepository;
+
+    private final Path indexFile;
+    private final int maxResults;
+
+    // Danh sách tài liệu chứa 1 từ: docId tăng dần + tần suất (có trọng số, tối đa 255)
+    private static final class Postings {
+        int[] docs = new int[4];
+        byte[] freqs = new byte[4];
+        int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = (byte) Math.min(freq, 255);
+            size++;
+        }
+
+        int freq(int i) {
+            return freqs[i] & 0xFF;
+        }
+    }
+
+    // ===== Trạng thái chỉ mục (đọc dưới read lock, sửa dưới write lock) =====
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, Postings> terms = new HashMap<>();
+    private Map<String, Integer> docOf = new HashMap<>();
+    private ProductSearchHitDTO[] stored = new ProductSearchHitDTO[1024];
+    private int[] docLength = new int[1024];
+    private BitSet deleted = new BitSet();
+    private int maxDoc;
+    private int liveDocs;
+    private long totalLength;
+    // Khóa (createdAt, id) lớn nhất đã đánh chỉ mục: mốc nạp tiếp khi khởi động
+    private long watermarkCreatedAt;
+    private String watermarkId = "";
+
+    private volatile boolean dirty;
+
+    public ProductSearchIndex(@Value("${app.search.index-file:}") String indexFile,
+                              @Value("${app.search.max-results:100}") int maxResults) {
+        this.indexFile = indexFile.isBlank() ? null : Path.of(indexFile);
+        this.maxResults = maxResults;
+    }
+
+    // ==================== TÌM KIẾM ====================
+
+    public ProductSearchResultDTO search(String query, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(VietnameseText.tokens(query)));
+        int k = Math.max(1, Math.min(limit, maxResults));
+        if (queryTerms.isEmpty()) return new ProductSearchResultDTO(query, 0, List.of());
+
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[queryTerms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = terms.get(queryTerms.get(i));
+                if (lists[i] == null) return new ProductSearchResultDTO(query, 0, List.of());
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+            float[] idf = new float[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                // df có thể gồm cả bản đã xóa chưa dọn -> không để âm
+                int df = lists[i].size;
+                idf[i] = (float) Math.log(1 + (Math.max(liveDocs - df, 0) + 0.5) / (df + 0.5));
+            }
+            float avgLength = liveDocs == 0 ? 1 : (float) totalLength / liveDocs;
+
+            TopHits top = new TopHits(k);
+            int total = 0;
+            int[] pos = new int[lists.length];
+            Postings shortest = lists[0];
+            outer:
+            for (int i = 0; i < shortest.size; i++) {
+                int doc = shortest.docs[i];
+                if (deleted.get(doc)) continue;
+                for (int j = 1; j < lists.length; j++) {
+                    pos[j] = advance(lists[j], pos[j], doc);
+                    if (pos[j] == lists[j].size) break outer; // 1 danh sách đã hết -> không còn tài liệu chung
+                    if (lists[j].docs[pos[j]] != doc) continue outer;
+                }
+                total++;
+
+                float norm = K1 * (1 - B + B * docLength[doc] / avgLength);
+                float score = idf[0] * tfScore(shortest.freq(i), norm);
+                for (int j = 1; j < lists.length; j++) score += idf[j] * tfScore(lists[j].freq(pos[j]), norm);
+                top.offer(doc, score);
+            }
+
+            List<ProductSearchHitDTO> items = new ArrayList<>(top.size);
+            for (int[] docAndRank : top.sorted()) {
+                ProductSearchHitDTO s = stored[docAndRank[0]];
+                items.add(new ProductSearchHitDTO(s.getId(), s.getSku(), s.getName(), s.getBrandName(), s.getThumbnail(),
+                        s.getSalePrice(), top.scores[docAndRank[1]]));
+            }
+            return new ProductSearchResultDTO(query, total, items);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static float tfScore(int freq, float norm) {
+        return freq * (K1 + 1) / (freq + norm);
+    }
+
+    /**
+     * Vị trí đầu tiên từ from có docId >= target (nhảy cấp số nhân rồi tìm nhị phân)
+     */
+    private static int advance(Postings p, int from, int target) {
+        if (from >= p.size || p.docs[from] >= target) return from;
+        int step = 1;
+        int lo = from;
+        int hi = from + 1;
+        while (hi < p.size && p.docs[hi] < target) {
+            lo = hi;
+            step <<= 1;
+            hi = from + step;
+        }
+        hi = Math.min(hi, p.size);
+        // p.docs[lo] < target, p.docs[hi] >= target (hoặc hi = size)
+        while (lo + 1 < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (p.docs[mid] < target) lo = mid;
+            else hi = mid;
+        }
+        return hi;
+    }
+
+    // Top k điểm cao nhất bằng min-heap trên mảng (không tạo object cho từng tài liệu khớp)
+    private static final class TopHits {
+        final int[] docs;
+        final float[] scores;
+        int size;
+
+        TopHits(int k) {
+            docs = new int[k];
+            scores = new float[k];
+        }
+
+        void offer(int doc, float score) {
+            if (size < docs.length) {
+                docs[size] = doc;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (score > scores[0]) {
+                docs[0] = doc;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        // {docId, vị trí trong heap} theo điểm giảm dần, bằng điểm thì docId nhỏ trước
+        List<int[]> sorted() {
+            List<int[]> out = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) out.add(new int[]{docs[i], i});
+            out.sort((a, b) -> scores[a[1]] != scores[b[1]]
+                    ? Float.compare(scores[b[1]], scores[a[1]])
+                    : Integer.compare(a[0], b[0]));
+            return out;
+        }
+
+        private boolean less(int a, int b) {
+            return scores[a] < scores[b] || (scores[a] == scores[b] && docs[a] > docs[b]);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(i, parent)) return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int l = 2 * i + 1;
+                int r = l + 1;
+                if (l < size && less(l, smallest)) smallest = l;
+                if (r < size && less(r, smallest)) smallest = r;
+                if (smallest == i) return;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int d = docs[a];
+            docs[a] = docs[b];
+            docs[b] = d;
+            float s = scores[a];
+            scores[a] = scores[b];
+            scores[b] = s;
+        }
+    }
+
+    // ==================== CẬP NHẬT ====================
+
+    /**
+     * Sản phẩm vừa được lưu: đánh chỉ mục sau khi transaction commit (rollback thì không thêm)
+     */
+    public void indexAfterCommit(Product product) {
+        ProductSearchDocument doc = toDocument(product);
+        TransactionHooks.afterCommit(() -> index(doc));
+    }
+
+    public void index(ProductSearchDocument doc) {
+        lock.writeLock().lock();
+        try {
+            addDocument(doc);
+            if (deleted.cardinality() > maxDoc / 4 && maxDoc > 1024) compact();
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addDocument(ProductSearchDocument doc) {
+        Integer previous = docOf.get(doc.getId());
+        if (previous != null) {
+            deleted.set(previous);
+            liveDocs--;
+            totalLength -= docLength[previous];
+        }
+
+        Map<String, Integer> freqs = new HashMap<>();
+        int length = addField(freqs, doc.getName(), W_NAME)
+                + addField(freqs, doc.getBrandName(), W_BRAND)
+                + addField(freqs, doc.getShortDesc(), W_SHORT_DESC)
+                + addField(freqs, doc.getDescription(), W_DESCRIPTION);
+        if (doc.getTags() != null) {
+            for (String tag : doc.getTags()) length += addField(freqs, tag, W_TAGS);
+        }
+
+        int id = maxDoc++;
+        if (id == stored.length) {
+            stored = Arrays.copyOf(stored, id * 2);
+            docLength = Arrays.copyOf(docLength, id * 2);
+        }
+        stored[id] = new ProductSearchHitDTO(doc.getId(), doc.getSku(), doc.getName(), doc.getBrandName(),
+                doc.getThumbnail(), doc.getSalePrice(), 0);
+        docLength[id] = length;
+        // docId mới luôn lớn nhất -> thêm vào cuối, danh sách vẫn tăng dần
+        freqs.forEach((term, freq) -> terms.computeIfAbsent(term, t -> new Postings()).add(id, freq));
+        docOf.put(doc.getId(), id);
+        liveDocs++;
+        totalLength += length;
+
+        long createdAt = doc.getCreatedAt() != null ? doc.getCreatedAt().getTime() : 0;
+        if (createdAt > watermarkCreatedAt || (createdAt == watermarkCreatedAt && doc.getId().compareTo(watermarkId) > 0)) {
+            watermarkCreatedAt = createdAt;
+            watermarkId = doc.getId();
+        }
+    }
+
+    private static int addField(Map<String, Integer> freqs, String text, int weight) {
+        if (text == null) return 0;
+        List<String> tokens = VietnameseText.tokens(text);
+        for (String t : tokens) freqs.merge(t, weight, Integer::sum);
+        return tokens.size() * weight;
+    }
+
+    /**
+     * Dọn các bản đã xóa: đánh lại docId liên tục, giữ nguyên thứ tự
+     */
+    private void compact() {
+        int[] remap = new int[maxDoc];
+        int next = 0;
+        for (int doc = 0; doc < maxDoc; doc++) remap[doc] = deleted.get(doc) ? -1 : next++;
+
+        ProductSearchHitDTO[] newStored = new ProductSearchHitDTO[Math.max(1024, next * 2)];
+        int[] newLength = new int[newStored.length];
+        for (int doc = 0; doc < maxDoc; doc++) {
+            if (remap[doc] < 0) continue;
+            newStored[remap[doc]] = stored[doc];
+            newLength[remap[doc]] = docLength[doc];
+        }
+
+        Map<String, Postings> newTerms = new HashMap<>();
+        terms.forEach((term, p) -> {
+            Postings kept = new Postings();
+            for (int i = 0; i < p.size; i++) {
+                int doc = remap[p.docs[i]];
+                if (doc >= 0) kept.add(doc, p.freq(i));
+            }
+            if (kept.size > 0) newTerms.put(term, kept);
+        });
+        docOf.replaceAll((id, doc) -> remap[doc]);
+
+        terms = newTerms;
+        stored = newStored;
+        docLength = newLength;
+        deleted = new BitSet();
+        maxDoc = next;
+    }
+
+    private void clear() {
+        terms = new HashMap<>();
+        docOf = new HashMap<>();
+        stored = new ProductSearchHitDTO[1024];
+        docLength = new int[1024];
+        deleted = new BitSet();
+        maxDoc = 0;
+        liveDocs = 0;
+        totalLength = 0;
+        watermarkCreatedAt = 0;
+        watermarkId = "";
+    }
+
+    // Dùng chung với ProductFacetIndex, ProductSuggestIndex
+    static ProductSearchDocument toDocument(Product product) {
+        ProductSearchDocument doc = new ProductSearchDocument();
+        doc.setId(product.getId());
+        doc.setSku(product.getSku());
+        doc.setName(product.getName());
+        doc.setBrandName(product.getBrand() != null ? product.getBrand().getName() : null);
+        doc.setShortDesc(product.getShortDesc());
+        doc.setDescription(product.getDescription());
+        doc.setTags(product.getTags());
+        doc.setThumbnail(product.getThumbnail());
+        doc.setSalePrice(product.getSalePrice());
+        doc.setCreatedAt(product.getCreatedAt());
+        doc.setBrandId(product.getBrand() != null ? product.getBrand().getId() : null);
+        List<Long> categoryIds = new ArrayList<>();
+        if (product.getCategories() != null) {
+            for (Category category : product.getCategories()) categoryIds.add(category.getId());
+        }
+        doc.setCategoryIds(categoryIds);
+        doc.setStockQuantity(product.getStockQuantity());
+        doc.setModelCode(product.getModelCode());
+        doc.setSoldCount(product.getSoldCount());
+        doc.setViewCount(product.getViewCount());
+        return doc;
+    }
+
+    // ==================== KHỞI ĐỘNG & LƯU FILE ====================
+
+    /**
+     * Khởi động: đọc file chỉ mục (nếu có) rồi nạp thêm sản phẩm tạo sau mốc trong file.
+     * Không có file / file hỏng / số sản phẩm lệch với DB (sản phẩm bị sửa ngoài app...) -> dựng lại từ DB.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            boolean restored = readSnapshot();
+            catchUp();
+            if (restored && size() != productRepository.countActive()) {
+                rebuild();
+                return;
+            }
+            persist();
+        } catch (RuntimeException e) {
+            log.error("SEARCH INDEX: không nạp được chỉ mục tìm kiếm", e);
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ chỉ mục từ DB
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        catchUp();
+        persist();
+    }
+
+    // Nạp theo từng lô các sản phẩm sau mốc hiện tại (mỗi lô giữ write lock 1 lần, tìm kiếm chen giữa các lô)
+    private void catchUp() {
+        while (true) {
+            long afterCreatedAt;
+            String afterId;
+            lock.readLock().lock();
+            try {
+                afterCreatedAt = watermarkCreatedAt;
+                afterId = watermarkId;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            List<ProductSearchDocument> batch = productRepository.findSearchDocuments(new Date(afterCreatedAt), afterId, LOAD_BATCH);
+            if (batch.isEmpty()) return;
+            lock.writeLock().lock();
+            try {
+                for (ProductSearchDocument doc : batch) addDocument(doc);
+                dirty = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (batch.size() < LOAD_BATCH) return;
+        }
+    }
+
+    // synchronized: lần ghi định kỳ và lần ghi sau rebuild không cùng ghi 1 file tạm
+    @Scheduled(fixedDelayString = "${app.search.snapshot-interval-ms:300000}")
+    @PreDestroy
+    public synchronized void persist() {
+        if (indexFile == null || !dirty) return;
+        try {
+            // Chỉ chụp bản nhị phân trong bộ nhớ dưới read lock; ghi đĩa (chậm) ở ngoài, không chặn cập nhật chỉ mục
+            byte[] snapshot;
+            lock.readLock().lock();
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+                DataOutputStream out = new DataOutputStream(buffer);
+                dirty = false;
+                writeSnapshot(out);
+                out.flush();
+                snapshot = buffer.toByteArray();
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            Files.createDirectories(indexFile.toAbsolutePath().getParent());
+            Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            Files.write(tmp, snapshot);
+            // Thay file cũ 1 lần (không bao giờ để lại file ghi dở)
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            log.warn("SEARCH INDEX: không ghi được file chỉ mục {}: {}", indexFile, e.getMessage());
+        }
+    }
+
+    private void writeSnapshot(DataOutputStream out) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        out.writeLong(watermarkCreatedAt);
+        out.writeUTF(watermarkId);
+
+        // Chỉ ghi tài liệu còn hiệu lực, đánh lại docId liên tục
+        int[] remap = new int[maxDoc];
+        int next = 0;
+        for (int doc = 0; doc < maxDoc; doc++) remap[doc] = deleted.get(doc) ? -1 : next++;
+        out.writeInt(next);
+        out.writeLong(totalLength);
+        for (int doc = 0; doc < maxDoc; doc++) {
+            if (remap[doc] < 0) continue;
+            ProductSearchHitDTO s = stored[doc];
+            out.writeUTF(s.getId());
+            writeNullable(out, s.getSku());
+            writeNullable(out, s.getName());
+            writeNullable(out, s.getBrandName());
+            writeNullable(out, s.getThumbnail());
+            writeNullable(out, s.getSalePrice() != null ? s.getSalePrice().toPlainString() : null);
+            writeVarInt(out, docLength[doc]);
+        }
+
+        out.writeInt(terms.size());
+        for (Map.Entry<String, Postings> e : terms.entrySet()) {
+            Postings p = e.getValue();
+            int live = 0;
+            for (int i = 0; i < p.size; i++) if (remap[p.docs[i]] >= 0) live++;
+            out.writeUTF(e.getKey());
+            writeVarInt(out, live);
+            int prev = 0;
+            for (int i = 0; i < p.size; i++) {
+                int doc = remap[p.docs[i]];
+                if (doc < 0) continue;
+                writeVarInt(out, doc - prev); // docId tăng dần -> ghi khoảng cách, đa số chỉ 1-2 byte
+                out.writeByte(p.freqs[i]);
+                prev = doc;
+            }
+        }
+    }
+
+    private boolean readSnapshot() {
+        if (indexFile == null || !Files.isRegularFile(indexFile)) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), 1 << 16))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) return false;
+            lock.writeLock().lock();
+            try {
+                clear();
+                watermarkCreatedAt = in.readLong();
+                watermarkId = in.readUTF();
+                int docs = in.readInt();
+                totalLength = in.readLong();
+                stored = new ProductSearchHitDTO[Math.max(1024, docs * 2)];
+                docLength = new int[stored.length];
+                for (int doc = 0; doc < docs; doc++) {
+                    String id = in.readUTF();
+                    String sku = readNullable(in);
+                    String name = readNullable(in);
+                    String brandName = readNullable(in);
+                    String thumbnail = readNullable(in);
+                    String price = readNullable(in);
+                    stored[doc] = new ProductSearchHitDTO(id, sku, name, brandName, thumbnail,
+                            price != null ? new BigDecimal(price) : null, 0);
+                    docLength[doc] = readVarInt(in);
+                    docOf.put(id, doc);
+                }
+                maxDoc = docs;
+                liveDocs = docs;
+
+                int termCount = in.readInt();
+                terms = new HashMap<>(termCount * 2);
+                for (int t = 0; t < termCount; t++) {
+                    String term = in.readUTF();
+                    int size = readVarInt(in);
+                    Postings p = new Postings();
+                    p.docs = new int[Math.max(size, 1)];
+                    p.freqs = new byte[p.docs.length];
+                    int doc = 0;
+                    for (int i = 0; i < size; i++) {
+                        doc += readVarInt(in);
+                        p.docs[i] = doc;
+                        p.freqs[i] = in.readByte();
+                    }
+                    p.size = size;
+                    terms.put(term, p);
+                }
+                return true;
+            } catch (IOException | RuntimeException e) {
+                clear();
+                throw e;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("SEARCH INDEX: file chỉ mục {} không đọc được, dựng lại từ DB: {}", indexFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.nhom6.ecommerce.service;
 
 import com.nhom6.ecommerce.dto.ProductRequestDTO;
 import com.nhom6.ecommerce.entity.*;
+import com.nhom6.ecommerce.exception.ConflictException;
+import com.nhom6.ecommerce.exception.ValidationException;
 import com.nhom6.ecommerce.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -20,22 +22,33 @@ public class ProductService {
     @Autowired private BrandRepository brandRepository;
     @Autowired private CategoryRepository categoryRepository;
     @Autowired private SupplierRepository supplierRepository;
+    @Autowired private StageMetrics stageMetrics;
+    @Autowired private CatalogReadModel catalogReadModel;
+    @Autowired private ProductSearchIndex productSearchIndex;
+    @Autowired private ProductFacetIndex productFacetIndex;
+    @Autowired private ProductSuggestIndex productSuggestIndex;
 
     private static final Set<String> ALLOWED_UNITS = Set.of("Cái", "Bộ", "Hộp", "Kg", "Thùng");
     private static final Set<String> ALLOWED_CURRENCIES = Set.of("VND", "USD");
 
     @Transactional
     public Product createProduct(ProductRequestDTO req) {
+        return stageMetrics.record("product_create", clock -> placeProduct(req, clock));
+    }
+
+    private Product placeProduct(ProductRequestDTO req, StageMetrics.StageClock clock) {
         List<String> warnings = new ArrayList<>();
 
         // 1. Validate Định danh
         validateIdentity(req);
+        clock.lap("identity_check");
 
         // 2. Validate & Lấy dữ liệu Phân loại
         Brand brand = getAndValidateBrand(req.getBrandId()); // Đã sửa hàm này bên dưới
         List<Category> categories = getAndValidateCategories(req, warnings);
         validateSupplier(req.getSupplierId());
         validateUnit(req.getUnit());
+        clock.lap("classification");
 
         // 3. Validate Giá & Thuế
         validatePricingAndTax(req);
@@ -49,9 +62,16 @@ public class ProductService {
 
         // 6. Validate Thời gian
         validateTime(req);
+        clock.lap("validate_input");
 
         // 7. Mapping & Lưu
-        return mapAndSaveProduct(req, brand, categories, warnings);
+        Product saved = mapAndSaveProduct(req, brand, categories, warnings);
+        catalogReadModel.productCreated();
+        productSearchIndex.indexAfterCommit(saved);
+        productFacetIndex.indexAfterCommit(saved);
+        productSuggestIndex.indexAfterCommit(saved);
+        clock.lap("save");
+        return saved;
     }
 
     // =========================================================================
@@ -60,11 +80,11 @@ public class ProductService {
 
     private void validateIdentity(ProductRequestDTO req) {
         if (productRepository.existsBySku(req.getSku())) {
-            throw new RuntimeException("1E.7: SKU đã tồn tại trong hệ thống");
+            throw new ConflictException("PRODUCT.1E.7", "1E.7: SKU đã tồn tại trong hệ thống");
         }
         if (req.getModelCode() != null && !req.getModelCode().isEmpty()) {
             if (productRepository.existsByBrandIdAndModelCode(req.getBrandId(), req.getModelCode())) {
-                throw new RuntimeException("Model code đã tồn tại cho thương hiệu này.");
+                throw new ConflictException("PRODUCT.MODEL_CODE_EXISTS", "Model code đã tồn tại cho thương hiệu này.");
             }
         }
     }
@@ -79,9 +99,9 @@ public class ProductService {
             Long brandId = Long.parseLong(brandIdStr);
 
             return brandRepository.findById(brandId)
-                    .orElseThrow(() -> new RuntimeException("Thương hiệu không tồn tại (ID: " + brandId + ")"));
+                    .orElseThrow(() -> new ValidationException("PRODUCT.BRAND_NOT_FOUND", "Thương hiệu không tồn tại (ID: " + brandId + ")"));
         } catch (NumberFormatException e) {
-            throw new RuntimeException("ID thương hiệu không hợp lệ (Phải là số): " + brandIdStr);
+            throw new ValidationException("PRODUCT.INVALID_BRAND_ID", "ID thương hiệu không hợp lệ (Phải là số): " + brandIdStr);
         }
     }
 
@@ -92,7 +112,7 @@ public class ProductService {
         List<Category> categories = categoryRepository.findAllById(req.getCategoryIds());
 
         if (categories.isEmpty()) {
-            throw new RuntimeException("2E.1: Phải chọn ít nhất một danh mục");
+            throw new ValidationException("PRODUCT.2E.1", "2E.1: Phải chọn ít nhất một danh mục");
         }
         if (categories.size() >= 2 && (req.getTags() == null || req.getTags().isEmpty())) {
             warnings.add("5W.2: Sản phẩm thuộc nhiều danh mục, nên thêm từ khóa tìm kiếm (tags).");
@@ -102,13 +122,13 @@ public class ProductService {
 
     private void validateSupplier(String supplierId) {
         if (supplierId != null && !supplierRepository.existsById(supplierId)) {
-            throw new RuntimeException("Nhà cung cấp không tồn tại.");
+            throw new ValidationException("PRODUCT.SUPPLIER_NOT_FOUND", "Nhà cung cấp không tồn tại.");
         }
     }
 
     private void validateUnit(String unit) {
         if (!ALLOWED_UNITS.contains(unit)) {
-            throw new RuntimeException("Đơn vị tính không hợp lệ.");
+            throw new ValidationException("PRODUCT.INVALID_UNIT", "Đơn vị tính không hợp lệ.");
         }
     }
 
@@ -119,21 +139,21 @@ public class ProductService {
         BigDecimal wholesalePrice = req.getWholesalePrice();
 
         if (importPrice != null && salePrice.compareTo(importPrice) < 0) {
-            throw new RuntimeException("3E.12: Giá bán lẻ không được nhỏ hơn giá nhập");
+            throw new ValidationException("PRODUCT.3E.12", "3E.12: Giá bán lẻ không được nhỏ hơn giá nhập");
         }
         if (originalPrice != null && originalPrice.compareTo(salePrice) < 0) {
-            throw new RuntimeException("3E.5: Giá niêm yết không được nhỏ hơn giá bán lẻ");
+            throw new ValidationException("PRODUCT.3E.5", "3E.5: Giá niêm yết không được nhỏ hơn giá bán lẻ");
         }
         if (wholesalePrice != null && wholesalePrice.compareTo(salePrice) > 0) {
-            throw new RuntimeException("3E.8: Giá bán sỉ không được lớn hơn giá bán lẻ");
+            throw new ValidationException("PRODUCT.3E.8", "3E.8: Giá bán sỉ không được lớn hơn giá bán lẻ");
         }
         if (!ALLOWED_CURRENCIES.contains(req.getCurrency())) {
-            throw new RuntimeException("Đơn vị tiền tệ không được hỗ trợ.");
+            throw new ValidationException("PRODUCT.UNSUPPORTED_CURRENCY", "Đơn vị tiền tệ không được hỗ trợ.");
         }
         if ("VND".equals(req.getCurrency())) {
             int vat = req.getVatRate() != null ? req.getVatRate() : 0;
             if (!Set.of(0, 5, 8, 10).contains(vat)) {
-                throw new RuntimeException("3E.13: Thuế suất VAT không phù hợp với VND (0, 5, 8, 10).");
+                throw new ValidationException("PRODUCT.3E.13", "3E.13: Thuế suất VAT không phù hợp với VND (0, 5, 8, 10).");
             }
         }
     }
@@ -148,10 +168,10 @@ public class ProductService {
         boolean fullDim = (len != null && wid != null && hei != null);
 
         if (hasDim && !fullDim) {
-            throw new RuntimeException("4E.7: Vui lòng nhập đầy đủ chiều dài, rộng, cao của gói hàng");
+            throw new ValidationException("PRODUCT.4E.7", "4E.7: Vui lòng nhập đầy đủ chiều dài, rộng, cao của gói hàng");
         }
         if (fullDim && (wei == null || wei <= 0)) {
-            throw new RuntimeException("4E.8: Vui lòng nhập trọng lượng sản phẩm để tính phí vận chuyển");
+            throw new ValidationException("PRODUCT.4E.8", "4E.8: Vui lòng nhập trọng lượng sản phẩm để tính phí vận chuyển");
         }
 
         int stock = req.getStockQuantity() != null ? req.getStockQuantity() : 0;
@@ -174,17 +194,17 @@ public class ProductService {
         Integer reviews = req.getReviewCount() != null ? req.getReviewCount() : 0;
 
         if (rating > 0 && reviews <= 0) {
-            throw new RuntimeException("5E.7: Số lượng đánh giá phải lớn hơn 0 khi có điểm đánh giá");
+            throw new ValidationException("PRODUCT.5E.7", "5E.7: Số lượng đánh giá phải lớn hơn 0 khi có điểm đánh giá");
         }
         if (reviews == 0 && rating > 0) {
-            throw new RuntimeException("5E.8: Không thể có điểm đánh giá khi chưa có đánh giá nào");
+            throw new ValidationException("PRODUCT.5E.8", "5E.8: Không thể có điểm đánh giá khi chưa có đánh giá nào");
         }
     }
 
     private void validateTime(ProductRequestDTO req) {
         if (req.getManufactureDate() != null && req.getExpiryDate() != null) {
             if (req.getManufactureDate().after(req.getExpiryDate())) {
-                throw new RuntimeException("6E.4: Hạn sử dụng không được nhỏ hơn ngày sản xuất");
+                throw new ValidationException("PRODUCT.6E.4", "6E.4: Hạn sử dụng không được nhỏ hơn ngày sản xuất");
             }
         }
     }
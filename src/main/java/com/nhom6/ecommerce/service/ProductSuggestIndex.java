@@ -0,0 +1,487 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.dto.ProductSearchDocument;
+import com.nhom6.ecommerce.dto.ProductSuggestionDTO;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+/**
+ * GỢI Ý KHI GÕ (typeahead) CHO Ô TÌM KIẾM: tên sản phẩm, SKU, mã model, tên thương hiệu
+ * - Khóa = chuỗi đã bỏ dấu (VietnameseText.phrase); tên sản phẩm / thương hiệu khớp từ đầu mỗi từ
+ *   ("sam" gợi ý "Điện thoại Samsung Galaxy"), SKU & mã model khớp từ đầu chuỗi
+ * - Cấu trúc: burst trie. Nút trong giữ sẵn TOP_K mục phổ biến nhất của cả nhánh -> gõ tiền tố nào cũng chỉ
+ *   đi xuống tối đa độ dài tiền tố rồi đọc thẳng danh sách có sẵn. Nhánh ít khóa (<= BUCKET_SIZE) để nguyên
+ *   thành 1 lá, lúc tra thì lọc tuần tự -> không tạo 1 nút cho mỗi ký tự của đuôi riêng từng sản phẩm (SKU, số hiệu...)
+ * - Xếp hạng: soldCount giảm dần, rồi viewCount giảm dần. Thương hiệu cộng dồn của các sản phẩm thuộc thương hiệu
+ * - Cập nhật tăng dần sau commit: sản phẩm lưu lại thì gỡ khóa cũ, chỉ tính lại top của các nút trên đường đi
+ * Khóa chỉ là 1 số long (mục, trường, vị trí bắt đầu) trỏ vào chuỗi của mục, không tạo chuỗi con.
+ */
+@Service
+public class ProductSuggestIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    public static final int TOP_K = 10;
+    public static final String TYPE_PRODUCT = "PRODUCT";
+    public static final String TYPE_BRAND = "BRAND";
+
+    private static final int BUCKET_SIZE = 32;
+    // Lá sâu hơn không tách tiếp (nhiều sản phẩm trùng tên dài): lọc tuần tự
+    private static final int MAX_DEPTH = 64;
+    private static final int MAX_KEY_OFFSET = 0xFFFF;
+    private static final int LOAD_BATCH = 5000;
+
+    // Trường làm khóa: name (hoặc tên thương hiệu), sku, modelCode
+    private static final int FIELD_NAME = 0;
+
+    @Autowired private ProductRepository productRepository;
+
+    // Top các mục (phổ biến nhất trước)
+    private static final class Top {
+        final int[] items;
+        int size;
+
+        Top(int capacity) {
+            items = new int[capacity];
+        }
+    }
+
+    private static final class LongList {
+        long[] items = new long[4];
+        int size;
+
+        void add(long value) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = value;
+        }
+
+        void remove(long value) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == value) {
+                    items[i] = items[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class Node {
+        // Lá: các khóa của cả nhánh (null khi đã tách thành nút trong)
+        LongList keys = new LongList();
+        // Nút trong: con theo ký tự tiếp theo (labels tăng dần), khóa kết thúc đúng tại nút, top của cả nhánh
+        char[] labels;
+        Node[] children;
+        int childCount;
+        LongList ends;
+        Top top;
+
+        boolean leaf() {
+            return keys != null;
+        }
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, 0, childCount, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(labels, 0, childCount, c);
+            if (i >= 0) return children[i];
+            int at = -i - 1;
+            if (childCount == labels.length) {
+                labels = Arrays.copyOf(labels, childCount * 2);
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            System.arraycopy(labels, at, labels, at + 1, childCount - at);
+            System.arraycopy(children, at, children, at + 1, childCount - at);
+            Node child = new Node();
+            labels[at] = c;
+            children[at] = child;
+            childCount++;
+            return child;
+        }
+    }
+
+    // ===== Trạng thái (đọc dưới read lock, sửa dưới write lock) =====
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node();
+    // Các mục gợi ý (sản phẩm & thương hiệu), đánh số từ 0
+    private String[] texts = new String[1024];
+    private String[] productIds = new String[1024]; // null = thương hiệu
+    private String[] skus = new String[1024];
+    private String[][] keyTexts = new String[1024][];
+    private long[] sold = new long[1024];
+    private long[] views = new long[1024];
+    private int[] brandOf = new int[1024]; // mục thương hiệu của sản phẩm, -1 = không có
+    private int entryCount;
+    private final Map<String, Integer> productEntries = new HashMap<>();
+    private final Map<String, Integer> brandEntries = new HashMap<>(); // theo brandId
+
+    // Khóa (createdAt, id) lớn nhất đã nạp: mốc đọc lô tiếp theo khi dựng từ DB
+    private long watermarkCreatedAt;
+    private String watermarkId = "";
+
+    // ==================== GỢI Ý ====================
+
+    public List<ProductSuggestionDTO> suggest(String query, int limit) {
+        String prefix = VietnameseText.phrase(query);
+        int size = Math.max(0, Math.min(limit, TOP_K));
+        if (prefix.isEmpty() || size == 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int depth = 0;
+            while (!node.leaf() && depth < prefix.length()) {
+                node = node.child(prefix.charAt(depth++));
+                if (node == null) return List.of();
+            }
+
+            Top top = node.top;
+            if (node.leaf()) {
+                // Lá: lọc các khóa bắt đầu bằng tiền tố
+                top = new Top(size);
+                for (int i = 0; i < node.keys.size; i++) {
+                    long key = node.keys.items[i];
+                    if (keyText(key).startsWith(prefix, offsetOf(key))) offer(top, entryOf(key));
+                }
+            }
+
+            List<ProductSuggestionDTO> result = new ArrayList<>(Math.min(size, top.size));
+            for (int i = 0; i < top.size && i < size; i++) {
+                int entry = top.items[i];
+                result.add(new ProductSuggestionDTO(texts[entry], productIds[entry] != null ? TYPE_PRODUCT : TYPE_BRAND,
+                        productIds[entry], skus[entry]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== CẬP NHẬT ====================
+
+    /**
+     * Sản phẩm vừa được lưu: cập nhật gợi ý sau khi transaction commit (rollback thì không đổi)
+     */
+    public void indexAfterCommit(Product product) {
+        ProductSearchDocument doc = ProductSearchIndex.toDocument(product);
+        TransactionHooks.afterCommit(() -> index(doc));
+    }
+
+    public void index(ProductSearchDocument doc) {
+        lock.writeLock().lock();
+        try {
+            addProduct(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entryCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addProduct(ProductSearchDocument doc) {
+        Integer existing = productEntries.get(doc.getId());
+        int entry;
+        if (existing != null) {
+            // Lưu lại: gỡ khóa cũ & phần đóng góp cũ vào thương hiệu
+            entry = existing;
+            forEachKey(entry, this::removeKey);
+            if (brandOf[entry] >= 0) updateBrand(brandOf[entry], null, -sold[entry], -views[entry]);
+        } else {
+            entry = newEntry();
+            productEntries.put(doc.getId(), entry);
+        }
+
+        texts[entry] = doc.getName();
+        productIds[entry] = doc.getId();
+        skus[entry] = doc.getSku();
+        keyTexts[entry] = new String[]{VietnameseText.phrase(doc.getName()),
+                VietnameseText.phrase(doc.getSku()), VietnameseText.phrase(doc.getModelCode())};
+        sold[entry] = doc.getSoldCount() != null ? doc.getSoldCount() : 0;
+        views[entry] = doc.getViewCount() != null ? doc.getViewCount() : 0;
+        forEachKey(entry, this::insertKey);
+
+        brandOf[entry] = -1;
+        if (doc.getBrandId() != null && doc.getBrandName() != null) {
+            Integer brand = brandEntries.get(doc.getBrandId());
+            if (brand == null) {
+                brand = newEntry();
+                brandEntries.put(doc.getBrandId(), brand);
+                keyTexts[brand] = new String[0];
+            }
+            brandOf[entry] = brand;
+            updateBrand(brand, doc.getBrandName(), sold[entry], views[entry]);
+        }
+
+        long createdAt = doc.getCreatedAt() != null ? doc.getCreatedAt().getTime() : 0;
+        if (createdAt > watermarkCreatedAt || (createdAt == watermarkCreatedAt && doc.getId().compareTo(watermarkId) > 0)) {
+            watermarkCreatedAt = createdAt;
+            watermarkId = doc.getId();
+        }
+    }
+
+    // Độ phổ biến thay đổi -> gỡ khóa, cập nhật rồi thêm lại (các top chứa mục được tính lại đúng)
+    private void updateBrand(int brand, String name, long soldDelta, long viewsDelta) {
+        forEachKey(brand, this::removeKey);
+        if (name != null) {
+            texts[brand] = name;
+            keyTexts[brand] = new String[]{VietnameseText.phrase(name)};
+        }
+        sold[brand] += soldDelta;
+        views[brand] += viewsDelta;
+        forEachKey(brand, this::insertKey);
+    }
+
+    private int newEntry() {
+        int entry = entryCount++;
+        if (entry == texts.length) {
+            int capacity = entry * 2;
+            texts = Arrays.copyOf(texts, capacity);
+            productIds = Arrays.copyOf(productIds, capacity);
+            skus = Arrays.copyOf(skus, capacity);
+            keyTexts = Arrays.copyOf(keyTexts, capacity);
+            sold = Arrays.copyOf(sold, capacity);
+            views = Arrays.copyOf(views, capacity);
+            brandOf = Arrays.copyOf(brandOf, capacity);
+        }
+        return entry;
+    }
+
+    // Tên: khóa từ đầu mỗi từ; SKU, mã model: chỉ từ đầu chuỗi
+    private void forEachKey(int entry, LongConsumer action) {
+        String[] fields = keyTexts[entry];
+        for (int field = 0; field < fields.length; field++) {
+            String text = fields[field];
+            if (text.isEmpty()) continue;
+            action.accept(key(entry, field, 0));
+            if (field != FIELD_NAME) continue;
+            for (int i = 1; i < text.length() && i <= MAX_KEY_OFFSET; i++) {
+                if (text.charAt(i - 1) == ' ') action.accept(key(entry, field, i));
+            }
+        }
+    }
+
+    // ===== Khóa: [mục 40 bit][trường 8 bit][vị trí bắt đầu 16 bit] =====
+
+    private static long key(int entry, int field, int offset) {
+        return (long) entry << 24 | (long) field << 16 | offset;
+    }
+
+    private static int entryOf(long key) {
+        return (int) (key >>> 24);
+    }
+
+    private static int offsetOf(long key) {
+        return (int) key & 0xFFFF;
+    }
+
+    private String keyText(long key) {
+        return keyTexts[entryOf(key)][(int) (key >>> 16) & 0xFF];
+    }
+
+    private int keyLength(long key) {
+        return keyText(key).length() - offsetOf(key);
+    }
+
+    private char keyChar(long key, int i) {
+        return keyText(key).charAt(offsetOf(key) + i);
+    }
+
+    // ===== Trie =====
+
+    private void insertKey(long key) {
+        int entry = entryOf(key);
+        Node node = root;
+        int depth = 0;
+        while (!node.leaf()) {
+            offer(node.top, entry);
+            if (depth == keyLength(key)) {
+                node.ends.add(key);
+                return;
+            }
+            node = node.childOrCreate(keyChar(key, depth++));
+        }
+        node.keys.add(key);
+        if (node.keys.size > BUCKET_SIZE && depth < MAX_DEPTH) burst(node, depth);
+    }
+
+    private void removeKey(long key) {
+        int entry = entryOf(key);
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int depth = 0;
+        while (node != null) {
+            if (node.leaf()) {
+                node.keys.remove(key);
+                break;
+            }
+            path.add(node);
+            if (depth == keyLength(key)) {
+                node.ends.remove(key);
+                break;
+            }
+            node = node.child(keyChar(key, depth++));
+        }
+        // Chỉ tính lại các nút trên đường đi mà top đang chứa mục này
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node n = path.get(i);
+            if (indexOf(n.top, entry) >= 0) recompute(n);
+        }
+    }
+
+    // Lá vượt BUCKET_SIZE khóa: tách thành nút trong theo ký tự tiếp theo
+    private void burst(Node node, int depth) {
+        LongList keys = node.keys;
+        node.keys = null;
+        node.labels = new char[4];
+        node.children = new Node[4];
+        node.ends = new LongList();
+        node.top = new Top(TOP_K);
+        for (int i = 0; i < keys.size; i++) {
+            long key = keys.items[i];
+            if (keyLength(key) == depth) node.ends.add(key);
+            else node.childOrCreate(keyChar(key, depth)).keys.add(key);
+        }
+        for (int i = 0; i < node.childCount; i++) {
+            Node child = node.children[i];
+            if (child.keys.size > BUCKET_SIZE && depth + 1 < MAX_DEPTH) burst(child, depth + 1);
+        }
+        recompute(node);
+    }
+
+    // Top của nút trong = top của các con + các khóa kết thúc tại nút
+    private void recompute(Node node) {
+        Top top = node.top;
+        top.size = 0;
+        for (int i = 0; i < node.ends.size; i++) offer(top, entryOf(node.ends.items[i]));
+        for (int c = 0; c < node.childCount; c++) {
+            Node child = node.children[c];
+            if (child.leaf()) {
+                for (int i = 0; i < child.keys.size; i++) offer(top, entryOf(child.keys.items[i]));
+            } else {
+                for (int i = 0; i < child.top.size; i++) offer(top, child.top.items[i]);
+            }
+        }
+    }
+
+    // Thêm / sắp lại 1 mục trong top (1 mục có nhiều khóa trong cùng nhánh chỉ xuất hiện 1 lần)
+    private void offer(Top top, int entry) {
+        int[] items = top.items;
+        int pos = indexOf(top, entry);
+        if (pos < 0) {
+            if (top.size == items.length) {
+                if (!better(entry, items[top.size - 1])) return;
+                pos = top.size - 1;
+            } else {
+                pos = top.size++;
+            }
+            items[pos] = entry;
+        }
+        while (pos > 0 && better(items[pos], items[pos - 1])) swap(items, pos, --pos);
+        while (pos < top.size - 1 && better(items[pos + 1], items[pos])) swap(items, pos, ++pos);
+    }
+
+    private static int indexOf(Top top, int entry) {
+        for (int i = 0; i < top.size; i++) {
+            if (top.items[i] == entry) return i;
+        }
+        return -1;
+    }
+
+    private static void swap(int[] items, int a, int b) {
+        int tmp = items[a];
+        items[a] = items[b];
+        items[b] = tmp;
+    }
+
+    // Bán nhiều hơn trước, rồi xem nhiều hơn; bằng nhau thì mục cũ hơn trước (thứ tự ổn định)
+    private boolean better(int a, int b) {
+        if (sold[a] != sold[b]) return sold[a] > sold[b];
+        if (views[a] != views[b]) return views[a] > views[b];
+        return a < b;
+    }
+
+    // ==================== KHỞI ĐỘNG ====================
+
+    /**
+     * Dựng cây gợi ý từ DB khi app sẵn sàng (đọc theo lô keyset, mỗi lô giữ write lock 1 lần)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("SUGGEST INDEX: không dựng được cây gợi ý", e);
+        }
+    }
+
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        while (true) {
+            long afterCreatedAt;
+            String afterId;
+            lock.readLock().lock();
+            try {
+                afterCreatedAt = watermarkCreatedAt;
+                afterId = watermarkId;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            List<ProductSearchDocument> batch = productRepository.findSuggestDocuments(new Date(afterCreatedAt), afterId, LOAD_BATCH);
+            if (batch.isEmpty()) return;
+            lock.writeLock().lock();
+            try {
+                for (ProductSearchDocument doc : batch) addProduct(doc);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (batch.size() < LOAD_BATCH) return;
+        }
+    }
+
+    private void clear() {
+        root = new Node();
+        texts = new String[1024];
+        productIds = new String[1024];
+        skus = new String[1024];
+        keyTexts = new String[1024][];
+        sold = new long[1024];
+        views = new long[1024];
+        brandOf = new int[1024];
+        entryCount = 0;
+        productEntries.clear();
+        brandEntries.clear();
+        watermarkCreatedAt = 0;
+        watermarkId = "";
+    }
+}
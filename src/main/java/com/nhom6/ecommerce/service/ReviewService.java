@@ -2,6 +2,9 @@ package com.nhom6.ecommerce.service;
 
 import com.nhom6.ecommerce.dto.ReviewRequestDTO;
 import com.nhom6.ecommerce.entity.*;
+import com.nhom6.ecommerce.exception.ConflictException;
+import com.nhom6.ecommerce.exception.NotFoundException;
+import com.nhom6.ecommerce.exception.ValidationException;
 import com.nhom6.ecommerce.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -20,6 +23,7 @@ public class ReviewService {
     @Autowired private OrderRepository orderRepository;
     @Autowired private ProductRepository productRepository;
     @Autowired private UserRepository userRepository;
+    @Autowired private StageMetrics stageMetrics;
 
     // Cấu hình validate ảnh
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
@@ -27,32 +31,38 @@ public class ReviewService {
 
     @Transactional
     public Review createReview(ReviewRequestDTO req) {
+        return stageMetrics.record("review", clock -> placeReview(req, clock));
+    }
+
+    private Review placeReview(ReviewRequestDTO req, StageMetrics.StageClock clock) {
         // 1. Validate Product [Erg2]
         Product product = productRepository.findById(req.getProductId())
-                .orElseThrow(() -> new RuntimeException("Erg2: Sản phẩm không tồn tại"));
+                .orElseThrow(() -> new NotFoundException("REVIEW.Erg2", "Erg2: Sản phẩm không tồn tại"));
 
         // 2. Validate User [Erg3]
         User user = userRepository.findById(req.getUserId())
-                .orElseThrow(() -> new RuntimeException("Erg3: Bạn cần đăng nhập để đánh giá sản phẩm"));
+                .orElseThrow(() -> new ValidationException("REVIEW.Erg3", "Erg3: Bạn cần đăng nhập để đánh giá sản phẩm"));
+        clock.lap("lookup");
 
         // 3. CHECK LỊCH SỬ MUA HÀNG (Tách Erg4 và Erg5)
         List<Order> orders = orderRepository.findAllOrdersByProduct(req.getUserId(), req.getProductId());
 
         // [Erg4] Chưa từng mua
         if (orders.isEmpty()) {
-            throw new RuntimeException("Erg4: Chỉ khách hàng đã mua sản phẩm mới có thể đánh giá");
+            throw new ValidationException("REVIEW.Erg4", "Erg4: Chỉ khách hàng đã mua sản phẩm mới có thể đánh giá");
         }
 
         // [Erg5] Đã mua nhưng chưa có đơn nào hoàn tất
         Order completedOrder = orders.stream()
                 .filter(o -> o.getStatus() == Order.OrderStatus.COMPLETED)
                 .findFirst()
-                .orElseThrow(() -> new RuntimeException("Erg5: Bạn chỉ có thể đánh giá sau khi đơn hàng hoàn tất"));
+                .orElseThrow(() -> new ValidationException("REVIEW.Erg5", "Erg5: Bạn chỉ có thể đánh giá sau khi đơn hàng hoàn tất"));
 
         // 4. Validate Duplicate (Tránh spam)
         if (reviewRepository.existsByOrderIdAndProductId(completedOrder.getId(), req.getProductId())) {
-            throw new RuntimeException("Bạn đã đánh giá sản phẩm này cho đơn hàng này rồi.");
+            throw new ConflictException("REVIEW.ALREADY_REVIEWED", "Bạn đã đánh giá sản phẩm này cho đơn hàng này rồi.");
         }
+        clock.lap("purchase_check");
 
         // 5. VALIDATE & UPLOAD ẢNH [Erg9, Erg10]
         List<String> uploadedUrls = new ArrayList<>();
@@ -63,12 +73,12 @@ public class ReviewService {
 
                 // [Erg10] Check dung lượng > 5MB
                 if (file.getSize() > MAX_FILE_SIZE) {
-                    throw new RuntimeException("Erg10: Dung lượng ảnh không vượt quá 5MB (" + file.getOriginalFilename() + ")");
+                    throw new ValidationException("REVIEW.Erg10", "Erg10: Dung lượng ảnh không vượt quá 5MB (" + file.getOriginalFilename() + ")");
                 }
 
                 // [Erg9] Check định dạng
                 if (!ALLOWED_TYPES.contains(file.getContentType())) {
-                    throw new RuntimeException("Erg9: Ảnh phải có định dạng .jpg hoặc .png (" + file.getOriginalFilename() + ")");
+                    throw new ValidationException("REVIEW.Erg9", "Erg9: Ảnh phải có định dạng .jpg hoặc .png (" + file.getOriginalFilename() + ")");
                 }
 
                 // Thực hiện upload (Giả lập)
@@ -76,6 +86,7 @@ public class ReviewService {
                 uploadedUrls.add(url);
             }
         }
+        clock.lap("image_upload");
 
         // 6. Lưu Review
         Review review = new Review();
@@ -86,7 +97,9 @@ public class ReviewService {
         review.setContent(req.getContent());
         review.setImageUrls(uploadedUrls); // Lưu danh sách URL
 
-        return reviewRepository.save(review);
+        Review saved = reviewRepository.save(review);
+        clock.lap("save");
+        return saved;
     }
 
     // Hàm giả lập upload file lên Server/S3
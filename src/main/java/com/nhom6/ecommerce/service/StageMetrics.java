@@ -0,0 +1,118 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.exception.DomainException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * ĐO THỜI GIAN TỪNG BƯỚC CỦA 1 NGHIỆP VỤ (checkout, trả hàng, đánh giá, tạo sản phẩm)
+ * - service.stage{operation, stage}: thời gian mỗi bước (histogram -> p99 theo bước trên Prometheus)
+ * - service.operation{operation, outcome}: tổng thời gian, outcome = success / rejected / error / rollback
+ * - service.rejections{operation, code}: số request bị từ chối theo mã lỗi nghiệp vụ
+ * Nếu đang trong transaction, bước "commit" và tổng thời gian được ghi sau khi commit xong
+ * (INSERT theo lô chỉ thực sự chạy lúc flush/commit).
+ */
+@Component
+public class StageMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> operationTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    public StageMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T record(String operation, Function<StageClock, T> body) {
+        StageClock clock = new StageClock(operation);
+        T result;
+        try {
+            result = body.apply(clock);
+        } catch (DomainException e) {
+            rejections.computeIfAbsent(operation + '|' + e.getCode(), k -> Counter.builder("service.rejections")
+                    .description("Số request bị từ chối theo mã lỗi")
+                    .tag("operation", operation)
+                    .tag("code", e.getCode())
+                    .register(registry)).increment();
+            clock.finish("rejected");
+            throw e;
+        } catch (RuntimeException e) {
+            clock.finish("error");
+            throw e;
+        }
+        clock.complete();
+        return result;
+    }
+
+    private Timer stageTimer(String operation, String stage) {
+        return stageTimers.computeIfAbsent(operation + '|' + stage, k -> Timer.builder("service.stage")
+                .description("Thời gian từng bước của nghiệp vụ")
+                .tag("operation", operation)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    private Timer operationTimer(String operation, String outcome) {
+        return operationTimers.computeIfAbsent(operation + '|' + outcome, k -> Timer.builder("service.operation")
+                .description("Tổng thời gian của nghiệp vụ")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    /**
+     * Đồng hồ của 1 lần gọi: lap(stage) ghi thời gian từ lap trước (hoặc lúc bắt đầu) đến hiện tại
+     */
+    public final class StageClock {
+
+        private final String operation;
+        private final long start;
+        private long last;
+
+        private StageClock(String operation) {
+            this.operation = operation;
+            this.start = System.nanoTime();
+            this.last = start;
+        }
+
+        public void lap(String stage) {
+            long now = System.nanoTime();
+            stageTimer(operation, stage).record(now - last, TimeUnit.NANOSECONDS);
+            last = now;
+        }
+
+        private void complete() {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                finish("success");
+                return;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        lap("commit");
+                        finish("success");
+                    } else {
+                        finish("rollback");
+                    }
+                }
+            });
+        }
+
+        private void finish(String outcome) {
+            operationTimer(operation, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
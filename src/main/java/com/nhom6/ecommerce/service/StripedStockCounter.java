@@ -0,0 +1,124 @@
+package com.nhom6.ecommerce.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Bộ đếm tồn kho chia thành N stripe cho sản phẩm hot.
+ * Mỗi lượt giữ hàng chỉ CAS trên 1 stripe ngẫu nhiên nên các luồng không tranh nhau 1 biến duy nhất.
+ * Khi không stripe nào đủ hàng thì gom toàn bộ lại và chia đều (rebalance) dưới 1 khóa.
+ * Đọc tổng tồn kho (available) không khóa, chỉ đọc lại dưới khóa nếu gặp lúc đang rebalance
+ * (lúc gom, các stripe tạm về 0 -> đọc giữa chừng sẽ tưởng hết hàng).
+ */
+public class StripedStockCounter {
+
+    private final AtomicIntegerArray stripes;
+
+    // Số lượt giữ hàng đang chạy, dùng khi tắt chế độ hot
+    private final LongAdder inFlight = new LongAdder();
+
+    private final StampedLock rebalanceLock = new StampedLock();
+
+    private volatile boolean closed;
+
+    public StripedStockCounter(int stripeCount, int initialStock) {
+        if (stripeCount < 1) throw new IllegalArgumentException("stripeCount phải >= 1");
+        this.stripes = new AtomicIntegerArray(stripeCount);
+        distribute(Math.max(initialStock, 0));
+    }
+
+    /**
+     * Giữ hàng. Trả về false nếu tổng các stripe không đủ số lượng.
+     * Ném IllegalStateException nếu bộ đếm đã đóng (đang tắt chế độ hot).
+     */
+    public boolean tryReserve(int quantity) {
+        inFlight.increment();
+        try {
+            if (closed) throw new IllegalStateException("Sổ kho đã đóng");
+
+            int n = stripes.length();
+            int start = ThreadLocalRandom.current().nextInt(n);
+            for (int k = 0; k < n; k++) {
+                int i = (start + k) % n;
+                int current;
+                while ((current = stripes.get(i)) >= quantity) {
+                    if (stripes.compareAndSet(i, current, current - quantity)) return true;
+                }
+            }
+            return reserveWithRebalance(quantity);
+        } finally {
+            inFlight.decrement();
+        }
+    }
+
+    /**
+     * Trả lại hàng đã giữ (đơn hàng rollback).
+     * Trả về false nếu bộ đếm đã đóng (không còn ai dùng số liệu trong bộ nhớ).
+     */
+    public boolean release(int quantity) {
+        inFlight.increment();
+        try {
+            if (closed) return false;
+            stripes.addAndGet(ThreadLocalRandom.current().nextInt(stripes.length()), quantity);
+            return true;
+        } finally {
+            inFlight.decrement();
+        }
+    }
+
+    public int available() {
+        long stamp = rebalanceLock.tryOptimisticRead();
+        int total = sumStripes();
+        if (rebalanceLock.validate(stamp)) return total;
+
+        // Có rebalance chen giữa lúc đọc -> chờ xong rồi đọc lại
+        stamp = rebalanceLock.readLock();
+        try {
+            return sumStripes();
+        } finally {
+            rebalanceLock.unlockRead(stamp);
+        }
+    }
+
+    public int stripeCount() {
+        return stripes.length();
+    }
+
+    /**
+     * Đóng bộ đếm và chờ các lượt giữ / trả hàng đang chạy kết thúc
+     */
+    public void close() {
+        closed = true;
+        while (inFlight.sum() > 0) Thread.onSpinWait();
+    }
+
+    private boolean reserveWithRebalance(int quantity) {
+        long stamp = rebalanceLock.writeLock();
+        try {
+            int total = 0;
+            for (int i = 0; i < stripes.length(); i++) total += stripes.getAndSet(i, 0);
+
+            boolean reserved = total >= quantity;
+            if (reserved) total -= quantity;
+            distribute(total);
+            return reserved;
+        } finally {
+            rebalanceLock.unlockWrite(stamp);
+        }
+    }
+
+    private int sumStripes() {
+        int total = 0;
+        for (int i = 0; i < stripes.length(); i++) total += stripes.get(i);
+        return total;
+    }
+
+    private void distribute(int total) {
+        int n = stripes.length();
+        int base = total / n;
+        int remainder = total % n;
+        for (int i = 0; i < n; i++) stripes.addAndGet(i, base + (i < remainder ? 1 : 0));
+    }
+}
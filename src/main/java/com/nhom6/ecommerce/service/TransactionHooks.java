@@ -0,0 +1,54 @@
+package com.nhom6.ecommerce.service;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.Savepoint;
+
+/**
+ * Chạy việc cập nhật bộ nhớ (cache, chỉ mục) sau khi transaction hiện tại commit.
+ * Rollback thì bỏ qua; gọi ngoài transaction thì chạy ngay.
+ */
+final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Chạy action trong 1 savepoint JDBC của transaction hiện tại: action ném lỗi thì chỉ rollback phần nó đã ghi
+     * rồi ném tiếp. Hibernate không hỗ trợ savepoint (PROPAGATION_NESTED) nên action chỉ được chạy câu UPDATE / INSERT
+     * trực tiếp, không tạo / sửa entity.
+     */
+    static void inSavepoint(JdbcTemplate jdbcTemplate, Runnable action) {
+        Savepoint savepoint = jdbcTemplate.execute((ConnectionCallback<Savepoint>) Connection::setSavepoint);
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                con.rollback(savepoint);
+                return null;
+            });
+            throw e;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            con.releaseSavepoint(savepoint);
+            return null;
+        });
+    }
+}
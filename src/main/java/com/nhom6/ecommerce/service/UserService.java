@@ -4,13 +4,15 @@ import com.nhom6.ecommerce.dto.UserLoginDTO;
 import com.nhom6.ecommerce.dto.UserProfileDTO;
 import com.nhom6.ecommerce.dto.UserRegistrationDTO;
 import com.nhom6.ecommerce.entity.User;
+import com.nhom6.ecommerce.exception.ConflictException;
+import com.nhom6.ecommerce.exception.NotFoundException;
+import com.nhom6.ecommerce.exception.ValidationException;
 import com.nhom6.ecommerce.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.Optional;
-import java.util.regex.Pattern;
 
 @Service
 public class UserService {
@@ -18,57 +20,57 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private InputValidator inputValidator;
+
     // Trong file UserService.java
     public User getUserById(String id) {
         return userRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy người dùng với ID: " + id));
+                .orElseThrow(() -> new NotFoundException("USER.NOT_FOUND", "Không tìm thấy người dùng với ID: " + id));
     }
 
-    // Regex chuẩn cho email (đơn giản hóa)
-    private static final String EMAIL_REGEX = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$";
-
     public User registerUser(UserRegistrationDTO request) {
         // --- 1. VALIDATE EMAIL ---
         String email = request.getEmail();
         // Ereg1: Không được để trống hoặc toàn khoảng trắng
         if (email == null || email.trim().isEmpty()) {
-            throw new RuntimeException("Ereg1: Tên tài khoản không được để trống");
+            throw new ValidationException("USER.Ereg1", "Ereg1: Tên tài khoản không được để trống");
         }
         // Ereg3: Độ dài không quá 50 ký tự (Check trước format để tối ưu)
         if (email.length() > 50) {
-            throw new RuntimeException("Ereg3: Tên tài khoản không quá 50 ký tự");
+            throw new ValidationException("USER.Ereg3", "Ereg3: Tên tài khoản không quá 50 ký tự");
         }
         // Ereg2: Phải đúng định dạng email
-        if (!Pattern.matches(EMAIL_REGEX, email)) {
-            throw new RuntimeException("Ereg2: Vui lòng nhập đúng định dạng email");
+        if (!inputValidator.isEmail(email)) {
+            throw new ValidationException("USER.Ereg2", "Ereg2: Vui lòng nhập đúng định dạng email");
         }
         // Ereg4: Email đã tồn tại
         if (userRepository.existsByEmail(email)) {
-            throw new RuntimeException("Ereg4: Email đã được sử dụng");
+            throw new ConflictException("USER.Ereg4", "Ereg4: Email đã được sử dụng");
         }
         // --- 2. VALIDATE MẬT KHẨU ---
         String password = request.getPassword();
         String confirmPassword = request.getConfirmPassword();
         // Erg5: Mật khẩu không được để trống
         if (password == null || password.trim().isEmpty()) {
-            throw new RuntimeException("Erg5: Mật khẩu không được để trống hoặc toàn khoảng trắng");
+            throw new ValidationException("USER.Erg5", "Erg5: Mật khẩu không được để trống hoặc toàn khoảng trắng");
         }
         // Erg6: Mật khẩu < 6 ký tự
         if (password.length() < 6) {
-            throw new RuntimeException("Erg6: Mật khẩu phải có ít nhất 6 ký tự");
+            throw new ValidationException("USER.Erg6", "Erg6: Mật khẩu phải có ít nhất 6 ký tự");
         }
         // Erg7: Mật khẩu > 30 ký tự
         if (password.length() > 30) {
-            throw new RuntimeException("Erg7: Mật khẩu không vượt quá 30 ký tự");
+            throw new ValidationException("USER.Erg7", "Erg7: Mật khẩu không vượt quá 30 ký tự");
         }
         // --- 3. VALIDATE XÁC NHẬN MẬT KHẨU ---
         // Erg8: Xác nhận mật khẩu để trống
         if (confirmPassword == null || confirmPassword.trim().isEmpty()) {
-            throw new RuntimeException("Erg8: Vui lòng nhập lại mật khẩu");
+            throw new ValidationException("USER.Erg8", "Erg8: Vui lòng nhập lại mật khẩu");
         }
         // Erg9: Mật khẩu không khớp
         if (!password.equals(confirmPassword)) {
-            throw new RuntimeException("Erg9: Mật khẩu xác nhận không khớp");
+            throw new ValidationException("USER.Erg9", "Erg9: Mật khẩu xác nhận không khớp");
         }
         // --- 4. TẠO USER MỚI (KHỞI TẠO ĐẦY ĐỦ GIÁ TRỊ MẶC ĐỊNH) ---
         User newUser = new User();
@@ -89,16 +91,19 @@ public class UserService {
 
     public User login(UserLoginDTO loginDTO) {
         Optional<User> userOpt = userRepository.findByEmail(loginDTO.getEmail());
-        if (userOpt.isEmpty()) throw new RuntimeException("Tài khoản không tồn tại");
+        if (userOpt.isEmpty()) throw new ValidationException("USER.ACCOUNT_NOT_FOUND", "Tài khoản không tồn tại");
         User user = userOpt.get();
-        if (!user.getPassword().equals(loginDTO.getPassword())) throw new RuntimeException("Mật khẩu không chính xác");
-        if (!user.isActive()) throw new RuntimeException("Tài khoản đã bị khóa");
+        if (!user.getPassword().equals(loginDTO.getPassword())) throw new ValidationException("USER.WRONG_PASSWORD", "Mật khẩu không chính xác");
+        if (!user.isActive()) throw new ValidationException("USER.ACCOUNT_LOCKED", "Tài khoản đã bị khóa");
         return user;
     }
 
     public User updateProfile(UserProfileDTO dto) {
+        if (dto.getUserId() == null || dto.getUserId().isBlank()) {
+            throw new ValidationException("USER.ID_REQUIRED", "Thiếu mã người dùng.");
+        }
         User user = userRepository.findById(dto.getUserId())
-                .orElseThrow(() -> new RuntimeException("Người dùng không tồn tại"));
+                .orElseThrow(() -> new NotFoundException("USER.NOT_FOUND", "Người dùng không tồn tại"));
         user.setFullName(dto.getFullName());
         user.setPhone(dto.getPhone());
         user.setAddress(dto.getAddress());
@@ -108,8 +113,19 @@ public class UserService {
     }
 
     public void accumulatePoints(String userId, BigDecimal orderTotal) {
+        addPoints(userId, calculatePoints(orderTotal));
+    }
+
+    // 10.000đ = 1 điểm
+    public static int calculatePoints(BigDecimal orderTotal) {
+        return orderTotal.divide(BigDecimal.valueOf(10000)).intValue();
+    }
+
+    /**
+     * Cộng điểm (có thể là tổng của nhiều đơn hàng) và tính lại hạng thành viên
+     */
+    public void addPoints(String userId, int pointsEarned) {
         User user = userRepository.findById(userId).orElseThrow();
-        int pointsEarned = orderTotal.divide(BigDecimal.valueOf(10000)).intValue();
         int newTotalPoints = user.getOrderPoints() + pointsEarned;
         user.setOrderPoints(newTotalPoints);
 
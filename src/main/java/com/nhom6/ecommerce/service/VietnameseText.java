@@ -0,0 +1,58 @@
+package com.nhom6.ecommerce.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chuẩn hóa tiếng Việt cho tìm kiếm: chữ thường, bỏ dấu ("Điện Thoại" -> "dien thoai"),
+ * tách từ theo ký tự không phải chữ/số. Dùng chung cho lúc đánh chỉ mục và lúc truy vấn.
+ */
+public final class VietnameseText {
+
+    private VietnameseText() {
+    }
+
+    /**
+     * Bỏ dấu & chữ thường, giữ nguyên các ký tự khác (khoảng trắng, dấu câu)
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) return "";
+        // NFD tách chữ có dấu thành chữ gốc + dấu (ệ -> e + ̂ + ̣), sau đó bỏ các dấu kết hợp
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            // "đ" không tách được bằng NFD
+            if (c == 'đ' || c == 'Đ') sb.append('d');
+            else sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Các từ (đã bỏ dấu) theo thứ tự xuất hiện, có thể lặp lại
+     */
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean word = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (word && start < 0) start = i;
+            else if (!word && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Các từ (đã bỏ dấu) nối lại bằng 1 khoảng trắng: "Máy lọc nước RO-10" -> "may loc nuoc ro 10"
+     */
+    public static String phrase(String text) {
+        return String.join(" ", tokens(text));
+    }
+}
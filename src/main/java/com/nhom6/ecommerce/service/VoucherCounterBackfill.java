@@ -0,0 +1,67 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.entity.DataMigration;
+import com.nhom6.ecommerce.repository.DataMigrationRepository;
+import com.nhom6.ecommerce.repository.UserOrderStatsRepository;
+import com.nhom6.ecommerce.repository.VoucherUserUsageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * NẠP SỐ LIỆU BAN ĐẦU CHO 2 BẢNG ĐẾM VOUCHER (user_order_stats, voucher_user_usage)
+ * Migration chạy đúng 1 lần, đánh dấu hoàn tất trong bảng data_migrations.
+ * Chạy khi khởi động (sau khi Hibernate cập nhật schema, trước khi nhận request) nên không đơn nào kịp ghi vào
+ * bảng đếm trước khi nạp xong. Dữ liệu cũ trong 2 bảng (nếu có) được tính lại từ bảng orders.
+ * Cờ hoàn tất ghi ngay đầu transaction: server khác khởi động cùng lúc bị chặn ở khóa chính rồi bỏ qua.
+ */
+@Component
+public class VoucherCounterBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(VoucherCounterBackfill.class);
+
+    static final String MIGRATION = "voucher_counters_backfill";
+
+    private final DataMigrationRepository migrationRepository;
+    private final UserOrderStatsRepository userOrderStatsRepository;
+    private final VoucherUserUsageRepository userUsageRepository;
+    private final TransactionTemplate tx;
+
+    // Nhận EntityManagerFactory để chắc chắn chạy sau khi Hibernate đã tạo bảng
+    public VoucherCounterBackfill(DataMigrationRepository migrationRepository,
+                                  UserOrderStatsRepository userOrderStatsRepository,
+                                  VoucherUserUsageRepository userUsageRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  EntityManagerFactory entityManagerFactory) {
+        this.migrationRepository = migrationRepository;
+        this.userOrderStatsRepository = userOrderStatsRepository;
+        this.userUsageRepository = userUsageRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void backfill() {
+        if (migrationRepository.existsById(MIGRATION)) return;
+
+        try {
+            tx.executeWithoutResult(status -> {
+                DataMigration migration = new DataMigration();
+                migration.setName(MIGRATION);
+                migrationRepository.saveAndFlush(migration);
+
+                userOrderStatsRepository.deleteAllInBatch();
+                userUsageRepository.deleteAllInBatch();
+                int users = userOrderStatsRepository.backfillFromOrders();
+                int usages = userUsageRepository.backfillFromOrders();
+                log.info("VOUCHER USAGE: nạp user_order_stats cho {} user, voucher_user_usage {} dòng", users, usages);
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.info("VOUCHER USAGE: migration {} đã được server khác chạy", MIGRATION);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.nhom6.ecommerce.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nhom6.ecommerce.entity.Voucher;
+import com.nhom6.ecommerce.repository.VoucherRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * CACHE TRA CỨU VOUCHER THEO MÃ (read-through)
+ * - Giới hạn số lượng & hết hạn theo TTL (nhiều server: dữ liệu cũ tối đa 1 TTL)
+ * - Mã không tồn tại cũng được cache (TTL ngắn hơn) để client dò mã không tốn query
+ * - Xóa entry khi VoucherService lưu voucher; tỉ lệ hit xem ở metric cache.gets{cache=voucher.lookup}
+ * Voucher trả về dùng chung giữa các luồng: chỉ đọc, không sửa. usedCount có thể cũ,
+ * lượt dùng thật luôn được kiểm tra qua VoucherUsageService.
+ * Query DB chạy ngoài khóa của cache (không nạp bên trong compute của map): chạy bằng virtual thread
+ * thì không bị ghim carrier thread trong lúc chờ DB. Các request cùng mã chờ chung 1 lần nạp.
+ */
+@Service
+public class VoucherLookupCache {
+
+    @Autowired private VoucherRepository voucherRepository;
+
+    private final AsyncCache<String, Optional<Voucher>> vouchers;
+
+    public VoucherLookupCache(MeterRegistry meterRegistry,
+                              @Value("${app.voucher-cache.ttl-seconds:60}") long ttlSeconds,
+                              @Value("${app.voucher-cache.negative-ttl-seconds:10}") long negativeTtlSeconds,
+                              @Value("${app.voucher-cache.size:10000}") long size) {
+        long ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        long negativeTtlNanos = Duration.ofSeconds(negativeTtlSeconds).toNanos();
+
+        this.vouchers = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfter(new Expiry<String, Optional<Voucher>>() {
+                    @Override
+                    public long expireAfterCreate(String code, Optional<Voucher> value, long currentTime) {
+                        return value.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String code, Optional<Voucher> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(code, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String code, Optional<Voucher> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, vouchers.synchronous(), "voucher.lookup");
+    }
+
+    public Optional<Voucher> findByCode(String code) {
+        CompletableFuture<Optional<Voucher>> cached = vouchers.getIfPresent(code);
+        if (cached != null) return await(cached);
+
+        // Request đầu tiên tự nạp trên thread của mình, các request khác chờ kết quả
+        CompletableFuture<Optional<Voucher>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<Voucher>> first = vouchers.asMap().putIfAbsent(code, mine);
+        if (first != null) return await(first);
+
+        try {
+            Optional<Voucher> voucher = voucherRepository.findWithScopeIdsByCode(code);
+            mine.complete(voucher);
+            return voucher;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e); // Cache tự bỏ entry lỗi
+            throw e;
+        }
+    }
+
+    private Optional<Voucher> await(CompletableFuture<Optional<Voucher>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Xóa mã khỏi cache ngay, và xóa lần nữa sau khi transaction commit
+     * (tránh request khác nạp lại dữ liệu cũ trong lúc transaction chưa commit)
+     */
+    public void invalidate(String code) {
+        vouchers.synchronous().invalidate(code);
+        TransactionHooks.afterCommit(() -> vouchers.synchronous().invalidate(code));
+    }
+}
@@ -0,0 +1,34 @@
+package com.nhom6.ecommerce.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nhom6.ecommerce.entity.Voucher;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Cache điều kiện voucher đã biên dịch, theo mã voucher.
+ * VoucherService xóa entry khi voucher được lưu.
+ */
+@Component
+public class VoucherRuleCache {
+
+    private final Cache<String, CompiledVoucher> rules = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    public CompiledVoucher get(Voucher voucher) {
+        CompiledVoucher rule = rules.get(voucher.getCode(), code -> CompiledVoucher.compile(voucher));
+        // Mã bị xóa rồi tạo lại (id khác) -> biên dịch lại
+        if (!Objects.equals(rule.getId(), voucher.getId())) {
+            rule = CompiledVoucher.compile(voucher);
+            rules.put(voucher.getCode(), rule);
+        }
+        return rule;
+    }
+
+    public void evict(String code) {
+        rules.invalidate(code);
+    }
+}
@@ -3,6 +3,8 @@ package com.nhom6.ecommerce.service;
 import com.nhom6.ecommerce.dto.VoucherRequestDTO;
 import com.nhom6.ecommerce.entity.Product;
 import com.nhom6.ecommerce.entity.Voucher;
+import com.nhom6.ecommerce.exception.ConflictException;
+import com.nhom6.ecommerce.exception.ValidationException;
 import com.nhom6.ecommerce.repository.CategoryRepository;
 import com.nhom6.ecommerce.repository.ProductRepository;
 import com.nhom6.ecommerce.repository.VoucherRepository;
@@ -14,7 +16,6 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.regex.Pattern;
 
 @Service
 public class VoucherService {
@@ -22,6 +23,11 @@ public class VoucherService {
     @Autowired private VoucherRepository voucherRepository;
     @Autowired private ProductRepository productRepository;
     @Autowired private CategoryRepository categoryRepository;
+    @Autowired private VoucherUsageService voucherUsageService;
+    @Autowired private VoucherRuleCache voucherRuleCache;
+    @Autowired private VoucherLookupCache voucherLookupCache;
+    @Autowired private ActiveVoucherIndex activeVoucherIndex;
+    @Autowired private InputValidator inputValidator;
 
     /**
      * HÀM CHÍNH: TẠO VOUCHER
@@ -55,13 +61,13 @@ public class VoucherService {
      */
     private void validateCode(String code) {
         if (code.contains(" ") || code.contains("--")) {
-            throw new RuntimeException("1E.4: Mã voucher không được chứa khoảng trắng hoặc '--'.");
+            throw new ValidationException("VOUCHER.1E.4", "1E.4: Mã voucher không được chứa khoảng trắng hoặc '--'.");
         }
         if (voucherRepository.existsByCode(code)) {
-            throw new RuntimeException("1E.5: Mã voucher đã tồn tại.");
+            throw new ConflictException("VOUCHER.1E.5", "1E.5: Mã voucher đã tồn tại.");
         }
         if (code.startsWith("MKT") || code.startsWith("FLS") || code.startsWith("VNPAY")) {
-            throw new RuntimeException("1E.6: Mã voucher xung đột với chương trình khác.");
+            throw new ValidationException("VOUCHER.1E.6", "1E.6: Mã voucher xung đột với chương trình khác.");
         }
     }
 
@@ -69,11 +75,11 @@ public class VoucherService {
      * 2. Validate Tên Voucher (Name)
      */
     private void validateName(String name) {
-        if (Pattern.matches("^[0-9]+$", name)) {
-            throw new RuntimeException("2E.4: Tên voucher không được chỉ gồm số.");
+        if (inputValidator.isDigits(name, 1, Integer.MAX_VALUE)) {
+            throw new ValidationException("VOUCHER.2E.4", "2E.4: Tên voucher không được chỉ gồm số.");
         }
-        if (name.matches(".*[<>/'\"{}].*") || containsEmoji(name)) {
-            throw new RuntimeException("2E.3: Tên voucher chứa ký tự không hợp lệ.");
+        if (inputValidator.containsMarkupChars(name) || inputValidator.containsEmoji(name)) {
+            throw new ValidationException("VOUCHER.2E.3", "2E.3: Tên voucher chứa ký tự không hợp lệ.");
         }
     }
 
@@ -84,7 +90,7 @@ public class VoucherService {
         // [3E.3] Check vận chuyển
         if (req.getDiscountType() == Voucher.DiscountType.SHIPPING) {
             boolean shippingServiceSupport = true; // Giả lập
-            if (!shippingServiceSupport) throw new RuntimeException("3E.3: Loại giảm giá vận chuyển không khả dụng.");
+            if (!shippingServiceSupport) throw new ValidationException("VOUCHER.3E.3", "3E.3: Loại giảm giá vận chuyển không khả dụng.");
         }
 
         BigDecimal val = req.getDiscountValue();
@@ -92,22 +98,22 @@ public class VoucherService {
         // [4E.1] Check Phần trăm
         if (req.getDiscountType() == Voucher.DiscountType.PERCENTAGE) {
             if (val.compareTo(BigDecimal.ONE) < 0 || val.compareTo(BigDecimal.valueOf(100)) > 0) {
-                throw new RuntimeException("4E.1: Giá trị phần trăm phải từ 1 đến 100%.");
+                throw new ValidationException("VOUCHER.4E.1", "4E.1: Giá trị phần trăm phải từ 1 đến 100%.");
             }
         }
         // [4E.3 - 4E.5] Check Số tiền cố định
         else if (req.getDiscountType() == Voucher.DiscountType.FIXED_AMOUNT) {
             if (val.compareTo(BigDecimal.valueOf(1000)) < 0) {
-                throw new RuntimeException("4E.3: Giá trị giảm tối thiểu là 1.000đ.");
+                throw new ValidationException("VOUCHER.4E.3", "4E.3: Giá trị giảm tối thiểu là 1.000đ.");
             }
             if (val.compareTo(BigDecimal.valueOf(10000000)) > 0) {
-                throw new RuntimeException("4E.4: Giá trị giảm tối đa là 10.000.000đ.");
+                throw new ValidationException("VOUCHER.4E.4", "4E.4: Giá trị giảm tối đa là 10.000.000đ.");
             }
             if (val.compareTo(req.getMinOrderValue()) > 0) {
-                throw new RuntimeException("4E.5: Giá trị giảm không được lớn hơn giá trị tối thiểu đơn hàng.");
+                throw new ValidationException("VOUCHER.4E.5", "4E.5: Giá trị giảm không được lớn hơn giá trị tối thiểu đơn hàng.");
             }
             if (val.stripTrailingZeros().scale() > 0) {
-                throw new RuntimeException("Giá trị giảm phải là số nguyên, không được lẻ thập phân.");
+                throw new ValidationException("VOUCHER.DISCOUNT_NOT_INTEGER", "Giá trị giảm phải là số nguyên, không được lẻ thập phân.");
             }
         }
     }
@@ -118,13 +124,13 @@ public class VoucherService {
     private void validateTime(LocalDateTime startAt, LocalDateTime endAt) {
         LocalDateTime now = LocalDateTime.now();
         if (startAt.isBefore(now.minusSeconds(60))) {
-            throw new RuntimeException("6E.1: Ngày bắt đầu không hợp lệ (Quá khứ).");
+            throw new ValidationException("VOUCHER.6E.1", "6E.1: Ngày bắt đầu không hợp lệ (Quá khứ).");
         }
         if (!endAt.isAfter(startAt)) {
-            throw new RuntimeException("6E.2: Ngày kết thúc phải lớn hơn ngày bắt đầu.");
+            throw new ValidationException("VOUCHER.6E.2", "6E.2: Ngày kết thúc phải lớn hơn ngày bắt đầu.");
         }
         if (ChronoUnit.YEARS.between(startAt, endAt) > 3) {
-            throw new RuntimeException("6E.3: Thời gian áp dụng voucher không vượt quá 3 năm.");
+            throw new ValidationException("VOUCHER.6E.3", "6E.3: Thời gian áp dụng voucher không vượt quá 3 năm.");
         }
     }
 
@@ -135,10 +141,10 @@ public class VoucherService {
         int limitPerUser = req.getUsageLimitPerUser() != null ? req.getUsageLimitPerUser() : 1;
 
         if (limitPerUser > req.getUsageLimit()) {
-            throw new RuntimeException("8E.2: Giới hạn người dùng không được vượt quá tổng số lượng phát hành.");
+            throw new ValidationException("VOUCHER.8E.2", "8E.2: Giới hạn người dùng không được vượt quá tổng số lượng phát hành.");
         }
         if (req.getAudienceType() == Voucher.AudienceType.NEW_USER && limitPerUser != 1) {
-            throw new RuntimeException("8E.3: Voucher cho khách mới chỉ được dùng 1 lần.");
+            throw new ValidationException("VOUCHER.8E.3", "8E.3: Voucher cho khách mới chỉ được dùng 1 lần.");
         }
     }
 
@@ -158,38 +164,38 @@ public class VoucherService {
 
     private void validateCategoryScope(List<String> scopeIds) {
         if (scopeIds == null || scopeIds.isEmpty())
-            throw new RuntimeException("Danh sách danh mục không được để trống.");
+            throw new ValidationException("VOUCHER.EMPTY_CATEGORY_SCOPE", "Danh sách danh mục không được để trống.");
         if (scopeIds.size() > 20)
-            throw new RuntimeException("11E.5: Tối đa 20 danh mục được phép áp dụng.");
+            throw new ValidationException("VOUCHER.11E.5", "11E.5: Tối đa 20 danh mục được phép áp dụng.");
 
         for (String catIdStr : scopeIds) {
             try {
                 Long catId = Long.parseLong(catIdStr);
                 if (!categoryRepository.existsById(catId)) {
-                    throw new RuntimeException("9E.3: Danh mục không tồn tại (ID: " + catId + ")");
+                    throw new ValidationException("VOUCHER.9E.3", "9E.3: Danh mục không tồn tại (ID: " + catId + ")");
                 }
             } catch (NumberFormatException e) {
-                throw new RuntimeException("ID danh mục không hợp lệ (Phải là số): " + catIdStr);
+                throw new ValidationException("VOUCHER.INVALID_CATEGORY_ID", "ID danh mục không hợp lệ (Phải là số): " + catIdStr);
             }
         }
     }
 
     private void validateProductScope(List<String> scopeIds, Voucher.DiscountType type, BigDecimal val) {
         if (scopeIds == null || scopeIds.isEmpty())
-            throw new RuntimeException("Danh sách sản phẩm không được để trống.");
+            throw new ValidationException("VOUCHER.EMPTY_PRODUCT_SCOPE", "Danh sách sản phẩm không được để trống.");
         if (scopeIds.size() > 200)
-            throw new RuntimeException("11E.12: Tối đa 200 sản phẩm được phép áp dụng.");
+            throw new ValidationException("VOUCHER.11E.12", "11E.12: Tối đa 200 sản phẩm được phép áp dụng.");
 
         for (String prodId : scopeIds) {
             Product p = productRepository.findById(prodId)
-                    .orElseThrow(() -> new RuntimeException("9E.5: Sản phẩm không tồn tại (ID: " + prodId + ")"));
+                    .orElseThrow(() -> new ValidationException("VOUCHER.9E.5", "9E.5: Sản phẩm không tồn tại (ID: " + prodId + ")"));
 
             if (!p.isActive())
-                throw new RuntimeException("9E.6: Sản phẩm đã ngừng kinh doanh: " + p.getName());
+                throw new ValidationException("VOUCHER.9E.6", "9E.6: Sản phẩm đã ngừng kinh doanh: " + p.getName());
 
             // Check giá trị giảm so với giá sản phẩm
             if (type == Voucher.DiscountType.FIXED_AMOUNT && val.compareTo(p.getSalePrice()) > 0) {
-                throw new RuntimeException("11E.14: Giá trị giảm (" + val + ") lớn hơn giá bán sản phẩm " + p.getName());
+                throw new ValidationException("VOUCHER.11E.14", "11E.14: Giá trị giảm (" + val + ") lớn hơn giá bán sản phẩm " + p.getName());
             }
         }
     }
@@ -200,7 +206,7 @@ public class VoucherService {
     private void validateAudience(VoucherRequestDTO req) {
         if (req.getAudienceType() == Voucher.AudienceType.MEMBER) {
             if (req.getMemberTierId() == null) {
-                throw new RuntimeException("10E.2: Hạng thành viên không tồn tại.");
+                throw new ValidationException("VOUCHER.10E.2", "10E.2: Hạng thành viên không tồn tại.");
             }
         }
     }
@@ -223,21 +229,17 @@ public class VoucherService {
         voucher.setScopeIds(req.getScopeIds());
         voucher.setAudienceType(req.getAudienceType() != null ? req.getAudienceType() : Voucher.AudienceType.ALL);
         voucher.setMemberTierId(req.getMemberTierId());
+        voucher.setShardCount(req.getShardCount() != null ? req.getShardCount() : 1);
 
         // Mặc định ban đầu
         voucher.setUsedCount(0);
         voucher.setActive(true);
 
-        return voucherRepository.save(voucher);
-    }
-
-    // Helper check Emoji
-    private boolean containsEmoji(String source) {
-        if (source == null) return false;
-        return source.codePoints().anyMatch(
-                c -> (c >= 0x1F600 && c <= 0x1F64F) || // Emoticons
-                        (c >= 0x1F300 && c <= 0x1F5FF) || // Misc Symbols and Pictographs
-                        (c >= 0x1F680 && c <= 0x1F6FF)    // Transport and Map
-        );
+        Voucher saved = voucherRepository.save(voucher);
+        voucherUsageService.createShards(saved);
+        voucherRuleCache.evict(saved.getCode());
+        voucherLookupCache.invalidate(saved.getCode());
+        activeVoucherIndex.refreshAfterCommit();
+        return saved;
     }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.nhom6.ecommerce.service;
+
+import com.nhom6.ecommerce.entity.Voucher;
+import com.nhom6.ecommerce.entity.VoucherUsageShard;
+import com.nhom6.ecommerce.entity.VoucherUserUsage;
+import com.nhom6.ecommerce.repository.UserOrderStatsRepository;
+import com.nhom6.ecommerce.repository.VoucherRepository;
+import com.nhom6.ecommerce.repository.VoucherUsageShardRepository;
+import com.nhom6.ecommerce.repository.VoucherUserUsageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ĐẾM LƯỢT DÙNG VOUCHER
+ * - Mặc định: 1 câu UPDATE có điều kiện trên dòng vouchers (không còn đọc - cộng - ghi đè).
+ * - Voucher lưu lượng cao (shardCount > 1): lượt dùng được chia ra N dòng voucher_usage_shards,
+ *   mỗi lượt chỉ khóa 1 shard ngẫu nhiên. Tổng capacity = usageLimit nên vẫn không phát vượt giới hạn.
+ * - Lượt dùng theo từng user & số đơn của user được đếm sẵn (voucher_user_usage, user_order_stats),
+ *   kiểm tra điều kiện chỉ là 1 lần tra theo khóa chính, không COUNT trên bảng orders
+ *   (số liệu ban đầu nạp từ lịch sử đơn hàng: VoucherCounterBackfill).
+ */
+@Service
+public class VoucherUsageService {
+
+    @Autowired private VoucherRepository voucherRepository;
+    @Autowired private VoucherUsageShardRepository shardRepository;
+    @Autowired private VoucherUserUsageRepository userUsageRepository;
+    @Autowired private UserOrderStatsRepository userOrderStatsRepository;
+
+    /**
+     * Ghi nhận 1 lượt dùng. Trả về false nếu voucher đã hết lượt.
+     * Phải chạy trong transaction của đơn hàng để lượt dùng được hoàn lại khi đơn rollback.
+     */
+    public boolean redeem(Voucher voucher) {
+        if (!isSharded(voucher)) {
+            return voucherRepository.incrementUsage(voucher.getId()) == 1;
+        }
+
+        // Bắt đầu từ 1 shard ngẫu nhiên, shard đầy thì thử lần lượt các shard còn lại
+        int n = voucher.getShardCount();
+        int start = ThreadLocalRandom.current().nextInt(n);
+        for (int k = 0; k < n; k++) {
+            if (shardRepository.incrementUsage(voucher.getId(), (start + k) % n) == 1) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Số lần user đã dùng voucher
+     */
+    public int usesByUser(String userId, Long voucherId) {
+        return userUsageRepository.findUses(userId, voucherId).orElse(0);
+    }
+
+    /**
+     * Số lần user đã dùng từng voucher (voucherId -> số lần)
+     */
+    public Map<Long, Integer> usesByUser(String userId) {
+        Map<Long, Integer> result = new HashMap<>();
+        for (VoucherUserUsage usage : userUsageRepository.findByUserId(userId)) {
+            result.put(usage.getVoucherId(), usage.getUses());
+        }
+        return result;
+    }
+
+    /**
+     * Ghi nhận 1 lượt dùng của user, trả về tổng số lần user đã dùng (tính cả lượt này).
+     * Câu upsert khóa dòng (user, voucher) nên 2 đơn song song của cùng user đọc được số chính xác.
+     */
+    public int recordUserUse(String userId, Long voucherId) {
+        userUsageRepository.recordUse(userId, voucherId);
+        return usesByUser(userId, voucherId);
+    }
+
+    /**
+     * Tổng số đơn hàng user đã đặt
+     */
+    public long orderCount(String userId) {
+        return userOrderStatsRepository.findOrderCount(userId).orElse(0L);
+    }
+
+    public void recordOrder(String userId) {
+        userOrderStatsRepository.incrementOrderCount(userId);
+    }
+
+    // Nhập đơn theo lô: cộng nhiều đơn của 1 user trong 1 câu lệnh
+    public void recordOrders(String userId, int count) {
+        userOrderStatsRepository.addOrderCount(userId, count);
+    }
+
+    /**
+     * Tạo các shard cho voucher mới, chia đều usageLimit (usageLimit <= 0: không giới hạn)
+     */
+    public void createShards(Voucher voucher) {
+        if (!isSharded(voucher)) return;
+
+        int n = voucher.getShardCount();
+        int limit = voucher.getUsageLimit() != null ? voucher.getUsageLimit() : 0;
+        List<VoucherUsageShard> shards = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            VoucherUsageShard shard = new VoucherUsageShard();
+            shard.setVoucherId(voucher.getId());
+            shard.setShardNo(i);
+            shard.setCapacity(limit > 0 ? limit / n + (i < limit % n ? 1 : 0) : Integer.MAX_VALUE);
+            shard.setUsedCount(0);
+            shards.add(shard);
+        }
+        shardRepository.saveAll(shards);
+    }
+
+    /**
+     * Số lượt đã dùng của từng voucher (voucher có shard thì cộng tổng các shard)
+     */
+    public Map<Long, Integer> usedCounts(List<Voucher> vouchers) {
+        Map<Long, Integer> result = new HashMap<>();
+        List<Long> shardedIds = new ArrayList<>();
+        for (Voucher v : vouchers) {
+            if (isSharded(v)) shardedIds.add(v.getId());
+            else result.put(v.getId(), v.getUsedCount() != null ? v.getUsedCount() : 0);
+        }
+
+        if (!shardedIds.isEmpty()) {
+            for (Long id : shardedIds) result.put(id, 0);
+            for (Object[] row : shardRepository.sumUsedCountByVoucherIds(shardedIds)) {
+                result.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+        }
+        return result;
+    }
+
+    private boolean isSharded(Voucher voucher) {
+        return voucher.getShardCount() != null && voucher.getShardCount() > 1;
+    }
+}
@@ -0,0 +1,103 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.dto.VoucherSuggestionDTO;
+import com.nhom6.ecommerce.entity.OrderItem;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.entity.Voucher;
+import com.nhom6.ecommerce.repository.VoucherRepository;
+import com.nhom6.ecommerce.service.ActiveVoucherIndex;
+import com.nhom6.ecommerce.service.VoucherRuleCache;
+import com.nhom6.ecommerce.service.VoucherUsageService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveVoucherIndexTest {
+
+    @Mock private VoucherRepository voucherRepository;
+    @Mock private VoucherUsageService voucherUsageService;
+    @Spy private VoucherRuleCache voucherRuleCache = new VoucherRuleCache();
+
+    @InjectMocks
+    private ActiveVoucherIndex index;
+
+    @Test
+    @DisplayName("Xếp hạng theo số tiền giảm, bỏ voucher hết lượt / hết lượt của user / sai phạm vi")
+    void bestFor_ranksApplicableVouchers() {
+        Voucher fixed = voucher(1L, "FIX50K", Voucher.DiscountType.FIXED_AMOUNT, "50000");
+        Voucher percent = voucher(2L, "PER10", Voucher.DiscountType.PERCENTAGE, "10");
+        Voucher soldOut = voucher(3L, "SOLDOUT", Voucher.DiscountType.FIXED_AMOUNT, "90000");
+        Voucher usedByUser = voucher(4L, "ONCE", Voucher.DiscountType.FIXED_AMOUNT, "80000");
+        Voucher otherProduct = voucher(5L, "OTHER", Voucher.DiscountType.FIXED_AMOUNT, "70000");
+        otherProduct.setScope(Voucher.ScopeType.PRODUCT);
+        otherProduct.setScopeIds(List.of("P999"));
+
+        when(voucherRepository.findActiveWithScopeIds(any()))
+                .thenReturn(List.of(fixed, percent, soldOut, usedByUser, otherProduct));
+        when(voucherUsageService.usedCounts(anyList())).thenReturn(Map.of(1L, 0, 2L, 5, 3L, 100, 4L, 0, 5L, 0));
+        when(voucherUsageService.usesByUser("U1")).thenReturn(Map.of(4L, 1));
+        index.refresh();
+
+        List<VoucherSuggestionDTO> result = index.bestFor("U1", new BigDecimal("300000"), cart("P1"));
+
+        assertEquals(List.of("FIX50K", "PER10"), result.stream().map(VoucherSuggestionDTO::getCode).toList());
+        assertEquals(0, new BigDecimal("30000").compareTo(result.get(1).getDiscountAmount()));
+        assertEquals(0, new BigDecimal("250000").compareTo(result.get(0).getFinalTotal()));
+    }
+
+    @Test
+    @DisplayName("Khách cũ -> Không gợi ý voucher NEW_USER")
+    void bestFor_skipsNewUserVoucherForReturningCustomer() {
+        Voucher newUser = voucher(1L, "WELCOME", Voucher.DiscountType.FIXED_AMOUNT, "20000");
+        newUser.setAudienceType(Voucher.AudienceType.NEW_USER);
+
+        when(voucherRepository.findActiveWithScopeIds(any())).thenReturn(List.of(newUser));
+        when(voucherUsageService.usedCounts(anyList())).thenReturn(Map.of(1L, 0));
+        when(voucherUsageService.orderCount("U1")).thenReturn(3L);
+        index.refresh();
+
+        assertTrue(index.bestFor("U1", new BigDecimal("300000"), cart("P1")).isEmpty());
+    }
+
+    private Voucher voucher(Long id, String code, Voucher.DiscountType type, String value) {
+        Voucher v = new Voucher();
+        v.setId(id);
+        v.setCode(code);
+        v.setName(code);
+        v.setDiscountType(type);
+        v.setDiscountValue(new BigDecimal(value));
+        v.setMinOrderValue(new BigDecimal("100000"));
+        v.setStartAt(LocalDateTime.now().minusDays(1));
+        v.setEndAt(LocalDateTime.now().plusDays(1));
+        v.setUsageLimit(100);
+        v.setUsageLimitPerUser(1);
+        v.setScope(Voucher.ScopeType.GLOBAL);
+        v.setAudienceType(Voucher.AudienceType.ALL);
+        return v;
+    }
+
+    private List<OrderItem> cart(String productId) {
+        Product p = new Product();
+        p.setId(productId);
+        p.setCategories(Collections.emptySet());
+        OrderItem item = new OrderItem();
+        item.setProduct(p);
+        return List.of(item);
+    }
+}
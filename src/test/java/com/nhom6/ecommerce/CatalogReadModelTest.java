@@ -0,0 +1,116 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.dto.ProductCardView;
+import com.nhom6.ecommerce.dto.ProductPageDTO;
+import com.nhom6.ecommerce.service.CatalogReadModel;
+import com.nhom6.ecommerce.service.ProductCatalogService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.IContext;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CatalogReadModelTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ProductCatalogService catalogService = mock(ProductCatalogService.class);
+    private final ITemplateEngine templateEngine = mock(ITemplateEngine.class);
+    private final AtomicInteger version = new AtomicInteger();
+    private CatalogReadModel readModel;
+
+    @BeforeEach
+    void setUp() {
+        readModel = new CatalogReadModel(registry, 100, 60_000, 600_000);
+        ReflectionTestUtils.setField(readModel, "productCatalogService", catalogService);
+        ReflectionTestUtils.setField(readModel, "templateEngine", templateEngine);
+
+        // Mỗi lần nạp trả về "phiên bản" mới để phân biệt bản cũ / bản mới
+        when(catalogService.shopPage(isNull(), anyInt())).thenAnswer(inv -> {
+            version.incrementAndGet();
+            return new ProductPageDTO(List.of(card("P1"), card("P2")), null);
+        });
+        when(templateEngine.process(eq("fragments/product-grid"), anySet(), any(IContext.class)))
+                .thenAnswer(inv -> "<div>v" + version.get() + "</div>");
+    }
+
+    @Test
+    @DisplayName("Request lặp lại cùng trang -> chỉ nạp & render 1 lần")
+    void repeatedHits_servedFromMemory() {
+        for (int i = 0; i < 5; i++) assertEquals("<div>v1</div>", readModel.shopPage(null, 24).gridHtml());
+
+        verify(catalogService, times(1)).shopPage(null, 24);
+        assertEquals(4.0, registry.get("cache.gets").tag("cache", "catalog.page").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Checkout trừ kho sản phẩm trên trang -> vẫn trả bản cũ cho tới khi nạp lại nền")
+    void stockChange_staleWhileRevalidate() {
+        readModel.shopPage(null, 24);
+
+        readModel.stockChanged(Set.of("P2"));
+        assertEquals("<div>v1</div>", readModel.shopPage(null, 24).gridHtml());
+        assertEquals(1, registry.get("catalog.cache.staleness").timer().count());
+        assertEquals(1.0, registry.get("catalog.cache.stale.pages").gauge().value());
+
+        readModel.revalidate();
+        assertEquals("<div>v2</div>", readModel.shopPage(null, 24).gridHtml());
+        assertEquals(0.0, registry.get("catalog.cache.stale.pages").gauge().value());
+        assertEquals(1, registry.get("catalog.cache.staleness").timer().count());
+    }
+
+    @Test
+    @DisplayName("Sản phẩm không nằm trên trang nào đang cache -> không nạp lại")
+    void stockChange_otherProduct_keepsPage() {
+        readModel.shopPage(null, 24);
+
+        readModel.stockChanged(Set.of("P999"));
+        readModel.revalidate();
+
+        assertEquals("<div>v1</div>", readModel.shopPage(null, 24).gridHtml());
+        verify(catalogService, times(1)).shopPage(null, 24);
+    }
+
+    @Test
+    @DisplayName("Con trỏ sai định dạng, size vượt giới hạn -> Dùng chung entry của trang thật sẽ trả về")
+    void invalidCursorAndOversizedPage_shareCanonicalEntry() {
+        readModel.shopPage(null, 24);
+        readModel.shopPage("khong-phai-con-tro", 24);
+        readModel.shopPage("abc_P1", 24);
+        readModel.shopPage(null, 500);
+        readModel.shopPage(null, ProductCatalogService.MAX_PAGE_SIZE);
+
+        verify(catalogService, times(1)).shopPage(null, 24);
+        verify(catalogService, times(1)).shopPage(null, ProductCatalogService.MAX_PAGE_SIZE);
+        verifyNoMoreInteractions(catalogService);
+    }
+
+    @Test
+    @DisplayName("Tạo sản phẩm mới -> mọi trang đang cache được nạp lại")
+    void productCreated_revalidatesAllPages() {
+        readModel.shopPage(null, 24);
+        readModel.shopPage(null, 48);
+
+        readModel.productCreated();
+        readModel.revalidate();
+
+        verify(catalogService, times(2)).shopPage(null, 24);
+        verify(catalogService, times(2)).shopPage(null, 48);
+    }
+
+    private static ProductCardView card(String id) {
+        return new ProductCardView(id, "SKU-" + id, "Sản phẩm " + id, "/img.jpg", BigDecimal.TEN, 5, "Sony", new Date());
+    }
+}
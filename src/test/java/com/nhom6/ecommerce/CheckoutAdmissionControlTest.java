@@ -0,0 +1,170 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.dto.CartItemDTO;
+import com.nhom6.ecommerce.exception.TooManyRequestsException;
+import com.nhom6.ecommerce.exception.ValidationException;
+import com.nhom6.ecommerce.service.CheckoutAdmissionControl;
+import com.nhom6.ecommerce.service.HotStockLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutAdmissionControlTest {
+
+    @Mock private HotStockLedger hotStockLedger;
+
+    private SimpleMeterRegistry registry;
+    private CheckoutAdmissionControl admission;
+    private List<CartItemDTO> cart;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        // 1 checkout chạy đồng thời, không cho xếp hàng
+        admission = new CheckoutAdmissionControl(hotStockLedger, registry, 1, 0, 10, 50, 3);
+        cart = cart("HOT1");
+    }
+
+    private static List<CartItemDTO> cart(String productId) {
+        CartItemDTO item = new CartItemDTO();
+        item.setProductId(productId);
+        item.setQuantity(1);
+        return List.of(item);
+    }
+
+    // Chạy 1 checkout giữ chỗ trong cổng tới khi finish được mở
+    private static Future<String> occupy(ExecutorService pool, CheckoutAdmissionControl admission, List<CartItemDTO> cart,
+                                         CountDownLatch finish) throws InterruptedException {
+        CountDownLatch inside = new CountDownLatch(1);
+        Future<String> f = pool.submit(() -> admission.admit(cart, () -> {
+            inside.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "OK";
+        }));
+        assertTrue(inside.await(5, TimeUnit.SECONDS));
+        return f;
+    }
+
+    @Test
+    @DisplayName("Cổng đã đầy, không còn chỗ chờ -> Từ chối ngay với Retry-After")
+    void gateFull_rejectsWithRetryAfter() throws Exception {
+        when(hotStockLedger.isHot("HOT1")).thenReturn(true);
+        when(hotStockLedger.availableStock(anyString(), anyInt())).thenReturn(100);
+
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<String> first = pool.submit(() -> admission.admit(cart, () -> {
+            inside.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "OK";
+        }));
+        assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class,
+                () -> admission.admit(cart, () -> "KHÔNG ĐƯỢC CHẠY"));
+        assertEquals(3, ex.getRetryAfterSeconds());
+        assertEquals(1.0, registry.get("checkout.admission.rejected").tag("reason", "queue_full").counter().count());
+
+        finish.countDown();
+        assertEquals("OK", first.get(5, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        // Đã trả chỗ -> request sau vào được
+        assertEquals("OK2", admission.admit(cart, () -> "OK2"));
+    }
+
+    @Test
+    @DisplayName("Tổng số request chờ ở mọi cổng đã chạm trần -> Từ chối dù hàng chờ của sản phẩm còn chỗ")
+    void totalQueueFull_rejectsAcrossGates() throws Exception {
+        when(hotStockLedger.isHot(anyString())).thenReturn(true);
+        when(hotStockLedger.availableStock(anyString(), anyInt())).thenReturn(100);
+        // Mỗi sản phẩm 1 checkout chạy + tối đa 5 chờ, nhưng cả server chỉ cho 1 request chờ
+        registry = new SimpleMeterRegistry();
+        CheckoutAdmissionControl limited = new CheckoutAdmissionControl(hotStockLedger, registry, 1, 5, 1, 5000, 3);
+
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        Future<String> hot1 = occupy(pool, limited, cart("HOT1"), finish);
+        Future<String> hot2 = occupy(pool, limited, cart("HOT2"), finish);
+        Future<String> waiter = pool.submit(() -> limited.admit(cart("HOT1"), () -> "WAITED"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("checkout.admission.queue.total").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertThrows(TooManyRequestsException.class, () -> limited.admit(cart("HOT2"), () -> "KHÔNG ĐƯỢC CHẠY"));
+        assertEquals(1.0, registry.get("checkout.admission.rejected")
+                .tag("product", "HOT2").tag("reason", "queue_full").counter().count());
+
+        finish.countDown();
+        assertEquals("OK", hot1.get(5, TimeUnit.SECONDS));
+        assertEquals("OK", hot2.get(5, TimeUnit.SECONDS));
+        assertEquals("WAITED", waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(0.0, registry.get("checkout.admission.queue.total").gauge().value());
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("Sản phẩm thôi ở chế độ hot -> Xóa cổng và số liệu theo sản phẩm")
+    void hotModeEnded_removesGateAndMeters() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(hotStockLedger).onHotModeEnded(listener.capture());
+        when(hotStockLedger.isHot("HOT1")).thenReturn(true);
+        when(hotStockLedger.availableStock(anyString(), anyInt())).thenReturn(100);
+        assertEquals("OK", admission.admit(cart, () -> "OK"));
+        assertFalse(registry.find("checkout.admission.wait").tag("product", "HOT1").timers().isEmpty());
+
+        listener.getValue().accept("HOT1");
+
+        assertTrue(registry.find("checkout.admission.wait").tag("product", "HOT1").timers().isEmpty());
+        assertTrue(registry.find("checkout.admission.rejected").tag("product", "HOT1").counters().isEmpty());
+        assertTrue(registry.find("checkout.admission.queue").tag("product", "HOT1").gauges().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Sổ kho hot đã hết hàng -> Từ chối trước khi xếp hàng")
+    void soldOut_rejectsImmediately() {
+        when(hotStockLedger.isHot("HOT1")).thenReturn(true);
+        when(hotStockLedger.availableStock(anyString(), anyInt())).thenReturn(0);
+
+        assertThrows(ValidationException.class, () -> admission.admit(cart, () -> "KHÔNG ĐƯỢC CHẠY"));
+    }
+
+    @Test
+    @DisplayName("Giỏ không có sản phẩm hot -> Đi thẳng, không qua cổng")
+    void nonHotCart_bypassesGate() {
+        when(hotStockLedger.isHot("HOT1")).thenReturn(false);
+
+        assertEquals("OK", admission.admit(cart, () -> "OK"));
+        assertTrue(registry.find("checkout.admission.wait").timers().isEmpty());
+    }
+}
@@ -0,0 +1,109 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.dto.CartItemDTO;
+import com.nhom6.ecommerce.dto.OrderRequestDTO;
+import com.nhom6.ecommerce.entity.IdempotencyKey;
+import com.nhom6.ecommerce.entity.Order;
+import com.nhom6.ecommerce.exception.ConflictException;
+import com.nhom6.ecommerce.repository.IdempotencyKeyRepository;
+import com.nhom6.ecommerce.repository.OrderRepository;
+import com.nhom6.ecommerce.service.CheckoutAdmissionControl;
+import com.nhom6.ecommerce.service.CheckoutIdempotencyService;
+import com.nhom6.ecommerce.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutIdempotencyServiceTest {
+
+    @Mock private OrderService orderService;
+    @Mock private OrderRepository orderRepository;
+    @Mock private IdempotencyKeyRepository idempotencyKeyRepository;
+    @Mock private CheckoutAdmissionControl admissionControl;
+
+    private CheckoutIdempotencyService service;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        service = new CheckoutIdempotencyService(24, 100);
+        ReflectionTestUtils.setField(service, "orderService", orderService);
+        ReflectionTestUtils.setField(service, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(service, "idempotencyKeyRepository", idempotencyKeyRepository);
+        ReflectionTestUtils.setField(service, "admissionControl", admissionControl);
+
+        when(admissionControl.admit(anyList(), any())).thenAnswer(a -> ((Supplier<?>) a.getArgument(1)).get());
+        order = new Order();
+        order.setId(7L);
+        when(orderService.createOrder(any(OrderRequestDTO.class), any(IdempotencyKey.class))).thenReturn(order);
+    }
+
+    @Test
+    @DisplayName("Gửi lại đúng request với cùng key -> Trả đơn cũ, không tạo đơn mới")
+    void sameKeySameRequest_returnsStoredOrder() {
+        assertSame(order, service.checkout(request(2, "10000"), "K1"));
+        // Giá gửi dạng khác nhưng cùng giá trị vẫn là cùng request
+        assertSame(order, service.checkout(request(2, "10000.00"), "K1"));
+
+        verify(orderService, times(1)).createOrder(any(OrderRequestDTO.class), any(IdempotencyKey.class));
+    }
+
+    @Test
+    @DisplayName("Dùng lại key cho giỏ hàng khác -> Exception 409, không trả nhầm đơn cũ")
+    void sameKeyDifferentRequest_isRejected() {
+        service.checkout(request(2, "10000"), "K1");
+
+        ConflictException e = assertThrows(ConflictException.class, () -> service.checkout(request(5, "10000"), "K1"));
+        assertEquals("CHECKOUT.IDEMPOTENCY_KEY_REUSED", e.getCode());
+        verify(orderService, times(1)).createOrder(any(OrderRequestDTO.class), any(IdempotencyKey.class));
+    }
+
+    @Test
+    @DisplayName("Key đã lưu trong DB (server khác tạo) với request khác -> Exception 409")
+    void storedKeyDifferentRequest_isRejected() {
+        ArgumentCaptor<IdempotencyKey> saved = ArgumentCaptor.forClass(IdempotencyKey.class);
+        service.checkout(request(2, "10000"), "K1");
+        verify(orderService).createOrder(any(OrderRequestDTO.class), saved.capture());
+        saved.getValue().setOrderId(order.getId());
+
+        // Server khác: cache trống, chỉ có dòng idempotency_keys
+        CheckoutIdempotencyService other = new CheckoutIdempotencyService(24, 100);
+        ReflectionTestUtils.setField(other, "idempotencyKeyRepository", idempotencyKeyRepository);
+        ReflectionTestUtils.setField(other, "orderRepository", orderRepository);
+        when(idempotencyKeyRepository.findById("U1:K1")).thenReturn(Optional.of(saved.getValue()));
+
+        assertThrows(ConflictException.class, () -> other.checkout(request(1, "10000"), "K1"));
+    }
+
+    private OrderRequestDTO request(int quantity, String clientPrice) {
+        CartItemDTO item = new CartItemDTO();
+        item.setProductId("P1");
+        item.setQuantity(quantity);
+        item.setClientPrice(new BigDecimal(clientPrice));
+
+        OrderRequestDTO req = new OrderRequestDTO();
+        req.setUserId("U1");
+        req.setRecipientName("Nguyễn Văn An");
+        req.setPhone("0912345678");
+        req.setAddress("12 Nguyễn Trãi, Thanh Xuân, Hà Nội");
+        req.setPaymentMethod(Order.PaymentMethod.COD);
+        req.setItems(List.of(item));
+        return req;
+    }
+}
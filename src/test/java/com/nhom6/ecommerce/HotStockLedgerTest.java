@@ -0,0 +1,201 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.entity.HotProduct;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.exception.ConflictException;
+import com.nhom6.ecommerce.repository.HotProductRepository;
+import com.nhom6.ecommerce.repository.HotStockSaleRepository;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import com.nhom6.ecommerce.service.HotStockLedger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sổ kho hot trên DB nhúng (H2): bật / tắt, ghi dồn nhật ký bán, lease 1 server và đối soát sau sự cố
+ */
+// Tắt flush định kỳ của sổ kho trong context: test tự gọi flush(), tránh nó nhận lại lease trước server thứ 2
+@DataJpaTest(properties = "app.hot-stock.flush-interval-ms=3600000")
+@Import(HotStockLedger.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Sổ kho tự mở transaction như khi chạy thật
+class HotStockLedgerTest {
+
+    private static final int INITIAL_STOCK = 100;
+
+    @Autowired private HotStockLedger ledger;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private HotProductRepository hotProductRepository;
+    @Autowired private HotStockSaleRepository saleRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate tx;
+    private String productId;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        // Brand dùng id String + IDENTITY nên Hibernate không tạo được bảng trên H2 -> tạo tay
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS brands (id VARCHAR(255) NOT NULL PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL UNIQUE, description VARCHAR(255))");
+
+        Product product = new Product();
+        product.setSku("HOT-001");
+        product.setName("Sản phẩm Flash Sale");
+        product.setSalePrice(new BigDecimal("99000"));
+        product.setStockQuantity(INITIAL_STOCK);
+        productId = productRepository.save(product).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledger.shutdown();
+        saleRepository.deleteAllInBatch();
+        hotProductRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Bật chế độ hot -> Nạp tồn kho DB vào sổ kho, câu giữ hàng trên DB bị chặn")
+    void enable_loadsStockAndBlocksDbReservations() {
+        ledger.enable(productId, 4);
+
+        assertTrue(ledger.isHot(productId));
+        assertEquals(INITIAL_STOCK, ledger.availableStock(productId, 0));
+        assertTrue(productRepository.findById(productId).orElseThrow().isHotStock());
+
+        assertEquals(List.of(productId), productRepository.reserveStockBatch(new TreeMap<>(Map.of(productId, 1))));
+        assertEquals(INITIAL_STOCK, dbStock());
+    }
+
+    @Test
+    @DisplayName("Flush -> Chỉ ghi các lượt bán đã commit, đơn rollback trả lại sổ kho")
+    void flush_writesCommittedSalesOnly() {
+        ledger.enable(productId, 4);
+
+        assertTrue(checkout(3, true));
+        assertTrue(checkout(2, false));
+        assertEquals(INITIAL_STOCK - 3, ledger.availableStock(productId, 0));
+        assertEquals(INITIAL_STOCK, dbStock()); // Chưa flush
+
+        ledger.flush();
+        assertEquals(INITIAL_STOCK - 3, dbStock());
+        assertEquals(0, saleRepository.count());
+    }
+
+    @Test
+    @DisplayName("Tắt chế độ hot -> Ghi nốt phần đã bán, bỏ cờ, giữ hàng trên DB hoạt động lại")
+    void disable_writesRemainingSalesAndReopensDbPath() {
+        List<String> ended = new ArrayList<>();
+        ledger.onHotModeEnded(ended::add);
+        ledger.enable(productId, 4);
+        assertTrue(checkout(5, true));
+
+        ledger.disable(productId);
+
+        assertFalse(ledger.isHot(productId));
+        assertEquals(List.of(productId), ended); // Cổng checkout của sản phẩm được dọn theo
+        assertEquals(0, hotProductRepository.count());
+        assertEquals(INITIAL_STOCK - 5, dbStock());
+        assertTrue(productRepository.reserveStockBatch(new TreeMap<>(Map.of(productId, 1))).isEmpty());
+        assertEquals(INITIAL_STOCK - 6, dbStock());
+    }
+
+    @Test
+    @DisplayName("Server giữ sổ kho dừng đột ngột -> Server khác nhận lại sau khi hết lease, đối soát đúng, không trừ 2 lần")
+    void crashRecovery_reconcilesExactlyFromSalesJournal() {
+        ledger.enable(productId, 4);
+        assertTrue(checkout(2, true));
+        ledger.flush();                  // 2 sản phẩm đã ghi xuống DB
+        assertTrue(checkout(3, true));   // 3 sản phẩm chỉ nằm trong nhật ký
+        // Sự cố: không shutdown, lease hết hạn từ lâu
+        HotProduct hot = hotProductRepository.findById(productId).orElseThrow();
+        hot.setLeaseUntil(LocalDateTime.now().minusMinutes(5));
+        hotProductRepository.save(hot);
+
+        HotStockLedger other = newNode();
+        other.loadOnStartup();
+
+        assertTrue(other.isHot(productId));
+        assertEquals(INITIAL_STOCK - 5, other.availableStock(productId, 0));
+        assertEquals(INITIAL_STOCK - 5, dbStock());
+        assertEquals(0, saleRepository.count());
+
+        // Server cũ gia hạn thất bại -> ngừng bán
+        ledger.flush();
+        assertFalse(ledger.isHot(productId));
+        other.shutdown();
+    }
+
+    @Test
+    @DisplayName("Lease còn hạn -> Server khác không nạp sổ kho và không bật lại được")
+    void activeLease_keepsLedgerOnOneNode() {
+        ledger.enable(productId, 4);
+
+        HotStockLedger other = newNode();
+        other.loadOnStartup();
+
+        assertFalse(other.isHot(productId));
+        ConflictException e = assertThrows(ConflictException.class, () -> other.enable(productId, 4));
+        assertEquals("STOCK.ALREADY_HOT", e.getCode());
+    }
+
+    @Test
+    @DisplayName("Tắt app an toàn -> Ghi hết xuống DB, nhả lease để server sau nhận lại ngay")
+    void shutdown_flushesAndReleasesLease() {
+        ledger.enable(productId, 4);
+        assertTrue(checkout(4, true));
+
+        ledger.shutdown();
+        assertEquals(INITIAL_STOCK - 4, dbStock());
+        assertNull(hotProductRepository.findById(productId).orElseThrow().getOwnerId());
+
+        HotStockLedger other = newNode();
+        other.loadOnStartup();
+        assertEquals(INITIAL_STOCK - 4, other.availableStock(productId, 0));
+        other.shutdown();
+    }
+
+    private boolean checkout(int quantity, boolean commit) {
+        return Boolean.TRUE.equals(tx.execute(status -> {
+            boolean reserved = ledger.tryReserve(productId, quantity);
+            if (!commit) status.setRollbackOnly();
+            return reserved;
+        }));
+    }
+
+    private int dbStock() {
+        return productRepository.findById(productId).orElseThrow().getStockQuantity();
+    }
+
+    // Server thứ 2 dùng chung DB
+    private HotStockLedger newNode() {
+        HotStockLedger node = new HotStockLedger(transactionManager);
+        ReflectionTestUtils.setField(node, "hotProductRepository", hotProductRepository);
+        ReflectionTestUtils.setField(node, "productRepository", productRepository);
+        ReflectionTestUtils.setField(node, "saleRepository", saleRepository);
+        ReflectionTestUtils.setField(node, "leaseSeconds", 10L);
+        ReflectionTestUtils.setField(node, "takeoverGraceSeconds", 30L);
+        ReflectionTestUtils.setField(node, "switchTimeoutMs", 1000L);
+        return node;
+    }
+}
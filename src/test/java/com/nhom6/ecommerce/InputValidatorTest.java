@@ -0,0 +1,65 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.service.InputValidator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputValidatorTest {
+
+    private final InputValidator validator = new InputValidator();
+
+    @Test
+    @DisplayName("Họ tên -> Cùng kết quả với regex cũ ^[\\p{L} ]{2,50}$")
+    void personName_matchesLegacyRegex() {
+        List<String> inputs = List.of("Nguyễn Văn An", "A", "An", "Trần 3", "Lê<b>", "", " ",
+                "a".repeat(50), "a".repeat(51), "Đặng Thị Ánh Tuyết");
+        for (String s : inputs) {
+            assertEquals(Pattern.matches("^[\\p{L} ]{2,50}$", s), validator.isPersonName(s, 2, 50), s);
+        }
+    }
+
+    @Test
+    @DisplayName("Số điện thoại -> Cùng kết quả với regex cũ ^0\\d{9}$")
+    void mobilePhone_matchesLegacyRegex() {
+        List<String> inputs = List.of("0912345678", "912345678", "09123456789", "091234567a", "1912345678", "", "0");
+        for (String s : inputs) {
+            assertEquals(Pattern.matches("^0\\d{9}$", s), validator.isMobilePhone(s), s);
+        }
+    }
+
+    @Test
+    @DisplayName("Số tài khoản ngân hàng -> 6-20 chữ số")
+    void bankAccountNumber_digitsWithinLength() {
+        assertTrue(validator.isDigits("123456", 6, 20));
+        assertTrue(validator.isDigits("1".repeat(20), 6, 20));
+        assertFalse(validator.isDigits("12345", 6, 20));
+        assertFalse(validator.isDigits("1".repeat(21), 6, 20));
+        assertFalse(validator.isDigits("12345a", 6, 20));
+    }
+
+    @Test
+    @DisplayName("Ký tự đặc biệt & emoji trong tên voucher -> Bị phát hiện")
+    void markupAndEmoji_detected() {
+        assertTrue(validator.containsMarkupChars("Sale <script>"));
+        assertTrue(validator.containsMarkupChars("Giảm {50}"));
+        assertFalse(validator.containsMarkupChars("Giảm giá mùa hè"));
+        assertTrue(validator.containsEmoji("Sale 😀"));
+        assertFalse(validator.containsEmoji("Sale 50%"));
+        assertTrue(validator.containsAngleBrackets("12 Nguyễn Trãi <b>"));
+        assertFalse(validator.containsAngleBrackets("12 Nguyễn Trãi, Hà Nội"));
+    }
+
+    @Test
+    @DisplayName("Email -> Đúng định dạng đơn giản")
+    void email_format() {
+        assertTrue(validator.isEmail("an.nguyen+shop@gmail.com"));
+        assertFalse(validator.isEmail("an nguyen@gmail.com"));
+        assertFalse(validator.isEmail("an.nguyen"));
+        assertFalse(validator.isEmail(null));
+    }
+}
@@ -0,0 +1,66 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.entity.OrderEvent;
+import com.nhom6.ecommerce.repository.OrderEventRepository;
+import com.nhom6.ecommerce.service.LoyaltyPointsConsumer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dọn outbox order_events: chỉ xóa sự kiện đã xử lý quá thời gian lưu, theo từng lô
+ */
+@DataJpaTest
+class LoyaltyOutboxPurgeTest {
+
+    @Autowired private OrderEventRepository orderEventRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private LoyaltyPointsConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new LoyaltyPointsConsumer(transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(consumer, "orderEventRepository", orderEventRepository);
+        ReflectionTestUtils.setField(consumer, "batchSize", 2);
+        ReflectionTestUtils.setField(consumer, "retentionDays", 7);
+    }
+
+    @Test
+    @DisplayName("Sự kiện đã xử lý quá 7 ngày -> Bị xóa; mới xử lý hoặc chưa xử lý -> Giữ lại")
+    void purge_removesOnlyExpiredProcessedEvents() {
+        LocalDateTime now = LocalDateTime.now();
+        for (long i = 1; i <= 5; i++) orderEventRepository.save(event(i, now.minusDays(10)));
+        OrderEvent recent = orderEventRepository.save(event(6L, now.minusDays(1)));
+        OrderEvent pending = orderEventRepository.save(event(7L, null));
+
+        // 5 sự kiện cũ, lô 2 -> 3 lượt xóa
+        assertEquals(5, consumer.purgeProcessed());
+
+        List<OrderEvent> left = orderEventRepository.findAll();
+        assertEquals(2, left.size());
+        assertTrue(left.stream().anyMatch(e -> e.getId().equals(recent.getId())));
+        assertTrue(left.stream().anyMatch(e -> e.getId().equals(pending.getId())));
+    }
+
+    private static OrderEvent event(long orderId, LocalDateTime processedAt) {
+        OrderEvent event = new OrderEvent();
+        event.setType(OrderEvent.EventType.ORDER_PLACED);
+        event.setOrderId(orderId);
+        event.setUserId("U" + orderId);
+        event.setAmount(new BigDecimal("100000"));
+        event.setProcessedAt(processedAt);
+        return event;
+    }
+}
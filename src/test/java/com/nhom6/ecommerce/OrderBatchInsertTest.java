@@ -0,0 +1,92 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.entity.Order;
+import com.nhom6.ecommerce.entity.OrderItem;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.entity.User;
+import com.nhom6.ecommerce.repository.OrderRepository;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import com.nhom6.ecommerce.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Đếm số câu lệnh JDBC khi lưu 1 đơn hàng 50 sản phẩm trên DB nhúng (H2).
+ * Id IDENTITY: mỗi OrderItem là 1 lần INSERT riêng (51 câu lệnh).
+ * Id sequence pooled + batch_size: INSERT gom theo lô, cộng vài lần lấy id từ sequence.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderBatchInsertTest {
+
+    private static final int CART_ITEMS = 50;
+
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setEmail("batch@test.vn");
+        user.setPassword("123456");
+        user.setRole(User.Role.CUSTOMER);
+        user = userRepository.saveAndFlush(user);
+
+        product = new Product();
+        product.setSku("BATCH-001");
+        product.setName("Sản phẩm test ghi theo lô");
+        product.setSalePrice(new BigDecimal("10000"));
+        product.setStockQuantity(1000);
+        product = productRepository.saveAndFlush(product);
+    }
+
+    @Test
+    @DisplayName("Đơn 50 sản phẩm -> INSERT gom theo lô, không phải 51 lượt gọi DB")
+    void saveLargeOrder_batchesInserts() {
+        Order order = new Order();
+        order.setUser(user);
+        order.setRecipientName("Nguyễn Văn An");
+        order.setPhone("0912345678");
+        order.setAddress("12 Nguyễn Trãi, Thanh Xuân, Hà Nội");
+        order.setPaymentMethod(Order.PaymentMethod.COD);
+        order.setTotalAmount(new BigDecimal("500000"));
+
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < CART_ITEMS; i++) {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProduct(product);
+            item.setQuantity(1);
+            item.setPriceAtPurchase(new BigDecimal("10000"));
+            items.add(item);
+        }
+        order.setItems(items);
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        orderRepository.saveAndFlush(order);
+
+        long statements = stats.getPrepareStatementCount();
+
+        assertEquals(CART_ITEMS + 1, stats.getEntityInsertCount());
+        // 1 INSERT orders + 1 lô INSERT order_items + tối đa 4 lần lấy id từ sequence
+        assertTrue(statements <= 6, "Quá nhiều câu lệnh JDBC: " + statements);
+    }
+}
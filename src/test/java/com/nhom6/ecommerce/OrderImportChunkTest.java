@@ -0,0 +1,261 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.dto.CartItemDTO;
+import com.nhom6.ecommerce.dto.OrderImportResultDTO;
+import com.nhom6.ecommerce.dto.OrderRequestDTO;
+import com.nhom6.ecommerce.entity.Order;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.entity.User;
+import com.nhom6.ecommerce.entity.Voucher;
+import com.nhom6.ecommerce.repository.IdempotencyKeyRepository;
+import com.nhom6.ecommerce.repository.OrderEventRepository;
+import com.nhom6.ecommerce.repository.OrderRepository;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import com.nhom6.ecommerce.repository.UserRepository;
+import com.nhom6.ecommerce.service.CatalogReadModel;
+import com.nhom6.ecommerce.service.HotStockLedger;
+import com.nhom6.ecommerce.service.InputValidator;
+import com.nhom6.ecommerce.service.OrderService;
+import com.nhom6.ecommerce.service.ProductFacetIndex;
+import com.nhom6.ecommerce.service.StageMetrics;
+import com.nhom6.ecommerce.service.VoucherLookupCache;
+import com.nhom6.ecommerce.service.VoucherRuleCache;
+import com.nhom6.ecommerce.service.VoucherUsageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Nhập đơn theo lô (OrderService.importChunk) trên DB nhúng (H2): nạp dữ liệu cả lô 1 lần,
+ * trừ dần tồn kho trong lô, savepoint cho từng đơn và số đơn của khách mới.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Mỗi lô tự mở transaction như OrderImportService
+class OrderImportChunkTest {
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private OrderEventRepository orderEventRepository;
+    @Autowired private IdempotencyKeyRepository idempotencyKeyRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private OrderService orderService;
+    private TransactionTemplate tx;
+    private UserRepository users;
+    private ProductRepository products;
+    private CatalogReadModel catalogReadModel;
+    private VoucherUsageService voucherUsageService;
+    private VoucherLookupCache voucherLookupCache;
+
+    @BeforeEach
+    void setUp() {
+        orderEventRepository.deleteAllInBatch();
+        jdbcTemplate.update("DELETE FROM order_items");
+        orderRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        // Brand dùng id String + IDENTITY nên Hibernate không tạo được bảng trên H2 -> tạo tay
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS brands (id VARCHAR(255) NOT NULL PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL UNIQUE, description VARCHAR(255))");
+
+        HotStockLedger hotStockLedger = mock(HotStockLedger.class);
+        when(hotStockLedger.availableStock(anyString(), anyInt())).thenAnswer(a -> a.getArgument(1));
+        // Repository thật, bọc lại để đếm số query nạp dữ liệu
+        users = mock(UserRepository.class, delegatesTo(userRepository));
+        products = mock(ProductRepository.class, delegatesTo(productRepository));
+        catalogReadModel = mock(CatalogReadModel.class);
+        voucherUsageService = mock(VoucherUsageService.class);
+        voucherLookupCache = mock(VoucherLookupCache.class);
+
+        orderService = new OrderService();
+        ReflectionTestUtils.setField(orderService, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(orderService, "productRepository", products);
+        ReflectionTestUtils.setField(orderService, "userRepository", users);
+        ReflectionTestUtils.setField(orderService, "orderEventRepository", orderEventRepository);
+        ReflectionTestUtils.setField(orderService, "idempotencyKeyRepository", idempotencyKeyRepository);
+        ReflectionTestUtils.setField(orderService, "hotStockLedger", hotStockLedger);
+        ReflectionTestUtils.setField(orderService, "inputValidator", new InputValidator());
+        ReflectionTestUtils.setField(orderService, "stageMetrics", new StageMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(orderService, "voucherUsageService", voucherUsageService);
+        ReflectionTestUtils.setField(orderService, "voucherLookupCache", voucherLookupCache);
+        ReflectionTestUtils.setField(orderService, "voucherRuleCache", new VoucherRuleCache());
+        ReflectionTestUtils.setField(orderService, "catalogReadModel", catalogReadModel);
+        ReflectionTestUtils.setField(orderService, "productFacetIndex", mock(ProductFacetIndex.class));
+        ReflectionTestUtils.setField(orderService, "jdbcTemplate", jdbcTemplate);
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    @DisplayName("Lô nhiều đơn, nhiều user -> Nạp user & sản phẩm 1 query mỗi loại, lưu đủ đơn và trừ đủ kho")
+    void chunk_loadsUsersAndProductsInBulk() {
+        User u1 = newUser("u1@test.vn");
+        User u2 = newUser("u2@test.vn");
+        Product a = newProduct("IMP-A", 10);
+        Product b = newProduct("IMP-B", 10);
+
+        List<OrderImportResultDTO> results = importChunk(
+                request(u1, null, line(a, 1)), request(u2, null, line(a, 2), line(b, 1)), request(u1, null, line(b, 3)));
+
+        assertTrue(results.stream().allMatch(OrderImportResultDTO::isSuccess));
+        assertTrue(results.stream().allMatch(r -> r.getOrderId() != null));
+        verify(users, times(1)).findAllById(any());
+        verify(users, never()).findById(any());
+        verify(products, times(1)).findAllWithCategoriesByIdIn(any());
+        assertEquals(3, orderRepository.count());
+        assertEquals(7, stock(a));
+        assertEquals(6, stock(b));
+    }
+
+    @Test
+    @DisplayName("Đơn sau trong lô cần nhiều hơn phần còn lại sau khi đơn trước đã giữ -> Chỉ đơn đó bị từ chối")
+    void chunk_countsStockReservedEarlierInChunk() {
+        User user = newUser("u1@test.vn");
+        Product a = newProduct("IMP-A", 3);
+
+        List<OrderImportResultDTO> results = importChunk(
+                request(user, null, line(a, 2)), request(user, null, line(a, 2)), request(user, null, line(a, 1)));
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("ORDER.2E.3", results.get(1).getCode());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(0, stock(a));
+    }
+
+    @Test
+    @DisplayName("Đơn hết hàng lúc trừ kho -> Rollback về savepoint của đơn đó, các đơn khác trong lô vẫn được lưu")
+    void chunk_failedReservation_rollsBackOnlyThatOrder() {
+        User user = newUser("u1@test.vn");
+        Product a = newProduct("IMP-A", 10);
+        Product b = newProduct("IMP-B", 5);
+        // Ngay sau khi đơn 1 giữ hàng, 1 checkout khác (transaction riêng) mua hết sản phẩm B
+        doAnswer(inv -> {
+            CompletableFuture.runAsync(() -> jdbcTemplate.update("UPDATE products SET stock_quantity = 0 WHERE id = ?", b.getId())).join();
+            return null;
+        }).doNothing().when(catalogReadModel).stockChanged(any());
+
+        List<OrderImportResultDTO> results = importChunk(
+                request(user, null, line(a, 1)), request(user, null, line(a, 1), line(b, 2)), request(user, null, line(a, 1)));
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("ORDER.2E.3", results.get(1).getCode());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(2, orderRepository.count());
+        assertEquals(8, stock(a)); // Phần A của đơn 2 đã được trả lại
+        assertEquals(0, stock(b));
+    }
+
+    @Test
+    @DisplayName("Khách mới đặt 2 đơn trong lô, đơn sau dùng mã khách mới -> Ghi số đơn trước rồi mới kiểm tra, mã bị từ chối")
+    void chunk_flushesNewUserOrderCountBeforeVoucherCheck() {
+        User fresh = newUser("u1@test.vn");
+        User other = newUser("u2@test.vn");
+        Product a = newProduct("IMP-A", 10);
+        AtomicLong freshOrders = new AtomicLong();
+        doAnswer(inv -> freshOrders.addAndGet((int) inv.getArgument(1)))
+                .when(voucherUsageService).recordOrders(eq(fresh.getUserId()), anyInt());
+        when(voucherUsageService.orderCount(fresh.getUserId())).thenAnswer(inv -> freshOrders.get());
+        when(voucherUsageService.orderCount(other.getUserId())).thenReturn(0L);
+        when(voucherUsageService.redeem(any())).thenReturn(true);
+        when(voucherUsageService.recordUserUse(anyString(), anyLong())).thenReturn(1);
+        when(voucherLookupCache.findByCode("NEWBIE")).thenReturn(Optional.of(newUserVoucher()));
+
+        List<OrderImportResultDTO> results = importChunk(
+                request(fresh, null, line(a, 1)), request(fresh, "NEWBIE", line(a, 1)), request(other, "NEWBIE", line(a, 1)));
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("ORDER.VOUCHER_NEW_USER_ONLY", results.get(1).getCode());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(1, freshOrders.get()); // Không cộng 2 lần khi ghi dồn cuối lô
+        verify(voucherUsageService).recordOrders(other.getUserId(), 1);
+    }
+
+    private List<OrderImportResultDTO> importChunk(OrderRequestDTO... requests) {
+        return tx.execute(status -> orderService.importChunk(List.of(requests)));
+    }
+
+    private int stock(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStockQuantity();
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("123456");
+        user.setRole(User.Role.CUSTOMER);
+        return userRepository.save(user);
+    }
+
+    private Product newProduct(String sku, int stock) {
+        Product product = new Product();
+        product.setSku(sku);
+        product.setName("Sản phẩm " + sku);
+        product.setSalePrice(new BigDecimal("99000"));
+        product.setStockQuantity(stock);
+        return productRepository.save(product);
+    }
+
+    private Voucher newUserVoucher() {
+        Voucher voucher = new Voucher();
+        voucher.setId(1L);
+        voucher.setCode("NEWBIE");
+        voucher.setStartAt(LocalDateTime.now().minusDays(1));
+        voucher.setEndAt(LocalDateTime.now().plusDays(1));
+        voucher.setUsageLimit(100);
+        voucher.setUsedCount(0);
+        voucher.setMinOrderValue(BigDecimal.ZERO);
+        voucher.setScope(Voucher.ScopeType.GLOBAL);
+        voucher.setAudienceType(Voucher.AudienceType.NEW_USER);
+        voucher.setDiscountType(Voucher.DiscountType.FIXED_AMOUNT);
+        voucher.setDiscountValue(new BigDecimal("10000"));
+        return voucher;
+    }
+
+    private CartItemDTO line(Product product, int quantity) {
+        CartItemDTO item = new CartItemDTO();
+        item.setProductId(product.getId());
+        item.setQuantity(quantity);
+        item.setClientPrice(product.getSalePrice());
+        return item;
+    }
+
+    private OrderRequestDTO request(User user, String voucherCode, CartItemDTO... items) {
+        OrderRequestDTO req = new OrderRequestDTO();
+        req.setUserId(user.getUserId());
+        req.setRecipientName("Nguyễn Văn An");
+        req.setPhone("0912345678");
+        req.setAddress("12 Nguyễn Trãi, Thanh Xuân, Hà Nội");
+        req.setPaymentMethod(Order.PaymentMethod.COD);
+        req.setVoucherCode(voucherCode);
+        req.setItems(List.of(items));
+        return req;
+    }
+}
@@ -0,0 +1,108 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.dto.OrderImportReportDTO;
+import com.nhom6.ecommerce.dto.OrderImportResultDTO;
+import com.nhom6.ecommerce.dto.OrderRequestDTO;
+import com.nhom6.ecommerce.entity.Order;
+import com.nhom6.ecommerce.exception.ValidationException;
+import com.nhom6.ecommerce.service.OrderImportService;
+import com.nhom6.ecommerce.service.OrderService;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderImportServiceTest {
+
+    private static final String HEADER = "userId,recipientName,phone,address,paymentMethod,voucherCode,items\n";
+
+    @Mock private OrderService orderService;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private OrderImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        importService = new OrderImportService(transactionManager, 2);
+        ReflectionTestUtils.setField(importService, "orderService", orderService);
+        ReflectionTestUtils.setField(importService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(importService, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    private OrderImportReportDTO importCsv(String body) throws Exception {
+        return importService.importOrders(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), true);
+    }
+
+    private static String csvLine(String userId) {
+        return userId + ",Nguyễn Văn An,0912345678,\"12 Nguyễn Trãi, Hà Nội\",COD,,SP1:2:10000|SP2:1:25000\n";
+    }
+
+    @Test
+    @DisplayName("CSV hợp lệ -> Gom lô theo chunk-size, báo kết quả theo số dòng")
+    void csv_groupsIntoChunks() throws Exception {
+        when(orderService.importChunk(anyList())).thenAnswer(inv -> {
+            List<OrderRequestDTO> reqs = inv.getArgument(0);
+            assertEquals("12 Nguyễn Trãi, Hà Nội", reqs.get(0).getAddress());
+            assertEquals(2, reqs.get(0).getItems().size());
+            return reqs.stream().map(r -> new OrderImportResultDTO(0, true, 1L, null, null)).toList();
+        });
+
+        OrderImportReportDTO report = importCsv(HEADER + csvLine("U1") + csvLine("U2") + csvLine("U3"));
+
+        verify(orderService, times(2)).importChunk(anyList()); // 2 + 1
+        assertEquals(3, report.getSucceeded());
+        assertEquals(List.of(2, 3, 4), report.getResults().stream().map(OrderImportResultDTO::getLine).toList());
+    }
+
+    @Test
+    @DisplayName("Dòng sai định dạng -> Chỉ dòng đó lỗi, các dòng khác vẫn nhập")
+    void malformedLine_doesNotAbortFile() throws Exception {
+        when(orderService.importChunk(anyList())).thenAnswer(inv -> {
+            List<OrderRequestDTO> reqs = inv.getArgument(0);
+            return reqs.stream().map(r -> new OrderImportResultDTO(0, true, 1L, null, null)).toList();
+        });
+
+        OrderImportReportDTO report = importCsv(HEADER + csvLine("U1") + "U2,thiếu cột\n" + csvLine("U3"));
+
+        assertEquals(3, report.getTotal());
+        assertEquals(1, report.getFailed());
+        OrderImportResultDTO bad = report.getResults().get(1);
+        assertEquals(3, bad.getLine());
+        assertEquals("IMPORT.INVALID_FORMAT", bad.getCode());
+    }
+
+    @Test
+    @DisplayName("Lô lỗi ở bước ghi -> Rollback, chạy lại từng đơn, chỉ đơn lỗi bị báo lỗi")
+    void chunkWriteFailure_fallsBackToSingleOrders() throws Exception {
+        when(orderService.importChunk(anyList()))
+                .thenThrow(new ValidationException("ORDER.3E.3", "3E.3: Mã giảm giá đã hết lượt sử dụng."));
+        Order order = new Order();
+        order.setId(10L);
+        when(orderService.createOrder(any(OrderRequestDTO.class)))
+                .thenReturn(order)
+                .thenThrow(new ValidationException("ORDER.3E.3", "3E.3: Mã giảm giá đã hết lượt sử dụng."));
+
+        OrderImportReportDTO report = importCsv(HEADER + csvLine("U1") + csvLine("U2"));
+
+        assertEquals(1, report.getSucceeded());
+        assertEquals(10L, report.getResults().get(0).getOrderId());
+        assertEquals("ORDER.3E.3", report.getResults().get(1).getCode());
+        verify(transactionManager).rollback(any());
+    }
+}
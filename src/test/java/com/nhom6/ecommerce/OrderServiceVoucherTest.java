@@ -1,15 +1,22 @@
 package com.nhom6.ecommerce;
 
+import com.nhom6.ecommerce.dto.CartItemDTO;
+import com.nhom6.ecommerce.dto.OrderRequestDTO;
 import com.nhom6.ecommerce.entity.*;
+import com.nhom6.ecommerce.exception.ValidationException;
 import com.nhom6.ecommerce.repository.*;
 import com.nhom6.ecommerce.service.OrderService;
 import com.nhom6.ecommerce.service.UserService;
+import com.nhom6.ecommerce.service.VoucherLookupCache;
+import com.nhom6.ecommerce.service.VoucherRuleCache;
+import com.nhom6.ecommerce.service.VoucherUsageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.lang.reflect.Method;
@@ -36,6 +43,9 @@ class OrderServiceVoucherTest {
     @Mock private ProductRepository productRepository;
     @Mock private UserRepository userRepository;
     @Mock private UserService userService;
+    @Mock private VoucherUsageService voucherUsageService;
+    @Mock private VoucherLookupCache voucherLookupCache;
+    @Spy private VoucherRuleCache voucherRuleCache = new VoucherRuleCache();
 
     @InjectMocks
     private OrderService orderService;
@@ -61,6 +71,7 @@ class OrderServiceVoucherTest {
 
         // Tạo Voucher mặc định (Hợp lệ)
         voucher = new Voucher();
+        voucher.setId(1L);
         voucher.setCode("VOUCHER_TEST");
         voucher.setStartAt(LocalDateTime.now().minusDays(1));
         voucher.setEndAt(LocalDateTime.now().plusDays(1));
@@ -101,7 +112,7 @@ class OrderServiceVoucherTest {
     @Test
     @DisplayName("C2_TC2: Code không tồn tại -> Exception 3E.1")
     void test_C2_TC2() {
-        when(voucherRepository.findByCode("ABC")).thenReturn(Optional.empty());
+        when(voucherLookupCache.findByCode("ABC")).thenReturn(Optional.empty());
 
         Exception e = assertThrows(RuntimeException.class, () ->
                 invokeCalculateDiscount("ABC", user, BigDecimal.TEN, orderItems));
@@ -113,7 +124,7 @@ class OrderServiceVoucherTest {
     void test_C2_TC3() {
         voucher.setCode("V1");
         voucher.setStartAt(LocalDateTime.now().plusDays(1)); // Tương lai
-        when(voucherRepository.findByCode("V1")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V1")).thenReturn(Optional.of(voucher));
 
         Exception e = assertThrows(RuntimeException.class, () ->
                 invokeCalculateDiscount("V1", user, BigDecimal.TEN, orderItems));
@@ -126,7 +137,7 @@ class OrderServiceVoucherTest {
         voucher.setCode("V2");
         voucher.setUsageLimit(100);
         voucher.setUsedCount(100); // Full
-        when(voucherRepository.findByCode("V2")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V2")).thenReturn(Optional.of(voucher));
 
         Exception e = assertThrows(RuntimeException.class, () ->
                 invokeCalculateDiscount("V2", user, BigDecimal.TEN, orderItems));
@@ -138,7 +149,7 @@ class OrderServiceVoucherTest {
     void test_C2_TC5() {
         voucher.setCode("V3");
         voucher.setMinOrderValue(new BigDecimal("100000")); // Min 100k
-        when(voucherRepository.findByCode("V3")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V3")).thenReturn(Optional.of(voucher));
 
         // Subtotal 50k < 100k
         Exception e = assertThrows(RuntimeException.class, () ->
@@ -151,10 +162,10 @@ class OrderServiceVoucherTest {
     void test_C2_TC6() {
         voucher.setCode("V4");
         voucher.setUsageLimitPerUser(1);
-        when(voucherRepository.findByCode("V4")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V4")).thenReturn(Optional.of(voucher));
 
         // Mock user đã dùng 1 lần
-        when(orderRepository.countVoucherUsageByUser("U1", "V4")).thenReturn(1L);
+        when(voucherUsageService.usesByUser("U1", 1L)).thenReturn(1);
 
         Exception e = assertThrows(RuntimeException.class, () ->
                 invokeCalculateDiscount("V4", user, new BigDecimal("200000"), orderItems));
@@ -167,7 +178,7 @@ class OrderServiceVoucherTest {
         voucher.setCode("V5");
         voucher.setScope(Voucher.ScopeType.PRODUCT);
         voucher.setScopeIds(List.of("OTHER_PRODUCT")); // Không khớp với P1 trong giỏ
-        when(voucherRepository.findByCode("V5")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V5")).thenReturn(Optional.of(voucher));
 
         Exception e = assertThrows(RuntimeException.class, () ->
                 invokeCalculateDiscount("V5", user, new BigDecimal("200000"), orderItems));
@@ -180,19 +191,19 @@ class OrderServiceVoucherTest {
         // 1. Setup Voucher
         voucher.setCode("V6-NEW");
         voucher.setAudienceType(Voucher.AudienceType.NEW_USER);
-        when(voucherRepository.findByCode("V6-NEW")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V6-NEW")).thenReturn(Optional.of(voucher));
 
         // 2. Setup Mock (QUAN TRỌNG)
 
         // --- DÒNG BỊ THIẾU (Nguyên nhân gây lỗi) ---
         // Giả lập bước kiểm tra giới hạn sử dụng (Trạm 1)
         // Trả về 0 -> User chưa dùng mã này lần nào -> Qua cửa này
-        when(orderRepository.countVoucherUsageByUser("U1", "V6-NEW")).thenReturn(0L);
+        when(voucherUsageService.usesByUser("U1", 1L)).thenReturn(0);
         // ------------------------------------------
 
         // Giả lập bước kiểm tra lịch sử mua hàng (Trạm 2)
         // Trả về 5 -> User đã mua 5 đơn -> Chặn lại ở cửa này
-        when(orderRepository.countVoucherUsageByUser("U1", null)).thenReturn(5L);
+        when(voucherUsageService.orderCount("U1")).thenReturn(5L);
 
         // 3. Thực thi
         Exception e = assertThrows(RuntimeException.class, () ->
@@ -208,12 +219,29 @@ class OrderServiceVoucherTest {
         voucher.setCode("V7-FIX");
         voucher.setDiscountType(Voucher.DiscountType.FIXED_AMOUNT);
         voucher.setDiscountValue(new BigDecimal("30000"));
-        when(voucherRepository.findByCode("V7-FIX")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V7-FIX")).thenReturn(Optional.of(voucher));
+        when(voucherUsageService.redeem(voucher)).thenReturn(true);
 
         BigDecimal result = invokeCalculateDiscount("V7-FIX", user, new BigDecimal("200000"), orderItems);
 
         assertEquals(new BigDecimal("30000"), result);
-        verify(voucherRepository, times(1)).save(voucher); // Verify update usage count
+        verify(voucherUsageService, times(1)).redeem(voucher); // Verify tăng lượt dùng nguyên tử
+        verify(voucherRepository, never()).save(voucher);
+    }
+
+    @Test
+    @DisplayName("C2_TC9b: Đơn khác vừa dùng lượt cuối (tăng lượt thất bại) -> Exception 3E.3")
+    void test_C2_TC9b() {
+        voucher.setCode("V7-RACE");
+        voucher.setDiscountType(Voucher.DiscountType.FIXED_AMOUNT);
+        voucher.setDiscountValue(new BigDecimal("30000"));
+        voucher.setUsedCount(99); // Lúc đọc vẫn còn 1 lượt
+        when(voucherLookupCache.findByCode("V7-RACE")).thenReturn(Optional.of(voucher));
+        when(voucherUsageService.redeem(voucher)).thenReturn(false);
+
+        Exception e = assertThrows(RuntimeException.class, () ->
+                invokeCalculateDiscount("V7-RACE", user, new BigDecimal("200000"), orderItems));
+        assertEquals("3E.3: Mã giảm giá đã hết lượt sử dụng.", e.getMessage());
     }
 
     @Test
@@ -225,17 +253,18 @@ class OrderServiceVoucherTest {
         voucher.setDiscountType(Voucher.DiscountType.PERCENTAGE);
         voucher.setDiscountValue(new BigDecimal("10"));
 
-        when(voucherRepository.findByCode("V8-PER")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V8-PER")).thenReturn(Optional.of(voucher));
 
         // 2. Setup Mock (Giả lập)
 
         // [QUAN TRỌNG - Bị thiếu cái này]: Giả lập Trạm 1 (Check giới hạn dùng mã)
         // Ý nghĩa: User U1 chưa từng dùng mã V8-PER này lần nào (trả về 0)
-        when(orderRepository.countVoucherUsageByUser("U1", "V8-PER")).thenReturn(0L);
+        when(voucherUsageService.usesByUser("U1", 1L)).thenReturn(0);
 
         // Giả lập Trạm 2 (Check khách mới)
         // Ý nghĩa: User U1 chưa từng mua đơn nào (trả về 0)
-        when(orderRepository.countVoucherUsageByUser("U1", null)).thenReturn(0L);
+        when(voucherUsageService.orderCount("U1")).thenReturn(0L);
+        when(voucherUsageService.redeem(voucher)).thenReturn(true);
 
         // 3. Gọi hàm cần test
         BigDecimal result = invokeCalculateDiscount("V8-PER", user, new BigDecimal("200000"), orderItems);
@@ -249,7 +278,8 @@ class OrderServiceVoucherTest {
     void test_C2_TC11() throws Exception {
         voucher.setCode("V9-ERR");
         voucher.setDiscountType(null); // Loại không xác định
-        when(voucherRepository.findByCode("V9-ERR")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V9-ERR")).thenReturn(Optional.of(voucher));
+        when(voucherUsageService.redeem(voucher)).thenReturn(true);
 
         BigDecimal result = invokeCalculateDiscount("V9-ERR", user, new BigDecimal("200000"), orderItems);
         assertEquals(BigDecimal.ZERO, result);
@@ -275,7 +305,7 @@ class OrderServiceVoucherTest {
         voucher.setCode("V1");
         voucher.setStartAt(LocalDateTime.now().minusDays(10));
         voucher.setEndAt(LocalDateTime.now().minusDays(1)); // Đã hết hạn
-        when(voucherRepository.findByCode("V1")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V1")).thenReturn(Optional.of(voucher));
 
         Exception e = assertThrows(RuntimeException.class, () ->
                 invokeCalculateDiscount("V1", user, BigDecimal.TEN, orderItems));
@@ -288,7 +318,7 @@ class OrderServiceVoucherTest {
         voucher.setCode("V2");
         voucher.setUsageLimit(10);
         voucher.setUsedCount(10);
-        when(voucherRepository.findByCode("V2")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V2")).thenReturn(Optional.of(voucher));
 
         Exception e = assertThrows(RuntimeException.class, () ->
                 invokeCalculateDiscount("V2", user, BigDecimal.TEN, orderItems));
@@ -307,7 +337,7 @@ class OrderServiceVoucherTest {
         voucher.setScope(Voucher.ScopeType.PRODUCT);
         voucher.setScopeIds(List.of("OTHER"));
 
-        when(voucherRepository.findByCode("V3")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V3")).thenReturn(Optional.of(voucher));
 
         Exception e = assertThrows(RuntimeException.class, () ->
                 invokeCalculateDiscount("V3", user, new BigDecimal("200000"), orderItems));
@@ -320,10 +350,10 @@ class OrderServiceVoucherTest {
     void test_C3_TC7() {
         voucher.setCode("V4");
         voucher.setUsageLimitPerUser(5);
-        when(voucherRepository.findByCode("V4")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V4")).thenReturn(Optional.of(voucher));
 
         // Mock user mới dùng 1 lần (1 < 5) -> Còn lượt
-        when(orderRepository.countVoucherUsageByUser("U1", "V4")).thenReturn(1L);
+        when(voucherUsageService.usesByUser("U1", 1L)).thenReturn(1);
 
         // Sai Scope
         voucher.setScope(Voucher.ScopeType.PRODUCT);
@@ -339,13 +369,57 @@ class OrderServiceVoucherTest {
     void test_C3_TC8() {
         voucher.setCode("V4");
         voucher.setUsageLimitPerUser(5);
-        when(voucherRepository.findByCode("V4")).thenReturn(Optional.of(voucher));
+        when(voucherLookupCache.findByCode("V4")).thenReturn(Optional.of(voucher));
 
         // Mock user đã dùng 5 lần (5 >= 5) -> Hết lượt
-        when(orderRepository.countVoucherUsageByUser("U1", "V4")).thenReturn(5L);
+        when(voucherUsageService.usesByUser("U1", 1L)).thenReturn(5);
 
         Exception e = assertThrows(RuntimeException.class, () ->
                 invokeCalculateDiscount("V4", user, new BigDecimal("200000"), orderItems));
         assertTrue(e.getMessage().contains("Bạn đã sử dụng mã này quá số lần quy định"));
     }
+
+    @Test
+    @DisplayName("C3_TC9: 2 đơn song song của cùng user, đơn sau ghi nhận vượt limit User -> Exception User Limit")
+    void test_C3_TC9() {
+        voucher.setCode("V4");
+        voucher.setUsageLimitPerUser(1);
+        when(voucherLookupCache.findByCode("V4")).thenReturn(Optional.of(voucher));
+        when(voucherUsageService.redeem(voucher)).thenReturn(true);
+
+        // Lúc kiểm tra chưa dùng lần nào, nhưng đơn kia đã commit trước khi ghi nhận lượt
+        when(voucherUsageService.usesByUser("U1", 1L)).thenReturn(0);
+        when(voucherUsageService.recordUserUse("U1", 1L)).thenReturn(2);
+
+        Exception e = assertThrows(RuntimeException.class, () ->
+                invokeCalculateDiscount("V4", user, new BigDecimal("200000"), orderItems));
+        assertTrue(e.getMessage().contains("Bạn đã sử dụng mã này quá số lần quy định"));
+    }
+
+    @Test
+    @DisplayName("Giỏ hàng có số lượng âm -> Exception trước khi đọc DB (không cộng ngược tồn kho)")
+    void cart_negativeQuantity_isRejected() {
+        ValidationException e = assertThrows(ValidationException.class, () -> orderService.quoteOrder(cartOf(-3)));
+        assertEquals("ORDER.INVALID_QUANTITY", e.getCode());
+        verifyNoInteractions(productRepository, userRepository);
+    }
+
+    @Test
+    @DisplayName("Giỏ hàng thiếu số lượng -> Exception thay vì NullPointerException")
+    void cart_missingQuantity_isRejected() {
+        ValidationException e = assertThrows(ValidationException.class, () -> orderService.quoteOrder(cartOf(null)));
+        assertEquals("ORDER.INVALID_QUANTITY", e.getCode());
+    }
+
+    private OrderRequestDTO cartOf(Integer quantity) {
+        CartItemDTO item = new CartItemDTO();
+        item.setProductId("P1");
+        item.setQuantity(quantity);
+        item.setClientPrice(new BigDecimal("10000"));
+
+        OrderRequestDTO req = new OrderRequestDTO();
+        req.setUserId("U1");
+        req.setItems(List.of(item));
+        return req;
+    }
 }
\ No newline at end of file
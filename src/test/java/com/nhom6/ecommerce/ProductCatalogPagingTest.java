@@ -0,0 +1,120 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.dto.ProductCardView;
+import com.nhom6.ecommerce.dto.ProductPageDTO;
+import com.nhom6.ecommerce.entity.Brand;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import com.nhom6.ecommerce.service.ProductCatalogService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Phân trang keyset trên DB nhúng (H2): đi hết các trang phải ra đúng thứ tự mới nhất trước,
+ * không trùng, không sót (kể cả nhiều sản phẩm cùng created_at).
+ */
+@DataJpaTest
+@Import(ProductCatalogService.class)
+class ProductCatalogPagingTest {
+
+    private static final int PRODUCTS = 40;
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private ProductCatalogService productCatalogService;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private final List<Product> all = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAllInBatch();
+        // Brand dùng id String + IDENTITY nên Hibernate không tạo được bảng trên H2 -> tạo tay
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS brands (id VARCHAR(255) NOT NULL PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL UNIQUE, description VARCHAR(255))");
+        jdbcTemplate.update("DELETE FROM brands");
+        jdbcTemplate.update("INSERT INTO brands (id, name) VALUES ('1', 'Samsung')");
+        Brand brand = new Brand();
+        brand.setId("1");
+
+        long base = 1_700_000_000_000L;
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product p = new Product();
+            p.setSku("PAGE-" + i);
+            p.setName("Sản phẩm " + i);
+            p.setSalePrice(BigDecimal.valueOf(100_000));
+            p.setBrand(brand);
+            // Cứ 3 sản phẩm chung 1 created_at -> thứ tự trong nhóm phụ thuộc id
+            p.setCreatedAt(new Date(base + (i / 3) * 1000L));
+            p.setStockQuantity(i % 7 == 0 ? 0 : 10);
+            p.setActive(i % 11 != 5);
+            all.add(productRepository.save(p));
+        }
+    }
+
+    @Test
+    @DisplayName("Shop: đi hết các trang -> đúng các sản phẩm đang bán & còn hàng, mới nhất trước")
+    void shopPages_walkWholeCatalogInOrder() {
+        List<String> expected = all.stream()
+                .filter(p -> p.isActive() && p.getStockQuantity() > 0)
+                .sorted(newestFirst())
+                .map(Product::getId)
+                .toList();
+
+        assertEquals(expected, walk(productCatalogService::shopPage, 7));
+    }
+
+    @Test
+    @DisplayName("Admin: đi hết các trang -> đủ mọi sản phẩm, kể cả hết hàng / ngừng kinh doanh")
+    void adminPages_includeEveryProduct() {
+        List<String> expected = all.stream().sorted(newestFirst()).map(Product::getId).toList();
+
+        assertEquals(expected, walk(productCatalogService::adminPage, 9));
+    }
+
+    @Test
+    @DisplayName("Trang cuối không có con trỏ, con trỏ sai định dạng -> quay về trang đầu")
+    void cursorEdgeCases() {
+        ProductPageDTO everything = productCatalogService.adminPage(null, 100);
+        assertEquals(PRODUCTS, everything.getItems().size());
+        assertNull(everything.getNextCursor());
+
+        ProductPageDTO first = productCatalogService.shopPage(null, 5);
+        ProductPageDTO garbage = productCatalogService.shopPage("abc_", 5);
+        assertEquals(ids(first.getItems()), ids(garbage.getItems()));
+        assertNotNull(first.getNextCursor());
+    }
+
+    private List<String> walk(BiFunction<String, Integer, ProductPageDTO> pages, int size) {
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            ProductPageDTO page = pages.apply(cursor, size);
+            assertTrue(page.getItems().size() <= size);
+            seen.addAll(ids(page.getItems()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return seen;
+    }
+
+    private static List<String> ids(List<ProductCardView> cards) {
+        return cards.stream().map(ProductCardView::getId).toList();
+    }
+
+    private static Comparator<Product> newestFirst() {
+        return Comparator.comparing(Product::getCreatedAt).thenComparing(Product::getId).reversed();
+    }
+}
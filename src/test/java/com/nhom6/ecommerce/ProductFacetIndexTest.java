@@ -0,0 +1,129 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.dto.FacetCountDTO;
+import com.nhom6.ecommerce.dto.ProductCardView;
+import com.nhom6.ecommerce.dto.ProductFacetResultDTO;
+import com.nhom6.ecommerce.dto.ProductSearchDocument;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import com.nhom6.ecommerce.service.HotStockLedger;
+import com.nhom6.ecommerce.service.ProductFacetIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductFacetIndexTest {
+
+    private ProductFacetIndex index;
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductFacetIndex(100);
+        productRepository = mock(ProductRepository.class);
+        HotStockLedger hotStockLedger = mock(HotStockLedger.class);
+        when(hotStockLedger.availableStock(anyString(), anyInt())).thenAnswer(a -> a.getArgument(1));
+        ReflectionTestUtils.setField(index, "productRepository", productRepository);
+        ReflectionTestUtils.setField(index, "hotStockLedger", hotStockLedger);
+
+        // Thứ tự tạo = thứ tự doc (P1 cũ nhất)
+        index.index(doc("P1", "B1", "Samsung", List.of(10L), 800_000, 5));
+        index.index(doc("P2", "B1", "Samsung", List.of(10L, 20L), 3_000_000, 0));
+        index.index(doc("P3", "B2", "Apple", List.of(10L), 25_000_000, 2));
+        index.index(doc("P4", "B2", "Apple", List.of(20L), 4_000_000, 7));
+    }
+
+    @Test
+    @DisplayName("Không lọc: trả mọi sản phẩm (mới nhất trước) và số đếm đủ các nhóm")
+    void noFilter_allProductsAndCounts() {
+        ProductFacetResultDTO result = index.filter(null, null, null, false, 10);
+
+        assertEquals(4, result.getTotal());
+        assertEquals(List.of("P4", "P3", "P2", "P1"), ids(result.getItems()));
+        assertEquals(Map.of("B1", 2, "B2", 2), counts(result.getBrands()));
+        assertEquals(Map.of("10", 3, "20", 2), counts(result.getCategories()));
+        assertEquals(Map.of("duoi-1tr", 1, "1tr-5tr", 2, "tren-20tr", 1), counts(result.getPriceBands()));
+        assertEquals(3, result.getInStockCount());
+    }
+
+    @Test
+    @DisplayName("Kết hợp bộ lọc: cùng nhóm là hoặc, khác nhóm là và; số đếm 1 nhóm bỏ qua lựa chọn của chính nhóm đó")
+    void combinedFilter_countsExcludeOwnGroup() {
+        ProductFacetResultDTO result = index.filter(List.of("B1"), List.of(10L, 20L), List.of("1tr-5tr"), true, 10);
+
+        assertEquals(0, result.getTotal()); // P2 khớp nhưng hết hàng
+
+        result = index.filter(List.of("B1"), List.of(10L, 20L), List.of("1tr-5tr"), false, 10);
+        assertEquals(List.of("P2"), ids(result.getItems()));
+        // Thương hiệu: tính theo danh mục + giá -> Apple vẫn có P4
+        assertEquals(Map.of("B1", 1, "B2", 1), counts(result.getBrands()));
+        assertTrue(result.getBrands().stream().filter(FacetCountDTO::isSelected).allMatch(f -> f.getValue().equals("B1")));
+        // Giá: tính theo thương hiệu + danh mục -> Samsung có P1 (dưới 1tr) và P2
+        assertEquals(Map.of("duoi-1tr", 1, "1tr-5tr", 1), counts(result.getPriceBands()));
+        assertEquals(0, result.getInStockCount());
+    }
+
+    @Test
+    @DisplayName("Lưu lại sản phẩm với thương hiệu / giá mới -> chuyển sang bitmap mới, không bị đếm 2 lần")
+    void reindex_movesBetweenBuckets() {
+        index.index(doc("P1", "B2", "Apple", List.of(20L), 12_000_000, 5));
+
+        ProductFacetResultDTO result = index.filter(null, null, null, false, 10);
+        assertEquals(4, result.getTotal());
+        assertEquals(Map.of("B1", 1, "B2", 3), counts(result.getBrands()));
+        assertEquals(Map.of("10", 2, "20", 3), counts(result.getCategories()));
+        assertEquals(List.of("P1"), ids(index.filter(null, null, List.of("10tr-20tr"), false, 10).getItems()));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    @DisplayName("Checkout trừ kho -> chu kỳ nền đọc lại tồn kho và cập nhật bộ lọc còn hàng bằng 1 query")
+    void stockChanged_refreshedInBackground() {
+        when(productRepository.findStockByIdIn(anyCollection()))
+                .thenReturn(List.of(new Object[]{"P1", 0}, new Object[]{"P2", 3}));
+
+        index.stockChanged(List.of("P1", "P2"));
+        assertEquals(List.of("P4", "P3", "P1"), ids(index.filter(null, null, null, true, 10).getItems()));
+
+        index.refreshStock();
+        ProductFacetResultDTO result = index.filter(null, null, null, true, 10);
+        assertEquals(List.of("P4", "P3", "P2"), ids(result.getItems()));
+        assertEquals(3, result.getItems().get(2).getStockQuantity());
+
+        index.refreshStock(); // Hàng chờ đã rỗng
+        verify(productRepository, times(1)).findStockByIdIn(anyCollection());
+    }
+
+    private static ProductSearchDocument doc(String id, String brandId, String brandName, List<Long> categoryIds,
+                                             long price, int stock) {
+        ProductSearchDocument doc = new ProductSearchDocument();
+        doc.setId(id);
+        doc.setSku("SKU-" + id);
+        doc.setName("Sản phẩm " + id);
+        doc.setBrandId(brandId);
+        doc.setBrandName(brandName);
+        doc.setCategoryIds(categoryIds);
+        doc.setSalePrice(BigDecimal.valueOf(price));
+        doc.setStockQuantity(stock);
+        doc.setCreatedAt(new Date(1_700_000_000_000L + id.hashCode()));
+        return doc;
+    }
+
+    private static List<String> ids(List<ProductCardView> cards) {
+        return cards.stream().map(ProductCardView::getId).toList();
+    }
+
+    private static Map<String, Integer> counts(List<FacetCountDTO> facets) {
+        return facets.stream().collect(Collectors.toMap(FacetCountDTO::getValue, FacetCountDTO::getCount));
+    }
+}
@@ -0,0 +1,104 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.dto.ProductSearchDocument;
+import com.nhom6.ecommerce.dto.ProductSearchHitDTO;
+import com.nhom6.ecommerce.dto.ProductSearchResultDTO;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import com.nhom6.ecommerce.service.ProductSearchIndex;
+import com.nhom6.ecommerce.service.VietnameseText;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+
+    @TempDir Path dir;
+
+    @Test
+    @DisplayName("Bỏ dấu tiếng Việt: 'Điện Thoại' -> 'dien thoai', tách từ theo ký tự không phải chữ/số")
+    void fold_removesVietnameseDiacritics() {
+        assertEquals("dien thoai", VietnameseText.fold("Điện Thoại"));
+        assertEquals(List.of("may", "loc", "nuoc", "ro", "10", "loi"), VietnameseText.tokens("Máy lọc nước RO-10 lõi!"));
+    }
+
+    @Test
+    @DisplayName("Tìm không dấu ra sản phẩm có dấu, phải chứa đủ các từ, khớp ở tên xếp trên khớp ở mô tả")
+    void search_foldedAndRanked() {
+        ProductSearchIndex index = newIndex(null);
+        index.index(doc("P1", "Điện thoại Samsung Galaxy", "Màn hình lớn"));
+        index.index(doc("P2", "Ốp lưng", "Phụ kiện cho điện thoại Samsung"));
+        index.index(doc("P3", "Điện thoại Xiaomi", "Pin trâu"));
+
+        ProductSearchResultDTO result = index.search("dien thoai samsung", 10);
+
+        assertEquals(2, result.getTotal());
+        assertEquals(List.of("P1", "P2"), ids(result));
+        assertTrue(result.getItems().get(0).getScore() > result.getItems().get(1).getScore());
+        assertEquals(0, index.search("dien thoai apple", 10).getTotal());
+    }
+
+    @Test
+    @DisplayName("Lưu lại sản phẩm -> chỉ còn bản mới trong kết quả")
+    void reindex_replacesOldVersion() {
+        ProductSearchIndex index = newIndex(null);
+        index.index(doc("P1", "Tai nghe Sony", "Chống ồn"));
+        index.index(doc("P1", "Loa Sony", "Bluetooth"));
+
+        assertEquals(0, index.search("tai nghe", 10).getTotal());
+        assertEquals(List.of("P1"), ids(index.search("loa", 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    @DisplayName("Ghi file chỉ mục rồi khởi động lại -> đọc từ file, không dựng lại từ DB")
+    void snapshot_restoredOnStartup() {
+        Path file = dir.resolve("products.idx");
+        ProductSearchIndex first = newIndex(file);
+        first.index(doc("P1", "Nồi cơm điện Sunhouse", "Nấu ngon"));
+        first.index(doc("P2", "Quạt điện Panasonic", "Tiết kiệm điện"));
+        first.persist();
+        assertTrue(Files.exists(file));
+
+        ProductSearchIndex restarted = newIndex(file);
+        ProductRepository repository = (ProductRepository) ReflectionTestUtils.getField(restarted, "productRepository");
+        when(repository.countActive()).thenReturn(2L);
+        restarted.load();
+
+        assertEquals(List.of("P2", "P1"), ids(restarted.search("dien", 10)));
+        verify(repository, times(1)).findSearchDocuments(any(), any(), anyInt()); // chỉ nạp phần mới sau mốc
+    }
+
+    private static ProductSearchIndex newIndex(Path file) {
+        ProductSearchIndex index = new ProductSearchIndex(file != null ? file.toString() : "", 100);
+        ProductRepository repository = mock(ProductRepository.class);
+        when(repository.findSearchDocuments(any(), any(), anyInt())).thenReturn(List.of());
+        ReflectionTestUtils.setField(index, "productRepository", repository);
+        return index;
+    }
+
+    private static ProductSearchDocument doc(String id, String name, String description) {
+        ProductSearchDocument doc = new ProductSearchDocument();
+        doc.setId(id);
+        doc.setSku("SKU-" + id);
+        doc.setName(name);
+        doc.setDescription(description);
+        doc.setSalePrice(BigDecimal.valueOf(100_000));
+        doc.setCreatedAt(new Date(1_700_000_000_000L + id.hashCode()));
+        return doc;
+    }
+
+    private static List<String> ids(ProductSearchResultDTO result) {
+        return result.getItems().stream().map(ProductSearchHitDTO::getId).toList();
+    }
+}
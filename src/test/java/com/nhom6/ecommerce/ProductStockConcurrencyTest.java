@@ -0,0 +1,311 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.dto.CartItemDTO;
+import com.nhom6.ecommerce.dto.OrderRequestDTO;
+import com.nhom6.ecommerce.entity.Order;
+import com.nhom6.ecommerce.entity.Product;
+import com.nhom6.ecommerce.entity.User;
+import com.nhom6.ecommerce.exception.ValidationException;
+import com.nhom6.ecommerce.repository.IdempotencyKeyRepository;
+import com.nhom6.ecommerce.repository.OrderEventRepository;
+import com.nhom6.ecommerce.repository.OrderRepository;
+import com.nhom6.ecommerce.repository.ProductRepository;
+import com.nhom6.ecommerce.repository.UserRepository;
+import com.nhom6.ecommerce.service.CatalogReadModel;
+import com.nhom6.ecommerce.service.HotStockLedger;
+import com.nhom6.ecommerce.service.InputValidator;
+import com.nhom6.ecommerce.service.OrderService;
+import com.nhom6.ecommerce.service.ProductFacetIndex;
+import com.nhom6.ecommerce.service.StageMetrics;
+import com.nhom6.ecommerce.service.VoucherUsageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Kiểm tra checkout đồng thời trên DB nhúng (H2), đi qua OrderService.createOrder như request thật:
+ * nhiều luồng checkout cùng 1 sản phẩm không được bán vượt tồn kho, giỏ nhiều dòng giữ hàng theo kiểu được cả hoặc không.
+ * Chỉ thay bằng mock các phần không liên quan tới kho (voucher, cache trang chủ, bộ lọc).
+ */
+@DataJpaTest(showSql = false) // Log SQL của hàng nghìn checkout làm sai lệch phép đo
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Mỗi luồng tự mở transaction riêng như request thật
+class ProductStockConcurrencyTest {
+
+    private static final int INITIAL_STOCK = 250;
+    private static final int CHECKOUTS = 1000;
+    private static final int THREADS = 32;
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private OrderEventRepository orderEventRepository;
+    @Autowired private IdempotencyKeyRepository idempotencyKeyRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private OrderService orderService;
+    private HotStockLedger hotStockLedger;
+    private TransactionTemplate tx;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        orderEventRepository.deleteAllInBatch();
+        jdbcTemplate.update("DELETE FROM order_items");
+        orderRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        // Brand dùng id String + IDENTITY nên Hibernate không tạo được bảng trên H2 -> tạo tay
+        // (Product nạp kèm brand qua LEFT JOIN nên bảng phải tồn tại dù sản phẩm không có thương hiệu)
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS brands (id VARCHAR(255) NOT NULL PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL UNIQUE, description VARCHAR(255))");
+
+        user = new User();
+        user.setEmail("flash@test.vn");
+        user.setPassword("123456");
+        user.setRole(User.Role.CUSTOMER);
+        user = userRepository.save(user);
+
+        // Sản phẩm thường (không hot): tồn kho đọc thẳng từ bảng products
+        hotStockLedger = mock(HotStockLedger.class);
+        when(hotStockLedger.availableStock(anyString(), anyInt())).thenAnswer(a -> a.getArgument(1));
+
+        orderService = new OrderService();
+        ReflectionTestUtils.setField(orderService, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(orderService, "productRepository", productRepository);
+        ReflectionTestUtils.setField(orderService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(orderService, "orderEventRepository", orderEventRepository);
+        ReflectionTestUtils.setField(orderService, "idempotencyKeyRepository", idempotencyKeyRepository);
+        ReflectionTestUtils.setField(orderService, "hotStockLedger", hotStockLedger);
+        ReflectionTestUtils.setField(orderService, "inputValidator", new InputValidator());
+        ReflectionTestUtils.setField(orderService, "stageMetrics", new StageMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(orderService, "voucherUsageService", mock(VoucherUsageService.class));
+        ReflectionTestUtils.setField(orderService, "catalogReadModel", mock(CatalogReadModel.class));
+        ReflectionTestUtils.setField(orderService, "productFacetIndex", mock(ProductFacetIndex.class));
+        // OrderService được tạo tay (không qua proxy @Transactional) -> mỗi checkout 1 transaction như request thật
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    @Timeout(value = 120, unit = TimeUnit.SECONDS)
+    @DisplayName("1000 checkout song song trên 1 sản phẩm -> Không bán vượt tồn kho, thông lượng không kém chạy tuần tự")
+    void concurrentCheckout_neverOversells() throws Exception {
+        // Chạy nóng JIT & pool kết nối, rồi đo mốc tuần tự (1 luồng) trên 1 sản phẩm riêng cùng tồn kho
+        Product warmup = newProduct("WARMUP", INITIAL_STOCK);
+        runCheckouts(i -> request(line(warmup, 1)), 100, 1);
+        Product serialProduct = newProduct("SERIAL", INITIAL_STOCK);
+        Result serial = runCheckouts(i -> request(line(serialProduct, 1)), CHECKOUTS, 1);
+
+        Product product = newProduct("FLASH-SALE-001", INITIAL_STOCK);
+        Result parallel = runCheckouts(i -> request(line(product, 1)), CHECKOUTS, THREADS);
+
+        // Đúng bằng số hàng trong kho được bán, phần còn lại bị từ chối vì hết hàng
+        assertEquals(INITIAL_STOCK, parallel.placed);
+        assertEquals(CHECKOUTS - INITIAL_STOCK, parallel.rejected);
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+        assertEquals(INITIAL_STOCK, jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(quantity), 0) FROM order_items WHERE product_id = ?", Integer.class, product.getId()));
+
+        // Giữ hàng bằng UPDATE có điều kiện (không khóa bi quan, không chờ khóa lâu): chạy song song không được chậm hơn
+        // hẳn chạy tuần tự trên cùng máy, cùng lần chạy. Bị tuần tự hóa + chờ khóa / timeout thì tụt xa dưới mốc này.
+        assertTrue(parallel.perSecond() >= serial.perSecond() * 0.5,
+                "Thông lượng song song " + (int) parallel.perSecond() + " checkout/s, tuần tự " + (int) serial.perSecond() + " checkout/s");
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    @DisplayName("Giỏ [A, B] và [B, A] checkout song song -> Không deadlock, không bán vượt tồn kho sản phẩm nào")
+    void concurrentMultiLineCarts_oppositeOrder_noDeadlockNoOversell() throws Exception {
+        Product a = newProduct("PAIR-A", 200);
+        Product b = newProduct("PAIR-B", 200);
+
+        // Một nửa giỏ liệt kê A trước, nửa còn lại B trước: lỗi deadlock / hết thời gian chờ khóa làm f.get() ném lỗi
+        Result result = runCheckouts(i -> i % 2 == 0 ? request(line(a, 1), line(b, 1)) : request(line(b, 1), line(a, 1)),
+                600, 16);
+
+        assertEquals(200, result.placed);
+        assertEquals(400, result.rejected);
+        assertEquals(0, productRepository.findById(a.getId()).orElseThrow().getStockQuantity());
+        assertEquals(0, productRepository.findById(b.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("Dòng thứ 2 hết hàng lúc trừ kho -> Cả đơn rollback, dòng 1 không bị trừ")
+    void multiLineCart_lineFailsAtReserve_reservesNothing() {
+        Product a = newProduct("LINE-A", 10);
+        Product b = newProduct("LINE-B", 1);
+        staleStockRead();
+
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> checkout(request(line(a, 2), line(b, 2))));
+
+        assertEquals("ORDER.2E.3", e.getCode());
+        assertEquals(10, productRepository.findById(a.getId()).orElseThrow().getStockQuantity());
+        assertEquals(1, productRepository.findById(b.getId()).orElseThrow().getStockQuantity());
+        assertEquals(0, orderRepository.count());
+    }
+
+    @Test
+    @DisplayName("Nhiều dòng cùng thiếu hàng lúc trừ kho -> Báo dòng đầu tiên theo thứ tự trong giỏ")
+    void multiLineCart_reportsFirstFailingLine() {
+        Product a = newProduct("LINE-A", 10);
+        Product b = newProduct("LINE-B", 1);
+        Product c = newProduct("LINE-C", 1);
+        staleStockRead();
+
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> checkout(request(line(a, 1), line(b, 5), line(c, 5))));
+
+        assertEquals("ORDER.2E.3", e.getCode());
+        assertTrue(e.getMessage().contains("LINE-B (dòng 2)"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("1 sản phẩm nằm ở 2 dòng -> Trừ kho theo tổng số lượng")
+    void sameProductOnTwoLines_reservesSum() {
+        Product a = newProduct("LINE-A", 10);
+        Product b = newProduct("LINE-B", 10);
+
+        checkout(request(line(a, 2), line(b, 1), line(a, 3)));
+
+        assertEquals(5, productRepository.findById(a.getId()).orElseThrow().getStockQuantity());
+        assertEquals(9, productRepository.findById(b.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("1 sản phẩm nằm ở 2 dòng, từng dòng đủ hàng nhưng tổng thì không -> Từ chối, báo dòng đầu của sản phẩm")
+    void sameProductOnTwoLines_sumExceedsStock_isRejected() {
+        Product a = newProduct("LINE-A", 4);
+        staleStockRead();
+
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> checkout(request(line(a, 2), line(a, 3))));
+
+        assertEquals("ORDER.2E.3", e.getCode());
+        assertTrue(e.getMessage().contains("LINE-A (dòng 1) không còn đủ 5"), e.getMessage());
+        assertEquals(4, productRepository.findById(a.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("Yêu cầu nhiều hơn tồn kho -> Không trừ gì cả")
+    void reserveMoreThanStock_isRejected() {
+        Product product = newProduct("FLASH-SALE-002", INITIAL_STOCK);
+
+        assertEquals(List.of(product.getId()), productRepository.reserveStockBatch(new TreeMap<>(Map.of(product.getId(), INITIAL_STOCK + 1))));
+        assertEquals(INITIAL_STOCK, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("Sản phẩm ngừng kinh doanh -> Không giữ được hàng")
+    void inactiveProduct_isRejected() {
+        Product product = newProduct("FLASH-SALE-003", INITIAL_STOCK);
+        product.setActive(false);
+        productRepository.save(product);
+
+        assertEquals(List.of(product.getId()), productRepository.reserveStockBatch(new TreeMap<>(Map.of(product.getId(), 1))));
+    }
+
+    // Bước validate đọc được tồn kho cũ (đơn khác mua hết ngay sau đó) -> chỉ câu UPDATE lúc trừ kho chặn được
+    private void staleStockRead() {
+        when(hotStockLedger.availableStock(anyString(), anyInt())).thenReturn(1000);
+    }
+
+    private void checkout(OrderRequestDTO req) {
+        tx.executeWithoutResult(status -> orderService.createOrder(req));
+    }
+
+    private Result runCheckouts(IntFunction<OrderRequestDTO> requests, int checkouts, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < checkouts; i++) {
+            OrderRequestDTO req = requests.apply(i);
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    checkout(req);
+                    placed.incrementAndGet();
+                } catch (ValidationException e) {
+                    // Hết hàng lúc validate (2E.2 / 2E.3) hoặc lúc trừ kho (2E.3)
+                    if (!e.getCode().startsWith("ORDER.2E.")) throw e;
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        long elapsedNanos = System.nanoTime() - begin;
+        pool.shutdown();
+        return new Result(placed.get(), rejected.get(), checkouts, elapsedNanos);
+    }
+
+    private Product newProduct(String sku, int stock) {
+        Product product = new Product();
+        product.setSku(sku);
+        product.setName("Sản phẩm Flash Sale " + sku);
+        product.setSalePrice(new BigDecimal("99000"));
+        product.setStockQuantity(stock);
+        return productRepository.save(product);
+    }
+
+    private CartItemDTO line(Product product, int quantity) {
+        CartItemDTO item = new CartItemDTO();
+        item.setProductId(product.getId());
+        item.setQuantity(quantity);
+        item.setClientPrice(product.getSalePrice());
+        return item;
+    }
+
+    private OrderRequestDTO request(CartItemDTO... items) {
+
+        OrderRequestDTO req = new OrderRequestDTO();
+        req.setUserId(user.getUserId());
+        req.setRecipientName("Nguyễn Văn An");
+        req.setPhone("0912345678");
+        req.setAddress("12 Nguyễn Trãi, Thanh Xuân, Hà Nội");
+        req.setPaymentMethod(Order.PaymentMethod.COD);
+        req.setItems(List.of(items));
+        return req;
+    }
+
+    private record Result(int placed, int rejected, int checkouts, long elapsedNanos) {
+        double perSecond() {
+            return checkouts / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+}
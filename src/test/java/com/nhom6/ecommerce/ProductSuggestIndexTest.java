@@ -0,0 +1,118 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.dto.ProductSearchDocument;
+import com.nhom6.ecommerce.dto.ProductSuggestionDTO;
+import com.nhom6.ecommerce.service.ProductSuggestIndex;
+import com.nhom6.ecommerce.service.VietnameseText;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSuggestIndexTest {
+
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSuggestIndex();
+    }
+
+    @Test
+    @DisplayName("Gõ không dấu, từ giữa tên, SKU hay mã model đều ra sản phẩm; xếp theo đã bán rồi lượt xem")
+    void suggest_matchesWordStartsSkuAndModel() {
+        index.index(doc("P1", "Điện thoại Samsung Galaxy S24", "SS-S24", "SM-S921", "B1", "Samsung", 50, 10));
+        index.index(doc("P2", "Tai nghe Samsung Buds", "SS-BUDS", "SM-R400", "B1", "Samsung", 50, 900));
+        index.index(doc("P3", "Điện thoại Xiaomi 14", "XM-14", "X14", "B2", "Xiaomi", 300, 0));
+
+        assertEquals(List.of("Điện thoại Xiaomi 14", "Điện thoại Samsung Galaxy S24"), texts(index.suggest("đien th", 10)));
+        // Samsung: thương hiệu (cộng dồn 100 đã bán) đứng trước 2 sản phẩm; P2 nhiều lượt xem hơn P1
+        assertEquals(List.of("Samsung", "Tai nghe Samsung Buds", "Điện thoại Samsung Galaxy S24"), texts(index.suggest("sam", 10)));
+        assertEquals("BRAND", index.suggest("sam", 1).get(0).getType());
+        assertEquals(List.of("P1"), productIds(index.suggest("ss s24", 10)));
+        assertEquals(List.of("P2"), productIds(index.suggest("SM-R", 10)));
+        assertTrue(index.suggest("galaxy s25", 10).isEmpty());
+        assertEquals(1, index.suggest("th", 1).size());
+    }
+
+    @Test
+    @DisplayName("Lưu lại sản phẩm (đổi tên, đổi số đã bán) -> bỏ khóa cũ, xếp hạng lại, thương hiệu tính lại tổng")
+    void reindex_replacesKeysAndRanking() {
+        index.index(doc("P1", "Loa Sony SRS", "SONY-1", null, "B1", "Sony", 10, 0));
+        index.index(doc("P2", "Loa JBL Flip", "JBL-1", null, "B2", "JBL", 20, 0));
+
+        index.index(doc("P1", "Tai nghe Sony WH", "SONY-1", null, "B1", "Sony", 30, 0));
+
+        assertEquals(List.of("Loa JBL Flip"), texts(index.suggest("loa", 10)));
+        // Sony chỉ có 1 sản phẩm: thương hiệu & sản phẩm cùng 30 đã bán, đều đứng trên JBL (20)
+        assertEquals(Set.of("Sony", "Tai nghe Sony WH"), Set.copyOf(texts(index.suggest("so", 10))));
+        assertEquals(4, index.size()); // 2 sản phẩm + 2 thương hiệu
+    }
+
+    @Test
+    @DisplayName("Nhiều sản phẩm (lá bị tách thành nút trong) -> kết quả giống hệt lọc & sắp xếp toàn bộ")
+    void manyProducts_sameAsBruteForce() {
+        String[] words = {"may", "lọc", "nước", "quạt", "điện", "nồi", "cơm", "loa", "laptop", "lò"};
+        List<ProductSearchDocument> docs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String name = words[i % words.length] + " " + words[(i * 7 + 3) % words.length] + " " + (i * 37 % 1000);
+            ProductSearchDocument doc = doc("P" + i, name, "SKU-" + i, "M" + i, null, null, i * 13 % 97, i);
+            docs.add(doc);
+            index.index(doc);
+        }
+        // Sửa 1 phần để đi qua đường gỡ khóa / tính lại top
+        for (int i = 0; i < 2000; i += 3) {
+            ProductSearchDocument doc = docs.get(i);
+            doc.setSoldCount(doc.getSoldCount() + 50);
+            index.index(doc);
+        }
+
+        for (String q : List.of("l", "lo", "loa", "may l", "noi com", "dien 5", "sku-1", "m19", "quat", "lo loc 1")) {
+            String prefix = VietnameseText.phrase(q);
+            List<String> expected = docs.stream()
+                    .filter(d -> matches(d, prefix))
+                    .sorted(Comparator.comparingInt(ProductSearchDocument::getSoldCount).reversed()
+                            .thenComparing(Comparator.comparingInt(ProductSearchDocument::getViewCount).reversed()))
+                    .limit(10)
+                    .map(ProductSearchDocument::getId)
+                    .toList();
+            assertEquals(expected, productIds(index.suggest(q, 10)), "q=" + q);
+        }
+    }
+
+    private static boolean matches(ProductSearchDocument doc, String prefix) {
+        String name = VietnameseText.phrase(doc.getName());
+        if (name.startsWith(prefix) || name.contains(" " + prefix)) return true;
+        return VietnameseText.phrase(doc.getSku()).startsWith(prefix) || VietnameseText.phrase(doc.getModelCode()).startsWith(prefix);
+    }
+
+    private static ProductSearchDocument doc(String id, String name, String sku, String modelCode,
+                                             String brandId, String brandName, int sold, int views) {
+        ProductSearchDocument doc = new ProductSearchDocument();
+        doc.setId(id);
+        doc.setName(name);
+        doc.setSku(sku);
+        doc.setModelCode(modelCode);
+        doc.setBrandId(brandId);
+        doc.setBrandName(brandName);
+        doc.setSoldCount(sold);
+        doc.setViewCount(views);
+        doc.setCreatedAt(new Date(1_700_000_000_000L));
+        return doc;
+    }
+
+    private static List<String> texts(List<ProductSuggestionDTO> suggestions) {
+        return suggestions.stream().map(ProductSuggestionDTO::getText).toList();
+    }
+
+    private static List<String> productIds(List<ProductSuggestionDTO> suggestions) {
+        return suggestions.stream().map(ProductSuggestionDTO::getProductId).toList();
+    }
+}
@@ -0,0 +1,50 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.exception.ValidationException;
+import com.nhom6.ecommerce.service.StageMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StageMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private StageMetrics stageMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        stageMetrics = new StageMetrics(registry);
+    }
+
+    @Test
+    @DisplayName("Chạy thành công (không có transaction) -> Ghi từng bước và tổng thời gian success")
+    void success_recordsEachStage() {
+        String result = stageMetrics.record("checkout", clock -> {
+            clock.lap("validate_input");
+            clock.lap("order_save");
+            return "OK";
+        });
+
+        assertEquals("OK", result);
+        assertEquals(1, registry.get("service.stage").tag("operation", "checkout").tag("stage", "validate_input").timer().count());
+        assertEquals(1, registry.get("service.stage").tag("stage", "order_save").timer().count());
+        assertEquals(1, registry.get("service.operation").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    @DisplayName("Lỗi nghiệp vụ -> Đếm theo mã lỗi, outcome rejected, ném lại exception")
+    void domainException_countedByCode() {
+        assertThrows(ValidationException.class, () -> stageMetrics.record("checkout", clock -> {
+            clock.lap("validate_input");
+            throw new ValidationException("ORDER.3E.1", "3E.1: Mã giảm giá không tồn tại.");
+        }));
+
+        assertEquals(1.0, registry.get("service.rejections").tag("operation", "checkout").tag("code", "ORDER.3E.1").counter().count());
+        assertEquals(1, registry.get("service.operation").tag("outcome", "rejected").timer().count());
+        assertNull(registry.find("service.operation").tag("outcome", "success").timer());
+    }
+}
@@ -0,0 +1,112 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.service.StripedStockCounter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedStockCounterTest {
+
+    @Test
+    @DisplayName("Giữ hàng đồng thời trên nhiều stripe -> Không bán vượt tồn kho")
+    void concurrentReserve_neverOversells() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(8, 1000);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+
+        for (int i = 0; i < 5000; i++) {
+            pool.submit(() -> {
+                start.await();
+                if (counter.tryReserve(1)) reserved.incrementAndGet();
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(1000, reserved.get());
+        assertEquals(0, counter.available());
+    }
+
+    @Test
+    @DisplayName("Stripe hiện tại không đủ -> Gom lại từ các stripe khác")
+    void reserve_rebalancesWhenStripeRunsDry() {
+        StripedStockCounter counter = new StripedStockCounter(4, 10); // 3-3-2-2
+
+        assertTrue(counter.tryReserve(7));
+        assertEquals(3, counter.available());
+        assertFalse(counter.tryReserve(4));
+        assertEquals(3, counter.available());
+    }
+
+    @Test
+    @DisplayName("Trả lại hàng -> Tồn kho được cộng lại")
+    void release_restoresStock() {
+        StripedStockCounter counter = new StripedStockCounter(2, 5);
+
+        assertTrue(counter.tryReserve(2));
+        assertTrue(counter.release(2));
+
+        assertEquals(5, counter.available());
+    }
+
+    @Test
+    @DisplayName("Đã đóng sổ kho -> Không cho giữ hàng")
+    void closed_rejectsReservations() {
+        StripedStockCounter counter = new StripedStockCounter(2, 5);
+        counter.close();
+
+        assertThrows(IllegalStateException.class, () -> counter.tryReserve(1));
+    }
+
+    @Test
+    @DisplayName("Trả hàng sau khi đóng sổ kho -> Báo cho người gọi, không cộng lại")
+    void closed_rejectsRelease() {
+        StripedStockCounter counter = new StripedStockCounter(2, 5);
+        assertTrue(counter.tryReserve(2));
+        counter.close();
+
+        assertFalse(counter.release(2));
+        assertEquals(3, counter.available());
+    }
+
+    @Test
+    @DisplayName("Đang rebalance -> Đọc tồn kho không bao giờ thấy 0 khi vẫn còn hàng")
+    void available_neverReadsZeroDuringRebalance() throws Exception {
+        // 8 stripe x 1250: mỗi lượt giữ 1300 đều phải gom lại; tối đa 7 lượt thành công -> luôn còn >= 900
+        StripedStockCounter counter = new StripedStockCounter(8, 10_000);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger zeroReads = new AtomicInteger();
+
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                if (counter.available() == 0) zeroReads.incrementAndGet();
+            }
+        });
+        reader.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 200; i++) {
+            pool.submit(() -> {
+                if (counter.tryReserve(1300)) counter.release(1300);
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        running.set(false);
+        reader.join();
+
+        assertEquals(0, zeroReads.get());
+        assertEquals(10_000, counter.available());
+    }
+}
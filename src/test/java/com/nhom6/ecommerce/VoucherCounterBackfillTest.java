@@ -0,0 +1,80 @@
+package com.nhom6.ecommerce;
+
+import com.nhom6.ecommerce.entity.Order;
+import com.nhom6.ecommerce.entity.User;
+import com.nhom6.ecommerce.entity.UserOrderStats;
+import com.nhom6.ecommerce.repository.DataMigrationRepository;
+import com.nhom6.ecommerce.repository.OrderRepository;
+import com.nhom6.ecommerce.repository.UserOrderStatsRepository;
+import com.nhom6.ecommerce.repository.UserRepository;
+import com.nhom6.ecommerce.service.VoucherCounterBackfill;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Migration nạp bảng đếm voucher: chạy đúng 1 lần, tính lại cả khi bảng đếm đã có dòng do checkout ghi trước
+ */
+@DataJpaTest
+@Import(VoucherCounterBackfill.class)
+class VoucherCounterBackfillTest {
+
+    @Autowired private VoucherCounterBackfill backfill;
+    @Autowired private DataMigrationRepository migrationRepository;
+    @Autowired private UserOrderStatsRepository userOrderStatsRepository;
+    @Autowired private OrderRepository orderRepository;
+    @Autowired private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        // Lúc khởi động context migration đã chạy trên DB trống -> xóa cờ để chạy lại với dữ liệu test
+        migrationRepository.deleteAll();
+
+        user = new User();
+        user.setEmail("backfill@test.vn");
+        user.setPassword("123456");
+        user.setRole(User.Role.CUSTOMER);
+        user = userRepository.saveAndFlush(user);
+    }
+
+    @Test
+    @DisplayName("Bảng đếm đã có dòng từ 1 checkout -> Vẫn nạp lại đúng số đơn, lần chạy sau bỏ qua")
+    void backfill_recountsOnceAndRecordsCompletion() {
+        orderRepository.saveAndFlush(order());
+        orderRepository.saveAndFlush(order());
+        // Checkout sau khi nâng cấp đã cộng 1 đơn trước khi nạp số liệu cũ
+        UserOrderStats stats = new UserOrderStats();
+        stats.setUserId(user.getUserId());
+        stats.setOrderCount(1L);
+        userOrderStatsRepository.saveAndFlush(stats);
+
+        backfill.backfill();
+        assertEquals(2L, userOrderStatsRepository.findOrderCount(user.getUserId()).orElseThrow());
+        assertTrue(migrationRepository.existsById("voucher_counters_backfill"));
+
+        // Đã đánh dấu hoàn tất: không tính lại nữa
+        orderRepository.saveAndFlush(order());
+        backfill.backfill();
+        assertEquals(2L, userOrderStatsRepository.findOrderCount(user.getUserId()).orElseThrow());
+    }
+
+    private Order order() {
+        Order order = new Order();
+        order.setUser(user);
+        order.setRecipientName("Nguyễn Văn An");
+        order.setPhone("0912345678");
+        order.setAddress("12 Nguyễn Trãi, Thanh Xuân, Hà Nội");
+        order.setPaymentMethod(Order.PaymentMethod.COD);
+        order.setTotalAmount(new BigDecimal("500000"));
+        return order;
+    }
+}